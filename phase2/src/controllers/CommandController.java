@@ -0,0 +1,553 @@
+package controllers;
+
+import enums.CommandStatus;
+import enums.ConvoType;
+import enums.UserOption;
+import enums.UserType;
+import gateways.ConversationRouter;
+import use_cases.*;
+import value_holders.CatalogueSnapshot;
+import value_holders.CommandRequest;
+import value_holders.CommandResult;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs the options of MainController as single commands, without a console. Each command names a UserOption and
+ * gives, as parameters, the answers MainController would have asked for; the result holds the text it would have
+ * printed. Logging in gives a session token that the following commands of that session are sent with. A session may
+ * only perform the options its user would be offered in the menu.
+ * Any number of sessions can send commands at the same time; the commands of one session are performed one at a time.
+ * A session that sends no command for a while is ended, and once there are too many sessions, those idle the longest
+ * are ended to make room for new ones (see setSessionLimits), so that sessions nobody logs out of are not kept forever.
+ * Given a WriterLoop, every command that changes the conference is performed on its writer thread instead, one
+ * command after another, while commands that only look are performed on the caller's thread.
+ * On a replica of the conference (see Conference.isReplica), only the commands that do not change it are performed.
+ * Commands pass the conference's AdmissionController, which turns the least important away while commands take too
+ * long, and its RateLimiter, which turns a user away who performs an option too often. The latency recorded for the
+ * AdmissionController runs from when a command is submitted, so it includes any wait for the WriterLoop.
+ */
+public class CommandController {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final long DEFAULT_SESSION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int DEFAULT_MAX_SESSIONS = 100000;
+    private static final int SWEEP_EVERY = 4096;
+
+    private final Conference conference;
+    private final EventsManager eventsManager;
+    private final RoomManager roomManager;
+    private final ConversationManager conversationManager;
+    private final EventCatalogue eventCatalogue;
+    private final NotificationDispatcher notificationDispatcher;
+    private final AdmissionController admissionController;
+    private final RateLimiter rateLimiter;
+    private final UserController userController = new UserController();
+    private final OrganizerController organizerController = new OrganizerController();
+    private final SpeakerController speakerController = new SpeakerController();
+    private final VipController vipController = new VipController();
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger untilSweep = new AtomicInteger(SWEEP_EVERY);
+    private volatile long sessionIdleNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SESSION_IDLE_MILLIS);
+    private volatile int maxSessions = DEFAULT_MAX_SESSIONS;
+    private final WriterLoop writerLoop;
+
+    /**
+     * The options that do not change the conference. LOG_IN, LOG_OUT and EXIT only start or end a session.
+     */
+    private static final EnumSet<UserOption> READ_ONLY = EnumSet.of(UserOption.LOG_IN, UserOption.LOG_OUT,
+            UserOption.EXIT, UserOption.EXPLORE_AS_A_GUEST, UserOption.VIEW_ALL_EVENTS,
+            UserOption.VIEW_AVAILABLE_EVENTS, UserOption.VIEW_SIGN_UP_EVENTS, UserOption.VIEW_EVENTS_BY_DAY,
+            UserOption.VIEW_EVENTS_BY_SPEAKER, UserOption.VIEW_SCHEDULED_TALK, UserOption.VIEW_TALK_ATTENDEES,
+            UserOption.VIEW_CONFERENCE_STATS);
+
+    /**
+     * The messaging actions that only look, and so can be performed on a replica. Reading a conversation's messages
+     * marks it as read, so it is not one of them.
+     */
+    private static final Set<String> REPLICA_MESSAGING = new HashSet<>(Arrays.asList("conversations", "search"));
+
+    /**
+     * Constructor for CommandController.
+     * @param conference the conference the commands are performed on
+     */
+    public CommandController(Conference conference) {
+        this(conference, null);
+    }
+
+    /**
+     * Constructor for a CommandController that performs the commands that change the conference on a WriterLoop.
+     * @param conference the conference the commands are performed on
+     * @param writerLoop the WriterLoop to perform changes on, or null to perform every command on the caller's thread
+     */
+    public CommandController(Conference conference, WriterLoop writerLoop) {
+        this.conference = conference;
+        this.writerLoop = writerLoop;
+        this.eventsManager = conference.getEventsManager();
+        this.roomManager = conference.getRoomManager();
+        this.conversationManager = conference.getConversationManager();
+        this.eventCatalogue = conference.getEventCatalogue();
+        this.notificationDispatcher = conference.getNotificationDispatcher();
+        this.admissionController = conference.getAdmissionController();
+        this.rateLimiter = conference.getRateLimiter();
+    }
+
+    /**
+     * Perform a command, and wait for its outcome.
+     * @param request the command to perform
+     * @return the outcome of the command. A missing or unknown session is UNAUTHORIZED, an option the session's user
+     * is not offered is FORBIDDEN, and missing or unusable parameters are INVALID. A command turned away because the
+     * conference is answering too slowly is OVERLOADED, and one the user has performed too often is RATE_LIMITED.
+     */
+    public CommandResult handle(CommandRequest request) {
+        return submit(request).join();
+    }
+
+    /**
+     * Perform a command without waiting for it, if it changes the conference and there is a WriterLoop.
+     * @param request the command to perform
+     * @return a future completed with the outcome of the command (see handle)
+     */
+    public CompletableFuture<CommandResult> submit(CommandRequest request) {
+        long arrived = System.nanoTime();
+        if (writerLoop == null || READ_ONLY.contains(request.getOption())) {
+            return CompletableFuture.completedFuture(execute(request, arrived));
+        }
+        return writerLoop.submit(() -> execute(request, arrived));
+    }
+
+    private CommandResult execute(CommandRequest request, long arrived) {
+        CommandResult result = dispatch(request);
+        if (result.getStatus() != CommandStatus.OVERLOADED && result.getStatus() != CommandStatus.RATE_LIMITED) {
+            admissionController.record(System.nanoTime() - arrived);
+        }
+        return result;
+    }
+
+    private CommandResult dispatch(CommandRequest request) {
+        UserOption option = request.getOption();
+        if (option == null) {
+            return invalid("Unknown option.", null);
+        }
+        if (conference.isReplica() && !READ_ONLY.contains(option) && !(option == UserOption.ACCESS_MESSAGING &&
+                REPLICA_MESSAGING.contains(String.valueOf(request.getParameter("action"))))) {
+            return new CommandResult(CommandStatus.FORBIDDEN, "This is a read-only replica; send " + option +
+                    " to the primary.", request.getSessionToken());
+        }
+        if (option == UserOption.EXPLORE_AS_A_GUEST &&
+                !admissionController.admit(AdmissionController.priorityOf(null, option))) {
+            return overloaded(null);
+        }
+        if (option == UserOption.LOG_IN) {
+            try {
+                return login(request);
+            } catch (IllegalArgumentException e) {
+                return invalid(e.getMessage(), null);
+            }
+        }
+        if (option == UserOption.EXPLORE_AS_A_GUEST) {
+            UserManager session = conference.newUserSession();
+            String message = userController.loginAsAGuest(session);
+            return new CommandResult(CommandStatus.OK, message, startSession(session));
+        }
+        long now = System.nanoTime();
+        if (untilSweep.decrementAndGet() <= 0) {
+            untilSweep.set(SWEEP_EVERY);
+            endIdleSessions(now);
+        }
+        String token = request.getSessionToken();
+        Session started = token == null ? null : sessions.get(token);
+        if (started == null) {
+            return new CommandResult(CommandStatus.UNAUTHORIZED, "Log in or explore as a guest first.", null);
+        }
+        if (now - started.lastUsed > sessionIdleNanos) {
+            sessions.remove(token, started);
+            return new CommandResult(CommandStatus.UNAUTHORIZED, "Your session has expired; log in again.", null);
+        }
+        started.lastUsed = now;
+        UserManager session = started.user;
+        synchronized (session) {
+            if (!userController.getUserOptions(session).contains(option)) {
+                return new CommandResult(CommandStatus.FORBIDDEN, "You cannot " + option + ".", token);
+            }
+            if (!admissionController.admit(AdmissionController.priorityOf(session.getActiveUserType(), option))) {
+                return overloaded(token);
+            }
+            if (option != UserOption.ACCESS_MESSAGING && !rateLimiter.tryAcquire(session.getActiveUserId(), option)) {
+                return new CommandResult(CommandStatus.RATE_LIMITED, "You have done that too often; wait a moment " +
+                        "and try again.", token);
+            }
+            try {
+                return perform(session, token, request);
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                return invalid(e.getMessage(), token);
+            }
+        }
+    }
+
+    /**
+     * @return The number of sessions that are logged in
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Set how long a session may go without sending a command before it is ended, and how many sessions there may be
+     * at once. Sessions already started are held to the new limits.
+     * @param idleMillis how long a session may be idle, in milliseconds
+     * @param maxSessions the most sessions there may be; starting one more ends those idle the longest
+     */
+    public void setSessionLimits(long idleMillis, int maxSessions) {
+        this.sessionIdleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maxSessions = Math.max(maxSessions, 1);
+    }
+
+    /**
+     * Logs in with the request's credentials. The login is admitted only once the credentials are checked, at the
+     * priority of the user's type, so that organizers can still log in while the conference is slow.
+     */
+    private CommandResult login(CommandRequest request) {
+        UserManager session = conference.newUserSession();
+        if (!userController.login(session, required(request, "email"), required(request, "password"))) {
+            return new CommandResult(CommandStatus.UNAUTHORIZED, "Invalid credentials.", null);
+        }
+        if (!admissionController.admit(AdmissionController.priorityOf(session.getActiveUserType(),
+                UserOption.LOG_IN))) {
+            userController.logout(session);
+            return overloaded(null);
+        }
+        return new CommandResult(CommandStatus.OK, "Logged in successfully.", startSession(session));
+    }
+
+    private String startSession(UserManager session) {
+        long now = System.nanoTime();
+        if (sessions.size() >= maxSessions) {
+            endIdleSessions(now);
+            if (sessions.size() >= maxSessions) {
+                endLongestIdleSessions();
+            }
+        }
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, new Session(session, now));
+        return token;
+    }
+
+    /**
+     * End the sessions that have been idle for too long.
+     */
+    private void endIdleSessions(long now) {
+        long idleNanos = sessionIdleNanos;
+        sessions.values().removeIf(started -> now - started.lastUsed > idleNanos);
+    }
+
+    /**
+     * End the tenth of the sessions that have been idle the longest, so that the next sessions started have room
+     * without looking through every session each time.
+     */
+    private void endLongestIdleSessions() {
+        List<Map.Entry<String, Session>> byLastUse = new ArrayList<>(sessions.entrySet());
+        byLastUse.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+        int excess = byLastUse.size() - maxSessions + Math.max(maxSessions / 10, 1);
+        for (int i = 0; i < excess && i < byLastUse.size(); i++) {
+            sessions.remove(byLastUse.get(i).getKey(), byLastUse.get(i).getValue());
+        }
+    }
+
+    private CommandResult perform(UserManager session, String token, CommandRequest request) {
+        switch (request.getOption()) {
+            case LOG_OUT:
+            case EXIT:
+                sessions.remove(token);
+                userController.logout(session);
+                return ok("Logging out... good bye!", null);
+            case VIEW_ALL_EVENTS:
+                CatalogueSnapshot catalogue = eventCatalogue.getSnapshot();
+                return listed(catalogue.getRows(), catalogue.getEventIds(), "There are currently no events scheduled.",
+                        token);
+            case VIEW_AVAILABLE_EVENTS:
+                return listEvents(eventsManager.getNoConflictEventIds(session.getEventList()), "There are currently " +
+                        "no events that are available for you to sign up to. Either those events are full or you " +
+                        "have a schedule conflict with those events.", token);
+            case VIEW_SIGN_UP_EVENTS:
+                return listEvents(session.getEventList(), "You are not signed up to any events currently.", token);
+            case VIEW_EVENTS_BY_DAY:
+                LocalDate date = LocalDate.parse(required(request, "date"), DATE_FORMAT);
+                return ok(userController.viewEventsByDay(eventsManager, roomManager, date), token);
+            case VIEW_EVENTS_BY_SPEAKER:
+                if (request.getParameter("speaker") == null) {
+                    return listUsers(session, session.getAllUsersOfType(UserType.SPEAKER),
+                            "No speaker's are currently registered", token);
+                }
+                UUID speakerId = speaker(session, request);
+                return ok(speakerController.viewScheduledTalks(session, eventsManager, roomManager, speakerId), token);
+            case SIGN_UP_FOR_EVENT:
+                return ok(userController.signUpToEvent(session, eventsManager, roomManager, event(request)), token);
+            case CANCEL_SPOT_FOR_EVENT:
+                return ok(userController.disEnrollToEvent(session, eventsManager, roomManager, notificationDispatcher,
+                        event(request)), token);
+            case ACCESS_MESSAGING:
+                return messaging(session, token, request);
+            case VIEW_SCHEDULED_TALK:
+                return ok(speakerController.viewScheduledTalks(session, eventsManager, roomManager, null), token);
+            case VIEW_TALK_ATTENDEES:
+                return ok(speakerController.viewEventAttendees(eventsManager, session, scheduledTalk(session, request)),
+                        token);
+            case SEND_MESSAGE_TO_EVENT_ATTENDEES:
+                return ok(speakerController.sendMessageToEventAttendees(eventsManager, session, conversationManager,
+                        required(request, "content"), scheduledTalk(session, request)), token);
+            case SEND_MESSAGE_TO_ALL:
+                UserType group = UserType.valueOf(required(request, "group").toUpperCase());
+                if (group != UserType.ATTENDEE && group != UserType.SPEAKER) {
+                    return invalid("Messages can be sent to all attendees or all speakers.", token);
+                }
+                return ok(organizerController.sendMessageToAll(session, conversationManager,
+                        required(request, "content"), group), token);
+            case CREATE_USER:
+                UserType type = UserType.valueOf(required(request, "type").toUpperCase());
+                if (type == UserType.GUEST) {
+                    return invalid("Guest accounts cannot be created.", token);
+                }
+                return ok(organizerController.createUser(session, required(request, "email"),
+                        required(request, "password"), required(request, "name"), type.name()), token);
+            case CHANGE_USER_TYPE:
+                UserType newType = UserType.valueOf(required(request, "type").toUpperCase());
+                if (newType == UserType.GUEST) {
+                    return invalid("Users cannot be made guests.", token);
+                }
+                return ok(organizerController.changeUserType(session, required(request, "email"),
+                        required(request, "password"), newType.name()), token);
+            case SCHEDULE_SPEAKER_TALK:
+                return ok(organizerController.addSpeaker(eventsManager, notificationDispatcher,
+                        speaker(session, request), event(request)), token);
+            case REMOVE_SPEAKER:
+                return ok(organizerController.removeSpeaker(eventsManager, event(request), speaker(session, request)),
+                        token);
+            case CANCEL_EVENT:
+                organizerController.cancelEvent(eventsManager, roomManager, notificationDispatcher, event(request));
+                return ok("Selected event has been cancelled.", token);
+            case CHANGE_CAPACITY:
+                int capacity = Integer.parseInt(required(request, "capacity"));
+                return ok(organizerController.changeEventCapacity(eventsManager, session, roomManager,
+                        notificationDispatcher, event(request), capacity), token);
+            case VIEW_CONFERENCE_STATS:
+                return conferenceStats(session, token);
+            case MANAGE_INTERESTED_EVENTS:
+                return interestedEvents(session, token, request);
+            case MANAGE_FAVOURITE_SPEAKERS:
+                return favouriteSpeakers(session, token, request);
+            default:
+                return invalid(request.getOption() + " is only available in the console.", token);
+        }
+    }
+
+    /**
+     * The messenger: "conversations" (the default) lists the session's conversations, "messages" shows one of them,
+     * "send" starts a conversation, "reply" answers one, and "search" searches the session's messages. When the
+     * conference keeps direct conversations in partitions (see Conference.setConversationRouter), "send" starts them
+     * there, and "messages" and "reply" take a partitioned conversation by its id as well as any other by its index.
+     * Search only covers the conversations kept by the conference itself. Only "send" and "reply" are charged to the
+     * RateLimiter, once for each message.
+     */
+    private CommandResult messaging(UserManager session, String token, CommandRequest request) {
+        String action = request.getParameter("action") == null ? "conversations" : request.getParameter("action");
+        ConversationRouter router = conference.getConversationRouter();
+        switch (action) {
+            case "conversations":
+                return ok(router == null ? userController.viewConversations(session, conversationManager) :
+                        userController.viewConversations(session, conversationManager, router), token);
+            case "messages":
+                UUID partitioned = partitionedConversation(request, router);
+                return ok(partitioned != null ? userController.viewMessages(session, router, partitioned) :
+                        userController.viewMessages(session, conversationManager, conversation(request)), token);
+            case "send":
+                if (!rateLimiter.tryAcquire(session.getActiveUserId(), UserOption.ACCESS_MESSAGING)) {
+                    return messagesLimited(token);
+                }
+                ArrayList<Integer> recipients = new ArrayList<>();
+                for (String recipient : required(request, "recipients").split(",")) {
+                    int index = session.findUserByEmail(recipient.trim());
+                    if (index == -1) {
+                        return invalid("No user with the email " + recipient.trim() + ".", token);
+                    }
+                    recipients.add(index);
+                }
+                return ok(router != null ?
+                        userController.sendMessage(session, router, required(request, "content"), recipients) :
+                        userController.sendMessage(session, conversationManager, required(request, "content"),
+                                recipients, ConvoType.DIRECT), token);
+            case "reply":
+                if (!rateLimiter.tryAcquire(session.getActiveUserId(), UserOption.ACCESS_MESSAGING)) {
+                    return messagesLimited(token);
+                }
+                partitioned = partitionedConversation(request, router);
+                return ok(partitioned != null ?
+                        userController.replyToConversation(router, session, required(request, "content"),
+                                partitioned) :
+                        userController.replyToConversation(conversationManager, session,
+                                required(request, "content"), conversation(request)), token);
+            case "search":
+                return ok(userController.searchMessages(session, conversationManager, required(request, "query")),
+                        token);
+            default:
+                return invalid("Unknown messaging action: " + action, token);
+        }
+    }
+
+    private CommandResult messagesLimited(String token) {
+        return new CommandResult(CommandStatus.RATE_LIMITED, "You have sent too many messages; wait a moment and " +
+                "try again.", token);
+    }
+
+    private CommandResult conferenceStats(UserManager session, String token) {
+        List<String> rows = new ArrayList<>();
+        for (Map.Entry<String, Integer> event : userController.statsGetTopEnrolledEvents(eventsManager).entrySet()) {
+            rows.add("Event " + event.getKey() + ": " + event.getValue() + " attendee(s)");
+        }
+        for (Map.Entry<String, Integer> user : userController.statsGetTopEnrolledUsers(session).entrySet()) {
+            rows.add("User " + user.getKey() + ": " + user.getValue() + " event(s)");
+        }
+        return new CommandResult(CommandStatus.OK, "Enrolments of every event and every user.", rows,
+                new ArrayList<>(), token);
+    }
+
+    private CommandResult interestedEvents(UserManager session, String token, CommandRequest request) {
+        String action = request.getParameter("action") == null ? "list" : request.getParameter("action");
+        switch (action) {
+            case "list":
+                return listEvents(vipController.getInterestedEventIds(session),
+                        "You are not interested in any events currently.", token);
+            case "add":
+                return ok(vipController.interestedInEvent(session, event(request)), token);
+            case "remove":
+                return ok(vipController.uninterestedInEvent(session, event(request)), token);
+            default:
+                return invalid("Unknown action: " + action, token);
+        }
+    }
+
+    private CommandResult favouriteSpeakers(UserManager session, String token, CommandRequest request) {
+        String action = request.getParameter("action") == null ? "list" : request.getParameter("action");
+        switch (action) {
+            case "list":
+                return listUsers(session, vipController.getFavouriteSpeakersIds(session),
+                        "You have no favourite speakers yet.", token);
+            case "add":
+                return ok(vipController.addFavouriteSpeaker(session, speaker(session, request)), token);
+            case "remove":
+                return ok(vipController.removeFavouriteSpeaker(session, speaker(session, request)), token);
+            default:
+                return invalid("Unknown action: " + action, token);
+        }
+    }
+
+    private CommandResult listEvents(List<UUID> eventIds, String whenEmpty, String token) {
+        // A cancelled event stays in its attendees' lists until the notification workers remove it.
+        List<UUID> existing = new ArrayList<>(eventIds);
+        existing.removeIf(eventId -> !eventsManager.hasEvent(eventId));
+        return listed(eventCatalogue.getRows(existing), existing, whenEmpty, token);
+    }
+
+    private CommandResult listUsers(UserManager session, List<UUID> userIds, String whenEmpty, String token) {
+        return listed(session.displayUsers(userIds), userIds, whenEmpty, token);
+    }
+
+    private CommandResult listed(List<String> rows, List<UUID> ids, String whenEmpty, String token) {
+        return new CommandResult(CommandStatus.OK, rows.isEmpty() ? whenEmpty : "", rows, ids, token);
+    }
+
+    private CommandResult ok(String message, String token) {
+        return new CommandResult(CommandStatus.OK, message, token);
+    }
+
+    private CommandResult overloaded(String token) {
+        return new CommandResult(CommandStatus.OVERLOADED, "The conference is busy; try again shortly.", token);
+    }
+
+    private CommandResult invalid(String message, String token) {
+        return new CommandResult(CommandStatus.INVALID, message, token);
+    }
+
+    private String required(CommandRequest request, String name) {
+        String value = request.getParameter(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private UUID event(CommandRequest request) {
+        String id = required(request, "event");
+        UUID eventId;
+        try {
+            eventId = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("No such event.");
+        }
+        if (!eventsManager.hasEvent(eventId)) {
+            throw new IllegalArgumentException("No such event.");
+        }
+        return eventId;
+    }
+
+    /**
+     * The event parameter, which must be one of the talks of the session's speaker.
+     */
+    private UUID scheduledTalk(UserManager session, CommandRequest request) {
+        UUID eventId = event(request);
+        if (!speakerController.getScheduledTalkIds(session, eventsManager, null).contains(eventId)) {
+            throw new IllegalArgumentException("You are not speaking at this event.");
+        }
+        return eventId;
+    }
+
+    /**
+     * The speaker parameter, given as the speaker's email.
+     */
+    private UUID speaker(UserManager session, CommandRequest request) {
+        String email = required(request, "speaker");
+        int index = session.findUserByEmail(email);
+        if (index == -1 || session.getUserByIndex(index).getType() != UserType.SPEAKER) {
+            throw new IllegalArgumentException("No speaker with the email " + email + ".");
+        }
+        return session.getUserIdByIndex(index);
+    }
+
+    private int conversation(CommandRequest request) {
+        return Integer.parseInt(required(request, "conversation"));
+    }
+
+    /**
+     * @return The id of the partitioned conversation the request names, or null if it names one by its index or
+     * conversations are not partitioned
+     */
+    private UUID partitionedConversation(CommandRequest request, ConversationRouter router) {
+        if (router == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(required(request, "conversation"));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A session's user, and when it last sent a command.
+     */
+    private static class Session {
+        final UserManager user;
+        volatile long lastUsed;
+
+        Session(UserManager user, long lastUsed) {
+            this.user = user;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package controllers;
+
+import entities.Conversation;
+import entities.Event;
+import entities.Room;
+import entities.User;
+import enums.UserOption;
+import gateways.ConversationRouter;
+import gateways.ReadWriteSerializable;
+import main.TestData;
+import use_cases.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The managers of the conference, loaded from the save data, or filled with demo data on the first launch. One
+ * Conference is shared by every session, whether typed at the console or sent in as commands; each session logs in
+ * through its own UserManager from newUserSession.
+ */
+public class Conference {
+    private static final int NOTIFICATION_WORKERS = 2;
+    private static final int NOTIFICATION_QUEUE_CAPACITY = 8192;
+    private static final long ADMISSION_LATENCY_TARGET_MILLIS = 250;
+    private static final long COMPACTION_PERIOD_MILLIS = 10000;
+
+    private final ReadWriteSerializable readWriteSerializable = new ReadWriteSerializable();
+    private final UserManager userManager;
+    private final EventsManager eventsManager;
+    private final ConversationManager conversationManager;
+    private final RoomManager roomManager;
+    private final UserRequestManager userRequestManager;
+    private final ConversationCompactor conversationCompactor;
+    private final EventCatalogue eventCatalogue;
+    private final NotificationDispatcher notificationDispatcher;
+    private final List<UUID> unbookedEventIds;
+    private final boolean replica;
+    private final RateLimiter rateLimiter = newRateLimiter();
+    private final AdmissionController admissionController = new AdmissionController(ADMISSION_LATENCY_TARGET_MILLIS);
+    private volatile ConversationRouter conversationRouter;
+
+    /**
+     * Loads the conference from the save data, or creates it with demo data if there is none.
+     */
+    public Conference() {
+        if (readWriteSerializable.hasSaveData()) {
+            this.userManager = new UserManager(this.readWriteSerializable.usersReadFromSerializable());
+            this.conversationManager = new ConversationManager(this.readWriteSerializable.conversationsReadFromSerializable(),
+                    this.readWriteSerializable.messageIndexReadFromSerializable());
+            this.roomManager = new RoomManager(this.readWriteSerializable.roomsReadFromSerializable());
+            this.eventsManager = new EventsManager(this.readWriteSerializable.eventsReadFromSerializable());
+            this.userRequestManager = new UserRequestManager(this.readWriteSerializable.userRequestsReadFromSerializable());
+        } else { // App's first launch, let's generate test data.
+            this.userManager = new UserManager(new ArrayList<>());
+            this.conversationManager = new ConversationManager(new ArrayList<>());
+            this.roomManager = new RoomManager(new HashMap<>());
+            this.eventsManager = new EventsManager(new HashMap<>());
+            this.userRequestManager = new UserRequestManager(new ArrayList<>());
+            TestData.generateUsersDemoData(userManager);
+            TestData.generateConversationsDemoData(userManager, conversationManager);
+            TestData.generateRoomsDemoData(roomManager);
+            TestData.generateEventsDemoData(roomManager, eventsManager, userManager);
+        }
+        this.unbookedEventIds = roomManager.reconcileBookings(eventsManager);
+        this.eventCatalogue = new EventCatalogue(eventsManager, roomManager);
+        this.conversationCompactor = new ConversationCompactor(conversationManager, userManager);
+        this.notificationDispatcher = new NotificationDispatcher(userManager, conversationManager,
+                NOTIFICATION_WORKERS, NOTIFICATION_QUEUE_CAPACITY);
+        this.replica = false;
+        conversationCompactor.compact();
+        // Free messages every participant has deleted every so often, so long sessions don't keep them around.
+        conversationCompactor.start(COMPACTION_PERIOD_MILLIS);
+    }
+
+    /**
+     * Creates a read-only copy of a conference over managers that are kept up to date elsewhere, such as by a
+     * ReplicationReplica. Nothing is loaded, reconciled, compacted or saved, and CommandControllers over the copy
+     * only perform the options that do not change it.
+     * @param userManager A session over the users
+     * @param eventsManager The events
+     * @param roomManager The rooms
+     * @param conversationManager The conversations
+     */
+    public Conference(UserManager userManager, EventsManager eventsManager, RoomManager roomManager,
+                      ConversationManager conversationManager) {
+        this.userManager = userManager;
+        this.eventsManager = eventsManager;
+        this.roomManager = roomManager;
+        this.conversationManager = conversationManager;
+        this.userRequestManager = new UserRequestManager(new ArrayList<>());
+        this.unbookedEventIds = new ArrayList<>();
+        this.eventCatalogue = new EventCatalogue(eventsManager, roomManager);
+        this.conversationCompactor = new ConversationCompactor(conversationManager, userManager);
+        this.notificationDispatcher = new NotificationDispatcher(userManager, conversationManager,
+                NOTIFICATION_WORKERS, NOTIFICATION_QUEUE_CAPACITY);
+        this.replica = true;
+    }
+
+    /**
+     * The limits on how often each user may perform the options that change the most, or that reach the most users.
+     */
+    private static RateLimiter newRateLimiter() {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setLimit(UserOption.ACCESS_MESSAGING, 5, 20);
+        limiter.setLimit(UserOption.SIGN_UP_FOR_EVENT, 5, 10);
+        limiter.setLimit(UserOption.CANCEL_SPOT_FOR_EVENT, 5, 10);
+        limiter.setLimit(UserOption.SEND_MESSAGE_TO_EVENT_ATTENDEES, 1, 5);
+        limiter.setLimit(UserOption.SEND_MESSAGE_TO_ALL, 1, 5);
+        limiter.setLimit(UserOption.CREATE_USER, 2, 20);
+        limiter.setLimit(UserOption.MANAGE_INTERESTED_EVENTS, 5, 20);
+        limiter.setLimit(UserOption.MANAGE_FAVOURITE_SPEAKERS, 5, 20);
+        return limiter;
+    }
+
+    /**
+     * Starts a new session, with nobody logged in.
+     * @return A UserManager over the conference's users with its own active user
+     */
+    public UserManager newUserSession() {
+        return userManager.newSession();
+    }
+
+    /**
+     * @return The EventsManager of the conference
+     */
+    public EventsManager getEventsManager() {
+        return eventsManager;
+    }
+
+    /**
+     * @return The ConversationManager of the conference
+     */
+    public ConversationManager getConversationManager() {
+        return conversationManager;
+    }
+
+    /**
+     * @return The RoomManager of the conference
+     */
+    public RoomManager getRoomManager() {
+        return roomManager;
+    }
+
+    /**
+     * @return The UserRequestManager of the conference
+     */
+    public UserRequestManager getUserRequestManager() {
+        return userRequestManager;
+    }
+
+    /**
+     * @return The catalogue of the conference's events
+     */
+    public EventCatalogue getEventCatalogue() {
+        return eventCatalogue;
+    }
+
+    /**
+     * @return The dispatcher that tells users about changes to events
+     */
+    public NotificationDispatcher getNotificationDispatcher() {
+        return notificationDispatcher;
+    }
+
+    /**
+     * @return The limits on how often each user may perform each option, shared by every session
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return The controller that turns commands away while the conference answers too slowly
+     */
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Keep the direct conversations that command sessions start and reply to in ConversationPartitionServers from now
+     * on, instead of in this conference's ConversationManager, which still keeps notifications and announcements.
+     * The partitions save their own conversations.
+     * @param conversationRouter The router to the partitions, or null to keep every conversation here
+     */
+    public void setConversationRouter(ConversationRouter conversationRouter) {
+        this.conversationRouter = conversationRouter;
+    }
+
+    /**
+     * @return The router to the partitions that keep direct conversations, or null if they are kept here
+     */
+    public ConversationRouter getConversationRouter() {
+        return conversationRouter;
+    }
+
+    /**
+     * @return Whether this is a read-only copy of a conference kept up to date elsewhere
+     */
+    public boolean isReplica() {
+        return replica;
+    }
+
+    /**
+     * @return The ids of the events that could not be booked in their room when the conference was loaded
+     */
+    public List<UUID> getUnbookedEventIds() {
+        return unbookedEventIds;
+    }
+
+    /**
+     * Waits for the notifications already queued to be sent, frees the messages every participant has deleted, then
+     * serializes all of the information of the conference. Each entity is copied while its lock is held and the copies
+     * are saved, so sessions may go on changing the conference meanwhile. A replica is not saved. Saves started at the
+     * same time run one after the other.
+     */
+    public synchronized void save() {
+        if (replica) {
+            return;
+        }
+        notificationDispatcher.awaitIdle();
+        // The index is saved before the conversations and no compaction can run in between, so the saved index is at
+        // most missing messages sent meanwhile, which are indexed again when it is loaded.
+        conversationCompactor.compact(() -> {
+            readWriteSerializable.messageIndexWriteToSerializable(conversationManager.getSearchIndex());
+            ArrayList<Conversation> conversations = new ArrayList<>();
+            for (Conversation conversation : conversationManager.getAllConversations()) {
+                Conversation copy = conversationManager.readConversation(conversation.getId(),
+                        ReadWriteSerializable::copyOf);
+                if (copy != null) {
+                    conversations.add(copy);
+                }
+            }
+            readWriteSerializable.conversationsWriteToSerializable(conversations);
+        });
+        HashMap<UUID, Event> events = new HashMap<>();
+        for (UUID eventId : eventsManager.getAllEventIds()) {
+            Event copy = eventsManager.readEvent(eventId, ReadWriteSerializable::copyOf);
+            if (copy != null) {
+                events.put(eventId, copy);
+            }
+        }
+        readWriteSerializable.eventsWriteToSerializable(events);
+        HashMap<UUID, Room> rooms = new HashMap<>();
+        for (UUID roomId : roomManager.getAllRoomIds()) {
+            rooms.put(roomId, roomManager.readRoom(roomId, ReadWriteSerializable::copyOf));
+        }
+        readWriteSerializable.roomsWriteToSerializable(rooms);
+        ArrayList<User> users = new ArrayList<>();
+        for (User user : userManager.getAllUsers()) {
+            users.add(userManager.readUser(user.getId(), ReadWriteSerializable::copyOf));
+        }
+        readWriteSerializable.usersWriteToSerializable(users);
+        readWriteSerializable.userRequestsWriteToSerializable(userRequestManager.readAllUserRequests(
+                userRequests -> ReadWriteSerializable.copyOf(new ArrayList<>(userRequests))));
+    }
+}
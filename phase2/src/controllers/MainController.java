@@ -8,58 +8,92 @@ import enums.UserType;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.time.format.*;
-import gateways.ReadWriteSerializable;
 import use_cases.*;
-import main.TestData;
+import value_holders.CatalogueSnapshot;
+import value_holders.EventRequest;
+import value_holders.RoomSlot;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.io.PrintStream;
 
 /**
  * Main Controller that handles user input and passes output to the presenter.
  */
 public class MainController {
-    private AppPresenter presenter = new AppPresenter();
+    private AppPresenter presenter;
     private UserController userController = new UserController();
     private VipController vipController = new VipController();
     private SpeakerController speakerController = new SpeakerController();
     private OrganizerController organizerController = new OrganizerController();
-    private Scanner scanner = new Scanner(System.in);
+    private Scanner scanner;
     private UserManager userManager;
     private EventsManager eventsManager;
     private ConversationManager conversationManager;
     private RoomManager roomManager;
     private UserRequestManager userRequestManager;
+    private EventCatalogue eventCatalogue;
+    private NotificationDispatcher notificationDispatcher;
+    private AdmissionController admissionController;
+    private RateLimiter rateLimiter;
+    private static final int SLOT_SEARCH_DAYS = 14;
+    private static final int SLOT_SUGGESTIONS = 5;
 
-    private ReadWriteSerializable readWriteSerializable;
+    private Conference conference;
+    private final boolean savesOnExit;
 
 
     public MainController() {
-        //Instantiation of the readWriteSerializable
-        this.readWriteSerializable = new ReadWriteSerializable();
+        this(new Conference(), System.in, System.out, true);
+    }
 
-        if (readWriteSerializable.hasSaveData()) {
-            this.userManager = new UserManager(this.readWriteSerializable.usersReadFromSerializable());
-            this.conversationManager = new ConversationManager(this.readWriteSerializable.conversationsReadFromSerializable());
-            this.roomManager = new RoomManager(this.readWriteSerializable.roomsReadFromSerializable());
-            this.eventsManager = new EventsManager(this.readWriteSerializable.eventsReadFromSerializable());
-            this.userRequestManager = new UserRequestManager(this.readWriteSerializable.userRequestsReadFromSerializable());
-        } else { // App's first launch, let's generate test data.
-            this.userManager = new UserManager(new ArrayList<>());
-            this.conversationManager = new ConversationManager(new ArrayList<>());
-            this.roomManager = new RoomManager(new HashMap<>());
-            this.eventsManager = new EventsManager(new HashMap<>());
-            this.userRequestManager = new UserRequestManager(new ArrayList<>());
-            TestData.generateUsersDemoData(userManager);
-            TestData.generateConversationsDemoData(userManager, conversationManager);
-            TestData.generateRoomsDemoData(roomManager);
-            TestData.generateEventsDemoData(roomManager, eventsManager, userManager);
-        }
+    /**
+     * Constructor for a MainController that runs a session of an already loaded conference at the console.
+     * @param conference the conference shared with the other sessions
+     */
+    public MainController(Conference conference) {
+        this(conference, System.in, System.out);
+    }
 
+    /**
+     * Constructor for a MainController that runs a session of an already loaded conference over the given streams,
+     * such as those of a connected client.
+     * @param conference the conference shared with the other sessions
+     * @param in the stream the user's input is read from
+     * @param out the stream the session is displayed to
+     */
+    public MainController(Conference conference, InputStream in, PrintStream out) {
+        this(conference, in, out, false);
+    }
+
+    /**
+     * Constructor for a MainController, which saves the conference when the user exits only if the session owns it.
+     * Sessions sharing a conference leave saving it to whatever runs them, once they have all ended.
+     */
+    private MainController(Conference conference, InputStream in, PrintStream out, boolean savesOnExit) {
+        this.savesOnExit = savesOnExit;
+        this.presenter = new AppPresenter(out);
+        this.scanner = new Scanner(in);
+        this.conference = conference;
+        this.userManager = conference.newUserSession();
+        this.eventsManager = conference.getEventsManager();
+        this.conversationManager = conference.getConversationManager();
+        this.roomManager = conference.getRoomManager();
+        this.userRequestManager = conference.getUserRequestManager();
+        this.eventCatalogue = conference.getEventCatalogue();
+        this.notificationDispatcher = conference.getNotificationDispatcher();
+        this.admissionController = conference.getAdmissionController();
+        this.rateLimiter = conference.getRateLimiter();
+        List<UUID> unbookedEventIds = conference.getUnbookedEventIds();
+        if (!unbookedEventIds.isEmpty()) {
+            presenter.println("Warning: " + unbookedEventIds.size() + " event(s) could not be booked in their room.");
+        }
     }
 
     /**
      * Gets credentials from a user and logs in with them.
-     * If the credentials are invalid, it asks for them until they are.
+     * If the credentials are invalid, it asks for them until they are. If the conference is too busy for the user's
+     * priority, it logs them out again.
      */
     private void login() {
         boolean loggedIn = false;
@@ -68,6 +102,12 @@ public class MainController {
             String email = getUserInput("Email: ");
             String password = getUserInput("Password: ");
             loggedIn = userController.login(userManager, email, password);
+            if (loggedIn && !admissionController.admit(AdmissionController.priorityOf(
+                    userManager.getActiveUserType(), UserOption.LOG_IN))) {
+                userController.logout(userManager);
+                presenter.println("The conference is busy; try again shortly.");
+                return;
+            }
             presenter.println(loggedIn ? "Logged in successfully." : "Invalid credentials.");
         }
     }
@@ -97,6 +137,10 @@ public class MainController {
         while (true) {
             presenter.println("What would you like to do?");
             UserOption selection = getSelectionFromList(userController.getUserOptions(userManager));
+            if (!isAllowed(selection)) {
+                presenter.println("");
+                continue;
+            }
             routeToOption(selection);
             if (selection == UserOption.EXIT) break;
             presenter.println(""); // Print a new line to add some distinction in the console between actions.
@@ -104,12 +148,40 @@ public class MainController {
     }
 
     /**
-     * Gets user input through the console.
+     * Checks that the conference is not too busy for the selected option and that the user has not selected it too
+     * often, and tells the user if either is so. Logging in is admitted once the credentials are checked, at the
+     * priority of the user's type (see login). Messaging is charged for each message sent rather than for opening
+     * the messenger. The time an option takes at the console includes the user's typing, so it is not recorded with
+     * the AdmissionController.
+     * @param option the option the user selected
+     * @return whether the option may be performed
+     */
+    private boolean isAllowed(UserOption option) {
+        if (option == UserOption.EXIT || option == UserOption.LOG_OUT || option == UserOption.LOG_IN) {
+            return true;
+        }
+        UserType type = userManager.getIsUserLoggedIn() ? userManager.getActiveUserType() : null;
+        if (!admissionController.admit(AdmissionController.priorityOf(type, option))) {
+            presenter.println("The conference is busy; try again shortly.");
+            return false;
+        }
+        if (type != null && option != UserOption.ACCESS_MESSAGING &&
+                !rateLimiter.tryAcquire(userManager.getActiveUserId(), option)) {
+            presenter.println("You have done that too often; wait a moment and try again.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets user input through the console, or from the connected client.
      * @param caption Text that will be displayed beside where the user will enter input.
      * @return A string of the user's input.
+     * @throws NoSuchElementException if the input has ended, e.g. because the client disconnected
      */
     private String getUserInput(String caption) {
         presenter.print(caption);
+        presenter.flush();
         String input = scanner.nextLine();
         return input;
     }
@@ -177,6 +249,9 @@ public class MainController {
             case CREATE_EVENT:
                 createEvent();
                 break;
+            case SCHEDULE_EVENTS:
+                scheduleEvents();
+                break;
             case CREATE_USER:
                 createUser();
                 break;
@@ -359,12 +434,13 @@ public class MainController {
      * Display all events that this user can sign up to.
      */
     private void viewAvailableEvents() {
-        if (displayEvents(getAvailableEventIds(getSignedUpEventIds())).isEmpty()) {
+        List<String> eventsDisplay = displayEvents(getAvailableEventIds(getSignedUpEventIds()));
+        if (eventsDisplay.isEmpty()) {
             presenter.println("There are currently no events that are available for you to sign up to. Either those events " +
                     "are full or you have a schedule conflict with those events.");
         }
         else {
-            for (String s : displayEvents(getAvailableEventIds(getSignedUpEventIds()))) {
+            for (String s : eventsDisplay) {
                 presenter.println(s);
             }
         }
@@ -374,11 +450,12 @@ public class MainController {
      * Display all events.
      */
     private void viewAllEvents() {
-        if (displayEvents(userController.getAllEventIds(eventsManager)).isEmpty()) {
+        List<String> eventsDisplay = eventCatalogue.getSnapshot().getRows();
+        if (eventsDisplay.isEmpty()) {
             presenter.println("There are currently no events scheduled.");
         }
         else {
-            for (String s : displayEvents(userController.getAllEventIds(eventsManager))) {
+            for (String s : eventsDisplay) {
                 presenter.println(s);
             }
         }
@@ -388,11 +465,12 @@ public class MainController {
      * Display all events that user has signed up to.
      */
     private void viewSignUpEvents() {
-        if (displayEvents(getSignedUpEventIds()).isEmpty()) {
+        List<String> eventsDisplay = displayEvents(getSignedUpEventIds());
+        if (eventsDisplay.isEmpty()) {
             presenter.println("You are not signed up to any events currently.");
         }
         else {
-            for (String s : displayEvents(getSignedUpEventIds())) {
+            for (String s : eventsDisplay) {
                 presenter.println(s);
             }
         }
@@ -412,7 +490,6 @@ public class MainController {
     private void createEventHelper(String type) {
         String eventName = getUserInput("Name of the " + type + ": ");
         UUID roomId;
-        UUID speakerId;
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
         String selectTime = getUserInput("The time the " + type + " start in the format: dd/MM/yyyy HH:mm ");
         while (!isValidDateTime(selectTime, formatter)) {
@@ -433,6 +510,57 @@ public class MainController {
         int duration = Integer.parseInt(strDuration);
 
         presenter.println("Select the features this " + type + " needs. Select the same feature twice to unselect it. Select 'Done' to save and show suggested room list.");
+        List<RoomFeatures> requiredFeatures = selectFeatures();
+
+        presenter.println("Here are suggested rooms based on your " + type + " requirements. Select the Room for the " + type + ":");
+
+        List<UUID> roomIds = getSuggestedRoomIds(requiredFeatures, capacity, eventTime, duration);
+        if (roomIds.size() == 0){
+            presenter.println("No rooms fit the requirements that your " + type + " has.");
+            List<RoomSlot> slots = roomManager.findEarliestSlots(requiredFeatures, capacity, duration,
+                    eventTime.toLocalDate(), eventTime.toLocalDate().plusDays(SLOT_SEARCH_DAYS - 1), SLOT_SUGGESTIONS);
+            if (!slots.isEmpty()){
+                presenter.println("These are the earliest times a room that fits is free. Select one to use it, or keep the time you entered:");
+                List<String> displaySlots = new ArrayList<>();
+                displaySlots.add("Keep " + selectTime + ".");
+                for (RoomSlot slot : slots){
+                    displaySlots.add(slot.getStart().format(formatter) + " | " + roomManager.getRoomName(slot.getRoomId()));
+                }
+                int selectedSlot = displaySlots.indexOf(getSelectionFromList(displaySlots));
+                if (selectedSlot > 0){
+                    eventTime = slots.get(selectedSlot - 1).getStart();
+                    roomIds = new ArrayList<>(Collections.singletonList(slots.get(selectedSlot - 1).getRoomId()));
+                }
+            }
+        }
+        List<String> displayRooms = displayRooms(roomIds);
+        displayRooms.add(0, "Show all rooms list.");
+        String selectRoom = getSelectionFromList(displayRooms);
+        if (selectRoom.equalsIgnoreCase("Show all rooms list.")){
+            roomIds = getAllRoomIds();
+            displayRooms = displayRooms(roomIds);
+            selectRoom = getSelectionFromList(displayRooms);
+            roomId = roomIds.get(displayRooms.indexOf(selectRoom));
+        }
+        else {
+            roomId = roomIds.get(displayRooms.indexOf(selectRoom) - 1);
+        }
+
+        HashSet<UUID> speakers = type.equalsIgnoreCase("event") ? selectSpeakers() : new HashSet<>();
+
+        String confirmation = getUserInput("Confirm creation of " + eventName + "? Type yes/no: ");
+        if (confirmation.equals("yes")) {
+            presenter.println(organizerController.createNewEvent(roomManager, eventsManager, notificationDispatcher, eventName, eventTime, roomId, speakers, capacity, duration, requiredFeatures));
+        } else {
+            presenter.println("Aborting " + type + " creation...");
+        }
+    }
+
+    /**
+     * Asks the user to select features until they select 'Done'. Selecting a feature twice unselects it.
+     * @return The selected features
+     */
+    private List<RoomFeatures> selectFeatures() {
         List<String> roomFeaturesDisplay = displayAllRoomFeatures();
         List<String> selectedFeatures = new ArrayList<>();
         roomFeaturesDisplay.add("Done");
@@ -449,53 +577,80 @@ public class MainController {
             presenter.println("Current features:" + selectedFeatures);
             selectedFeature = getSelectionFromList(roomFeaturesDisplay);
         }
-        List<RoomFeatures> requiredFeatures = convertNamesToFeatures(selectedFeatures);
+        return convertNamesToFeatures(selectedFeatures);
+    }
 
-        presenter.println("Here are suggested rooms based on your " + type + " requirements. Select the Room for the " + type + ":");
+    /**
+     * Asks the user whether the event has speakers, and if so to select them one at a time.
+     * @return The UUIDs of the selected speakers
+     */
+    private HashSet<UUID> selectSpeakers() {
+        HashSet<UUID> speakers = new HashSet<>();
+        String selection = getUserInput("Type y if the event will have speaker, n if the event will have no speaker: ");
+        while (!selection.equals("n") && !selection.equals("y")) {
+            selection = getUserInput("Invalid input. Type y if the event will have speaker, n if the event will have no speaker: ");
+        }
+        if (!selection.equals("n")) {
+            String selection2 = "y";
+            while (selection2.equals("y")) {
+                presenter.println("Select the speaker for the event (Note: No duplicate speakers will added as speakers): ");
+                List<UUID> allSpeakerIds = getAllSpeakerIds();
+                List<String> displaySpeakers = displayUsers(allSpeakerIds);
+                String selectSpeaker = getSelectionFromList(displaySpeakers);
+
+                speakers.add(allSpeakerIds.get(displaySpeakers.indexOf(selectSpeaker)));
+                selection2 = getUserInput("Type y if you want to add more speakers, type n if all speakers have been selected: ");
+            }
+        }
+        return speakers;
+    }
 
-        List<UUID> roomIds = getSuggestedRoomIds(requiredFeatures, capacity, eventTime, duration);
-        List<String> displayRooms = displayRooms(roomIds);
-        if (roomIds.size() == 0){
-            presenter.println("No rooms fit the requirements that your " + type + " has.");
+    /**
+     * Lets organizers describe many events and the window they must all be held in, then has the scheduler choose
+     * the room and time of each.
+     */
+    private void scheduleEvents() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        String strCount = getUserInput("How many events do you want to schedule? (e.g. '3'): ");
+        while (!canParse(strCount) || Integer.parseInt(strCount) <= 0) {
+            strCount = getUserInput("Invalid number. How many events do you want to schedule? (e.g. '3'): ");
         }
-        displayRooms.add(0, "Show all rooms list.");
-        String selectRoom = getSelectionFromList(displayRooms);
-        if (selectRoom.equalsIgnoreCase("Show all rooms list.")){
-            roomIds = getAllRoomIds();
-            displayRooms = displayRooms(roomIds);
-            selectRoom = getSelectionFromList(displayRooms);
-            roomId = roomIds.get(displayRooms.indexOf(selectRoom));
+        int count = Integer.parseInt(strCount);
+        String strEarliest = getUserInput("The earliest time the events may start in the format: dd/MM/yyyy HH:mm ");
+        while (!isValidDateTime(strEarliest, formatter)) {
+            strEarliest = getUserInput("Invalid time. The earliest time the events may start in the format: dd/MM/yyyy HH:mm ");
         }
-        else {
-            roomId = roomIds.get(displayRooms.indexOf(selectRoom) - 1);
+        LocalDateTime earliestStart = LocalDateTime.parse(strEarliest, formatter);
+        String strLatest = getUserInput("The latest time the events may end in the format: dd/MM/yyyy HH:mm ");
+        while (!isValidDateTime(strLatest, formatter) || !LocalDateTime.parse(strLatest, formatter).isAfter(earliestStart)) {
+            strLatest = getUserInput("Invalid time. The latest time the events may end, after the earliest start, in the format: dd/MM/yyyy HH:mm ");
         }
-
-        HashSet<UUID> speakers = new HashSet<>();
-        if (type.equalsIgnoreCase("event")) {
-            String selection = getUserInput("Type y if the event will have speaker, n if the event will have no speaker: ");
-            while (!selection.equals("n") && !selection.equals("y")) {
-                selection = getUserInput("Invalid input. Type y if the event will have speaker, n if the event will have no speaker: ");
+        LocalDateTime latestEnd = LocalDateTime.parse(strLatest, formatter);
+
+        List<EventRequest> requests = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            presenter.println("Event " + i + " of " + count + ":");
+            String eventName = getUserInput("Name of the event: ");
+            String strCapacity = getUserInput("Enter the maximum amount of attendee allowed in this event. (e.g. '10'): ");
+            while (!canParse(strCapacity) || Integer.parseInt(strCapacity) <= 0) {
+                strCapacity = getUserInput("Invalid capacity. Enter the maximum amount of attendee allowed in this event. (e.g. '10'): ");
             }
-            if (!selection.equals("n")) {
-                String selection2 = "y";
-                while (selection2.equals("y")) {
-                    presenter.println("Select the speaker for the event (Note: No duplicate speakers will added as speakers): ");
-                    List<UUID> allSpeakerIds = getAllSpeakerIds();
-                    List<String> displaySpeakers = displayUsers(allSpeakerIds);
-                    String selectSpeaker = getSelectionFromList(displaySpeakers);
-
-                    speakerId = allSpeakerIds.get(displaySpeakers.indexOf(selectSpeaker));
-                    speakers.add(speakerId);
-                    selection2 = getUserInput("Type y if you want to add more speakers, type n if all speakers have been selected: ");
-                }
+            String strDuration = getUserInput("Enter the duration of the event in hours, must be between 1 to 23. (e.g. '5'): ");
+            while (!canParse(strDuration) || Integer.parseInt(strDuration) < 1 || Integer.parseInt(strDuration) > 23) {
+                strDuration = getUserInput("Invalid duration. Enter the duration of the event in hours, must be between 1 to 23. (e.g. '5'): ");
             }
+            presenter.println("Select the features this event needs. Select the same feature twice to unselect it. Select 'Done' to save.");
+            List<RoomFeatures> requiredFeatures = selectFeatures();
+            HashSet<UUID> speakers = selectSpeakers();
+            requests.add(new EventRequest(eventName, speakers, Integer.parseInt(strCapacity),
+                    Integer.parseInt(strDuration), requiredFeatures, earliestStart, latestEnd));
         }
 
-        String confirmation = getUserInput("Confirm creation of " + eventName + "? Type yes/no: ");
+        String confirmation = getUserInput("Confirm scheduling of " + count + " event(s)? Type yes/no: ");
         if (confirmation.equals("yes")) {
-            presenter.println(organizerController.createNewEvent(roomManager, eventsManager, userManager, conversationManager, eventName, eventTime, roomId, speakers, capacity, duration, requiredFeatures));
+            presenter.println(organizerController.scheduleEvents(roomManager, eventsManager, notificationDispatcher, requests));
         } else {
-            presenter.println("Aborting " + type + " creation...");
+            presenter.println("Aborting scheduling...");
         }
     }
 
@@ -505,17 +660,10 @@ public class MainController {
      * @param capacity Required capacity
      * @param startTime required start time of event
      * @param duration duration of event
-     * @return List of room ids
+     * @return List of room ids, smallest sufficient capacity first
      */
     private List<UUID> getSuggestedRoomIds(List<RoomFeatures> requiredFeatures, int capacity, LocalDateTime startTime, int duration){
-        List<UUID> allRooms = getAllRoomIds();
-        ArrayList<UUID> suggestedRooms = new ArrayList<>();
-        for (UUID room: allRooms){
-            if (roomManager.hasFeatures(room, requiredFeatures) && roomManager.getRoomCapacity(room) >= capacity && roomManager.checkRoomAvailability(room, startTime, duration)){
-                suggestedRooms.add(room);
-            }
-        }
-        return suggestedRooms;
+        return roomManager.getSuggestedRoomIds(requiredFeatures, capacity, startTime, duration);
     }
 
     /**
@@ -531,11 +679,11 @@ public class MainController {
      */
     private void accessMessaging() {
         presenter.print("\nWelcome to Messenger! All future command prompts will be\nfor the messenger subprogram " +
-                "(indicated by '[Messenger]').\nTo exit the subprogram, select the exit option ('8')." +
+                "(indicated by '[Messenger]').\nTo exit the subprogram, select the exit option ('9')." +
                 "\n=============================================");
-        presenter.println("\nYou may either:\n1. View Conversations\n2. View Messages\n3. Send Message\n4. Reply\n5. View Friends\n6. Add Friend\n7. Remove Friend\n8. Exit\n");
+        presenter.println("\nYou may either:\n1. View Conversations\n2. View Messages\n3. Send Message\n4. Reply\n5. View Friends\n6. Add Friend\n7. Remove Friend\n8. Search Messages\n9. Exit\n");
         String selection = getUserInput("[Messenger] Enter selection (e.g. '1'): ");
-        while(!selection.equals("8")){
+        while(!selection.equals("9")){
             switch(selection) {
                 case "1": // View Conversations
                     presenter.print(userController.viewConversations(userManager, conversationManager));
@@ -572,6 +720,10 @@ public class MainController {
                     }
                     break;
                 case "3": // Send Message
+                    if (!rateLimiter.tryAcquire(userManager.getActiveUserId(), UserOption.ACCESS_MESSAGING)) {
+                        presenter.println("You have sent too many messages; wait a moment and try again.\n");
+                        break;
+                    }
                     String input2 = getUserInput("Enter emails or recipient indices from friends list (e.g. 'joe@jahoo.com' or '4,9,11'): ");
                     String[] segments = input2.split(",");
                     ArrayList<Integer> recipients = new ArrayList<Integer>();
@@ -594,6 +746,10 @@ public class MainController {
                     }
                     break;
                 case "4": // Reply
+                    if (!rateLimiter.tryAcquire(userManager.getActiveUserId(), UserOption.ACCESS_MESSAGING)) {
+                        presenter.println("You have sent too many messages; wait a moment and try again.\n");
+                        break;
+                    }
                     String input3 = getUserInput("Enter conversation index: ");
                     if(canParse(input3)) {
                         int index2 = Integer.parseInt(input3);
@@ -614,6 +770,10 @@ public class MainController {
                     String email2 = getUserInput("Enter the email of the user you want to remove as a friend: ");
                     presenter.println(userController.removeFriend(userManager, email2));
                     break;
+                case "8": // Search Messages
+                    String query = getUserInput("Enter words to search for: ");
+                    presenter.print(userController.searchMessages(userManager, conversationManager, query));
+                    break;
                 default:
                     presenter.println("Invalid Selection\n");
                     break;
@@ -637,8 +797,9 @@ public class MainController {
      * Lets Users to sign up to events.
      */
     private void signUpForEvent(){
-        List<UUID> allEventIds = userController.getAllEventIds(eventsManager);
-        List<String> eventsDisplay = displayEvents(allEventIds);
+        CatalogueSnapshot catalogue = eventCatalogue.getSnapshot();
+        List<UUID> allEventIds = catalogue.getEventIds();
+        List<String> eventsDisplay = new ArrayList<>(catalogue.getRows());
         eventsDisplay.add("exit event sign up.");
         presenter.println("All events:");
         String selection = getSelectionFromList(eventsDisplay);
@@ -668,8 +829,14 @@ public class MainController {
      * Lets Users cancel an event that he/she has signed up for.
      */
     private void cancelSpotForEvent() {
-        List<UUID> signedUpEventIds = getSignedUpEventIds();
+        List<UUID> signedUpEventIds = new ArrayList<>(getSignedUpEventIds());
         List<String> eventsDisplay = displayEvents(signedUpEventIds);
+        // Events the user is waiting for are listed too, so they can leave the waitlist.
+        for (UUID eventId : eventsManager.getWaitlistedEventIds(userManager.getActiveUserId())) {
+            signedUpEventIds.add(eventId);
+            eventsDisplay.add(displayEvents(Collections.singletonList(eventId)).get(0) + " (waitlist position " +
+                    eventsManager.getWaitlistPosition(eventId, userManager.getActiveUserId()) + ")");
+        }
         eventsDisplay.add("exit event cancellation.");
         presenter.println("Current signed up events:");
         String selection = getSelectionFromList(eventsDisplay);
@@ -677,7 +844,8 @@ public class MainController {
             presenter.println("Exiting...");
         }
         else{
-            presenter.print(userController.disEnrollToEvent(userManager, eventsManager, signedUpEventIds.get(eventsDisplay.indexOf(selection))));
+            presenter.print(userController.disEnrollToEvent(userManager, eventsManager, roomManager,
+                    notificationDispatcher, signedUpEventIds.get(eventsDisplay.indexOf(selection))));
         }
     }
 
@@ -700,7 +868,9 @@ public class MainController {
             String eventSelection = getSelectionFromList(eventsDisplay);
             String content = getUserInput("Enter Message: ");
             UUID id = scheduledTalkIds.get(eventsDisplay.indexOf(eventSelection));
-            presenter.println(speakerController.sendMessageToEventAttendees(eventsManager, userManager, conversationManager, content, id));
+            if (isStillScheduled(id)) {
+                presenter.println(speakerController.sendMessageToEventAttendees(eventsManager, userManager, conversationManager, content, id));
+            }
         }else{
             presenter.println("Invalid selection");
         }
@@ -738,7 +908,10 @@ public class MainController {
         List<UUID> scheduledTalksIds = speakerController.getScheduledTalkIds(userManager, eventsManager, null);
         List<String> eventsDisplay = displayEvents(scheduledTalksIds);
         String selection = getSelectionFromList(eventsDisplay);
-        presenter.println(speakerController.viewEventAttendees(eventsManager, userManager, scheduledTalksIds.get(eventsDisplay.indexOf(selection))));
+        UUID chosenEvent = scheduledTalksIds.get(eventsDisplay.indexOf(selection));
+        if (isStillScheduled(chosenEvent)) {
+            presenter.println(speakerController.viewEventAttendees(eventsManager, userManager, chosenEvent));
+        }
     }
 
     /**
@@ -798,7 +971,10 @@ public class MainController {
         List<String> eventsDisplay = displayEvents(allEventIds);
         presenter.println("Here are all events, select event that you would like speaker to speak in:");
         String selection = getSelectionFromList(eventsDisplay);
-        presenter.println(organizerController.addSpeaker(eventsManager, speakerId, allEventIds.get(eventsDisplay.indexOf(selection))));
+        UUID chosenEvent = allEventIds.get(eventsDisplay.indexOf(selection));
+        if (isStillScheduled(chosenEvent)) {
+            presenter.println(organizerController.addSpeaker(eventsManager, notificationDispatcher, speakerId, chosenEvent));
+        }
     }
 
     /**
@@ -810,6 +986,9 @@ public class MainController {
         presenter.println("Here are all events, select the event that you would like to remove a speaker from: ");
         String selection = getSelectionFromList(eventsDisplay);
         UUID chosenEvent = allEventIds.get(eventsDisplay.indexOf(selection));
+        if (!isStillScheduled(chosenEvent)) {
+            return;
+        }
 
         List<UUID> speakersID = userController.getSpeakers(eventsManager, chosenEvent);
         List<String> speakerDisplay = displayUsers(speakersID);
@@ -833,7 +1012,10 @@ public class MainController {
         presenter.println("Here are all events, select the event that you would like to cancel: ");
         String selection = getSelectionFromList(eventsDisplay);
         UUID chosenEvent = allEventIds.get(eventsDisplay.indexOf(selection));
-        organizerController.cancelEvent(eventsManager, userManager, roomManager, chosenEvent);
+        if (!isStillScheduled(chosenEvent)) {
+            return;
+        }
+        organizerController.cancelEvent(eventsManager, roomManager, notificationDispatcher, chosenEvent);
         presenter.println("Selected event has been cancelled.");
     }
 
@@ -852,13 +1034,20 @@ public class MainController {
             strCapacity = getUserInput("Invalid input. Enter a valid capacity for this event. (e.g. Enter '10'): ");
         }
         int capacity = Integer.parseInt(strCapacity);
-        presenter.println(organizerController.changeEventCapacity(eventsManager, chosenEvent, capacity));
+        if (isStillScheduled(chosenEvent)) {
+            presenter.println(organizerController.changeEventCapacity(eventsManager, userManager, roomManager,
+                    notificationDispatcher, chosenEvent, capacity));
+        }
     }
 
     /**
-     * Called when the user chooses the exit option in the program.
+     * Called when the user chooses the exit option in the program. Saves the conference if this session owns it;
+     * otherwise only the session ends.
      */
-    private void exit() {serializeAllWhenClose();
+    private void exit() {
+        if (savesOnExit) {
+            serializeAllWhenClose();
+        }
     }
 
     /**
@@ -1008,7 +1197,10 @@ public class MainController {
         if (selection.equals("exit managing interested events.")) {
             presenter.println("Exiting...");
         } else {
-            presenter.println(vipController.interestedInEvent(userManager, allEventIds.get(eventsDisplay.indexOf(selection))));
+            UUID chosenEvent = allEventIds.get(eventsDisplay.indexOf(selection));
+            if (isStillScheduled(chosenEvent)) {
+                presenter.println(vipController.interestedInEvent(userManager, chosenEvent));
+            }
         }
     }
 
@@ -1019,12 +1211,12 @@ public class MainController {
      * Lets the Vip user remove an event from the interested events.
      */
     private void uninterestedInEvent() {
-        List<UUID> interestedEventIds = vipController.getInterestedEventIds(userManager);
+        List<UUID> interestedEventIds = getExistingEventIds(vipController.getInterestedEventIds(userManager));
         List<String> eventsDisplay = displayEvents(interestedEventIds);
         eventsDisplay.add("exit managing interested events.");
         presenter.println("Current interested events:");
         String selection = getSelectionFromList(eventsDisplay);
-        if (selection.equals("exit managing interested events")){
+        if (selection.equals("exit managing interested events.")){
             presenter.println("Exiting...");
         }
         else{
@@ -1036,11 +1228,12 @@ public class MainController {
      * Display all events that Vip showed interests.
      */
     private void viewInterestedEvents() {
-        if (displayEvents(vipController.getInterestedEventIds(userManager)).isEmpty()) {
+        List<String> eventsDisplay = displayEvents(getExistingEventIds(vipController.getInterestedEventIds(userManager)));
+        if (eventsDisplay.isEmpty()) {
             presenter.println("No interested events!");
         }
         else {
-            for (String s : displayEvents(vipController.getInterestedEventIds(userManager))) {
+            for (String s : eventsDisplay) {
                 presenter.println(s);
             }
         }
@@ -1150,25 +1343,49 @@ public class MainController {
     }
 
     /**
-     * Get a list of event ids that user signed up for.
+     * Get a list of event ids that user signed up for. Cancelled events are left out even if the notification
+     * workers have not yet removed them from the user's events.
      * @return A List of signed up event ids
      */
     private List<UUID> getSignedUpEventIds(){
-        return userManager.getEventList();
+        List<UUID> signedUpEventIds = new ArrayList<>(userManager.getEventList());
+        signedUpEventIds.removeIf(eventId -> !eventsManager.hasEvent(eventId));
+        return signedUpEventIds;
+    }
+
+    /**
+     * Leave out of a list of event ids the events that have been cancelled, e.g. ones still in a VIP's interested
+     * events.
+     * @param eventIds A List of event ids
+     * @return A new List of the ids of the events that still exist, in the same order
+     */
+    private List<UUID> getExistingEventIds(List<UUID> eventIds){
+        List<UUID> existing = new ArrayList<>(eventIds);
+        existing.removeIf(eventId -> !eventsManager.hasEvent(eventId));
+        return existing;
+    }
+
+    /**
+     * Check that the event the user selected was not cancelled while they were choosing it, and tell them if it was.
+     * @param eventId The UUID of the selected event
+     * @return true iff the event still exists
+     */
+    private boolean isStillScheduled(UUID eventId){
+        if (eventsManager.hasEvent(eventId)) {
+            return true;
+        }
+        presenter.println("That event has been cancelled.");
+        return false;
     }
 
     /**
      * Display a list of event information: Event name | Date and Time of Event | Event Room | Event Type.
      * @param eventIds A list of IDs of events to be displayed
-     * @return List of Strings of event information.
+     * @return List of Strings of event information, one for each id and in the same order (see
+     * EventCatalogue.getRows), so a selected row maps back to its id by position.
      */
     private List<String> displayEvents(List<UUID> eventIds){
-        ArrayList<String> eventsDisplay = new ArrayList<>();
-        for (UUID i : eventIds){
-            eventsDisplay.add(eventsManager.getEventName(i) + " | " + eventsManager.getEventSchedule(i) + " | " +
-                    roomManager.getRoomName(eventsManager.getEventRoomId(i)) + " | " + eventsManager.getEventType(i));
-        }
-        return eventsDisplay;
+        return eventCatalogue.getRows(eventIds);
     }
 
     /**
@@ -1202,12 +1419,7 @@ public class MainController {
      * Only handles Events and Rooms for phase 1, with easy additions for phase 2 and onwards.
      */
     public void serializeAllWhenClose() {
-        this.readWriteSerializable.
-                conversationsWriteToSerializable(this.conversationManager.getAllConversations());
-        this.readWriteSerializable.eventsWriteToSerializable(this.eventsManager.getAllEvents());
-        this.readWriteSerializable.roomsWriteToSerializable(this.roomManager.getAllRooms());
-        this.readWriteSerializable.usersWriteToSerializable(this.userManager.getAllUsers());
-        this.readWriteSerializable.userRequestsWriteToSerializable(this.userRequestManager.getAllUserRequests());
+        conference.save();
     }
 
 }
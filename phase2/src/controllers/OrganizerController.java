@@ -1,6 +1,7 @@
 package controllers;
 
 import enums.ConvoType;
+import enums.EventChange;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -8,6 +9,10 @@ import java.util.*;
 import enums.RoomFeatures;
 import enums.UserType;
 import use_cases.*;
+import value_holders.EventChangeNotice;
+import value_holders.EventPlacement;
+import value_holders.EventRequest;
+import value_holders.ScheduleResult;
 
 /**
  * Controller for Organizers. Contains functionality exclusive to organizers.
@@ -41,8 +46,7 @@ public class OrganizerController extends UserController{
      * Method that lets organizers create new events.
      * @param roomManager The RoomManager to use.
      * @param eventsManager The EventsManager to use.
-     * @param userManager The UserManager to use.
-     * @param conversationManager The ConversationManager to use.
+     * @param notificationDispatcher The NotificationDispatcher to tell VIPs about the event with.
      * @param name The name of the new event
      * @param time Time of the new event
      * @param roomId UUID of the room of the new event
@@ -53,18 +57,21 @@ public class OrganizerController extends UserController{
      * @param features a list of RoomFeatures objects where each represent a feature that is required for the event
      * @return A String representing the status of the creation of the event.
      */
-    public String createNewEvent(RoomManager roomManager, EventsManager eventsManager, UserManager userManager, ConversationManager conversationManager, String name, LocalDateTime time, UUID roomId, HashSet<UUID> speakerId, int capacity, int duration, List<RoomFeatures> features){
+    public String createNewEvent(RoomManager roomManager, EventsManager eventsManager, NotificationDispatcher notificationDispatcher, String name, LocalDateTime time, UUID roomId, HashSet<UUID> speakerId, int capacity, int duration, List<RoomFeatures> features){
         if (roomManager.checkRoomAvailability(roomId, time, duration)  &&
                 roomManager.getRoomCapacity(roomId) >= capacity) {
             try {
                 UUID newEventId = eventsManager.addEvent(name, time, roomId, capacity, duration, features);
-                roomManager.bookRoom(roomId, time, newEventId, duration);
+                // Another organizer may have taken the room since it was checked, so it is checked again as it is booked.
+                if (!roomManager.bookRoomIfAvailable(roomId, time, newEventId, duration)) {
+                    eventsManager.removeEvent(newEventId);
+                    return "Unable to create this Event. The room is no longer available at this time.";
+                }
                 for (UUID ID : speakerId) {
-                    if (!speakerConflict(eventsManager, ID, time)) {
-                        eventsManager.addSpeaker(newEventId, speakerId);
-                    }
+                    eventsManager.addSpeakerIfFree(newEventId, ID);
                 }
-                newsForVips(userManager, conversationManager, eventsManager, newEventId);
+                publishChange(notificationDispatcher, eventsManager, EventChange.CREATED, newEventId,
+                        eventsManager.getSpeakers(newEventId), new ArrayList<>());
                 return "Event Successfully Added. Some chosen speakers might not be added if the speaker has a schedule conflict" +
                         " with this event.";
             } catch (Exception e) {
@@ -78,53 +85,50 @@ public class OrganizerController extends UserController{
         }
     }
 
-    /***
-     * Notifies the VIPs that there are new events with their favourite speakers created.
-     * @param userManager The UserManager to use.
-     * @param conversationManager The ConversationManager to use.
+    /**
+     * Method that lets organizers create many events at once, letting the scheduler choose the room and time of each.
+     * @param roomManager The RoomManager to use.
      * @param eventsManager The EventsManager to use.
-     * @param eventId an id of the newly event created
+     * @param notificationDispatcher The NotificationDispatcher to tell VIPs about the events with.
+     * @param requests The events to create, each with the time window it must be held in
+     * @return A String representing the status of the creation of the events, listing those that could not be placed.
+     * Other organizers may book rooms and speakers while the events are placed, so each room is booked only if it is
+     * still free, and each speaker is added only if they are still free; events whose room was taken are not created.
      */
-    private void newsForVips(UserManager userManager, ConversationManager conversationManager, EventsManager eventsManager, UUID eventId){
-        // when a new event is created, look at the speaker.
-        List<UUID> speakerIds = getSpeakers(eventsManager, eventId);
-        for (UUID speakerId : speakerIds) {
-            List<UUID> allVipIds = userManager.getAllUsersOfType(UserType.VIP);
-            // for all vips, if the speaker is their favourites, message them(helper will handle this).
-            for (UUID vipId : allVipIds) {
-                if (userManager.isFavouriteSpeaker(vipId, speakerId)) {
-                    // for each vip:
-                    Integer index = userManager.findUserIndexById(vipId);
-                    ArrayList<Integer> oneVipList = new ArrayList<Integer>(Arrays.asList(index));
-                    String eventString = eventsManager.getEventString(eventId);
-                    String content = "There is a new event created with one of your favourite speakers, " +
-                            userManager.getUserName(userManager.findUserIndexById(speakerId)) + ". \n" +
-                            "The event details are as follows:\n" + eventString;
-                    sendMessage(userManager, conversationManager, content, oneVipList, ConvoType.DIRECT);
+    public String scheduleEvents(RoomManager roomManager, EventsManager eventsManager, NotificationDispatcher notificationDispatcher, List<EventRequest> requests){
+        ScheduleResult result = new BatchScheduler(roomManager, eventsManager).schedule(requests);
+        int scheduled = 0;
+        StringBuilder problems = new StringBuilder();
+        for (EventPlacement placement : result.getPlacements()) {
+            EventRequest request = placement.getRequest();
+            UUID newEventId = eventsManager.addEvent(request.getName(), placement.getStart(), placement.getRoomId(),
+                    request.getCapacity(), request.getDuration(), request.getFeatures());
+            if (!roomManager.bookRoomIfAvailable(placement.getRoomId(), placement.getStart(), newEventId,
+                    request.getDuration())) {
+                eventsManager.removeEvent(newEventId);
+                problems.append("\nThe room chosen for ").append(request.getName())
+                        .append(" was taken before it could be booked, so it was not created.");
+                continue;
+            }
+            boolean speakerSkipped = false;
+            for (UUID speakerId : request.getSpeakers()) {
+                if (!eventsManager.addSpeakerIfFree(newEventId, speakerId)) {
+                    speakerSkipped = true;
                 }
             }
-        }
-    }
-
-    /**
-     * To determine if the given speaker has a schedule conflict with the given date and time. Organizer exclusive method.
-     * @param eventsManager The EventsManager to use.
-     * @param speakerID a UUID object that represents the speaker.
-     * @param dateAndTime a local date time object that represents the date and time of the event.
-     * @return true iff speaker has a schedule conflict with the given date and time. Return false otherwise.
-     */
-    private boolean speakerConflict(EventsManager eventsManager, UUID speakerID, LocalDateTime dateAndTime) {
-        List<UUID> events = eventsManager.getAllEventIds();
-        boolean conflict = false;
-        for (UUID i : events) {
-            LocalDateTime lowerRange = eventsManager.getEventDateAndTime(i).minusMinutes(60);
-            LocalDateTime upperRange = eventsManager.getEventDateAndTime(i).plusMinutes(60);
-            if (eventsManager.getSpeakers(i).contains(speakerID) && dateAndTime.isAfter(lowerRange) && dateAndTime.isBefore(upperRange)) {
-                conflict = true;
-                break;
+            if (speakerSkipped) {
+                problems.append("\nSome speakers of ").append(request.getName())
+                        .append(" were not added because they are now speaking at another event at that time.");
             }
+            publishChange(notificationDispatcher, eventsManager, EventChange.CREATED, newEventId,
+                    eventsManager.getSpeakers(newEventId), new ArrayList<>());
+            scheduled++;
+        }
+        StringBuilder status = new StringBuilder(scheduled + " of " + requests.size() + " events were scheduled.");
+        for (EventRequest request : result.getUnplaced()) {
+            status.append("\nCould not find a room and time for ").append(request.getName()).append(".");
         }
-        return conflict;
+        return status.append(problems).toString();
     }
 
 
@@ -138,8 +142,7 @@ public class OrganizerController extends UserController{
      * @return a message indicating whether successfully creating the user account
      */
     public String createUser(UserManager userManager, String email, String password, String name, String type){
-        if (userManager.findUserByEmail(email) == -1){
-            userManager.createUser(name, email, password, UserType.valueOf(type));
+        if (userManager.createUserIfAbsent(name, email, password, UserType.valueOf(type))){
             return type+" user account was created.";
         }
 
@@ -209,20 +212,22 @@ public class OrganizerController extends UserController{
     }
 
     /**
-     * Add the speaker to a given event if possible. An organizer exclusive method.
+     * Add the speaker to a given event if possible. An organizer exclusive method. VIPs who favour the speaker are
+     * told about it.
      * @param eventsManager The EventsManager to use.
+     * @param notificationDispatcher The NotificationDispatcher to tell VIPs about the speaker with.
      * @param speakerID UUID object that represents the speaker.
      * @param eventID UUID object that represents the event.
      * @return A String representing the status of adding the speaker to the event.
      */
-    public String addSpeaker(EventsManager eventsManager, UUID speakerID, UUID eventID) {
+    public String addSpeaker(EventsManager eventsManager, NotificationDispatcher notificationDispatcher, UUID speakerID,
+                             UUID eventID) {
         if (eventsManager.getSpeakers(eventID).contains(speakerID)) { return "This speaker is already " +
                 "scheduled to speak at this event.";}
         else {
-            LocalDateTime time = eventsManager.getEventDateAndTime(eventID);
-            boolean conflict = speakerConflict(eventsManager, speakerID, time);
-            if (!conflict) {
-                eventsManager.addSpeaker(eventID, speakerID);
+            if (eventsManager.addSpeakerIfFree(eventID, speakerID)) {
+                publishChange(notificationDispatcher, eventsManager, EventChange.SPEAKER_ADDED, eventID,
+                        Collections.singletonList(speakerID), new ArrayList<>());
                 return "This speaker has now been scheduled to speak in this event.";
             } else {
                 return "This speaker cannot be set to speak in this event due to schedule conflict.";
@@ -243,42 +248,57 @@ public class OrganizerController extends UserController{
     }
 
     /**
-     * Cancel given event, remove booking of room for event and remove each attendee schedule for the given event.
-     * An organizer exclusive method.
+     * Cancel given event and remove booking of room for event. Removing the event from each attendee's schedule and
+     * telling the attendees and waitlisted users is left to the notification workers. An organizer exclusive method.
      * @param eventsManager The EventsManager to use.
-     * @param userManager The UserManager to use.
      * @param roomManager The RoomManager to use.
+     * @param notificationDispatcher The NotificationDispatcher to tell the attendees with.
      * @param event UUID object that represents the event object to be cancelled
      */
-    public void cancelEvent(EventsManager eventsManager, UserManager userManager, RoomManager roomManager, UUID event) {
-        Set<UUID> attendeeList = eventsManager.getAttendeeList(event);
-        for (UUID i : attendeeList) {
-            int index = userManager.findUserIndexById(i);
-            userManager.removeEvent(userManager.getUserByIndex(index), event);
-        }
-        roomManager.removeBooking(eventsManager.getEventDateAndTime(event));
+    public void cancelEvent(EventsManager eventsManager, RoomManager roomManager,
+                            NotificationDispatcher notificationDispatcher, UUID event) {
+        List<UUID> affected = new ArrayList<>(eventsManager.getAttendeeList(event));
+        affected.addAll(eventsManager.getWaitlist(event));
+        EventChangeNotice notice = new EventChangeNotice(EventChange.CANCELLED, event,
+                eventsManager.getEventName(event), eventsManager.getEventString(event), eventsManager.getCapacity(event),
+                new ArrayList<>(), affected);
+        roomManager.removeBooking(eventsManager.getEventRoomId(event), event);
         eventsManager.removeEvent(event);
+        notificationDispatcher.publish(notice);
     }
 
     /**
      * Change event's capacity if the number of attendees in the event is less than or equal to the given new
-     * capacity.
+     * capacity. Any new seats go to the users on the event's waitlist, who are notified.
      * @param eventsManager The EventsManager to use.
+     * @param userManager The UserManager to use.
+     * @param roomManager The RoomManager to use.
+     * @param notificationDispatcher The NotificationDispatcher to send notifications with.
      * @param eventID UUID object that represents the event that capacity will be changed
      * @param capacity Integer object that represents the new maximum number of attendees allowed. Must be greater than 0.
      * @return A String representing the status of changing the event capacity.
      */
-    public String changeEventCapacity(EventsManager eventsManager, UUID eventID, int capacity) {
-        if (eventsManager.getNumAttendees(eventID) > capacity) {
+    public String changeEventCapacity(EventsManager eventsManager, UserManager userManager, RoomManager roomManager,
+                                      NotificationDispatcher notificationDispatcher, UUID eventID, int capacity) {
+        if (capacity == 0) {
+            return "Capacity must be greater than 0.";
+        }
+        // The number of attendees is checked as the capacity is set, so a sign up at the same time cannot exceed it.
+        List<UUID> promoted = eventsManager.setCapacityAndPromote(eventID, capacity,
+                roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventID)));
+        if (promoted == null) {
             return "Change could not be made as current number " +
                     "of attendees of event exceeds the given capacity.";
         }
-        else if (capacity == 0) {
-            return "Capacity must be greater than 0.";
-        }
-        else {
-            eventsManager.setCapacity(eventID, capacity);
-            return "The event's capacity has been set to " + capacity + ".";
+        notifyPromotedUsers(userManager, eventsManager, notificationDispatcher, eventID, promoted);
+        List<UUID> affected = new ArrayList<>(eventsManager.getAttendeeList(eventID));
+        affected.addAll(eventsManager.getWaitlist(eventID));
+        affected.removeAll(promoted); // They are told about their seat instead.
+        if (!affected.isEmpty()) {
+            publishChange(notificationDispatcher, eventsManager, EventChange.CAPACITY_CHANGED, eventID,
+                    new ArrayList<>(), affected);
         }
+        String output = "The event's capacity has been set to " + capacity + ".";
+        return promoted.isEmpty() ? output : output + " " + promoted.size() + " user(s) moved off the waitlist.";
     }
 }
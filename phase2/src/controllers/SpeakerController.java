@@ -47,24 +47,16 @@ public class SpeakerController extends UserController{
      * @param userManager The UserManager to use.
      * @param eventsManager The EventsManager to use.
      * @param speaker an UUID object that represents the unique ID of the given speaker
-     * @return A list of UUIDs for events this speaker is speaking in
+     * @return A list of UUIDs for events this speaker is speaking in, in order of starting time
      */
     public List<UUID> getScheduledTalkIds(UserManager userManager, EventsManager eventsManager, UUID speaker) {
-        List<UUID> allEventIds = getAllEventIds(eventsManager);
         UUID speakerID;
         if (speaker == null){
             speakerID = userManager.getActiveUserId();
         }else{
             speakerID = speaker;
         }
-
-        ArrayList<UUID> scheduledTalkIds = new ArrayList<UUID>();
-        for(UUID id : allEventIds) {
-            if(eventsManager.getSpeakers(id).contains(speakerID)) {
-                scheduledTalkIds.add(id);
-            }
-        }
-        return scheduledTalkIds;
+        return eventsManager.getSpeakerEventIds(speakerID);
     }
 
     /**
@@ -4,10 +4,15 @@ import entities.Event;
 import entities.User;
 import entities.UserRequest;
 import enums.ConvoType;
+import enums.EventChange;
 import enums.UserOption;
 import enums.UserType;
+import gateways.ConversationRouter;
 import use_cases.*;
+import value_holders.ConversationSummary;
+import value_holders.EventChangeNotice;
 import value_holders.MessageInfo;
+import value_holders.MessageSearchResult;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -78,20 +83,12 @@ public class UserController {
      * @return A string indicating whether the message was successfully sent.
      */
     public String sendMessage(UserManager userManager, ConversationManager conversationManager, String content, ArrayList<Integer> recipientIndices, ConvoType type) {
-        ArrayList<UUID> participants = new ArrayList<UUID>();
-        UUID sender = userManager.getActiveUserId();
-        participants.add(sender);
-        for(int r : recipientIndices){
-            if(!userManager.isValidUserIndex(r)) {
-                return "Invalid Recipient Index\n";
-            }
-            // If active user is attendee, checks if recipient and sender have each other added as friends.
-            if(((userManager.getActiveUserType() == UserType.ATTENDEE) || (userManager.getActiveUserType() == UserType.VIP))
-                    && ((!userManager.isFriend(r)) || (!userManager.userHasMeAsFriend(r)))) {
-                return "You and the recipient(s) must have each other added as friends\n";
-            }
-            participants.add(userManager.getUserIdByIndex(r));
+        String refusal = checkRecipients(userManager, recipientIndices);
+        if (refusal != null) {
+            return refusal;
         }
+        UUID sender = userManager.getActiveUserId();
+        List<UUID> participants = participantsOf(userManager, recipientIndices);
         UUID conversation = conversationManager.createConversation(participants,type);
 
         // Checks if sender has conversation. If not, adds conversation to all participants' conversationList.
@@ -111,6 +108,67 @@ public class UserController {
         return "Message Sent\n";
     }
 
+    /**
+     * A method for sending a direct message when direct conversations are kept in partitions (see
+     * Conference.setConversationRouter). The same users may be messaged as with sendMessage.
+     * @param userManager The UserManager to use.
+     * @param conversationRouter The router to the partitions.
+     * @param content The content of the message in String form.
+     * @param recipientIndices The indices of the recipient users in the UserManager's list of all users.
+     * @return A string indicating whether the message was successfully sent.
+     */
+    public String sendMessage(UserManager userManager, ConversationRouter conversationRouter, String content,
+                              ArrayList<Integer> recipientIndices) {
+        String refusal = checkRecipients(userManager, recipientIndices);
+        if (refusal != null) {
+            return refusal;
+        }
+        List<UUID> participants = participantsOf(userManager, recipientIndices);
+        UUID conversation = conversationRouter.createConversation(participants, ConvoType.DIRECT);
+        if (!userManager.hasConversation(conversation)) {
+            userManager.startConversationById(conversation);
+            for (int r : recipientIndices) {
+                userManager.addConversation(conversation, r);
+            }
+        }
+        conversationRouter.sendMessage(content, userManager.getActiveUserId(), conversation);
+        for (UUID p : participants) {
+            userManager.markConversationAsUnread(conversation, userManager.findUserIndexById(p));
+        }
+        return "Message Sent\n";
+    }
+
+    /**
+     * Checks that the active user may message the given users: they must exist, and attendees may only message
+     * friends who have added them back.
+     * @return Why the message cannot be sent, or null if it can.
+     */
+    private String checkRecipients(UserManager userManager, List<Integer> recipientIndices) {
+        for (int r : recipientIndices) {
+            if (!userManager.isValidUserIndex(r)) {
+                return "Invalid Recipient Index\n";
+            }
+            // If active user is attendee, checks if recipient and sender have each other added as friends.
+            if (((userManager.getActiveUserType() == UserType.ATTENDEE) || (userManager.getActiveUserType() == UserType.VIP))
+                    && ((!userManager.isFriend(r)) || (!userManager.userHasMeAsFriend(r)))) {
+                return "You and the recipient(s) must have each other added as friends\n";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The active user followed by the given users.
+     */
+    private List<UUID> participantsOf(UserManager userManager, List<Integer> recipientIndices) {
+        List<UUID> participants = new ArrayList<>();
+        participants.add(userManager.getActiveUserId());
+        for (int r : recipientIndices) {
+            participants.add(userManager.getUserIdByIndex(r));
+        }
+        return participants;
+    }
+
     /**
      * A method that sends a reply to an active conversation.
      * @param conversationManager The ConversationManager to use.
@@ -137,6 +195,29 @@ public class UserController {
         return "Reply Sent\n";
     }
 
+    /**
+     * A method that sends a reply to a direct conversation kept in a partition (see Conference.setConversationRouter).
+     * @param conversationRouter The router to the partitions.
+     * @param userManager The UserManager to use.
+     * @param content The content of the reply in String form
+     * @param conversation The id of the conversation being replied to.
+     * @return String indicating whether the reply was successful.
+     */
+    public String replyToConversation(ConversationRouter conversationRouter, UserManager userManager, String content,
+                                      UUID conversation) {
+        if (!userManager.hasConversation(conversation) ||
+                !conversationRouter.sendMessage(content, userManager.getActiveUserId(), conversation)) {
+            return "You are not a member of this conversation\n";
+        }
+        //marks conversations as unread for all participants except sender
+        for (UUID p : conversationRouter.getParticipants(conversation)) {
+            if (!p.equals(userManager.getActiveUserId())) {
+                userManager.markConversationAsUnread(conversation, userManager.findUserIndexById(p));
+            }
+        }
+        return "Reply Sent\n";
+    }
+
     /**
      * Method that deletes a conversation from a users conversations list
      * @param conversationManager The ConversationManager to use.
@@ -147,7 +228,7 @@ public class UserController {
     public void deleteConversation(ConversationManager conversationManager, UserManager userManager, int convoIndex,int userIndex){
         UUID id = conversationManager.getIdFromIndex(convoIndex);
         if (userIndex ==-1){userIndex=userManager.getIndexOfActiveUser();}
-        userManager.deleteConversation(id, conversationManager.getMessageListSize(id), userIndex);
+        userManager.deleteConversation(id, () -> conversationManager.getMessageListSize(id), userIndex);
     }
     /**
      * Method that Archived a conversation from a users conversations list
@@ -159,7 +240,7 @@ public class UserController {
     public void archiveConversation(ConversationManager conversationManager, UserManager userManager, int convoIndex, int userIndex){
         UUID id = conversationManager.getIdFromIndex(convoIndex);
         if (userIndex ==-1){userIndex=userManager.getIndexOfActiveUser();}
-        userManager.archiveConversation(id, conversationManager.getMessageListSize(id),userIndex);
+        userManager.archiveConversation(id, () -> conversationManager.getMessageListSize(id),userIndex);
     }
     /**
      * Method added by Laxan to mark a message as unread.
@@ -173,8 +254,8 @@ public class UserController {
     }
 
     /**
-     * Sign up to given event as user if the event is not full, user has yet to signed up to the event and has no
-     * schedule conflict with the event.
+     * Sign up to given event as user if the event is not full and user has yet to signed up to the event. If the
+     * event is full, the user is put on its waitlist instead and gets a seat once one is freed.
      * @param userManager The UserManager to use.
      * @param eventsManager The EventsManager to use.
      * @param roomManager The RoomManager to use.
@@ -183,32 +264,42 @@ public class UserController {
      */
     public String signUpToEvent(UserManager userManager, EventsManager eventsManager, RoomManager roomManager, UUID eventId) {
         UUID userID = userManager.getActiveUserId();
-        if (eventsManager.getAllEvents().containsKey(eventId) && eventsManager.getNumAttendees(eventId) <
-                roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId)) &&
-                !eventsManager.isUserSignedUp(userID, eventId) &&
-                eventsManager.getNumAttendees(eventId) < eventsManager.getCapacity(eventId))
-        {
-            eventsManager.addAttendee(eventId, userID);
-            userManager.registerEventById(eventId);
-            return "You've signed up to the event successfully.";
+        if (!eventsManager.hasEvent(eventId)) {
+            return "Sign up was unsuccessful. No such event.";
         }
-        else {
-            return "Sign up was unsuccessful. Either event is full, " +
-                    "invalid or you've already signed up for the event.";
+        // The seat is checked and taken in one step, so users signing up at the same time cannot overbook the event.
+        switch (eventsManager.signUpOrWait(eventId, userID, roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId)))) {
+            case SIGNED_UP:
+                userManager.registerEventById(eventId);
+                return "You've signed up to the event successfully.";
+            case WAITLISTED:
+                return "The event is full. You've been added to its waitlist at position " +
+                        eventsManager.getWaitlistPosition(eventId, userID) + " and will be notified if you get a seat.";
+            case ALREADY_WAITLISTED:
+                return "You're already on the waitlist for this event at position " +
+                        eventsManager.getWaitlistPosition(eventId, userID) + ".";
+            default:
+                return "Sign up was unsuccessful. You've already signed up for the event.";
         }
     }
     /**
-     * Disenroll to given event as user if user has already signed up to event.
+     * Disenroll to given event as user if user has already signed up to event, or leave its waitlist if user is
+     * waiting for a seat. A freed seat goes to the first user on the waitlist, who is notified.
      * @param userManager The UserManager to use.
      * @param eventsManager The EventsManager to use.
+     * @param roomManager The RoomManager to use.
+     * @param notificationDispatcher The NotificationDispatcher to send notifications with.
      * @param eventId UUID object that represents the event.
      * @return A String representing of disenrolling from the event.
      */
-    public String disEnrollToEvent(UserManager userManager, EventsManager eventsManager, UUID eventId) {
+    public String disEnrollToEvent(UserManager userManager, EventsManager eventsManager, RoomManager roomManager,
+                                   NotificationDispatcher notificationDispatcher, UUID eventId) {
         UUID userID = userManager.getActiveUserId();
-        if (eventsManager.getAllEvents().containsKey(eventId)) {
-            eventsManager.removeAttendee(eventId, userID);
+        if (eventsManager.hasEvent(eventId)) {
+            List<UUID> promoted = eventsManager.removeAttendeeAndPromote(eventId, userID,
+                    roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId)));
             userManager.cancelEventById(eventId);
+            notifyPromotedUsers(userManager, eventsManager, notificationDispatcher, eventId, promoted);
             return "You've disenrolled to the event successfully.";
         }
         else {
@@ -216,6 +307,40 @@ public class UserController {
         }
     }
 
+    /**
+     * Registers the event for users who got a seat from its waitlist and has each of them sent a notification.
+     * @param userManager The UserManager to use.
+     * @param eventsManager The EventsManager to use.
+     * @param notificationDispatcher The NotificationDispatcher to send notifications with.
+     * @param eventId UUID object that represents the event.
+     * @param promoted The ids of the users who got a seat.
+     */
+    protected void notifyPromotedUsers(UserManager userManager, EventsManager eventsManager,
+                                       NotificationDispatcher notificationDispatcher, UUID eventId, List<UUID> promoted) {
+        for (UUID userId : promoted) {
+            userManager.registerEventForUser(userId, eventId, eventsManager);
+        }
+        if (!promoted.isEmpty()) {
+            publishChange(notificationDispatcher, eventsManager, EventChange.WAITLIST_PROMOTED, eventId,
+                    new ArrayList<>(), promoted);
+        }
+    }
+
+    /**
+     * Queues a change to an event for the notification workers, along with the event's details as they are now.
+     * @param notificationDispatcher The NotificationDispatcher to queue the change with.
+     * @param eventsManager The EventsManager to use.
+     * @param change What happened to the event.
+     * @param eventId UUID object that represents the event.
+     * @param speakerIds The speakers whose fans should hear about the change.
+     * @param userIds The users the change happened to.
+     */
+    protected void publishChange(NotificationDispatcher notificationDispatcher, EventsManager eventsManager,
+                                 EventChange change, UUID eventId, List<UUID> speakerIds, List<UUID> userIds) {
+        notificationDispatcher.publish(new EventChangeNotice(change, eventId, eventsManager.getEventName(eventId),
+                eventsManager.getEventString(eventId), eventsManager.getCapacity(eventId), speakerIds, userIds));
+    }
+
     /**
      * Get a list of all event ids.
      * @param eventsManager The EventsManager to use.
@@ -271,6 +396,36 @@ public class UserController {
      * @return A string representation of the logged in user's conversations.
      */
     public String viewConversations(UserManager userManager, ConversationManager conversationManager){
+        return listConversations(userManager, conversationManager, "");
+    }
+
+    /**
+     * A method that returns a string displaying all the active user's conversations when direct conversations are
+     * kept in partitions (see Conference.setConversationRouter). The direct conversations in the partitions are shown
+     * by their id, the most recently active first, and the others by their index as in viewConversations.
+     * @param userManager The UserManager to use.
+     * @param conversationManager The ConversationManager to use.
+     * @param conversationRouter The router to the partitions.
+     * @return A string representation of the logged in user's conversations.
+     */
+    public String viewConversations(UserManager userManager, ConversationManager conversationManager,
+                                    ConversationRouter conversationRouter) {
+        List<UUID> unreadConversations = userManager.getUnreadConversationList();
+        String partitioned = "";
+        for (ConversationSummary summary : conversationRouter.getInbox(userManager.getActiveUserId())) {
+            partitioned += (unreadConversations.contains(summary.getId()) ? "[Unread] " : "") +
+                    summary.getId() + " - " +
+                    showConversationParticipants(userManager, summary.getParticipants()) + "\n";
+        }
+        return listConversations(userManager, conversationManager, partitioned);
+    }
+
+    /**
+     * Lists the active user's conversations in this conference's ConversationManager, grouped by type, with the given
+     * lines for direct conversations kept elsewhere added to the direct ones.
+     */
+    private String listConversations(UserManager userManager, ConversationManager conversationManager,
+                                     String otherDirectConversations) {
         List<UUID> conversations = userManager.getConversations();
         List<UUID> unreadConversations = userManager.getUnreadConversationList();
 
@@ -281,13 +436,19 @@ public class UserController {
             String organizerOutput="\nOrganizer Notifications\n===========================\n";
             String eventOutput="\nEvent Notifications\n===========================\n";
             String directOutput="\nConversations\n===========================\n";
+            if (!otherDirectConversations.isEmpty()) {
+                directOutput += otherDirectConversations;
+            }
 	        for (UUID c : conversations) {
+	            int index = conversationManager.findConversation(c);
+	            if (index == -1) {
+	                continue; // Kept in a partition, so listed with otherDirectConversations.
+	            }
                 String tempOutput = "";
 	            if (unreadConversations.contains(c)){
                     tempOutput += "[Unread] ";
                 }
                 ConvoType type = conversationManager.getType(c);
-	            int index = conversationManager.findConversation(c);
                 tempOutput += index + " - ";
                 if (type == ConvoType.EVENT){tempOutput += conversationManager.getEventName(c)+ " - ";}
 		        List<UUID> participants = conversationManager.getConversationParticipants(index);
@@ -331,10 +492,10 @@ public class UserController {
     public String viewMessages(UserManager userManager, ConversationManager conversationManager, int index) {
         HashMap<UUID, Integer> deletedMessagesIndexList = userManager.getDeletedConversationsList();
         HashMap<UUID, Integer> archivedMessagesIndexList = userManager.getArchivedConversationsList();
-        UUID conversationID = conversationManager.getIdFromIndex(index);
         if(!conversationManager.isValidConversationIndex(index)) {
             return "Invalid Conversation Index\n\n";
         }
+        UUID conversationID = conversationManager.getIdFromIndex(index);
         if(!userManager.hasConversation(conversationID)){
         	return "You are not a member of this conversation\n\n";
         }
@@ -345,12 +506,12 @@ public class UserController {
 
 
 
-        List<MessageInfo> messagesInfo = conversationManager.getMessagesInfo(index);
-         if (deletedMessagesIndexList.get(conversationID)== messagesInfo.size()){
+        int messageCount = conversationManager.getMessageListSize(conversationID);
+         if (deletedMessagesIndexList.get(conversationID)== messageCount){
              output +="All messages in this conversation have been deleted\n\n";
              return output;
          }
-        if (archivedMessagesIndexList.get(conversationID)== messagesInfo.size()){
+        if (archivedMessagesIndexList.get(conversationID)== messageCount){
             output +="All messages in this conversation have been archived\n\n";
             return output;
         }
@@ -361,18 +522,68 @@ public class UserController {
             firstMessageIndex=archivedMessagesIndexList.get(conversationID);
         }
 
+        // Only the messages after the user's deleted/archived point are fetched.
+        List<MessageInfo> messagesInfo = conversationManager.getMessagesPage(index, firstMessageIndex,
+                messageCount - firstMessageIndex, true);
+        for (MessageInfo m : messagesInfo) {
+            String sender = getSenderName(userManager, m.getSenderId());
+            output += sender + " (" + m.getTime().getHour() + ":" + m.getTime().getMinute() + "): " + m.getContent() + "\n";
+        }
+        return output + "\n";
+    }
 
-        ListIterator<MessageInfo> messageIterator = messagesInfo.listIterator(firstMessageIndex);
-
-        MessageInfo m;
-        while(messageIterator.hasNext()) {
-            m = messageIterator.next();
-            String sender = userManager.getUserName(userManager.findUserIndexById(m.getSenderId()));
+    /**
+     * A method that returns a string representation of the messages of a direct conversation kept in a partition (see
+     * Conference.setConversationRouter), in the same form as viewMessages.
+     * @param userManager The UserManager to use.
+     * @param conversationRouter The router to the partitions.
+     * @param conversation The id of the conversation.
+     * @return A string representation of the messages in the specified conversation.
+     */
+    public String viewMessages(UserManager userManager, ConversationRouter conversationRouter, UUID conversation) {
+        if (!userManager.hasConversation(conversation)) {
+            return "You are not a member of this conversation\n\n";
+        }
+        userManager.markConversationAsRead(conversation);
+        String output = "\nConversation with: " +
+                showConversationParticipants(userManager, conversationRouter.getParticipants(conversation)) +
+                "\n===========================\n";
+        for (MessageInfo m : conversationRouter.getMessagesInfo(conversation)) {
+            String sender = getSenderName(userManager, m.getSenderId());
             output += sender + " (" + m.getTime().getHour() + ":" + m.getTime().getMinute() + "): " + m.getContent() + "\n";
         }
         return output + "\n";
     }
 
+    /**
+     * A method that searches the messages of the active user's conversations and returns the best matches in the form:
+     * "i - sender (time): content" Where 'i' is the index of the conversation the message is in. Messages the user
+     * has deleted are not searched.
+     * @param userManager The UserManager to use.
+     * @param conversationManager The ConversationManager to use.
+     * @param query The words to search for.
+     * @return A string representation of the matching messages.
+     */
+    public String searchMessages(UserManager userManager, ConversationManager conversationManager, String query) {
+        HashMap<UUID, Integer> deletedMessagesIndexList = userManager.getDeletedConversationsList();
+        HashMap<UUID, Integer> visibleFrom = new HashMap<>();
+        for (UUID c : userManager.getConversations()) {
+            visibleFrom.put(c, deletedMessagesIndexList.getOrDefault(c, 0));
+        }
+        List<MessageSearchResult> results = conversationManager.searchMessages(query, visibleFrom, 20);
+        if (results.isEmpty()) {
+            return "No messages matched your search.\n\n";
+        }
+        String output = "\nSearch Results\n===========================\n";
+        for (MessageSearchResult r : results) {
+            MessageInfo m = r.getMessage();
+            String sender = getSenderName(userManager, m.getSenderId());
+            output += r.getConversationIndex() + " - " + sender + " (" + m.getTime().getHour() + ":" +
+                    m.getTime().getMinute() + "): " + m.getContent() + "\n";
+        }
+        return output + "\n";
+    }
+
     /**
      * A method that returns a string displaying all the active user's friends in the form:
      * "i - friend's email" Where 'i' is the index of the friend in UserManager's allUsers.
@@ -469,7 +680,19 @@ public class UserController {
             UUID p = copy.get(i);
             output += userManager.getUserName(userManager.findUserIndexById(p));
         }
-        return output;
+        return copy.isEmpty() ? "Notifications" : output;
+    }
+
+    /**
+     * A private helper method that returns the name to show as the sender of a message. Messages without a sender,
+     * or from a user that no longer exists, are notifications.
+     * @param userManager The UserManager to use.
+     * @param senderId The id of the sender of the message, or null
+     * @return The name of the sender
+     */
+    private String getSenderName(UserManager userManager, UUID senderId) {
+        int index = senderId == null ? -1 : userManager.findUserIndexById(senderId);
+        return index == -1 ? "Notification" : userManager.getUserName(index);
     }
 
 	/**
@@ -547,7 +770,7 @@ public class UserController {
     public HashMap<String, Integer> statsGetTopEnrolledEvents(EventsManager eventsManager) {
         HashMap<String, Integer> topEvents = new HashMap<>();
         for (Event event : eventsManager.getAllEvents().values()) {
-            topEvents.put(event.getEventName(), event.getAttendees().size());
+            topEvents.put(event.getEventName(), event.getNumAttendees());
         }
         return topEvents;
     }
@@ -0,0 +1,67 @@
+package entities;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A booking entity. Stores the event a room is booked for and the time the booking starts and ends. A booking covers
+ * its start time up to, but not including, its end time, so a booking ending at 10:00 does not overlap one starting
+ * at 10:00.
+ */
+public class Booking implements Serializable {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final UUID eventId;
+    private static final long serialVersionUID = 3206215372101183530L;
+
+    /**
+     * Constructor for Booking
+     * @param start the time the booking starts
+     * @param end the time the booking ends, must be after start
+     * @param eventId UUID of the event the room is booked for
+     * @throws IllegalArgumentException if end is not after start
+     */
+    public Booking(LocalDateTime start, LocalDateTime end, UUID eventId) {
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("A booking must end after it starts.");
+        }
+        this.start = start;
+        this.end = end;
+        this.eventId = eventId;
+    }
+
+    /**
+     * Get the time the booking starts.
+     * @return a LocalDateTime that represents the start of the booking
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Get the time the booking ends.
+     * @return a LocalDateTime that represents the end of the booking
+     */
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the event the room is booked for.
+     * @return the UUID of the event
+     */
+    public UUID getEventId() {
+        return eventId;
+    }
+
+    /**
+     * Check whether this booking overlaps the given time interval.
+     * @param from the start of the interval
+     * @param to the end of the interval, not included
+     * @return true iff some time is covered by both this booking and the interval
+     */
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return start.isBefore(to) && from.isBefore(end);
+    }
+}
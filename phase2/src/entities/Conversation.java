@@ -2,21 +2,46 @@ package entities;
 
 import enums.ConvoType;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
 
 /**
  * A conversation entity. Stores messages and conversation participants.
+ * Messages are stored column by column rather than as Message objects: a send time (epoch milliseconds, UTC), an
+ * index into this conversation's table of senders, and the end of the message's UTF-8 content in a shared byte
+ * array. Message objects are only created when a message is read. Bodies that are shared with other conversations
+ * (see addSharedMessage) are kept as a reference to the shared String instead of being copied into the byte array.
  */
 public class Conversation implements Serializable {
 
+    private static final long serialVersionUID = -9098060512410620266L; // See: https://stackoverflow.com/a/8336144
+    private static final int INITIAL_CAPACITY = 4;
+
     private UUID id;
-    private ArrayList<Message> messageList;
     private List<UUID> participants;
     private ConvoType type;
     private String eventName;
+    private int messageCount = 0;
+    private long[] sentTimes = new long[INITIAL_CAPACITY];
+    private int[] senderOrdinals = new int[INITIAL_CAPACITY];
+    private ArrayList<UUID> senders = new ArrayList<>();
+    private int[] contentEnds = new int[INITIAL_CAPACITY];
+    private byte[] contents = new byte[INITIAL_CAPACITY * 16];
+    private HashMap<Integer, String> sharedContents;
+    private long droppedMessages = 0;
+    private ArrayList<Message> messageList; // Only set while reading a conversation saved in the old format
 
 	/**
 	 * The constructor for Conversation.
@@ -24,9 +49,18 @@ public class Conversation implements Serializable {
 	 * @param type The type of conversation, can be either 'DIRECT', 'EVENT', or 'ORGANIZER'.
 	 */
 	public Conversation(List<UUID> participants, ConvoType type){
-        this.id = UUID.randomUUID();
+        this(UUID.randomUUID(), participants, type);
+    }
+
+	/**
+	 * The constructor for a Conversation whose id has already been chosen, such as by a ConversationRouter.
+	 * @param id The id of the conversation
+	 * @param participants A list of the conversation's participant UUID's
+	 * @param type The type of conversation, can be either 'DIRECT', 'EVENT', or 'ORGANIZER'.
+	 */
+	public Conversation(UUID id, List<UUID> participants, ConvoType type){
+        this.id = id;
         this.participants = participants;
-        this.messageList = new ArrayList<Message>();
         this.type = type;
     }
 
@@ -34,7 +68,77 @@ public class Conversation implements Serializable {
 	 * @param message The message to be added
 	 */
 	public void addMessage(Message message){
-        messageList.add(message);
+        addMessage(message.getSenderId(), message.getTime(), message.getContent());
+    }
+
+	/**
+	 * @param senderId The sender's UUID
+	 * @param time The time the message was sent
+	 * @param content The content of the message
+	 */
+	public void addMessage(UUID senderId, LocalDateTime time, String content){
+        appendColumns(senderId, time, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+	/**
+	 * Adds a message whose body is shared with other messages. Only a reference to sharedContent is kept, so the same
+	 * String should be passed for every message with that body.
+	 * @param senderId The sender's UUID
+	 * @param time The time the message was sent
+	 * @param sharedContent The shared content of the message
+	 */
+	public void addSharedMessage(UUID senderId, LocalDateTime time, String sharedContent){
+        if (sharedContents == null) {
+            sharedContents = new HashMap<>();
+        }
+        sharedContents.put(messageCount, sharedContent);
+        appendColumns(senderId, time, new byte[0]);
+    }
+
+	/**
+	 * @param offset The position of the message in this conversation
+	 * @return Returns the shared content of the message at offset, or null if its content is not shared
+	 */
+	public String getSharedContent(int offset){
+		checkOffset(offset);
+		return sharedContents == null ? null : sharedContents.get(offset);
+	}
+
+	/**
+	 * Replaces each shared content with the String given by canonical, e.g. to point the messages of conversations
+	 * loaded from save data back at a single copy of each body.
+	 * @param canonical A function from a content to the shared copy of it
+	 */
+	public void replaceSharedContents(UnaryOperator<String> canonical){
+		if (sharedContents != null) {
+			for (Map.Entry<Integer, String> entry : sharedContents.entrySet()) {
+				entry.setValue(canonical.apply(entry.getValue()));
+			}
+		}
+	}
+
+	private void appendColumns(UUID senderId, LocalDateTime time, byte[] encoded){
+        if (messageCount == sentTimes.length) {
+            int capacity = messageCount + (messageCount >> 1) + 1;
+            sentTimes = Arrays.copyOf(sentTimes, capacity);
+            senderOrdinals = Arrays.copyOf(senderOrdinals, capacity);
+            contentEnds = Arrays.copyOf(contentEnds, capacity);
+        }
+        int start = contentStart(messageCount);
+        if (start + encoded.length > contents.length) {
+            contents = Arrays.copyOf(contents, Math.max(start + encoded.length, contents.length + (contents.length >> 1)));
+        }
+        System.arraycopy(encoded, 0, contents, start, encoded.length);
+
+        int ordinal = senders.indexOf(senderId);
+        if (ordinal == -1) {
+            senders.add(senderId);
+            ordinal = senders.size() - 1;
+        }
+        sentTimes[messageCount] = time.toInstant(ZoneOffset.UTC).toEpochMilli();
+        senderOrdinals[messageCount] = ordinal;
+        contentEnds[messageCount] = start + encoded.length;
+        messageCount++;
     }
 
 	/**
@@ -45,12 +149,123 @@ public class Conversation implements Serializable {
     }
 
 	/**
-	 * @return Returns this conversation's message list
+	 * @return Returns a copy of this conversation's message list
 	 */
 	public List<Message> getMessageList(){
+        ArrayList<Message> messageList = new ArrayList<>(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            messageList.add(getMessage(i));
+        }
         return messageList;
     }
 
+	/**
+	 * @return Returns the number of messages in this conversation
+	 */
+	public int getMessageCount(){
+		return messageCount;
+	}
+
+	/**
+	 * @param offset The position of the message in this conversation, where 0 is the oldest message
+	 * @return Returns the message at offset
+	 */
+	public Message getMessage(int offset){
+		return new Message(getMessageId(offset), getSenderId(offset), getTime(offset), getContent(offset));
+	}
+
+	/**
+	 * Message ids are derived from the conversation's id and the message's position among every message ever sent
+	 * to the conversation, so they stay the same each time the message is read, even after older messages are
+	 * dropped.
+	 * @param offset The position of the message in this conversation
+	 * @return Returns the id of the message at offset
+	 */
+	public UUID getMessageId(int offset){
+		checkOffset(offset);
+		return new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits() ^ (droppedMessages + offset));
+	}
+
+	/**
+	 * @param offset The position of the message in this conversation
+	 * @return Returns the sender Id of the message at offset
+	 */
+	public UUID getSenderId(int offset){
+		checkOffset(offset);
+		return senders.get(senderOrdinals[offset]);
+	}
+
+	/**
+	 * @param offset The position of the message in this conversation
+	 * @return Returns the time of sending of the message at offset
+	 */
+	public LocalDateTime getTime(int offset){
+		checkOffset(offset);
+		long millis = sentTimes[offset];
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), (int) Math.floorMod(millis, 1000L) * 1000000,
+				ZoneOffset.UTC);
+	}
+
+	/**
+	 * @param offset The position of the message in this conversation
+	 * @return Returns the content of the message at offset
+	 */
+	public String getContent(int offset){
+		String shared = getSharedContent(offset);
+		if (shared != null) {
+			return shared;
+		}
+		int start = contentStart(offset);
+		return new String(contents, start, contentEnds[offset] - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Removes the oldest messages from this conversation. The offsets of the remaining messages go down by count.
+	 * @param count The number of messages to remove, starting from the oldest
+	 */
+	public void dropOldestMessages(int count){
+		if (count <= 0) {
+			return;
+		}
+		count = Math.min(count, messageCount);
+		int remaining = messageCount - count;
+		int droppedBytes = contentStart(count);
+		System.arraycopy(sentTimes, count, sentTimes, 0, remaining);
+		System.arraycopy(senderOrdinals, count, senderOrdinals, 0, remaining);
+		for (int i = 0; i < remaining; i++) {
+			contentEnds[i] = contentEnds[i + count] - droppedBytes;
+		}
+		System.arraycopy(contents, droppedBytes, contents, 0, contentStart(messageCount) - droppedBytes);
+		if (sharedContents != null) {
+			HashMap<Integer, String> kept = new HashMap<>();
+			for (Map.Entry<Integer, String> entry : sharedContents.entrySet()) {
+				if (entry.getKey() >= count) {
+					kept.put(entry.getKey() - count, entry.getValue());
+				}
+			}
+			sharedContents = kept.isEmpty() ? null : kept;
+		}
+		messageCount = remaining;
+		droppedMessages += count;
+		// Give back the space if most of it is now unused.
+		if (sentTimes.length > 2 * (messageCount + INITIAL_CAPACITY)) {
+			int capacity = messageCount + INITIAL_CAPACITY;
+			sentTimes = Arrays.copyOf(sentTimes, capacity);
+			senderOrdinals = Arrays.copyOf(senderOrdinals, capacity);
+			contentEnds = Arrays.copyOf(contentEnds, capacity);
+		}
+		if (contents.length > 2 * (contentStart(messageCount) + INITIAL_CAPACITY * 16)) {
+			contents = Arrays.copyOf(contents, contentStart(messageCount) + INITIAL_CAPACITY * 16);
+		}
+	}
+
+	/**
+	 * @return Returns the number of messages dropped from this conversation so far
+	 */
+	public long getDroppedMessageCount(){
+		return droppedMessages;
+	}
+
 	/**
 	 * @return Returns this conversation's participants.
 	 */
@@ -77,4 +292,56 @@ public class Conversation implements Serializable {
 	public String getEventName() {
 		return eventName;
 	}
+
+	private int contentStart(int offset) {
+		return offset == 0 ? 0 : contentEnds[offset - 1];
+	}
+
+	private void checkOffset(int offset) {
+		if (offset < 0 || offset >= messageCount) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", Size: " + messageCount);
+		}
+	}
+
+	/**
+	 * Reads a conversation, converting the messages of conversations saved in the old format, as a list of Message
+	 * objects, into columns. The converted messages are given new ids (see getMessageId).
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (sentTimes == null) {
+			sentTimes = new long[INITIAL_CAPACITY];
+			senderOrdinals = new int[INITIAL_CAPACITY];
+			senders = new ArrayList<>();
+			contentEnds = new int[INITIAL_CAPACITY];
+			contents = new byte[INITIAL_CAPACITY * 16];
+			if (messageList != null) {
+				for (Message message : messageList) {
+					addMessage(message);
+				}
+			}
+		}
+		messageList = null;
+	}
+
+	/**
+	 * Saves each column without the unused space at its end. The columns themselves are left as they are, since
+	 * messages may be appended to them while a copy is being saved.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("id", id);
+		fields.put("participants", participants);
+		fields.put("type", type);
+		fields.put("eventName", eventName);
+		fields.put("messageCount", messageCount);
+		fields.put("sentTimes", Arrays.copyOf(sentTimes, messageCount));
+		fields.put("senderOrdinals", Arrays.copyOf(senderOrdinals, messageCount));
+		fields.put("senders", senders);
+		fields.put("contentEnds", Arrays.copyOf(contentEnds, messageCount));
+		fields.put("contents", Arrays.copyOf(contents, contentStart(messageCount)));
+		fields.put("sharedContents", sharedContents);
+		fields.put("droppedMessages", droppedMessages);
+		out.writeFields();
+	}
 }
@@ -1,7 +1,11 @@
 package entities;
 
 import enums.RoomFeatures;
+import enums.SignUpStatus;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.time.LocalDateTime;
@@ -19,7 +23,9 @@ public class Event implements Serializable {
     private int capacity;
     private int duration;
     private Set<UUID> attendees = new HashSet<>();
-    private List<RoomFeatures> features;
+    private LinkedHashSet<UUID> waitlist = new LinkedHashSet<>();
+    private long featureMask;
+    private List<RoomFeatures> features; // Only set while reading an event saved in the old format
     private static final long serialVersionUID = 1626213873034458493L; // See: https://stackoverflow.com/a/8336144
 
     /**
@@ -44,7 +50,7 @@ public class Event implements Serializable {
             this.room = room;
             this.capacity = capacity;
             this.duration = duration;
-            this.features = features;
+            this.featureMask = RoomFeatures.maskOf(features);
         }
         else {
             throw new IllegalArgumentException("Event not created, duration must be greater than 0 and less than 24. and" +
@@ -82,7 +88,7 @@ public class Event implements Serializable {
      * @param speakerID a UUID that represents the unique ID of the speaker that would be added to the speaker list
      *                  of the event.
      */
-    public void addSpeaker(UUID speakerID) {
+    public synchronized void addSpeaker(UUID speakerID) {
         this.speaker.add(speakerID);
     }
 
@@ -91,7 +97,7 @@ public class Event implements Serializable {
      * @param speakersID a set of UUID that represents unique ID of speakers that would be added to the speaker list
      *                  of the event.
      */
-    public void addSpeaker(HashSet<UUID> speakersID) {
+    public synchronized void addSpeaker(HashSet<UUID> speakersID) {
         this.speaker.addAll(speakersID);
     }
 
@@ -99,7 +105,7 @@ public class Event implements Serializable {
      * Remove the given speaker from the speaker list of the event.
      * @param speakerID a UUID object that represents the speaker.
      */
-    public void removeSpeaker(UUID speakerID) {
+    public synchronized void removeSpeaker(UUID speakerID) {
         this.speaker.remove(speakerID);
     }
 
@@ -115,16 +121,40 @@ public class Event implements Serializable {
      * Get the list of attendees who signed up for the event.
      * @return the list of attendees who signed up for the event, represented by each of their own unique ID.
      */
-    public Set<UUID> getAttendees() {
-        return this.attendees;
+    public synchronized Set<UUID> getAttendees() {
+        return new HashSet<>(this.attendees);
+    }
+
+    /**
+     * Get the number of attendees signed up to the event.
+     * @return an integer that represents the number of attendees in the attendee list.
+     */
+    public synchronized int getNumAttendees() {
+        return this.attendees.size();
     }
 
     /**
      * Add an attendee, represented by its unique ID, to the attendee list of the event.
      * @param attendeeId a UUID that represents the unique ID of the attendee that would be added to the attendee list.
      */
-    public void addAttendee(UUID attendeeId) {
+    public synchronized void addAttendee(UUID attendeeId) {
+        this.attendees.add(attendeeId);
+    }
+
+    /**
+     * Add an attendee to the attendee list of the event if there is a seat left, as one step, so that two attendees
+     * signing up at the same time cannot both take the last seat.
+     * @param attendeeId a UUID that represents the unique ID of the attendee that would be added to the attendee list.
+     * @param roomCapacity an integer that represents the capacity of the event's room. The event is full once the
+     *                     attendee list reaches the smaller of this and the event's own capacity.
+     * @return true iff the attendee was added, false if the event is full or the attendee was already signed up.
+     */
+    public synchronized boolean reserveSeat(UUID attendeeId, int roomCapacity) {
+        if (this.attendees.size() >= Math.min(this.capacity, roomCapacity) || this.attendees.contains(attendeeId)) {
+            return false;
+        }
         this.attendees.add(attendeeId);
+        return true;
     }
 
     /**
@@ -132,10 +162,106 @@ public class Event implements Serializable {
      * @param attendeeID a UUID that represents the unique ID of the attendee that would be removed
      * from the attendee list.
      */
-    public void removeAttendee(UUID attendeeID) {
+    public synchronized void removeAttendee(UUID attendeeID) {
         this.attendees.remove(attendeeID);
     }
 
+    /**
+     * Add an attendee to the attendee list of the event if there is a seat left, or to the end of the event's
+     * waitlist otherwise, as one step.
+     * @param attendeeId a UUID that represents the unique ID of the attendee.
+     * @param roomCapacity an integer that represents the capacity of the event's room.
+     * @return whether the attendee got a seat or was waitlisted, or was already signed up or waitlisted.
+     */
+    public synchronized SignUpStatus signUpOrWait(UUID attendeeId, int roomCapacity) {
+        if (this.attendees.contains(attendeeId)) {
+            return SignUpStatus.ALREADY_SIGNED_UP;
+        }
+        if (this.waitlist.contains(attendeeId)) {
+            return SignUpStatus.ALREADY_WAITLISTED;
+        }
+        if (reserveSeat(attendeeId, roomCapacity)) {
+            return SignUpStatus.SIGNED_UP;
+        }
+        this.waitlist.add(attendeeId);
+        return SignUpStatus.WAITLISTED;
+    }
+
+    /**
+     * Remove an attendee from the attendee list or the waitlist of the event. If a seat is freed, it is given to the
+     * first attendee on the waitlist.
+     * @param attendeeId a UUID that represents the unique ID of the attendee to remove.
+     * @param roomCapacity an integer that represents the capacity of the event's room.
+     * @return the attendees moved from the waitlist to the attendee list, in the order they were waitlisted.
+     */
+    public synchronized List<UUID> removeAttendeeAndPromote(UUID attendeeId, int roomCapacity) {
+        if (this.waitlist.remove(attendeeId) || !this.attendees.remove(attendeeId)) {
+            return new ArrayList<>();
+        }
+        return promote(roomCapacity);
+    }
+
+    /**
+     * Set the maximum number of attendees of the event, giving any new seats to the attendees on the waitlist. The
+     * capacity is not changed if more attendees than it are signed up.
+     * @param capacity an integer representing the new maximum number of attendees that are allowed to attend the event.
+     * @param roomCapacity an integer that represents the capacity of the event's room.
+     * @return the attendees moved from the waitlist to the attendee list, in the order they were waitlisted, or null
+     * if the capacity was not changed.
+     */
+    public synchronized List<UUID> setCapacityAndPromote(int capacity, int roomCapacity) {
+        if (this.attendees.size() > capacity) {
+            return null;
+        }
+        this.capacity = capacity;
+        return promote(roomCapacity);
+    }
+
+    private List<UUID> promote(int roomCapacity) {
+        List<UUID> promoted = new ArrayList<>();
+        Iterator<UUID> next = this.waitlist.iterator();
+        while (next.hasNext() && this.attendees.size() < Math.min(this.capacity, roomCapacity)) {
+            UUID attendeeId = next.next();
+            next.remove();
+            this.attendees.add(attendeeId);
+            promoted.add(attendeeId);
+        }
+        return promoted;
+    }
+
+    /**
+     * Get the position of an attendee on the waitlist of the event.
+     * @param attendeeId a UUID that represents the unique ID of the attendee.
+     * @return the position of the attendee, where 1 is the next to get a seat, or 0 if the attendee is not waitlisted.
+     */
+    public synchronized int getWaitlistPosition(UUID attendeeId) {
+        int position = 1;
+        for (UUID waiting : this.waitlist) {
+            if (waiting.equals(attendeeId)) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    /**
+     * Get the attendees waiting for a seat at the event.
+     * @return a List of the attendees on the waitlist, where the first is the next to get a seat.
+     */
+    public synchronized List<UUID> getWaitlist() {
+        return new ArrayList<>(this.waitlist);
+    }
+
+    /**
+     * Return true iff the given attendee is on the waitlist of the event.
+     * @param attendeeId a UUID that represents the unique ID of the attendee.
+     * @return true iff the attendee is waiting for a seat at the event.
+     */
+    public synchronized boolean isUserWaitlisted(UUID attendeeId) {
+        return this.waitlist.contains(attendeeId);
+    }
+
 
     /**
      * Get a string representation of the date and time of when the event will start.
@@ -165,13 +291,21 @@ public class Event implements Serializable {
         return this.dateAndTime;
     }
 
+    /**
+     * Get the duration of the event.
+     * @return an integer that represents the number of hours the event lasts.
+     */
+    public int getDuration() {
+        return this.duration;
+    }
+
 
     /**
      * Return true iff given user has signed up for the event. Return false otherwise.
      * @param user UUID object that represents the user that is checked if the user is currently signed up to the event.
      * @return true iff given user has signed up for the event. Return false otherwise.
      */
-    public boolean isUserSignedUp(UUID user) {
+    public synchronized boolean isUserSignedUp(UUID user) {
         return this.attendees.contains(user);
     }
 
@@ -179,7 +313,7 @@ public class Event implements Serializable {
      * Return the maximum capacity of this event.
      * @return an integer representing the maximum number of attendees that are allowed to attend the event.
      */
-    public int getCapacity() {
+    public synchronized int getCapacity() {
         return this.capacity;
     }
 
@@ -187,7 +321,7 @@ public class Event implements Serializable {
      * Set the maximum number of attendees that are allowed to attend the event.
      * @param capacity an integer representing the new maximum number of attendees that are allowed to attend the event.
      */
-    public void setCapacity(int capacity) {
+    public synchronized void setCapacity(int capacity) {
         this.capacity = capacity;
     }
 
@@ -213,7 +347,7 @@ public class Event implements Serializable {
      */
     public String displayFeatures(){
         StringBuilder display = new StringBuilder();
-        for (RoomFeatures feature: features){
+        for (RoomFeatures feature: RoomFeatures.fromMask(featureMask)){
             display.append(" ").append(feature.featureName()).append(",");
         }
         if (display.length() > 1){
@@ -228,7 +362,7 @@ public class Event implements Serializable {
      * @return true if the event has the feature, false otherwise
      */
     public boolean hasFeature(RoomFeatures feature){
-        return features.contains(feature);
+        return (featureMask & feature.bit()) != 0;
     }
 
     /**
@@ -236,7 +370,7 @@ public class Event implements Serializable {
      * @param feature The RoomFeature to add
      */
     public void addFeature(RoomFeatures feature){
-        features.add(feature);
+        featureMask |= feature.bit();
     }
 
     /**
@@ -244,6 +378,36 @@ public class Event implements Serializable {
      * @param feature the RoomFeature to remove
      */
     public void removeFeature(RoomFeatures feature){
-        features.remove(feature);
+        featureMask &= ~feature.bit();
+    }
+
+    /**
+     * Get the features this event needs as a feature mask (see RoomFeatures.maskOf).
+     * @return a long with the bit of each feature this event needs set.
+     */
+    public long getFeatureMask(){
+        return featureMask;
+    }
+
+    /**
+     * Writes the event while holding its lock, so the attendee list is not changed halfway through.
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Reads an event, converting the features of events saved in the old format and giving events saved before
+     * waitlists existed an empty one.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (waitlist == null) {
+            waitlist = new LinkedHashSet<>();
+        }
+        if (features != null) {
+            featureMask = RoomFeatures.maskOf(features);
+            features = null;
+        }
     }
 }
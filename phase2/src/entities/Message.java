@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
  */
 public class Message implements Serializable {
 
+    private static final long serialVersionUID = -6950204514895900683L; // See: https://stackoverflow.com/a/8336144
     private UUID id;
     private LocalDateTime dateAndTime;
     private UUID senderId;
@@ -26,6 +27,20 @@ public class Message implements Serializable {
         this.content = content;
     }
 
+	/**
+	 * The constructor for a Message that has already been sent, used when reading messages back from a Conversation
+	 * @param id The message's UUID
+	 * @param senderId The sender's UUID
+	 * @param dateAndTime The time the message was sent
+	 * @param content The content of the message
+	 */
+	public Message(UUID id, UUID senderId, LocalDateTime dateAndTime, String content){
+        this.id = id;
+        this.dateAndTime = dateAndTime;
+        this.senderId = senderId;
+        this.content = content;
+    }
+
 	/**
 	 * @return Returns this message's Id
 	 */
@@ -2,8 +2,11 @@ package entities;
 
 import enums.RoomFeatures;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
@@ -15,8 +18,11 @@ public class Room implements Serializable {
     private final String name;
     private int earliestStartTime;
     private int closingTime;
-    private HashMap<LocalDateTime, ArrayList<Object>> schedule = new HashMap<>();
-    private List<RoomFeatures> features = new ArrayList<>();
+    private TreeMap<LocalDateTime, Booking> bookings = new TreeMap<>();
+    private transient HashMap<UUID, LocalDateTime> bookingStarts = new HashMap<>();
+    private HashMap<LocalDateTime, ArrayList<Object>> schedule; // Only set while reading a room saved in the old format
+    private long featureMask = 0L;
+    private List<RoomFeatures> features; // Only set while reading a room saved in the old format
     private static final long serialVersionUID = -6846653117568982208L; // See: https://stackoverflow.com/a/8336144
 
     /**
@@ -73,51 +79,179 @@ public class Room implements Serializable {
         return this.capacity;
     }
 
+    /**
+     * Get the hour the room opens at.
+     * @return an integer that represents the hour in a 24 hour clock cycle that the room opens for events.
+     */
+    public int getEarliestStartTime() {
+        return this.earliestStartTime;
+    }
+
+    /**
+     * Get the hour the room closes at.
+     * @return an integer that represents the hour in a 24 hour clock cycle that all events in the room must end by.
+     */
+    public int getClosingTime() {
+        return this.closingTime;
+    }
+
     /**
      * Check if room is available to be booked for an event at the given starting time slot for given duration
      * @param dateAndTime a LocalDateTime object that represents the start time that will be checked if
      *                    room is available to booked.
      * @param duration an integer object that represents the number of hours from the starting time that needs to be
      *                 checked.
-     * @return true iff there is an open slot at the given starting time and is within the opening time of the room.
+     * @return true iff the room is open from the given starting time until the end of the duration, on the same day,
+     * and no booking overlaps that time. A booking ending exactly at the given starting time does not overlap it.
      * Return false otherwise.
      */
     public boolean checkRoomAvailability(LocalDateTime dateAndTime, int duration) {
-        for (Map.Entry<LocalDateTime, ArrayList<Object>> entry: schedule.entrySet()){
-            if (!dateAndTime.plusHours(duration).isBefore(entry.getKey()) && !dateAndTime.isAfter(entry.getKey().plusHours(entry.getValue().indexOf(1)))){
-                return false;
-            }
-            else if (dateAndTime.plusHours(duration).getHour() == closingTime && dateAndTime.plusHours(duration).getMinute() > 0 ) {
-                return false;
-            }
-            else if (dateAndTime.plusHours(duration).getDayOfMonth() != dateAndTime.getDayOfMonth()) {
-                return false;
-            }
+        if (duration <= 0) {
+            return false;
+        }
+        LocalDateTime end = dateAndTime.plusHours(duration);
+        LocalDateTime opening = dateAndTime.toLocalDate().atTime(earliestStartTime, 0);
+        LocalDateTime closing = dateAndTime.toLocalDate().atTime(closingTime, 0);
+        if (dateAndTime.isBefore(opening) || end.isAfter(closing)) {
+            return false;
         }
-        return !schedule.containsKey(dateAndTime) &&
-                closingTime >= dateAndTime.getHour() + duration &&
-                dateAndTime.getHour() >= earliestStartTime;
+        return !overlapsBooking(dateAndTime, end);
     }
 
     /**
-     * Book a time slot of the room for an event if the timeslot is available.
+     * Check whether any booking overlaps the given time interval.
+     */
+    private boolean overlapsBooking(LocalDateTime start, LocalDateTime end) {
+        // Bookings never overlap each other, so only the last booking starting at or before the given time and the
+        // first booking starting after it can overlap.
+        Map.Entry<LocalDateTime, Booking> before = bookings.floorEntry(start);
+        if (before != null && before.getValue().overlaps(start, end)) {
+            return true;
+        }
+        Map.Entry<LocalDateTime, Booking> after = bookings.higherEntry(start);
+        return after != null && after.getValue().overlaps(start, end);
+    }
+
+    /**
+     * Book a time slot of the room for an event, unless the time slot overlaps another booking. Unlike
+     * checkRoomAvailability, the room's opening hours are not checked.
      * @param dateAndTime a LocalDateTime object that represents the start time of the event.
      * @param eventID     a UUID that represents the unique ID of the event that will be hosted at the given time.
      * @param duration an integer object that represents the number of hours that will be booked.
+     * @return true if the time slot was booked, false if it has no duration or overlaps another event's booking, in
+     * which case the room is left as it was.
+     */
+    public boolean bookRoom(LocalDateTime dateAndTime, UUID eventID, int duration) {
+        if (duration <= 0) {
+            return false;
+        }
+        // An event has at most one booking in a room, so booking it again moves the booking.
+        Booking previous = getBooking(eventID);
+        removeBooking(eventID);
+        LocalDateTime end = dateAndTime.plusHours(duration);
+        if (overlapsBooking(dateAndTime, end)) {
+            if (previous != null) {
+                bookings.put(previous.getStart(), previous);
+                bookingStarts.put(eventID, previous.getStart());
+            }
+            return false;
+        }
+        bookings.put(dateAndTime, new Booking(dateAndTime, end, eventID));
+        bookingStarts.put(eventID, dateAndTime);
+        return true;
+    }
+
+    /**
+     * Remove the booking of the given event, freeing its time slot.
+     * @param eventID a UUID that represents the event whose booking will be removed.
+     * @return true if the event had a booking in this room, false otherwise.
+     */
+    public boolean removeBooking(UUID eventID) {
+        LocalDateTime start = bookingStarts.remove(eventID);
+        if (start == null) {
+            return false;
+        }
+        bookings.remove(start);
+        return true;
+    }
+
+    /**
+     * Get the booking of the given event.
+     * @param eventID a UUID that represents an event.
+     * @return the Booking of the event in this room, or null if the event is not booked in this room.
      */
-    public void bookRoom(LocalDateTime dateAndTime, UUID eventID, int duration) {
-        ArrayList<Object> a = new ArrayList<>();
-        a.add(eventID);
-        a.add(duration);
-        schedule.put(dateAndTime, a);
+    public Booking getBooking(UUID eventID) {
+        LocalDateTime start = bookingStarts.get(eventID);
+        return start == null ? null : bookings.get(start);
     }
 
     /**
-     * Return a list of features this room has.
-     * @return a list of RoomFeatures.
+     * Get the events that have a booking in this room.
+     * @return a list of event UUIDs.
      */
-    public List<RoomFeatures> getFeatures(){
-        return features;
+    public List<UUID> getBookedEventIds() {
+        return new ArrayList<>(bookingStarts.keySet());
+    }
+
+    /**
+     * Get the bookings of this room that overlap the given time interval, in order of starting time.
+     * @param from the start of the interval
+     * @param to the end of the interval, not included
+     * @return a list of Bookings
+     */
+    public List<Booking> getBookings(LocalDateTime from, LocalDateTime to) {
+        ArrayList<Booking> overlapping = new ArrayList<>();
+        LocalDateTime first = bookings.floorKey(from);
+        for (Booking booking : bookings.subMap(first == null ? from : first, true, to, false).values()) {
+            if (booking.overlaps(from, to)) {
+                overlapping.add(booking);
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Find the free time slots of this room on the given day that can fit an event of the given duration, by walking
+     * the day's bookings in order.
+     * @param day the day to look at
+     * @param duration the number of hours the event lasts
+     * @return a list of the earliest starting time in each gap between bookings that the event fits in, in order.
+     */
+    public List<LocalDateTime> findFreeStarts(LocalDate day, int duration) {
+        ArrayList<LocalDateTime> starts = new ArrayList<>();
+        if (duration <= 0) {
+            return starts;
+        }
+        LocalDateTime free = day.atTime(earliestStartTime, 0);
+        LocalDateTime closing = day.atTime(closingTime, 0);
+        for (Booking booking : getBookings(free, closing)) {
+            if (!free.plusHours(duration).isAfter(booking.getStart())) {
+                starts.add(free);
+            }
+            if (booking.getEnd().isAfter(free)) {
+                free = booking.getEnd();
+            }
+        }
+        if (!free.plusHours(duration).isAfter(closing)) {
+            starts.add(free);
+        }
+        return starts;
+    }
+
+    /**
+     * Return the features this room has.
+     * @return a set of RoomFeatures.
+     */
+    public Set<RoomFeatures> getFeatures(){
+        return RoomFeatures.fromMask(featureMask);
+    }
+
+    /**
+     * Return the features this room has as a feature mask (see RoomFeatures.maskOf).
+     * @return a long with the bit of each feature of this room set.
+     */
+    public long getFeatureMask(){
+        return featureMask;
     }
 
     /**
@@ -126,7 +260,7 @@ public class Room implements Serializable {
      * @return true if room has given room feature, false otherwise
      */
     public boolean hasFeature(RoomFeatures feature){
-        return features.contains(feature);
+        return (featureMask & feature.bit()) != 0;
     }
 
     /**
@@ -135,12 +269,8 @@ public class Room implements Serializable {
      * @return true if the room has the given features, false otherwise.
      */
     public boolean hasFeatures(List<RoomFeatures> roomFeatures){
-        for (RoomFeatures feature : roomFeatures){
-            if (!features.contains(feature)){
-                return false;
-            }
-        }
-        return true;
+        long required = RoomFeatures.maskOf(roomFeatures);
+        return (featureMask & required) == required;
     }
 
     /**
@@ -149,7 +279,7 @@ public class Room implements Serializable {
      */
     public String displayFeatures(){
         StringBuilder display = new StringBuilder();
-        for (RoomFeatures feature: features){
+        for (RoomFeatures feature: RoomFeatures.fromMask(featureMask)){
             display.append(" ").append(feature.featureName()).append(",");
         }
         if (display.length() > 1){
@@ -163,7 +293,7 @@ public class Room implements Serializable {
      * @param feature a RoomFeature
      */
     public void addFeature(RoomFeatures feature){
-        features.add(feature);
+        featureMask |= feature.bit();
     }
 
     /**
@@ -171,7 +301,7 @@ public class Room implements Serializable {
      * @param feature the RoomFeature to remove
      */
     public void removeFeature(RoomFeatures feature){
-        features.remove(feature);
+        featureMask &= ~feature.bit();
     }
 
     /**
@@ -184,6 +314,49 @@ public class Room implements Serializable {
                 closingTime + ":00" + " | Features:" + displayFeatures();
     }
 
+    /**
+     * Reads a room, converting the schedule and features of rooms saved in the old format. The old format did not
+     * stop bookings from overlapping, so an old booking that has no duration, or that overlaps an earlier one, is
+     * left out; RoomManager.reconcileBookings then reports its event as unbooked.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        bookingStarts = new HashMap<>();
+        if (bookings == null) {
+            bookings = new TreeMap<>();
+            if (schedule != null) {
+                for (Map.Entry<LocalDateTime, ArrayList<Object>> entry : new TreeMap<>(schedule).entrySet()) {
+                    readOldBooking(entry.getKey(), entry.getValue());
+                }
+                schedule = null;
+            }
+        }
+        if (features != null) {
+            featureMask = RoomFeatures.maskOf(features);
+            features = null;
+        }
+        for (Booking booking : bookings.values()) {
+            bookingStarts.put(booking.getEventId(), booking.getStart());
+        }
+    }
+
+    /**
+     * Book a time slot saved in the old format, an event id and a duration in hours, unless it is invalid or
+     * overlaps a booking already read.
+     */
+    private void readOldBooking(LocalDateTime start, ArrayList<Object> slot) {
+        if (slot == null || slot.size() < 2 || !(slot.get(0) instanceof UUID) || !(slot.get(1) instanceof Integer)) {
+            return;
+        }
+        UUID eventId = (UUID) slot.get(0);
+        int duration = (Integer) slot.get(1);
+        if (duration <= 0 || bookingStarts.containsKey(eventId) || overlapsBooking(start, start.plusHours(duration))) {
+            return;
+        }
+        bookings.put(start, new Booking(start, start.plusHours(duration), eventId));
+        bookingStarts.put(eventId, start);
+    }
+
 }
 
 
@@ -0,0 +1,15 @@
+package enums;
+
+/**
+ * The outcome of a command sent to CommandController: done, rejected because of its parameters, rejected because it
+ * was sent without a session, rejected because the session's user is not allowed to do it, rejected because the user
+ * has done it too often lately, or turned away because the conference is too busy.
+ */
+public enum CommandStatus {
+    OK,
+    INVALID,
+    UNAUTHORIZED,
+    FORBIDDEN,
+    RATE_LIMITED,
+    OVERLOADED
+}
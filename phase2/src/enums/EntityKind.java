@@ -0,0 +1,10 @@
+package enums;
+
+/**
+ * The kinds of entity a MutationListener is told have changed, and that a replica is sent whole when they do.
+ */
+public enum EntityKind {
+    EVENT,
+    ROOM,
+    USER
+}
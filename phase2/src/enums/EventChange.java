@@ -0,0 +1,13 @@
+package enums;
+
+/**
+ * A change to an event that users have to be told about: the event was created, a speaker was added to it, it was
+ * cancelled, users were moved off its waitlist, or its capacity was changed.
+ */
+public enum EventChange {
+    CREATED,
+    SPEAKER_ADDED,
+    CANCELLED,
+    WAITLIST_PROMOTED,
+    CAPACITY_CHANGED
+}
@@ -0,0 +1,12 @@
+package enums;
+
+/**
+ * How much a command matters when the conference is too busy to perform every command quickly: guests browsing the
+ * catalogue are turned away first, then users looking after their own schedules, and organizers running the
+ * conference never.
+ */
+public enum Priority {
+    LOW,
+    NORMAL,
+    HIGH
+}
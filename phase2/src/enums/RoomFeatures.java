@@ -1,5 +1,8 @@
 package enums;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 public enum RoomFeatures {
     WHITEBOARD,
     PROJECTOR,
@@ -64,4 +67,40 @@ public enum RoomFeatures {
                 return "Unknown feature";
         }
     }
+
+    /**
+     * Get the bit that stands for this feature in a feature mask
+     * @return a long with only this feature's bit set
+     */
+    public long bit() {
+        return 1L << ordinal();
+    }
+
+    /**
+     * Get the feature mask of the given features, where each feature sets its own bit
+     * @param features a collection of RoomFeatures
+     * @return a long with the bit of each given feature set
+     */
+    public static long maskOf(Collection<RoomFeatures> features) {
+        long mask = 0L;
+        for (RoomFeatures feature : features) {
+            mask |= feature.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * Get the features whose bits are set in the given feature mask
+     * @param mask a feature mask, as returned by maskOf
+     * @return an EnumSet of RoomFeatures
+     */
+    public static EnumSet<RoomFeatures> fromMask(long mask) {
+        EnumSet<RoomFeatures> features = EnumSet.noneOf(RoomFeatures.class);
+        for (RoomFeatures feature : values()) {
+            if ((mask & feature.bit()) != 0) {
+                features.add(feature);
+            }
+        }
+        return features;
+    }
 }
@@ -0,0 +1,12 @@
+package enums;
+
+/**
+ * The outcome of asking to attend an event: either a seat was taken, or the event was full and the user was put on
+ * its waitlist instead.
+ */
+public enum SignUpStatus {
+    SIGNED_UP,
+    WAITLISTED,
+    ALREADY_SIGNED_UP,
+    ALREADY_WAITLISTED
+}
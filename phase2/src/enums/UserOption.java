@@ -40,12 +40,13 @@ public enum UserOption {
     CREATE_PARTY,
     VIEW_INTERESTED_EVENTS,
     MANAGE_INTERESTED_EVENTS,
-    MANAGE_FAVOURITE_SPEAKERS;
+    MANAGE_FAVOURITE_SPEAKERS,
+    SCHEDULE_EVENTS;
 
     public final static List<UserOption> ATTENDEE_OPTIONS = Arrays.asList(ACCESS_MESSAGING,
             VIEW_AVAILABLE_EVENTS, VIEW_ALL_EVENTS, VIEW_SIGN_UP_EVENTS, SIGN_UP_FOR_EVENT, CANCEL_SPOT_FOR_EVENT, VIEW_EVENTS_BY_DAY,
             VIEW_EVENTS_BY_SPEAKER);
-    public final static List<UserOption> ORGANIZER_OPTIONS = Arrays.asList(CREATE_EVENT, CREATE_USER, CHANGE_USER_TYPE, SCHEDULE_SPEAKER_TALK, ADD_ROOMS, SEND_MESSAGE_TO_ALL, VIEW_CONFERENCE_STATS, REMOVE_SPEAKER, CANCEL_EVENT, CHANGE_CAPACITY, VIEW_USER_REQUESTS, ADDRESS_USER_REQUEST);
+    public final static List<UserOption> ORGANIZER_OPTIONS = Arrays.asList(CREATE_EVENT, CREATE_USER, CHANGE_USER_TYPE, SCHEDULE_SPEAKER_TALK, ADD_ROOMS, SEND_MESSAGE_TO_ALL, VIEW_CONFERENCE_STATS, REMOVE_SPEAKER, CANCEL_EVENT, CHANGE_CAPACITY, VIEW_USER_REQUESTS, ADDRESS_USER_REQUEST, SCHEDULE_EVENTS);
     public final static List<UserOption> SPEAKER_OPTIONS = Arrays.asList(VIEW_SCHEDULED_TALK, VIEW_TALK_ATTENDEES, SEND_MESSAGE_TO_EVENT_ATTENDEES);
     public final static List<UserOption> GUEST_OPTIONS = Arrays.asList(VIEW_ALL_EVENTS, VIEW_EVENTS_BY_DAY, VIEW_EVENTS_BY_SPEAKER, LOG_IN);
     public final static List<UserOption> VIP_OPTIONS = Arrays.asList(CREATE_PARTY, MANAGE_INTERESTED_EVENTS, MANAGE_FAVOURITE_SPEAKERS);
@@ -118,6 +119,8 @@ public enum UserOption {
                 return "Manage Interested Events";
             case MANAGE_FAVOURITE_SPEAKERS:
                 return "Manage Favourite Speakers";
+            case SCHEDULE_EVENTS:
+                return "Schedule Many Events at Once";
             default:
                 return "Unsupported Option";
         }
@@ -0,0 +1,170 @@
+package gateways;
+
+import enums.ConvoType;
+import use_cases.ConversationManager;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves one partition of the conference's conversations to ConversationRouters over loopback sockets. The
+ * partition is an ordinary ConversationManager holding only the conversations whose ids the routers assign to it.
+ * Each router connection is served on a thread of its own, one request at a time.
+ */
+public class ConversationPartitionServer {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(ConversationPartitionServer.class.getPackage().getName());
+
+    private final ConversationManager conversationManager;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<Socket> routers = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Constructor for ConversationPartitionServer. The server does not accept connections until it is started.
+     * @param conversationManager the conversations of this partition
+     * @param port the loopback port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be listened on
+     */
+    public ConversationPartitionServer(ConversationManager conversationManager, int port) throws IOException {
+        this.conversationManager = conversationManager;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptRouters, "partition-acceptor");
+    }
+
+    /**
+     * Start accepting connections.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Stop accepting connections, disconnect every router and wait for the requests being answered to finish, so the
+     * partition is no longer changed by any router once this returns.
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close the server socket.", e);
+        }
+        for (Socket router : routers) {
+            close(router);
+        }
+        connections.shutdown();
+        try {
+            if (!connections.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.log(Level.WARNING, "Requests were still being answered when the server stopped.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptRouters() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket router = serverSocket.accept();
+                routers.add(router);
+                connections.execute(() -> serve(router));
+            } catch (SocketException e) {
+                // The server socket was closed by stop().
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Cannot accept a router.", e);
+            }
+        }
+    }
+
+    private void serve(Socket router) {
+        try {
+            router.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(router.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(router.getOutputStream()));
+            while (true) {
+                int operation = in.read();
+                if (operation == -1) {
+                    return;
+                }
+                answer((byte) operation, in, out);
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            // The router disconnected.
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Connection to a router ended by an error.", e);
+        } finally {
+            routers.remove(router);
+            close(router);
+        }
+    }
+
+    private void answer(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case PartitionProtocol.CREATE:
+                UUID id = PartitionProtocol.readUuid(in);
+                List<UUID> participants = PartitionProtocol.readUuids(in);
+                ConvoType type = ConvoType.values()[in.readByte()];
+                PartitionProtocol.writeUuid(out, conversationManager.createConversation(id, participants, type));
+                break;
+            case PartitionProtocol.SEND:
+                UUID conversation = PartitionProtocol.readUuid(in);
+                UUID sender = PartitionProtocol.readUuid(in);
+                String content = PartitionProtocol.readString(in);
+                boolean found = conversationManager.findConversation(conversation) != -1;
+                if (found) {
+                    conversationManager.sendMessage(content, sender, conversation);
+                }
+                out.writeBoolean(found);
+                break;
+            case PartitionProtocol.MESSAGES:
+                PartitionProtocol.writeMessages(out,
+                        conversationManager.getMessagesInfo(PartitionProtocol.readUuid(in)));
+                break;
+            case PartitionProtocol.INBOX:
+                PartitionProtocol.writeSummaries(out,
+                        conversationManager.getConversationSummaries(PartitionProtocol.readUuid(in)));
+                break;
+            case PartitionProtocol.SIZE:
+                out.writeInt(conversationManager.getAllConversations().size());
+                break;
+            case PartitionProtocol.PARTICIPANTS:
+                int index = conversationManager.findConversation(PartitionProtocol.readUuid(in));
+                PartitionProtocol.writeUuids(out, index == -1 ? new ArrayList<>() :
+                        conversationManager.getConversationParticipants(index));
+                break;
+            default:
+                throw new IOException("Unknown operation " + operation + ".");
+        }
+    }
+
+    private static void close(Socket router) {
+        try {
+            router.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close a router's socket.", e);
+        }
+    }
+}
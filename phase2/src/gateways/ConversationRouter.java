@@ -0,0 +1,287 @@
+package gateways;
+
+import enums.ConvoType;
+import value_holders.ConversationSummary;
+import value_holders.MessageInfo;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Spreads the conference's conversations over several ConversationPartitionServers, usually separate processes on
+ * the same machine, so that no one heap has to hold every message. Each conversation lives in the partition its id
+ * hashes to. A conversation's id is worked out from its participants and type, so the router knows which partition
+ * to ask whether a conversation between the same users already exists, just as ConversationManager.createConversation
+ * does within one heap.
+ * Sending and reading messages go to the one partition that owns the conversation; a user's inbox is gathered from
+ * every partition. The router keeps a few connections open to each partition and is safe to use from many threads.
+ */
+public class ConversationRouter {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(ConversationRouter.class.getPackage().getName());
+
+    private final List<ArrayBlockingQueue<Connection>> partitions = new ArrayList<>();
+
+    /**
+     * Constructor for ConversationRouter. Connections are opened as they are first needed.
+     * @param addresses the addresses of the partitions, in the same order for every router
+     * @param connectionsPerPartition the number of requests that can be sent to each partition at the same time
+     */
+    public ConversationRouter(List<InetSocketAddress> addresses, int connectionsPerPartition) {
+        for (InetSocketAddress address : addresses) {
+            ArrayBlockingQueue<Connection> connections = new ArrayBlockingQueue<>(connectionsPerPartition);
+            for (int i = 0; i < connectionsPerPartition; i++) {
+                connections.add(new Connection(address));
+            }
+            partitions.add(connections);
+        }
+    }
+
+    /**
+     * Works out the id of the conversation between the given participants of the given type. The order of the
+     * participants does not matter.
+     * @param participants the participants of the conversation
+     * @param type the type of the conversation
+     * @return the id the conversation has, or will have once created
+     */
+    public static UUID conversationId(List<UUID> participants, ConvoType type) {
+        List<UUID> sorted = new ArrayList<>(new TreeSet<>(participants));
+        ByteBuffer key = ByteBuffer.allocate(1 + 16 * sorted.size());
+        key.put((byte) type.ordinal());
+        for (UUID participant : sorted) {
+            key.putLong(participant.getMostSignificantBits()).putLong(participant.getLeastSignificantBits());
+        }
+        return UUID.nameUUIDFromBytes(key.array());
+    }
+
+    /**
+     * @param conversationId the id of a conversation
+     * @return the index of the partition that owns the conversation
+     */
+    public int partitionOf(UUID conversationId) {
+        return Math.floorMod(conversationId.hashCode(), partitions.size());
+    }
+
+    /**
+     * Creates a new conversation in the partition that owns it, or finds the existing one.
+     * @param participants A list of participants for the conversation.
+     * @param type The type of conversation, can be either 'DIRECT', 'EVENT', or 'ORGANIZER'.
+     * @return The UUID of the conversation.
+     */
+    public UUID createConversation(List<UUID> participants, ConvoType type) {
+        UUID id = conversationId(participants, type);
+        return call(partitionOf(id), (in, out) -> {
+            out.writeByte(PartitionProtocol.CREATE);
+            PartitionProtocol.writeUuid(out, id);
+            PartitionProtocol.writeUuids(out, participants);
+            out.writeByte(type.ordinal());
+            out.flush();
+            return PartitionProtocol.readUuid(in);
+        });
+    }
+
+    /**
+     * Sends a message to a conversation in the partition that owns it.
+     * @param content The content of the message.
+     * @param sender The ID for the user sending the message.
+     * @param conversation The id for the conversation the message is being added to.
+     * @return Whether the conversation was found.
+     */
+    public boolean sendMessage(String content, UUID sender, UUID conversation) {
+        return call(partitionOf(conversation), (in, out) -> {
+            out.writeByte(PartitionProtocol.SEND);
+            PartitionProtocol.writeUuid(out, conversation);
+            PartitionProtocol.writeUuid(out, sender);
+            PartitionProtocol.writeString(out, content);
+            out.flush();
+            return in.readBoolean();
+        });
+    }
+
+    /**
+     * Gets a conversation's messages from the partition that owns it.
+     * @param conversation The id of the conversation.
+     * @return A list of MessageInfo objects, empty if no such conversation exists.
+     */
+    public List<MessageInfo> getMessagesInfo(UUID conversation) {
+        return call(partitionOf(conversation), (in, out) -> {
+            out.writeByte(PartitionProtocol.MESSAGES);
+            PartitionProtocol.writeUuid(out, conversation);
+            out.flush();
+            return PartitionProtocol.readMessages(in);
+        });
+    }
+
+    /**
+     * Gets a conversation's participants from the partition that owns it.
+     * @param conversation The id of the conversation.
+     * @return The IDs of the participants, empty if no such conversation exists.
+     */
+    public List<UUID> getParticipants(UUID conversation) {
+        return call(partitionOf(conversation), (in, out) -> {
+            out.writeByte(PartitionProtocol.PARTICIPANTS);
+            PartitionProtocol.writeUuid(out, conversation);
+            out.flush();
+            return PartitionProtocol.readUuids(in);
+        });
+    }
+
+    /**
+     * Gathers every conversation the user takes part in from all of the partitions. The request is sent to every
+     * partition before any answer is read, so the partitions look the user up at the same time.
+     * @param userId The ID of the user.
+     * @return Summaries of the user's conversations, the most recently active first.
+     */
+    public List<ConversationSummary> getInbox(UUID userId) {
+        List<ConversationSummary> inbox = new ArrayList<>();
+        List<Connection> taken = new ArrayList<>();
+        boolean answered = false;
+        try {
+            // Connections are always taken in partition order, so two inboxes cannot wait on each other.
+            for (ArrayBlockingQueue<Connection> partition : partitions) {
+                taken.add(partition.take());
+            }
+            for (Connection connection : taken) {
+                connection.send(out -> {
+                    out.writeByte(PartitionProtocol.INBOX);
+                    PartitionProtocol.writeUuid(out, userId);
+                    out.flush();
+                });
+            }
+            for (Connection connection : taken) {
+                inbox.addAll(connection.receive(PartitionProtocol::readSummaries));
+            }
+            answered = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a partition.", e);
+        } finally {
+            for (int i = 0; i < taken.size(); i++) {
+                if (!answered) {
+                    // An answer may still be on its way, which would be read as the answer to the next request.
+                    taken.get(i).close();
+                }
+                partitions.get(i).add(taken.get(i));
+            }
+        }
+        inbox.sort(Comparator.comparing(ConversationSummary::getLastMessageTime,
+                Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder())));
+        return inbox;
+    }
+
+    /**
+     * @return The number of conversations in each partition, in partition order
+     */
+    public List<Integer> getPartitionSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            sizes.add(call(i, (in, out) -> {
+                out.writeByte(PartitionProtocol.SIZE);
+                out.flush();
+                return in.readInt();
+            }));
+        }
+        return sizes;
+    }
+
+    /**
+     * Close every connection to the partitions.
+     */
+    public void close() {
+        for (ArrayBlockingQueue<Connection> partition : partitions) {
+            for (Connection connection : partition) {
+                connection.close();
+            }
+        }
+    }
+
+    private <T> T call(int partition, Exchange<T> exchange) {
+        Connection connection;
+        try {
+            connection = partitions.get(partition).take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a partition.", e);
+        }
+        try {
+            return connection.exchange(exchange);
+        } finally {
+            partitions.get(partition).add(connection);
+        }
+    }
+
+    private interface Exchange<T> {
+        T run(DataInputStream in, DataOutputStream out) throws IOException;
+    }
+
+    private interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Response<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * One connection to a partition. A connection that fails is closed, and opened again for the next request.
+     */
+    private static class Connection {
+        private final InetSocketAddress address;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        Connection(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        <T> T exchange(Exchange<T> exchange) {
+            try {
+                open();
+                return exchange.run(in, out);
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Lost the connection to the partition at " + address + ".", e);
+            }
+        }
+
+        void send(Request request) {
+            exchange((in, out) -> {
+                request.write(out);
+                return null;
+            });
+        }
+
+        <T> T receive(Response<T> response) {
+            return exchange((in, out) -> response.read(in));
+        }
+
+        private void open() throws IOException {
+            if (socket == null) {
+                socket = new Socket(address.getAddress(), address.getPort());
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+        }
+
+        void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Cannot close the connection to a partition.", e);
+                }
+                socket = null;
+            }
+        }
+    }
+}
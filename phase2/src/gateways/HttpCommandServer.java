@@ -0,0 +1,266 @@
+package gateways;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controllers.CommandController;
+import enums.CommandStatus;
+import enums.UserOption;
+import value_holders.CommandRequest;
+import value_holders.CommandResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the commands of a CommandController over HTTP, using the web server built into the JDK.
+ * A command is sent to /api/OPTION, where OPTION is the name of a UserOption (e.g. /api/SIGN_UP_FOR_EVENT), with its
+ * parameters in the query string or as a form in the body. A password is only accepted in the body of a POST, so that
+ * it does not end up in logs and browser histories along with the URL. The session token given by LOG_IN or EXPLORE_AS_A_GUEST is
+ * sent back in the X-Session-Token header, or as the "session" parameter. The result is sent as JSON:
+ * {"status": ..., "message": ..., "session": ..., "items": [{"id": ..., "row": ...}, ...]}
+ * Figures added with addStatus, such as how far a replica is behind, are served as JSON objects at /status/NAME.
+ *
+ * The server only listens on the loopback address unless given another address to listen on.
+ * Each exchange is handled on its own virtual thread when the JVM has them, so that a slow client only holds a cheap
+ * thread; older JVMs use a fixed pool of platform threads instead.
+ */
+public class HttpCommandServer {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(HttpCommandServer.class.getPackage().getName());
+
+    public static final String SESSION_HEADER = "X-Session-Token";
+    private static final String API_PATH = "/api/";
+    private static final String STATUS_PATH = "/status/";
+    private static final int FALLBACK_THREADS = 64;
+    private static final int BACKLOG = 1024;
+
+    private final CommandController commandController;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for HttpCommandServer, listening on the loopback address. The server does not accept connections
+     * until it is started.
+     * @param commandController the CommandController to send the commands to
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be listened on
+     */
+    public HttpCommandServer(CommandController commandController, int port) throws IOException {
+        this(commandController, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Constructor for HttpCommandServer. The server does not accept connections until it is started.
+     * @param commandController the CommandController to send the commands to
+     * @param address the address to listen on, e.g. the wildcard address to accept connections from other hosts
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be listened on
+     */
+    public HttpCommandServer(CommandController commandController, InetAddress address, int port) throws IOException {
+        this.commandController = commandController;
+        this.server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+        this.executor = VirtualThreads.newPerTaskExecutor(() -> Executors.newFixedThreadPool(FALLBACK_THREADS));
+        server.setExecutor(executor);
+        server.createContext(API_PATH, this::handle);
+    }
+
+    /**
+     * Serve figures at /status/name, as a JSON object of the names and values of the figures.
+     * @param name the name of the page
+     * @param figures gives the figures each time the page is asked for
+     */
+    public void addStatus(String name, Supplier<Map<String, Long>> figures) {
+        server.createContext(STATUS_PATH + name, exchange -> {
+            try {
+                StringBuilder json = new StringBuilder("{");
+                for (Map.Entry<String, Long> figure : figures.get().entrySet()) {
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    appendString(json, figure.getKey());
+                    json.append(':').append(figure.getValue());
+                }
+                respond(exchange, 200, json.append('}').toString());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Start accepting connections.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting connections, and stop once the exchanges in progress are done or a second has passed.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("POST")) {
+                respond(exchange, 405, "{\"status\":\"INVALID\",\"message\":\"Use GET or POST.\"}");
+                return;
+            }
+            UserOption option;
+            try {
+                option = UserOption.valueOf(exchange.getRequestURI().getPath().substring(API_PATH.length()));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 404, "{\"status\":\"INVALID\",\"message\":\"Unknown option.\"}");
+                return;
+            }
+            HashMap<String, String> parameters = new HashMap<>();
+            readParameters(exchange.getRequestURI().getRawQuery(), parameters);
+            if (parameters.containsKey("password")) {
+                respond(exchange, 400, "{\"status\":\"INVALID\",\"message\":\"Send the password in the body of " +
+                        "a POST, not in the URL.\"}");
+                return;
+            }
+            if (method.equals("POST")) {
+                try (InputStream body = exchange.getRequestBody()) {
+                    readParameters(new String(body.readAllBytes(), StandardCharsets.UTF_8), parameters);
+                }
+            }
+            String token = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (token == null) {
+                token = parameters.get("session");
+            }
+            CommandResult result = commandController.handle(new CommandRequest(token, option, parameters));
+            if (result.getSessionToken() != null) {
+                exchange.getResponseHeaders().set(SESSION_HEADER, result.getSessionToken());
+            }
+            respond(exchange, statusCode(result.getStatus()), toJson(result));
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Command failed.", e);
+            respond(exchange, 500, "{\"status\":\"INVALID\",\"message\":\"The command failed.\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Read parameters of the form name=value&amp;name=value into the map.
+     */
+    private static void readParameters(String encoded, HashMap<String, String> parameters) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static int statusCode(CommandStatus status) {
+        switch (status) {
+            case OK:
+                return 200;
+            case UNAUTHORIZED:
+                return 401;
+            case FORBIDDEN:
+                return 403;
+            case RATE_LIMITED:
+                return 429;
+            case OVERLOADED:
+                return 503;
+            default:
+                return 400;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String toJson(CommandResult result) {
+        StringBuilder json = new StringBuilder("{\"status\":");
+        appendString(json, result.getStatus().name());
+        json.append(",\"message\":");
+        appendString(json, result.getMessage());
+        json.append(",\"session\":");
+        appendString(json, result.getSessionToken());
+        json.append(",\"items\":[");
+        List<String> rows = result.getRows();
+        List<UUID> ids = result.getIds();
+        for (int i = 0; i < rows.size(); i++) {
+            json.append(i == 0 ? "{\"id\":" : ",{\"id\":");
+            appendString(json, i < ids.size() ? ids.get(i).toString() : null);
+            json.append(",\"row\":");
+            appendString(json, rows.get(i));
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,131 @@
+package gateways;
+
+import enums.ConvoType;
+import value_holders.ConversationSummary;
+import value_holders.MessageInfo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The requests a ConversationRouter sends to a ConversationPartitionServer, and how their fields are written. Each
+ * request is an operation byte followed by its fields; the server answers each request before reading the next.
+ */
+final class PartitionProtocol {
+    /** Participants and type in, the conversation's id out. The router's id for a new conversation comes first. */
+    static final byte CREATE = 1;
+    /** Conversation id, sender and content in, whether the conversation was found out. */
+    static final byte SEND = 2;
+    /** Conversation id in, its messages out. */
+    static final byte MESSAGES = 3;
+    /** User id in, summaries of the user's conversations in this partition out. */
+    static final byte INBOX = 4;
+    /** Nothing in, the number of conversations in this partition out. */
+    static final byte SIZE = 5;
+    /** Conversation id in, its participants out, none if no such conversation exists. */
+    static final byte PARTICIPANTS = 6;
+
+    private PartitionProtocol() {
+    }
+
+    static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    static void writeUuids(DataOutputStream out, List<UUID> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (UUID id : ids) {
+            writeUuid(out, id);
+        }
+    }
+
+    static List<UUID> readUuids(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<UUID> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(readUuid(in));
+        }
+        return ids;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            // writeUTF is limited to 64KB, which a long message can exceed.
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        writeString(out, time == null ? null : time.toString());
+    }
+
+    static LocalDateTime readTime(DataInputStream in) throws IOException {
+        String time = readString(in);
+        return time == null ? null : LocalDateTime.parse(time);
+    }
+
+    static void writeMessages(DataOutputStream out, List<MessageInfo> messages) throws IOException {
+        out.writeInt(messages.size());
+        for (MessageInfo message : messages) {
+            writeUuid(out, message.getSenderId());
+            writeTime(out, message.getTime());
+            writeString(out, message.getContent());
+        }
+    }
+
+    static List<MessageInfo> readMessages(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<MessageInfo> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            messages.add(new MessageInfo(readUuid(in), readTime(in), readString(in)));
+        }
+        return messages;
+    }
+
+    static void writeSummaries(DataOutputStream out, List<ConversationSummary> summaries) throws IOException {
+        out.writeInt(summaries.size());
+        for (ConversationSummary summary : summaries) {
+            writeUuid(out, summary.getId());
+            out.writeByte(summary.getType().ordinal());
+            writeUuids(out, summary.getParticipants());
+            out.writeInt(summary.getMessageCount());
+            writeTime(out, summary.getLastMessageTime());
+        }
+    }
+
+    static List<ConversationSummary> readSummaries(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<ConversationSummary> summaries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            summaries.add(new ConversationSummary(readUuid(in), ConvoType.values()[in.readByte()], readUuids(in),
+                    in.readInt(), readTime(in)));
+        }
+        return summaries;
+    }
+}
@@ -3,6 +3,9 @@ package gateways;
 //entities
 import entities.*;
 
+//use cases
+import use_cases.MessageSearchIndex;
+
 //IO
 import java.io.*;
 
@@ -29,6 +32,7 @@ public class ReadWriteSerializable {
     public static final String ROOMS_FILEPATH = "rooms.ser";
     public static final String USERS_FILEPATH = "users.ser";
     public static final String USER_REQUESTS_FILEPATH = "user_requests.ser";
+    public static final String MESSAGE_INDEX_FILEPATH = "message_index.ser";
 
     /**
      * A function method that reads the file that contains Conversations and deserializes the data from the file.
@@ -215,6 +219,66 @@ public class ReadWriteSerializable {
         }
     }
 
+    /**
+     * A function method that reads the file that contains the message search index and deserializes the data from the file.
+     * @return The MessageSearchIndex
+     */
+    public MessageSearchIndex messageIndexReadFromSerializable() {
+        try {
+            InputStream file = new FileInputStream(MESSAGE_INDEX_FILEPATH);
+            InputStream buffer = new BufferedInputStream(file);
+            ObjectInput input = new ObjectInputStream(buffer);
+            MessageSearchIndex recoveredIndex = (MessageSearchIndex) input.readObject();
+            input.close();
+            return recoveredIndex;
+        } catch (IOException eIO) {
+            logger.log(Level.SEVERE, "Cannot perform deserialization. Returning new blank MessageSearchIndex.", eIO);
+            return new MessageSearchIndex();
+        } catch (ClassNotFoundException eCNF) {
+            logger.log(Level.SEVERE, "Cannot find class. Returning new blank MessageSearchIndex.", eCNF);
+            return new MessageSearchIndex();
+        }
+    }
+
+    /**
+     * A function method that will serialize the message search index into the filepath.
+     * @param messageIndex The MessageSearchIndex of all conversations.
+     */
+    public void messageIndexWriteToSerializable(MessageSearchIndex messageIndex) {
+        try {
+            OutputStream file = new FileOutputStream(MESSAGE_INDEX_FILEPATH);
+            OutputStream buffer = new BufferedOutputStream(file);
+            ObjectOutput output = new ObjectOutputStream(buffer);
+            output.writeObject(messageIndex);
+            output.close();
+        } catch (IOException eIO) {
+            logger.log(Level.SEVERE, "Cannot perform serialization.", eIO);
+        }
+    }
+
+    /**
+     * Copies an entity by serializing it and reading it back, e.g. to save it after letting go of its lock.
+     * @param entity The entity to copy.
+     * @param <T> The type of the entity.
+     * @return A copy of the entity that shares nothing with it.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> T copyOf(T entity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(entity);
+            }
+            try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (T) input.readObject();
+            }
+        } catch (IOException eIO) {
+            throw new UncheckedIOException(eIO);
+        } catch (ClassNotFoundException eCNF) {
+            throw new IllegalStateException("Cannot find the class of a copied entity.", eCNF);
+        }
+    }
+
     /**
      * Checks if a file exists at the provided filepath. Returns true if it does and false if it does not.
      * @param filepath The filepath to check.
@@ -236,4 +300,12 @@ public class ReadWriteSerializable {
 
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if there is a save file for conversations alone, as kept by a conversation partition.
+     * @return A boolean whether or not conversations are saved.
+     */
+    public boolean hasConversationData() {
+        return fileAtPathDoesExist(CONVERSATIONS_FILEPATH);
+    }
+}
@@ -0,0 +1,367 @@
+package gateways;
+
+import entities.Conversation;
+import entities.User;
+import enums.ConvoType;
+import enums.EntityKind;
+import use_cases.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies every change made to the managers of a conference to ReplicationReplicas in other processes, over loopback
+ * sockets (see ReplicationStream).
+ * Events, rooms and users are copied whole. Changing one only marks it as changed; a shipper thread copies each
+ * marked entity every few milliseconds, so an event that many users sign up to at once is copied once rather than
+ * once per sign-up, and nothing is serialized while the managers' locks are held by the thread making the change.
+ * Conversations are too large to copy whole each time, so each change to one is recorded as it is made instead.
+ * The last RETAINED records are kept. A replica that falls further behind than that is disconnected, and sent a new
+ * snapshot when it connects again.
+ */
+public class ReplicationPrimary implements MutationListener {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(ReplicationPrimary.class.getPackage().getName());
+
+    private static final int RETAINED = 1 << 16;
+    private static final long SHIP_INTERVAL_MILLIS = 5;
+    private static final long HEARTBEAT_MILLIS = 100;
+    private static final int MAX_BATCH = 1024;
+
+    private final EventsManager eventsManager;
+    private final RoomManager roomManager;
+    private final UserManager userManager;
+    private final ConversationManager conversationManager;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Map<Socket, Replica> replicas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, EntityKind> changed = new ConcurrentHashMap<>();
+    private final Thread acceptor;
+    private final Thread shipper;
+    private volatile boolean running = true;
+
+    private final ReplicationStream.Record[] log = new ReplicationStream.Record[RETAINED];
+    private long lastSeq = 0;
+
+    /**
+     * Constructor for ReplicationPrimary. Changes to the managers are recorded from now on, but replicas cannot
+     * connect until the primary is started.
+     * @param eventsManager the events to copy
+     * @param roomManager the rooms to copy
+     * @param userManager a session over the users to copy
+     * @param conversationManager the conversations to copy
+     * @param port the loopback port replicas connect to, or 0 for any free port
+     * @throws IOException if the port cannot be listened on
+     */
+    public ReplicationPrimary(EventsManager eventsManager, RoomManager roomManager, UserManager userManager,
+                              ConversationManager conversationManager, int port) throws IOException {
+        this.eventsManager = eventsManager;
+        this.roomManager = roomManager;
+        this.userManager = userManager;
+        this.conversationManager = conversationManager;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptReplicas, "replication-acceptor");
+        this.shipper = new Thread(this::shipChanges, "replication-shipper");
+        shipper.setDaemon(true);
+        eventsManager.setMutationListener(this);
+        roomManager.setMutationListener(this);
+        userManager.setMutationListener(this);
+        conversationManager.setMutationListener(this);
+    }
+
+    /**
+     * Start accepting replicas.
+     */
+    public void start() {
+        shipper.start();
+        acceptor.start();
+    }
+
+    /**
+     * Stop recording changes and disconnect every replica.
+     */
+    public void stop() {
+        running = false;
+        eventsManager.setMutationListener(null);
+        roomManager.setMutationListener(null);
+        userManager.setMutationListener(null);
+        conversationManager.setMutationListener(null);
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close the server socket.", e);
+        }
+        for (Socket replica : replicas.keySet()) {
+            close(replica);
+        }
+        connections.shutdown();
+    }
+
+    /**
+     * @return The port replicas connect to
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The sequence number of the last record made
+     */
+    public long getLastSeq() {
+        synchronized (log) {
+            return lastSeq;
+        }
+    }
+
+    /**
+     * Get how far behind each connected replica is.
+     * @return The addresses of the replicas, mapped to the number of records made that have not been sent to them
+     */
+    public Map<String, Long> getReplicaBacklogs() {
+        long last = getLastSeq();
+        TreeMap<String, Long> backlogs = new TreeMap<>();
+        for (Map.Entry<Socket, Replica> replica : replicas.entrySet()) {
+            backlogs.put(replica.getKey().getRemoteSocketAddress().toString(), last - replica.getValue().sentSeq);
+        }
+        return backlogs;
+    }
+
+    /**
+     * @return The primary's figures for a status page: the last record made, the number of replicas, the number of
+     * changed entities waiting to be copied, and the largest number of records a replica has not been sent
+     */
+    public Map<String, Long> getStatus() {
+        LinkedHashMap<String, Long> status = new LinkedHashMap<>();
+        status.put("lastSeq", getLastSeq());
+        status.put("replicas", (long) replicas.size());
+        status.put("changedEntities", (long) changed.size());
+        status.put("maxReplicaBacklog", getReplicaBacklogs().values().stream().max(Long::compare).orElse(0L));
+        return status;
+    }
+
+    @Override
+    public void entityChanged(EntityKind kind, UUID id) {
+        changed.put(id, kind);
+    }
+
+    @Override
+    public void conversationCreated(UUID conversationId, List<UUID> participants, ConvoType type) {
+        append(ReplicationStream.CONVERSATION_CREATED, ReplicationStream.payload(out -> {
+            PartitionProtocol.writeUuid(out, conversationId);
+            PartitionProtocol.writeUuids(out, participants);
+            out.writeByte(type.ordinal());
+        }));
+    }
+
+    @Override
+    public void messageAdded(UUID conversationId, long position, UUID senderId, LocalDateTime time, String content) {
+        append(ReplicationStream.MESSAGE_ADDED, ReplicationStream.payload(out -> {
+            PartitionProtocol.writeUuid(out, conversationId);
+            out.writeLong(position);
+            PartitionProtocol.writeUuid(out, senderId);
+            out.writeLong(time.toInstant(ZoneOffset.UTC).toEpochMilli());
+            PartitionProtocol.writeString(out, content);
+        }));
+    }
+
+    @Override
+    public void messagesDropped(UUID conversationId, long droppedTotal) {
+        append(ReplicationStream.MESSAGES_DROPPED, ReplicationStream.payload(out -> {
+            PartitionProtocol.writeUuid(out, conversationId);
+            out.writeLong(droppedTotal);
+        }));
+    }
+
+    @Override
+    public void conversationRenamed(UUID conversationId, String eventName) {
+        append(ReplicationStream.CONVERSATION_RENAMED, ReplicationStream.payload(out -> {
+            PartitionProtocol.writeUuid(out, conversationId);
+            PartitionProtocol.writeString(out, eventName);
+        }));
+    }
+
+    private void append(byte type, byte[] payload) {
+        synchronized (log) {
+            lastSeq++;
+            log[(int) (lastSeq % RETAINED)] = new ReplicationStream.Record(type, lastSeq, System.currentTimeMillis(),
+                    payload);
+            log.notifyAll();
+        }
+    }
+
+    /**
+     * Copy the entities marked as changed, every few milliseconds.
+     */
+    private void shipChanges() {
+        while (running) {
+            try {
+                Thread.sleep(SHIP_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            Iterator<Map.Entry<UUID, EntityKind>> marked = changed.entrySet().iterator();
+            while (marked.hasNext()) {
+                Map.Entry<UUID, EntityKind> entity = marked.next();
+                // Unmarked before it is read, so a change made while it is read marks it again.
+                marked.remove();
+                try {
+                    ship(entity.getValue(), entity.getKey());
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "Cannot copy " + entity.getValue() + " " + entity.getKey() + ".", e);
+                }
+            }
+        }
+    }
+
+    private void ship(EntityKind kind, UUID id) {
+        switch (kind) {
+            case EVENT:
+                byte[] event = eventsManager.readEvent(id, ReplicationStream::serialize);
+                if (event != null) {
+                    append(ReplicationStream.EVENT_PUT, event);
+                } else {
+                    append(ReplicationStream.EVENT_REMOVED, ReplicationStream.payload(out ->
+                            PartitionProtocol.writeUuid(out, id)));
+                }
+                break;
+            case ROOM:
+                byte[] room = roomManager.readRoom(id, ReplicationStream::serialize);
+                if (room != null) {
+                    append(ReplicationStream.ROOM_PUT, room);
+                }
+                break;
+            case USER:
+                // Guests are not among the users, so they are never copied.
+                byte[] user = userManager.readUser(id, ReplicationStream::serialize);
+                if (user != null) {
+                    append(ReplicationStream.USER_PUT, user);
+                }
+                break;
+        }
+    }
+
+    private void acceptReplicas() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket replica = serverSocket.accept();
+                replicas.put(replica, new Replica());
+                connections.execute(() -> serve(replica));
+            } catch (SocketException e) {
+                // The server socket was closed by stop().
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Cannot accept a replica.", e);
+            }
+        }
+    }
+
+    /**
+     * Send a replica a snapshot, then every record after it as it is made.
+     */
+    private void serve(Socket socket) {
+        Replica replica = replicas.get(socket);
+        try {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            replica.sentSeq = sendSnapshot(out);
+            out.flush();
+            long lastHeartbeat = 0;
+            ArrayList<ReplicationStream.Record> batch = new ArrayList<>(MAX_BATCH);
+            while (running) {
+                long latest;
+                synchronized (log) {
+                    if (lastSeq == replica.sentSeq) {
+                        log.wait(HEARTBEAT_MILLIS);
+                    }
+                    if (replica.sentSeq < lastSeq - RETAINED) {
+                        logger.info("A replica fell too far behind, and will be sent a new snapshot.");
+                        return;
+                    }
+                    for (long seq = replica.sentSeq + 1; seq <= lastSeq && batch.size() < MAX_BATCH; seq++) {
+                        batch.add(log[(int) (seq % RETAINED)]);
+                    }
+                    latest = lastSeq;
+                }
+                for (ReplicationStream.Record record : batch) {
+                    ReplicationStream.write(out, record);
+                    replica.sentSeq = record.seq;
+                }
+                batch.clear();
+                long now = System.currentTimeMillis();
+                if (now - lastHeartbeat >= HEARTBEAT_MILLIS) {
+                    ReplicationStream.write(out, new ReplicationStream.Record(ReplicationStream.HEARTBEAT, latest, now,
+                            new byte[0]));
+                    lastHeartbeat = now;
+                }
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // The replica disconnected.
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Connection to a replica ended by an error.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replicas.remove(socket);
+            close(socket);
+        }
+    }
+
+    /**
+     * Send every room, user, event and conversation as it is now.
+     * @return The sequence number of the last record made before the snapshot was started
+     */
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long startSeq = getLastSeq();
+        send(out, ReplicationStream.SNAPSHOT_BEGIN, startSeq, new byte[0]);
+        for (UUID roomId : roomManager.getAllRoomIds()) {
+            send(out, ReplicationStream.ROOM_PUT, startSeq, roomManager.readRoom(roomId, ReplicationStream::serialize));
+        }
+        for (User user : userManager.getAllUsers()) {
+            send(out, ReplicationStream.USER_PUT, startSeq,
+                    userManager.readUser(user.getId(), ReplicationStream::serialize));
+        }
+        for (UUID eventId : eventsManager.getAllEventIds()) {
+            send(out, ReplicationStream.EVENT_PUT, startSeq,
+                    eventsManager.readEvent(eventId, ReplicationStream::serialize));
+        }
+        for (Conversation conversation : conversationManager.getAllConversations()) {
+            send(out, ReplicationStream.CONVERSATION_PUT, startSeq,
+                    conversationManager.readConversation(conversation.getId(), ReplicationStream::serialize));
+        }
+        send(out, ReplicationStream.SNAPSHOT_END, startSeq, new byte[0]);
+        return startSeq;
+    }
+
+    private static void send(DataOutputStream out, byte type, long seq, byte[] payload) throws IOException {
+        if (payload != null) { // Removed since it was listed.
+            ReplicationStream.write(out, new ReplicationStream.Record(type, seq, System.currentTimeMillis(), payload));
+        }
+    }
+
+    private static void close(Socket replica) {
+        try {
+            replica.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close a replica's socket.", e);
+        }
+    }
+
+    /**
+     * What the primary knows about a connected replica.
+     */
+    private static class Replica {
+        volatile long sentSeq;
+    }
+}
@@ -0,0 +1,254 @@
+package gateways;
+
+import entities.Conversation;
+import entities.Event;
+import entities.Room;
+import entities.User;
+import enums.ConvoType;
+import use_cases.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the managers of a read-only copy of the conference up to date with a ReplicationPrimary in another process.
+ * The replica is sent a snapshot when it connects, then applies the primary's records one at a time in the order they
+ * were made (see ReplicationStream). If the connection is lost, it connects again and is sent a new snapshot.
+ * The replica's managers should not be changed in any other way. The rooms' search index is not kept up to date with
+ * the primary's.
+ */
+public class ReplicationReplica {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(ReplicationReplica.class.getPackage().getName());
+
+    private static final long RECONNECT_MILLIS = 500;
+
+    private final InetSocketAddress primary;
+    private final EventsManager eventsManager;
+    private final RoomManager roomManager;
+    private final UserManager userManager;
+    private final ConversationManager conversationManager;
+    private final Thread follower;
+    private volatile boolean running = true;
+    private volatile Socket socket;
+
+    private volatile long appliedSeq = 0;
+    private volatile long primarySeq = 0;
+    private volatile long lagMillis = 0;
+    private volatile long snapshots = 0;
+    private volatile boolean snapshotApplied = false;
+    private HashSet<UUID> snapshotEventIds;
+
+    /**
+     * Constructor for ReplicationReplica. Nothing is copied until the replica is started.
+     * @param primary the address of the primary
+     * @param eventsManager the events to keep up to date
+     * @param roomManager the rooms to keep up to date
+     * @param userManager a session over the users to keep up to date
+     * @param conversationManager the conversations to keep up to date
+     */
+    public ReplicationReplica(InetSocketAddress primary, EventsManager eventsManager, RoomManager roomManager,
+                              UserManager userManager, ConversationManager conversationManager) {
+        this.primary = primary;
+        this.eventsManager = eventsManager;
+        this.roomManager = roomManager;
+        this.userManager = userManager;
+        this.conversationManager = conversationManager;
+        this.follower = new Thread(this::follow, "replication-replica");
+        follower.setDaemon(true);
+    }
+
+    /**
+     * Connect to the primary and start following it.
+     */
+    public void start() {
+        follower.start();
+    }
+
+    /**
+     * Disconnect from the primary and stop following it.
+     */
+    public void stop() {
+        running = false;
+        Socket connected = socket;
+        if (connected != null) {
+            close(connected);
+        }
+        follower.interrupt();
+    }
+
+    /**
+     * @return The sequence number of the last record applied
+     */
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    /**
+     * @return The sequence number of the primary's last record, as of the last time it said so
+     */
+    public long getPrimarySeq() {
+        return primarySeq;
+    }
+
+    /**
+     * @return The number of records the primary has made that have not been applied here
+     */
+    public long getLagRecords() {
+        return Math.max(0, primarySeq - appliedSeq);
+    }
+
+    /**
+     * @return How long before it was applied the last record applied was made on the primary, in milliseconds, or 0
+     * if every record the primary has made has been applied
+     */
+    public long getLagMillis() {
+        return getLagRecords() == 0 ? 0 : lagMillis;
+    }
+
+    /**
+     * @return Whether a snapshot has been applied, so the managers hold a copy of the conference
+     */
+    public boolean isSnapshotApplied() {
+        return snapshotApplied;
+    }
+
+    /**
+     * @return The replica's figures for a status page: the last record applied, the primary's last record, the
+     * number of records and milliseconds the replica is behind, and the number of snapshots applied
+     */
+    public Map<String, Long> getStatus() {
+        LinkedHashMap<String, Long> status = new LinkedHashMap<>();
+        status.put("appliedSeq", appliedSeq);
+        status.put("primarySeq", primarySeq);
+        status.put("lagRecords", getLagRecords());
+        status.put("lagMillis", getLagMillis());
+        status.put("snapshots", snapshots);
+        return status;
+    }
+
+    private void follow() {
+        while (running) {
+            try (Socket connected = new Socket(primary.getAddress(), primary.getPort())) {
+                socket = connected;
+                connected.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream()));
+                while (running) {
+                    apply(ReplicationStream.read(in));
+                }
+            } catch (EOFException | SocketException e) {
+                if (running) {
+                    logger.info("Lost the connection to the primary, connecting again.");
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.SEVERE, "Following the primary failed, connecting again.", e);
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(ReplicationStream.Record record) throws IOException {
+        switch (record.type) {
+            case ReplicationStream.HEARTBEAT:
+                primarySeq = Math.max(primarySeq, record.seq);
+                return;
+            case ReplicationStream.SNAPSHOT_BEGIN:
+                snapshotEventIds = new HashSet<>();
+                return;
+            case ReplicationStream.SNAPSHOT_END:
+                for (UUID eventId : eventsManager.getAllEventIds()) {
+                    if (!snapshotEventIds.contains(eventId)) {
+                        eventsManager.removeEvent(eventId);
+                    }
+                }
+                snapshotEventIds = null;
+                // Numbered afresh if the primary was restarted, so these may go down.
+                appliedSeq = record.seq;
+                primarySeq = record.seq;
+                snapshots++;
+                snapshotApplied = true;
+                return;
+        }
+        if (snapshotEventIds == null) {
+            if (record.seq <= appliedSeq) {
+                return;
+            }
+            if (record.seq != appliedSeq + 1) {
+                throw new IOException("Expected record " + (appliedSeq + 1) + " but was sent " + record.seq + ".");
+            }
+        }
+        DataInputStream fields = ReplicationStream.fields(record.payload);
+        switch (record.type) {
+            case ReplicationStream.EVENT_PUT:
+                Event event = (Event) ReplicationStream.deserialize(record.payload);
+                eventsManager.putEvent(event);
+                if (snapshotEventIds != null) {
+                    snapshotEventIds.add(event.getEventId());
+                }
+                break;
+            case ReplicationStream.EVENT_REMOVED:
+                eventsManager.removeEvent(PartitionProtocol.readUuid(fields));
+                break;
+            case ReplicationStream.ROOM_PUT:
+                roomManager.putRoom((Room) ReplicationStream.deserialize(record.payload));
+                break;
+            case ReplicationStream.USER_PUT:
+                userManager.putUser((User) ReplicationStream.deserialize(record.payload));
+                break;
+            case ReplicationStream.CONVERSATION_PUT:
+                conversationManager.putConversation((Conversation) ReplicationStream.deserialize(record.payload));
+                break;
+            case ReplicationStream.CONVERSATION_CREATED:
+                UUID id = PartitionProtocol.readUuid(fields);
+                List<UUID> participants = PartitionProtocol.readUuids(fields);
+                ConvoType type = ConvoType.values()[fields.readByte()];
+                if (conversationManager.findConversation(id) == -1) {
+                    conversationManager.createConversation(id, participants, type);
+                }
+                break;
+            case ReplicationStream.MESSAGE_ADDED:
+                UUID conversationId = PartitionProtocol.readUuid(fields);
+                long position = fields.readLong();
+                UUID sender = PartitionProtocol.readUuid(fields);
+                long millis = fields.readLong();
+                LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                        (int) Math.floorMod(millis, 1000L) * 1000000, ZoneOffset.UTC);
+                conversationManager.putMessage(conversationId, position, sender, time,
+                        PartitionProtocol.readString(fields));
+                break;
+            case ReplicationStream.MESSAGES_DROPPED:
+                conversationManager.dropMessagesUpTo(PartitionProtocol.readUuid(fields), fields.readLong());
+                break;
+            case ReplicationStream.CONVERSATION_RENAMED:
+                conversationManager.setEventName(PartitionProtocol.readUuid(fields), PartitionProtocol.readString(fields));
+                break;
+            default:
+                throw new IOException("Unknown record type " + record.type + ".");
+        }
+        if (snapshotEventIds == null) {
+            appliedSeq = record.seq;
+            primarySeq = Math.max(primarySeq, record.seq);
+            lagMillis = Math.max(0, System.currentTimeMillis() - record.time);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close the connection to the primary.", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package gateways;
+
+import java.io.*;
+
+/**
+ * The records a ReplicationPrimary sends to its ReplicationReplicas, and how they are written. Every record is a
+ * type byte, its sequence number, the primary's clock when the record was made (epoch milliseconds), and a payload.
+ * Records that change the conference are numbered one after another in the order the primary made them; a replica
+ * applies them in that order.
+ * A replica that connects is first sent a snapshot: SNAPSHOT_BEGIN, a PUT record for every room, user, event and
+ * conversation, and SNAPSHOT_END, all numbered with the last sequence number made before the snapshot was started.
+ * The records after that number follow. Records a replica already has in its snapshot are sent again, so applying a
+ * record must leave the same result when it is applied twice.
+ */
+final class ReplicationStream {
+    /** A serialized Event, replacing the event with the same id. */
+    static final byte EVENT_PUT = 1;
+    /** The id of an event that was removed. */
+    static final byte EVENT_REMOVED = 2;
+    /** A serialized Room, replacing the room with the same id. */
+    static final byte ROOM_PUT = 3;
+    /** A serialized User, replacing the user with the same id. */
+    static final byte USER_PUT = 4;
+    /** A serialized Conversation, replacing the conversation with the same id unless it has fewer messages. */
+    static final byte CONVERSATION_PUT = 5;
+    /** The id, participants and type of a new conversation. */
+    static final byte CONVERSATION_CREATED = 6;
+    /** Conversation id, position, sender, time and content of a message added to a conversation. */
+    static final byte MESSAGE_ADDED = 7;
+    /** Conversation id and the number of its messages dropped so far. */
+    static final byte MESSAGES_DROPPED = 8;
+    /** Conversation id and its new event name. */
+    static final byte CONVERSATION_RENAMED = 9;
+    /** The start of a snapshot. */
+    static final byte SNAPSHOT_BEGIN = 10;
+    /** The end of a snapshot, numbered with the record the records after the snapshot follow. */
+    static final byte SNAPSHOT_END = 11;
+    /** Sent now and then, numbered with the primary's last record, so a replica knows how far behind it is. */
+    static final byte HEARTBEAT = 12;
+
+    private ReplicationStream() {
+    }
+
+    /**
+     * One record of the stream.
+     */
+    static final class Record {
+        final byte type;
+        final long seq;
+        final long time;
+        final byte[] payload;
+
+        Record(byte type, long seq, long time, byte[] payload) {
+            this.type = type;
+            this.seq = seq;
+            this.time = time;
+            this.payload = payload;
+        }
+    }
+
+    static void write(DataOutputStream out, Record record) throws IOException {
+        out.writeByte(record.type);
+        out.writeLong(record.seq);
+        out.writeLong(record.time);
+        out.writeInt(record.payload.length);
+        out.write(record.payload);
+    }
+
+    static Record read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        long seq = in.readLong();
+        long time = in.readLong();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new Record(type, seq, time, payload);
+    }
+
+    static byte[] serialize(Serializable entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] payload) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("The primary sent an entity of an unknown class.", e);
+        }
+    }
+
+    /**
+     * Writes the fields of a payload.
+     */
+    interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static byte[] payload(PayloadWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static DataInputStream fields(byte[] payload) {
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+}
@@ -0,0 +1,128 @@
+package gateways;
+
+import controllers.Conference;
+import controllers.MainController;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lets clients use the conference's menu over a plain socket (e.g. with telnet or nc). Each connected client gets its
+ * own MainController session, reading the client's lines instead of the console and displaying to the client, on a
+ * thread of its own. The thread is virtual when the JVM has them, so that the many sessions that are waiting for
+ * their user to type only hold cheap threads. A session ends when its client chooses to exit or disconnects.
+ */
+public class SessionServer {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(SessionServer.class.getPackage().getName());
+
+    private static final int BACKLOG = 4096;
+
+    private final Conference conference;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Constructor for SessionServer. The server does not accept connections until it is started.
+     * @param conference the conference the sessions are run on
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be listened on
+     */
+    public SessionServer(Conference conference, int port) throws IOException {
+        this.conference = conference;
+        this.serverSocket = new ServerSocket(port, BACKLOG);
+        // Without virtual threads every session needs a platform thread of its own, as it blocks reading its client.
+        this.sessions = VirtualThreads.newPerTaskExecutor(Executors::newCachedThreadPool);
+        this.acceptor = new Thread(this::acceptClients, "session-acceptor");
+    }
+
+    /**
+     * Start accepting connections.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Stop accepting connections and disconnect every client.
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close the server socket.", e);
+        }
+        for (Socket client : clients) {
+            close(client);
+        }
+        sessions.shutdown();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The number of clients that are connected
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private void acceptClients() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                clients.add(client);
+                sessions.execute(() -> runSession(client));
+            } catch (SocketException e) {
+                // The server socket was closed by stop().
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Cannot accept a client.", e);
+            }
+        }
+    }
+
+    private void runSession(Socket client) {
+        try {
+            client.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(client.getOutputStream()), false,
+                    StandardCharsets.UTF_8);
+            new MainController(conference, client.getInputStream(), out).displayMenu();
+            out.flush();
+        } catch (NoSuchElementException e) {
+            // The client disconnected without choosing to exit.
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Session ended by an error.", e);
+        } finally {
+            clients.remove(client);
+            close(client);
+        }
+    }
+
+    private static void close(Socket client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close a client's socket.", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package gateways;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executors the servers run their clients on. Virtual threads were added in Java 21; they are looked up
+ * by name so the program still compiles and runs on older JVMs, which use the given fallback instead.
+ */
+public class VirtualThreads {
+
+    //logging
+    private static final Logger logger = Logger.getLogger(VirtualThreads.class.getPackage().getName());
+
+    /**
+     * Create an executor that runs each task on a new virtual thread, if the JVM supports them.
+     * @param fallback creates the executor to use if it does not
+     * @return the executor
+     */
+    public static ExecutorService newPerTaskExecutor(Supplier<ExecutorService> fallback) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.log(Level.INFO, "Virtual threads are not available. Using platform threads.");
+            return fallback.get();
+        }
+    }
+}
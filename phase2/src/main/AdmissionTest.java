@@ -0,0 +1,181 @@
+package main;
+
+import controllers.CommandController;
+import controllers.Conference;
+import enums.CommandStatus;
+import enums.Priority;
+import enums.UserOption;
+import use_cases.AdmissionController;
+import value_holders.CommandRequest;
+import value_holders.CommandResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Sends commands to a CommandController to check that a user who sends messages too quickly is refused while other
+ * users are not, and that while commands are slow, guests are turned away before attendees, and attendees before
+ * organizers, including when they log in. Also checks that idle sessions are ended, and that starting many sessions
+ * ends the oldest instead of keeping them all. The latency is set by recording slow commands with the AdmissionController rather than by loading the
+ * conference. Not part of the program; run it with "java main.AdmissionTest". Exits with status 1 if any check fails.
+ */
+public class AdmissionTest {
+    private static final int REPEATS = 30;
+    private static final int SAMPLES = 100;
+    private static final int MAX_SESSIONS = 50;
+    private static final long SESSION_IDLE_MILLIS = 200;
+
+    private final Conference conference = new Conference();
+    private final CommandController commandController = new CommandController(conference);
+    private final AdmissionController admissionController = conference.getAdmissionController();
+    private final List<String> violations = new ArrayList<>();
+
+    public static void main(String[] args) throws InterruptedException {
+        AdmissionTest test = new AdmissionTest();
+        test.checkRateLimits();
+        test.checkShedding();
+        test.checkSessionLimits();
+        for (String violation : test.violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.println(test.violations.isEmpty() ? "All checks passed." :
+                test.violations.size() + " checks failed.");
+        System.exit(test.violations.isEmpty() ? 0 : 1);
+    }
+
+    private void checkRateLimits() {
+        String looping = logIn("attendee1@conference.com", "attendee1");
+        String other = logIn("attendee2@conference.com", "attendee2");
+        int done = 0;
+        for (int i = 0; i < REPEATS; i++) {
+            if (sendMessage(looping, "attendee2@conference.com") == CommandStatus.OK) {
+                done++;
+            }
+        }
+        System.out.printf("A user who sent %d messages in a row was refused %d times%n", REPEATS, REPEATS - done);
+        if (done == REPEATS) {
+            violations.add("the looping user was never rate limited");
+        }
+        expect("the looping user's conversations", conversations(looping), CommandStatus.OK);
+        expect("another user's message", sendMessage(other, "attendee1@conference.com"), CommandStatus.OK);
+        long limited = conference.getRateLimiter().getLimitedCount(UserOption.ACCESS_MESSAGING);
+        if (limited != REPEATS - done) {
+            violations.add(limited + " commands were counted as rate limited, " + (REPEATS - done) + " were refused");
+        }
+    }
+
+    private void checkShedding() {
+        String guest = send(null, UserOption.EXPLORE_AS_A_GUEST, new HashMap<>()).getSessionToken();
+        String attendee = logIn("attendee1@conference.com", "attendee1");
+        String organizer = logIn("organizer1@conference.com", "organizer1");
+        long target = admissionController.getStatus().get("targetMillis");
+
+        setLatency(target * 3 / 2);
+        expect("a guest browsing at 1.5 times the target", viewEvents(guest), CommandStatus.OVERLOADED);
+        setLatency(target * 3 / 2);
+        expect("a new guest at 1.5 times the target",
+                send(null, UserOption.EXPLORE_AS_A_GUEST, new HashMap<>()).getStatus(), CommandStatus.OVERLOADED);
+        setLatency(target * 3 / 2);
+        expect("an attendee browsing at 1.5 times the target", viewEvents(attendee), CommandStatus.OK);
+        setLatency(target * 3);
+        expect("an attendee browsing at 3 times the target", viewEvents(attendee), CommandStatus.OVERLOADED);
+        setLatency(target * 3);
+        expect("an organizer browsing at 3 times the target", viewEvents(organizer), CommandStatus.OK);
+        setLatency(target * 3);
+        expect("an organizer logging in at 3 times the target",
+                logInStatus("organizer1@conference.com", "organizer1"), CommandStatus.OK);
+        setLatency(target * 3);
+        expect("an attendee logging in at 3 times the target",
+                logInStatus("attendee2@conference.com", "attendee2"), CommandStatus.OVERLOADED);
+        setLatency(target * 3);
+        expect("an attendee logging out at 3 times the target",
+                send(attendee, UserOption.LOG_OUT, new HashMap<>()).getStatus(), CommandStatus.OK);
+        setLatency(0);
+        expect("a guest browsing once commands are fast again", viewEvents(guest), CommandStatus.OK);
+
+        System.out.println("Admission: " + admissionController.getStatus());
+        if (admissionController.getShedCount(Priority.LOW) != 2 ||
+                admissionController.getShedCount(Priority.NORMAL) != 2 ||
+                admissionController.getShedCount(Priority.HIGH) != 0) {
+            violations.add("the shed commands were not counted by priority");
+        }
+    }
+
+    private void checkSessionLimits() throws InterruptedException {
+        CommandController limited = new CommandController(conference);
+        limited.setSessionLimits(SESSION_IDLE_MILLIS, MAX_SESSIONS);
+        String first = null;
+        String last = null;
+        for (int i = 0; i < MAX_SESSIONS * 4; i++) {
+            last = limited.handle(new CommandRequest(null, UserOption.EXPLORE_AS_A_GUEST, new HashMap<>()))
+                    .getSessionToken();
+            first = first == null ? last : first;
+        }
+        System.out.printf("After %d guests arrived, %d sessions were kept%n", MAX_SESSIONS * 4,
+                limited.getSessionCount());
+        if (limited.getSessionCount() > MAX_SESSIONS) {
+            violations.add(limited.getSessionCount() + " sessions were kept, at most " + MAX_SESSIONS + " may be");
+        }
+        expect("the first of many guests", viewEvents(limited, first), CommandStatus.UNAUTHORIZED);
+        expect("the last of many guests", viewEvents(limited, last), CommandStatus.OK);
+        Thread.sleep(SESSION_IDLE_MILLIS * 2);
+        expect("a guest idle for too long", viewEvents(limited, last), CommandStatus.UNAUTHORIZED);
+    }
+
+    /**
+     * Record enough commands that took the given time for the latency estimate to settle near it.
+     */
+    private void setLatency(long millis) {
+        for (int i = 0; i < SAMPLES; i++) {
+            admissionController.record(millis * 1000000L);
+        }
+    }
+
+    private void expect(String what, CommandStatus actual, CommandStatus expected) {
+        if (actual != expected) {
+            violations.add(what + " was " + actual + ", expected " + expected);
+        }
+    }
+
+    private String logIn(String email, String password) {
+        return send(null, UserOption.LOG_IN, credentials(email, password)).getSessionToken();
+    }
+
+    private CommandStatus logInStatus(String email, String password) {
+        return send(null, UserOption.LOG_IN, credentials(email, password)).getStatus();
+    }
+
+    private static HashMap<String, String> credentials(String email, String password) {
+        HashMap<String, String> credentials = new HashMap<>();
+        credentials.put("email", email);
+        credentials.put("password", password);
+        return credentials;
+    }
+
+    private CommandStatus conversations(String token) {
+        HashMap<String, String> parameters = new HashMap<>();
+        parameters.put("action", "conversations");
+        return send(token, UserOption.ACCESS_MESSAGING, parameters).getStatus();
+    }
+
+    private CommandStatus sendMessage(String token, String recipient) {
+        HashMap<String, String> parameters = new HashMap<>();
+        parameters.put("action", "send");
+        parameters.put("recipients", recipient);
+        parameters.put("content", "Hello");
+        return send(token, UserOption.ACCESS_MESSAGING, parameters).getStatus();
+    }
+
+    private CommandStatus viewEvents(String token) {
+        return viewEvents(commandController, token);
+    }
+
+    private static CommandStatus viewEvents(CommandController controller, String token) {
+        return controller.handle(new CommandRequest(token, UserOption.VIEW_ALL_EVENTS, new HashMap<>())).getStatus();
+    }
+
+    private CommandResult send(String token, UserOption option, HashMap<String, String> parameters) {
+        return commandController.handle(new CommandRequest(token, option, parameters));
+    }
+}
@@ -0,0 +1,172 @@
+package main;
+
+import entities.Conversation;
+import enums.ConvoType;
+import enums.UserType;
+import use_cases.ConversationCompactor;
+import use_cases.ConversationManager;
+import use_cases.MessageSearchIndex;
+import use_cases.UserManager;
+import value_holders.MessageSearchResult;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends messages to many conversations while their participants delete them and a compactor drops the deleted
+ * messages, then searches for every message ever sent: each message still in its conversation must be found exactly
+ * once, as itself, and each dropped one not at all. Checks the same again after saving the conversations and the
+ * search index and loading them back. Not part of the program; run it with
+ * "java main.CompactionSearchTest [conversations] [messages per conversation] [threads]". Exits with status 1 if any
+ * check fails.
+ */
+public class CompactionSearchTest {
+    private static final int USERS = 50;
+
+    private final List<String> violations = new ArrayList<>();
+    private final UserManager userManager = new UserManager(new ArrayList<>());
+    private ConversationManager conversationManager = new ConversationManager(new ArrayList<>());
+    private final List<UUID> conversationIds = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int conversations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        CompactionSearchTest test = new CompactionSearchTest();
+        int compactions = test.run(conversations, messages, threads);
+        test.check("after compacting", messages);
+        test.reload();
+        test.check("after loading", messages);
+        System.out.printf("Sent %,d messages to %d conversations on %d threads during %d compactions%n",
+                conversations * messages, conversations, threads, compactions);
+        for (String violation : test.violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.println(test.violations.isEmpty() ? "All checks passed." :
+                test.violations.size() + " checks failed.");
+        System.exit(test.violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * @return The number of compactions that ran while messages were being sent
+     */
+    private int run(int conversations, int messages, int threads) throws InterruptedException {
+        List<UUID> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userManager.createUser("User" + i, "user" + i + "@compaction", "user", UserType.ATTENDEE);
+            UserManager session = userManager.newSession();
+            session.login("user" + i + "@compaction", "user");
+            userIds.add(session.getActiveUserId());
+        }
+        // Each conversation has its own pair of participants, since a pair only ever has one direct conversation.
+        List<List<UUID>> pairs = new ArrayList<>();
+        for (int first = 0; first < USERS; first++) {
+            for (int second = first + 1; second < USERS; second++) {
+                pairs.add(Arrays.asList(userIds.get(first), userIds.get(second)));
+            }
+        }
+        Collections.shuffle(pairs, new Random(1));
+        for (int i = 0; i < conversations; i++) {
+            conversationIds.add(conversationManager.createConversation(new ArrayList<>(pairs.get(i % pairs.size())),
+                    ConvoType.DIRECT));
+        }
+
+        ConversationCompactor compactor = new ConversationCompactor(conversationManager, userManager);
+        AtomicBoolean sending = new AtomicBoolean(true);
+        int[] compactions = new int[1];
+        Thread compacting = new Thread(() -> {
+            while (sending.get()) {
+                compactor.compact();
+                compactions[0]++;
+            }
+        });
+        Thread deleting = new Thread(() -> {
+            Random choice = new Random(2);
+            while (sending.get()) {
+                UUID id = conversationIds.get(choice.nextInt(conversationIds.size()));
+                List<UUID> participants = conversationManager.getConversationParticipants(
+                        conversationManager.findConversation(id));
+                for (UUID participant : participants) {
+                    userManager.deleteConversation(id, () -> conversationManager.getMessageListSize(id),
+                            userManager.findUserIndexById(participant));
+                }
+            }
+        });
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            senders.add(new Thread(() -> {
+                for (int m = 0; m < messages; m++) {
+                    for (int c = thread; c < conversations; c += threads) {
+                        UUID id = conversationIds.get(c);
+                        conversationManager.sendMessage(token(c, m) + " hello", userIds.get(0), id);
+                    }
+                }
+            }));
+        }
+        compacting.start();
+        deleting.start();
+        senders.forEach(Thread::start);
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        sending.set(false);
+        compacting.join();
+        deleting.join();
+        compactor.compact();
+        return compactions[0];
+    }
+
+    /**
+     * Every message is sent to its conversation in order by a single thread, so message m is the m-th ever sent.
+     */
+    private void check(String when, int messages) {
+        for (int c = 0; c < conversationIds.size(); c++) {
+            UUID id = conversationIds.get(c);
+            long dropped = conversationManager.readConversation(id, Conversation::getDroppedMessageCount);
+            int indexed = conversationManager.getSearchIndex().getIndexedCount(id);
+            if (indexed != messages) {
+                violations.add(when + ": conversation " + c + " has " + indexed + " messages indexed, " + messages +
+                        " were sent");
+            }
+            for (int m = 0; m < messages; m++) {
+                HashMap<UUID, Integer> visibleFrom = new HashMap<>();
+                visibleFrom.put(id, 0);
+                List<MessageSearchResult> results = conversationManager.searchMessages(token(c, m), visibleFrom, 5);
+                if (m < dropped) {
+                    if (!results.isEmpty()) {
+                        violations.add(when + ": dropped message " + token(c, m) + " was found as \"" +
+                                results.get(0).getMessage().getContent() + "\"");
+                    }
+                } else if (results.size() != 1 ||
+                        !results.get(0).getMessage().getContent().equals(token(c, m) + " hello")) {
+                    violations.add(when + ": message " + token(c, m) + " was found " + results.size() + " times" +
+                            (results.isEmpty() ? "" : ", first as \"" + results.get(0).getMessage().getContent() +
+                                    "\""));
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the conversations and the search index, then load them into a new ConversationManager.
+     */
+    private void reload() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(conversationManager.getSearchIndex());
+            out.writeObject(new ArrayList<>(conversationManager.getAllConversations()));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            MessageSearchIndex index = (MessageSearchIndex) in.readObject();
+            @SuppressWarnings("unchecked")
+            List<Conversation> conversations = (List<Conversation>) in.readObject();
+            conversationManager = new ConversationManager(conversations, index);
+        }
+    }
+
+    private static String token(int conversation, int message) {
+        return "c" + conversation + "m" + message;
+    }
+}
@@ -0,0 +1,75 @@
+package main;
+
+import entities.Conversation;
+import entities.Message;
+import enums.ConvoType;
+
+import java.util.*;
+
+/**
+ * Measures how much heap a load of messages takes when conversations keep their messages in columns, against the
+ * list of Message objects each conversation kept before. Each message has a six-word body and one of the
+ * conversation's two participants as its sender. Not part of the program; run it with
+ * "java main.ConversationMemoryBenchmark [messages] [conversations]", ideally with a fixed heap (e.g. -Xms2g -Xmx2g).
+ */
+public class ConversationMemoryBenchmark {
+    private static final String[] WORDS = {"the", "keynote", "starts", "in", "room", "twelve", "after", "lunch",
+            "please", "bring", "your", "badge", "see", "you", "there", "soon"};
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int conversations = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        List<List<UUID>> participants = new ArrayList<>();
+        for (int i = 0; i < conversations; i++) {
+            participants.add(Arrays.asList(UUID.randomUUID(), UUID.randomUUID()));
+        }
+
+        long before = usedHeap();
+        List<ArrayList<Message>> lists = new ArrayList<>();
+        for (int i = 0; i < conversations; i++) {
+            lists.add(new ArrayList<>());
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < messages; i++) {
+            List<UUID> convo = participants.get(i % conversations);
+            lists.get(i % conversations).add(new Message(convo.get(random.nextInt(2)), body(random)));
+        }
+        long listBytes = usedHeap() - before;
+        report("Message lists", listBytes, messages, lists.size());
+        lists = null;
+
+        before = usedHeap();
+        List<Conversation> columns = new ArrayList<>();
+        for (int i = 0; i < conversations; i++) {
+            columns.add(new Conversation(participants.get(i), ConvoType.DIRECT));
+        }
+        random = new Random(1);
+        for (int i = 0; i < messages; i++) {
+            Conversation c = columns.get(i % conversations);
+            c.addMessage(new Message(c.getParticipants().get(random.nextInt(2)), body(random)));
+        }
+        long columnBytes = usedHeap() - before;
+        report("Columns", columnBytes, messages, columns.size());
+    }
+
+    private static String body(Random random) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            body.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return body.toString();
+    }
+
+    private static void report(String layout, long bytes, int messages, int conversations) {
+        System.out.printf("%-14s %,12d bytes, %,6.1f bytes per message (%d conversations)%n", layout + ":", bytes,
+                (double) bytes / messages, conversations);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
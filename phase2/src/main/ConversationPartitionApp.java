@@ -0,0 +1,45 @@
+package main;
+
+import entities.Conversation;
+import gateways.ConversationPartitionServer;
+import gateways.ReadWriteSerializable;
+import use_cases.ConversationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Runs one partition of the conference's conversations as a process of its own (see ConversationPartitionServer),
+ * until the JVM is stopped, then saves the partition. The partition is loaded from and saved to the conversation
+ * files in the working directory, so each partition needs a directory of its own. Run it with
+ * "java main.ConversationPartitionApp [port]"; without a port any free one is used. The port is printed once the
+ * partition is ready.
+ */
+public class ConversationPartitionApp {
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        ReadWriteSerializable readWriteSerializable = new ReadWriteSerializable();
+        ConversationManager conversationManager = readWriteSerializable.hasConversationData() ?
+                new ConversationManager(readWriteSerializable.conversationsReadFromSerializable(),
+                        readWriteSerializable.messageIndexReadFromSerializable()) :
+                new ConversationManager(new ArrayList<>());
+        ConversationPartitionServer server = new ConversationPartitionServer(conversationManager, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            // As in Conference.save, the index is saved before the conversations and each conversation is copied
+            // while its lock is held.
+            readWriteSerializable.messageIndexWriteToSerializable(conversationManager.getSearchIndex());
+            ArrayList<Conversation> conversations = new ArrayList<>();
+            for (Conversation conversation : conversationManager.getAllConversations()) {
+                Conversation copy = conversationManager.readConversation(conversation.getId(),
+                        ReadWriteSerializable::copyOf);
+                if (copy != null) {
+                    conversations.add(copy);
+                }
+            }
+            readWriteSerializable.conversationsWriteToSerializable(conversations);
+        }));
+        server.start();
+        System.out.println("Serving conversations on port " + server.getPort());
+    }
+}
@@ -0,0 +1,91 @@
+package main;
+
+import controllers.CommandController;
+import controllers.Conference;
+import gateways.ConversationRouter;
+import gateways.HttpCommandServer;
+import gateways.ReplicationPrimary;
+import use_cases.WriterLoop;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the conference without a console, serving commands over HTTP (see HttpCommandServer) until the JVM is
+ * stopped, then saves. Run it with "java main.HttpApp [port] [--bind ADDRESS] [--single-writer] [--replication-port N]
+ * [--conversation-partitions PORT,PORT,...]"; the port defaults to 8080. Commands are only served on the loopback
+ * address unless --bind gives another address to listen on, e.g. 0.0.0.0 for every address. With --single-writer, every command that
+ * changes the conference is performed on one writer thread (see WriterLoop). With --replication-port, every change is
+ * also copied to the ReplicaApps that connect to port N (see ReplicationPrimary), and how far they are behind is
+ * served at /status/replication. With --conversation-partitions, the direct conversations users start are kept by the
+ * ConversationPartitionApps listening on those local ports, which must be given in the same order every time (see
+ * ConversationRouter). The commands accepted and shed by the AdmissionController are counted at /status/admission,
+ * and those refused by the RateLimiter at /status/rate-limits.
+ */
+public class HttpApp {
+    private static final int WRITER_QUEUE_CAPACITY = 65536;
+    private static final int CONNECTIONS_PER_PARTITION = 8;
+
+    public static void main(String[] args) throws IOException {
+        List<String> options = Arrays.asList(args);
+        int port = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 8080;
+        int replicationOption = options.indexOf("--replication-port");
+        int partitionsOption = options.indexOf("--conversation-partitions");
+        int bindOption = options.indexOf("--bind");
+        InetAddress address = bindOption != -1 ? InetAddress.getByName(args[bindOption + 1]) :
+                InetAddress.getLoopbackAddress();
+        Conference conference = new Conference();
+        List<InetSocketAddress> partitions = new ArrayList<>();
+        if (partitionsOption != -1) {
+            for (String partitionPort : args[partitionsOption + 1].split(",")) {
+                partitions.add(new InetSocketAddress("localhost", Integer.parseInt(partitionPort.trim())));
+            }
+        }
+        ConversationRouter router = partitions.isEmpty() ? null :
+                new ConversationRouter(partitions, CONNECTIONS_PER_PARTITION);
+        conference.setConversationRouter(router);
+        WriterLoop writerLoop = options.contains("--single-writer") ?
+                new WriterLoop(WRITER_QUEUE_CAPACITY, () -> conference.getEventCatalogue().getSnapshot()) : null;
+        ReplicationPrimary primary = replicationOption != -1 ? new ReplicationPrimary(conference.getEventsManager(),
+                conference.getRoomManager(), conference.newUserSession(), conference.getConversationManager(),
+                Integer.parseInt(args[replicationOption + 1])) : null;
+        HttpCommandServer server = new HttpCommandServer(new CommandController(conference, writerLoop), address,
+                port);
+        server.addStatus("admission", conference.getAdmissionController()::getStatus);
+        server.addStatus("rate-limits", conference.getRateLimiter()::getStatus);
+        if (primary != null) {
+            server.addStatus("replication", primary::getStatus);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            if (writerLoop != null) {
+                // Save between two batches of changes, after every change already submitted.
+                writerLoop.submit(() -> {
+                    conference.save();
+                    return null;
+                }).join();
+            } else {
+                conference.save();
+            }
+            if (primary != null) {
+                primary.stop();
+            }
+            if (router != null) {
+                router.close();
+            }
+        }));
+        if (primary != null) {
+            primary.start();
+        }
+        server.start();
+        System.out.println("Serving commands on http://" + address.getHostAddress() + ":" + server.getPort() +
+                "/api/" +
+                (writerLoop != null ? " with a single writer" : "") +
+                (primary != null ? ", replicating on port " + primary.getPort() : "") +
+                (router != null ? ", with conversations in " + partitions.size() + " partitions" : ""));
+    }
+}
@@ -0,0 +1,276 @@
+package main;
+
+import controllers.CommandController;
+import controllers.Conference;
+import enums.CommandStatus;
+import enums.ConvoType;
+import enums.UserOption;
+import gateways.ConversationRouter;
+import value_holders.CommandRequest;
+import value_holders.CommandResult;
+import value_holders.ConversationSummary;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts several ConversationPartitionApp processes on this machine and sends messages through a ConversationRouter
+ * from many threads, then checks that every message arrived in its conversation and that every user's inbox, as
+ * gathered from all partitions, holds exactly the user's conversations. The partitions are then stopped, which saves
+ * them, and started again to check that nothing was lost. Also checks that messaging commands sent to a
+ * CommandController of a conference set to use the partitions reach them. Not part of the program; run it in a
+ * directory without save data with
+ * "java main.PartitionedMessagingTest [partitions] [users] [messages] [threads]". Exits with status 1 if any check
+ * fails.
+ */
+public class PartitionedMessagingTest {
+    private final List<Path> directories = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+    private final List<UUID> users = new ArrayList<>();
+    private final Map<UUID, Set<UUID>> conversationsByUser = new HashMap<>();
+    private final Map<UUID, AtomicInteger> messagesSent = new ConcurrentHashMap<>();
+    private final List<UUID> conversationIds = new ArrayList<>();
+    private final List<String> violations = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int partitions = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int messages = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        PartitionedMessagingTest test = new PartitionedMessagingTest();
+        try {
+            test.run(partitions, users, messages, threads);
+        } finally {
+            test.stopPartitions();
+            test.deleteDirectories();
+        }
+        for (String violation : test.violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.println(test.violations.isEmpty() ? "All checks passed." :
+                test.violations.size() + " checks failed.");
+        if (!test.violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private void run(int partitions, int userCount, int messages, int threads) throws Exception {
+        for (int p = 0; p < partitions; p++) {
+            directories.add(Files.createTempDirectory("partition" + p + "-"));
+        }
+        ConversationRouter router = new ConversationRouter(startPartitions(), threads);
+        Random random = new Random(1);
+        for (int i = 0; i < userCount; i++) {
+            users.add(new UUID(random.nextLong(), random.nextLong()));
+            conversationsByUser.put(users.get(i), new HashSet<>());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < userCount * 2; i++) {
+            List<UUID> participants = Arrays.asList(users.get(random.nextInt(userCount)),
+                    users.get(random.nextInt(userCount)));
+            UUID id = router.createConversation(participants, ConvoType.DIRECT);
+            if (!messagesSent.containsKey(id)) {
+                conversationIds.add(id);
+                messagesSent.put(id, new AtomicInteger());
+            }
+            for (UUID participant : participants) {
+                conversationsByUser.get(participant).add(id);
+            }
+            List<UUID> reversed = Arrays.asList(participants.get(1), participants.get(0));
+            if (!router.createConversation(reversed, ConvoType.DIRECT).equals(id)) {
+                violations.add("the conversation between " + participants + " was created twice");
+            }
+        }
+        System.out.printf("Created %d conversations in %d ms; partition sizes %s%n", conversationIds.size(),
+                (System.nanoTime() - start) / 1000000, router.getPartitionSizes());
+
+        sendMessages(router, userCount, messages, threads);
+
+        start = System.nanoTime();
+        checkInboxes(router);
+        System.out.printf("Gathered %d inboxes in %d ms%n", userCount, (System.nanoTime() - start) / 1000000);
+        checkMessages(router);
+        checkCommands(router);
+        router.close();
+
+        stopPartitions();
+        router = new ConversationRouter(startPartitions(), threads);
+        checkMessages(router);
+        System.out.println("Partitions restarted from their save files; partition sizes " +
+                router.getPartitionSizes());
+        router.close();
+    }
+
+    /**
+     * Send messages to random conversations from the given number of threads at once.
+     */
+    private void sendMessages(ConversationRouter router, int userCount, int messages, int threads)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                Random threadRandom = new Random(thread);
+                for (int i = 0; i < messages / threads; i++) {
+                    UUID conversation = conversationIds.get(threadRandom.nextInt(conversationIds.size()));
+                    router.sendMessage("message " + thread + "-" + i, users.get(threadRandom.nextInt(userCount)),
+                            conversation);
+                    messagesSent.get(conversation).incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Sent %d messages from %d threads in %d ms (%,d messages/s)%n", messages / threads * threads,
+                threads, elapsed / 1000000, (long) (messages / threads * threads) * 1000000000L / elapsed);
+    }
+
+    private void checkMessages(ConversationRouter router) {
+        for (UUID conversation : conversationIds) {
+            int expected = messagesSent.get(conversation).get();
+            int actual = router.getMessagesInfo(conversation).size();
+            if (expected != actual) {
+                violations.add("conversation " + conversation + " has " + actual + " messages, " + expected +
+                        " were sent");
+            }
+        }
+    }
+
+    /**
+     * An organizer messages an attendee and the attendee replies, through the commands of a conference whose direct
+     * conversations are kept in the partitions.
+     */
+    private void checkCommands(ConversationRouter router) {
+        Conference conference = new Conference();
+        conference.setConversationRouter(router);
+        CommandController commandController = new CommandController(conference);
+        String organizer = logIn(commandController, "organizer1@conference.com", "organizer1");
+        String attendee = logIn(commandController, "attendee1@conference.com", "attendee1");
+        HashMap<String, String> parameters = new HashMap<>();
+        parameters.put("action", "send");
+        parameters.put("recipients", "attendee1@conference.com");
+        parameters.put("content", "Welcome to the conference");
+        command(commandController, organizer, parameters);
+
+        parameters = new HashMap<>();
+        parameters.put("action", "conversations");
+        Matcher listed = Pattern.compile("([0-9a-f-]{36}) - Organizer1")
+                .matcher(command(commandController, attendee, parameters).getMessage());
+        if (!listed.find()) {
+            violations.add("the attendee's conversations do not list the organizer's message");
+            return;
+        }
+        UUID conversation = UUID.fromString(listed.group(1));
+        parameters = new HashMap<>();
+        parameters.put("action", "reply");
+        parameters.put("conversation", conversation.toString());
+        parameters.put("content", "Thank you");
+        command(commandController, attendee, parameters);
+
+        parameters = new HashMap<>();
+        parameters.put("action", "messages");
+        parameters.put("conversation", conversation.toString());
+        String messages = command(commandController, organizer, parameters).getMessage();
+        if (!messages.contains("Welcome to the conference") || !messages.contains("Attendee1") ||
+                !messages.contains("Thank you")) {
+            violations.add("the organizer does not see both messages: " + messages.trim());
+        }
+        if (router.getMessagesInfo(conversation).size() != 2) {
+            violations.add("the partition has " + router.getMessagesInfo(conversation).size() +
+                    " messages from the commands, expected 2");
+        }
+        if (conference.getConversationManager().findConversation(conversation) != -1) {
+            violations.add("the conversation started by a command was kept by the conference, not a partition");
+        }
+    }
+
+    private String logIn(CommandController commandController, String email, String password) {
+        HashMap<String, String> credentials = new HashMap<>();
+        credentials.put("email", email);
+        credentials.put("password", password);
+        return commandController.handle(new CommandRequest(null, UserOption.LOG_IN, credentials)).getSessionToken();
+    }
+
+    private CommandResult command(CommandController commandController, String token, HashMap<String, String> parameters) {
+        CommandResult result = commandController.handle(new CommandRequest(token, UserOption.ACCESS_MESSAGING,
+                parameters));
+        if (result.getStatus() != CommandStatus.OK) {
+            violations.add("messaging " + parameters.get("action") + " was " + result.getStatus() + ": " +
+                    result.getMessage());
+        }
+        return result;
+    }
+
+    private void checkInboxes(ConversationRouter router) {
+        for (UUID user : users) {
+            List<ConversationSummary> inbox = router.getInbox(user);
+            Set<UUID> found = new HashSet<>();
+            for (ConversationSummary summary : inbox) {
+                found.add(summary.getId());
+            }
+            if (found.size() != inbox.size() || !found.equals(conversationsByUser.get(user))) {
+                violations.add("user " + user + " has " + inbox.size() + " conversations in their inbox, expected " +
+                        conversationsByUser.get(user).size());
+            }
+        }
+    }
+
+    /**
+     * Start one ConversationPartitionApp per directory, and wait for each to print its port.
+     */
+    private List<InetSocketAddress> startPartitions() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (Path directory : directories) {
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "main.ConversationPartitionApp").directory(directory.toFile())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            processes.add(process);
+            BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line = output.readLine();
+            if (line == null || !line.startsWith("Serving conversations on port ")) {
+                throw new IOException("The partition in " + directory + " did not start: " + line);
+            }
+            addresses.add(new InetSocketAddress("localhost",
+                    Integer.parseInt(line.substring("Serving conversations on port ".length()))));
+        }
+        return addresses;
+    }
+
+    /**
+     * Stop the partitions, letting each save its conversations first.
+     */
+    private void stopPartitions() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        for (Process process : processes) {
+            process.waitFor();
+        }
+        processes.clear();
+    }
+
+    private void deleteDirectories() {
+        for (Path directory : directories) {
+            File[] files = directory.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.toFile().delete();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package main;
+
+import controllers.CommandController;
+import controllers.Conference;
+import gateways.HttpCommandServer;
+import gateways.ReplicationReplica;
+import use_cases.ConversationManager;
+import use_cases.EventsManager;
+import use_cases.RoomManager;
+import use_cases.UserManager;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Runs a read-only copy of a conference, kept up to date with an HttpApp started with --replication-port (see
+ * ReplicationReplica), and serves the commands that do not change the conference over HTTP, so that browsing the
+ * events can be spread over as many replicas as are needed. How far the replica is behind is served at
+ * /status/replication, and its admission and rate-limit counters at /status/admission and /status/rate-limits.
+ * Nothing is loaded or saved. Run it with "java main.ReplicaApp [primary host] [primary replication port] [port]
+ * [--bind ADDRESS]"; the primary defaults to localhost:8081, and without a port any free one is used. The port is
+ * printed once the replica is serving. Commands are only served on the loopback address unless --bind gives another
+ * address to listen on.
+ */
+public class ReplicaApp {
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>(Arrays.asList(args));
+        int bindOption = positional.indexOf("--bind");
+        InetAddress address = InetAddress.getLoopbackAddress();
+        if (bindOption != -1) {
+            address = InetAddress.getByName(positional.get(bindOption + 1));
+            positional.subList(bindOption, bindOption + 2).clear();
+        }
+        String host = positional.size() > 0 ? positional.get(0) : "localhost";
+        int primaryPort = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 8081;
+        int port = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 0;
+        UserManager userManager = new UserManager(new ArrayList<>());
+        EventsManager eventsManager = new EventsManager(new HashMap<>());
+        RoomManager roomManager = new RoomManager(new HashMap<>());
+        ConversationManager conversationManager = new ConversationManager(new ArrayList<>());
+        ReplicationReplica replica = new ReplicationReplica(new InetSocketAddress(host, primaryPort), eventsManager,
+                roomManager, userManager, conversationManager);
+        Conference conference = new Conference(userManager, eventsManager, roomManager, conversationManager);
+        HttpCommandServer server = new HttpCommandServer(new CommandController(conference), address, port);
+        server.addStatus("replication", replica::getStatus);
+        server.addStatus("admission", conference.getAdmissionController()::getStatus);
+        server.addStatus("rate-limits", conference.getRateLimiter()::getStatus);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            replica.stop();
+        }));
+        replica.start();
+        server.start();
+        System.out.println("Serving a replica on port " + server.getPort());
+    }
+}
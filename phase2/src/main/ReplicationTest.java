@@ -0,0 +1,333 @@
+package main;
+
+import controllers.CommandController;
+import controllers.Conference;
+import enums.UserOption;
+import gateways.HttpCommandServer;
+import gateways.ReplicationPrimary;
+import value_holders.CommandRequest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the conference in the working directory (or the demo data) as a replication primary in this process, starts
+ * several ReplicaApp processes following it, and makes changes on the primary: users signing up to and leaving
+ * events, events added and cancelled, a user created and messages sent. Once every replica has caught up, checks that
+ * each one lists the same events (VIEW_ALL_EVENTS, and VIEW_EVENTS_BY_DAY for every day with events) and
+ * conversations as the primary, lets the new user log in, and refuses changes. Then measures how many
+ * VIEW_ALL_EVENTS reads per second one replica, two replicas, and so on up to all of them serve together. Nothing is
+ * saved. Not part of the program; run it with "java main.ReplicationTest [replicas] [clients] [reads]". Exits with
+ * status 1 if any check fails.
+ */
+public class ReplicationTest {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final Pattern APPLIED_SEQ = Pattern.compile("\"appliedSeq\":(\\d+)");
+    private static final Pattern SESSION = Pattern.compile("\"session\":(\"[^\"]*\"|null)");
+    private static final String NEW_USER_EMAIL = "replicated@conference.com";
+    private static final String NEW_USER_PASSWORD = "replicated";
+
+    private final Conference conference = new Conference();
+    private final CommandController commandController = new CommandController(conference);
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Integer> replicaPorts = new ArrayList<>();
+    private final List<String> violations = new ArrayList<>();
+    private ReplicationPrimary primary;
+    private HttpCommandServer primaryServer;
+
+    public static void main(String[] args) throws Exception {
+        int replicas = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int reads = args.length > 2 ? Integer.parseInt(args[2]) : 4000;
+        ReplicationTest test = new ReplicationTest();
+        try {
+            test.run(replicas, clients, reads);
+        } finally {
+            test.stop();
+        }
+        for (String violation : test.violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.println(test.violations.isEmpty() ? "All checks passed." :
+                test.violations.size() + " checks failed.");
+        System.exit(test.violations.isEmpty() ? 0 : 1);
+    }
+
+    private void run(int replicas, int clients, int reads) throws Exception {
+        // Every change comes from a handful of demo users, far faster than any person could make them.
+        conference.getRateLimiter().setEnabled(false);
+        conference.getAdmissionController().setEnabled(false);
+        primary = new ReplicationPrimary(conference.getEventsManager(), conference.getRoomManager(),
+                conference.newUserSession(), conference.getConversationManager(), 0);
+        primary.start();
+        primaryServer = new HttpCommandServer(commandController, 0);
+        primaryServer.start();
+        startReplicas(replicas);
+
+        long start = System.nanoTime();
+        int changes = makeChanges();
+        long target = awaitQuiet();
+        for (int port : replicaPorts) {
+            awaitApplied(port, target);
+        }
+        System.out.printf("Made %d changes (%d records); every replica caught up %d ms after the first change%n",
+                changes, target, (System.nanoTime() - start) / 1000000);
+        for (int port : replicaPorts) {
+            System.out.println("Replica on port " + port + ": " + get(port, "/status/replication"));
+        }
+
+        for (int port : replicaPorts) {
+            checkReplica(port);
+        }
+
+        for (int used = 1; used <= replicas; used++) {
+            System.out.printf("VIEW_ALL_EVENTS from %d replica(s), %d clients: %,d reads/s%n", used, clients,
+                    measureReads(used, clients, reads));
+        }
+    }
+
+    /**
+     * Start one ReplicaApp per replica, and wait for each to print its port.
+     */
+    private void startReplicas(int replicas) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < replicas; i++) {
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "main.ReplicaApp",
+                    "localhost", Integer.toString(primary.getPort()), "0")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            processes.add(process);
+            String line = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+            if (line == null || !line.startsWith("Serving a replica on port ")) {
+                throw new IOException("A replica did not start: " + line);
+            }
+            replicaPorts.add(Integer.parseInt(line.substring("Serving a replica on port ".length())));
+        }
+    }
+
+    /**
+     * Change the primary in every way that is copied to the replicas.
+     * @return The number of changes made
+     */
+    private int makeChanges() {
+        int changes = 0;
+        String organizer = login("organizer1@conference.com", "organizer1");
+        commandController.handle(command(organizer, UserOption.CREATE_USER, "type", "attendee",
+                "email", NEW_USER_EMAIL, "password", NEW_USER_PASSWORD, "name", "Replicated"));
+        changes++;
+
+        UUID roomId = conference.getRoomManager().getAllRoomIds().get(0);
+        List<UUID> added = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LocalDateTime time = LocalDate.now().plusDays(60 + i).atTime(9, 0);
+            UUID eventId = conference.getEventsManager().addEvent("Replicated event " + i, time, roomId, 10, 2,
+                    new ArrayList<>());
+            if (!conference.getRoomManager().bookRoom(roomId, time, eventId, 2)) {
+                violations.add("the room was already booked at " + time);
+            }
+            added.add(eventId);
+            changes++;
+        }
+
+        String[] attendees = {login("attendee1@conference.com", "attendee1"),
+                login("attendee2@conference.com", "attendee2"), login(NEW_USER_EMAIL, NEW_USER_PASSWORD)};
+        List<UUID> events = commandController.handle(command(attendees[0], UserOption.VIEW_ALL_EVENTS)).getIds();
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            UserOption option = random.nextBoolean() ? UserOption.SIGN_UP_FOR_EVENT : UserOption.CANCEL_SPOT_FOR_EVENT;
+            commandController.handle(command(attendees[random.nextInt(attendees.length)], option,
+                    "event", events.get(random.nextInt(events.size())).toString()));
+            changes++;
+        }
+
+        commandController.handle(command(organizer, UserOption.CANCEL_EVENT, "event", added.get(0).toString()));
+        changes++;
+        for (int i = 0; i < 50; i++) {
+            commandController.handle(command(attendees[0], UserOption.ACCESS_MESSAGING, "action", "send",
+                    "recipients", i % 2 == 0 ? "attendee2@conference.com" : NEW_USER_EMAIL,
+                    "content", "Replicated message " + i));
+            changes++;
+        }
+        conference.getNotificationDispatcher().awaitIdle();
+        return changes;
+    }
+
+    /**
+     * Wait for the primary to copy every changed entity.
+     * @return The sequence number of the primary's last record once it has
+     */
+    private long awaitQuiet() throws InterruptedException {
+        while (primary.getStatus().get("changedEntities") > 0) {
+            Thread.sleep(10);
+        }
+        // The shipper may still be copying the last entity it took.
+        Thread.sleep(50);
+        return primary.getLastSeq();
+    }
+
+    private void awaitApplied(int port, long target) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (System.currentTimeMillis() < deadline) {
+            Matcher applied = APPLIED_SEQ.matcher(get(port, "/status/replication"));
+            if (applied.find() && Long.parseLong(applied.group(1)) >= target) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        violations.add("the replica on port " + port + " did not apply record " + target + " within 30 s");
+    }
+
+    private void checkReplica(int port) throws IOException, InterruptedException {
+        String replicaGuest = session(get(port, "/api/EXPLORE_AS_A_GUEST"));
+        String primaryGuest = session(get(primaryServer.getPort(), "/api/EXPLORE_AS_A_GUEST"));
+        compare(port, "/api/VIEW_ALL_EVENTS", replicaGuest, primaryGuest);
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (UUID eventId : conference.getEventsManager().getAllEventIds()) {
+            days.add(conference.getEventsManager().getEventDateAndTime(eventId).toLocalDate());
+        }
+        for (LocalDate day : days) {
+            compare(port, "/api/VIEW_EVENTS_BY_DAY?date=" + encode(day.format(DATE_FORMAT)), replicaGuest,
+                    primaryGuest);
+        }
+
+        String login = "email=" + encode(NEW_USER_EMAIL) + "&password=" + encode(NEW_USER_PASSWORD);
+        if (!get(port, "/api/LOG_IN?" + login).contains("\"INVALID\"")) {
+            violations.add("the replica on port " + port + " accepted a password in the URL");
+        }
+        String replicaUser = session(post(port, "/api/LOG_IN", login));
+        if (replicaUser == null) {
+            violations.add("the user created on the primary cannot log in to the replica on port " + port);
+            return;
+        }
+        String primaryUser = session(post(primaryServer.getPort(), "/api/LOG_IN", login));
+        compare(port, "/api/ACCESS_MESSAGING?action=conversations", replicaUser, primaryUser);
+        compare(port, "/api/VIEW_SIGN_UP_EVENTS", replicaUser, primaryUser);
+
+        HttpResponse<String> write = send(port, "/api/SIGN_UP_FOR_EVENT?event=" +
+                conference.getEventsManager().getAllEventIds().get(0), replicaUser);
+        if (write.statusCode() != 403) {
+            violations.add("the replica on port " + port + " answered a sign-up with " + write.statusCode());
+        }
+    }
+
+    private void compare(int port, String path, String replicaSession, String primarySession)
+            throws IOException, InterruptedException {
+        String expected = withoutSession(send(primaryServer.getPort(), path, primarySession).body());
+        String actual = withoutSession(send(port, path, replicaSession).body());
+        if (!expected.equals(actual)) {
+            violations.add("the replica on port " + port + " answered " + path + " with " + actual + ", the primary " +
+                    "with " + expected);
+        }
+    }
+
+    /**
+     * Read the events from the first used replicas, spreading the clients over them.
+     * @return The number of reads per second
+     */
+    private long measureReads(int used, int clients, int reads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        AtomicLong failed = new AtomicLong();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int port = replicaPorts.get(c % used);
+            pool.execute(() -> {
+                try {
+                    String guest = session(get(port, "/api/EXPLORE_AS_A_GUEST"));
+                    for (int i = 0; i < reads / clients; i++) {
+                        if (send(port, "/api/VIEW_ALL_EVENTS", guest).statusCode() != 200) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } catch (IOException | InterruptedException e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        if (failed.get() > 0) {
+            violations.add(failed.get() + " reads from " + used + " replica(s) failed");
+        }
+        return (long) (reads / clients * clients) * 1000000000L / elapsed;
+    }
+
+    private String login(String email, String password) {
+        return commandController.handle(command(null, UserOption.LOG_IN, "email", email, "password", password))
+                .getSessionToken();
+    }
+
+    private static CommandRequest command(String token, UserOption option, String... parameters) {
+        HashMap<String, String> map = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            map.put(parameters[i], parameters[i + 1]);
+        }
+        return new CommandRequest(token, option, map);
+    }
+
+    private String get(int port, String path) throws IOException, InterruptedException {
+        return send(port, path, null).body();
+    }
+
+    private String post(int port, String path, String form) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private HttpResponse<String> send(int port, String path, String session) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (session != null) {
+            request.header(HttpCommandServer.SESSION_HEADER, session);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String session(String json) {
+        Matcher session = SESSION.matcher(json);
+        return session.find() && !session.group(1).equals("null") ?
+                session.group(1).substring(1, session.group(1).length() - 1) : null;
+    }
+
+    private static String withoutSession(String json) {
+        return SESSION.matcher(json).replaceAll("");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private void stop() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        for (Process process : processes) {
+            process.waitFor();
+        }
+        if (primaryServer != null) {
+            primaryServer.stop();
+        }
+        if (primary != null) {
+            primary.stop();
+        }
+    }
+}
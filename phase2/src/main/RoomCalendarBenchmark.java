@@ -0,0 +1,74 @@
+package main;
+
+import entities.Room;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Measures how long a room availability check takes with many bookings in one room, against a scan over a schedule
+ * kept the way it was before it was sorted: a HashMap from start time to event id and duration. Not part of the
+ * program; run it with "java main.RoomCalendarBenchmark [bookings] [checks]".
+ */
+public class RoomCalendarBenchmark {
+    private static final int BOOKINGS_PER_DAY = 20;
+
+    public static void main(String[] args) {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int checks = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        Room room = new Room("Room", 100, 0, 23);
+        HashMap<LocalDateTime, ArrayList<Object>> schedule = new HashMap<>();
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        for (int i = 0; i < bookings; i++) {
+            LocalDateTime start = firstDay.plusDays(i / BOOKINGS_PER_DAY).atTime(i % BOOKINGS_PER_DAY, 0);
+            UUID eventId = UUID.randomUUID();
+            room.bookRoom(start, eventId, 1);
+            schedule.put(start, new ArrayList<>(Arrays.asList(eventId, 1)));
+        }
+        int days = bookings / BOOKINGS_PER_DAY + 1;
+        LocalDateTime[] starts = new LocalDateTime[4096];
+        Random random = new Random(1);
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = firstDay.plusDays(random.nextInt(days)).atTime(random.nextInt(22), 30);
+        }
+
+        int scanChecks = Math.max(1, checks / 1000);
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("Round %d, %,d bookings%n", round + 1, bookings);
+            int free = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < checks; i++) {
+                if (room.checkRoomAvailability(starts[i % starts.length], 1)) {
+                    free++;
+                }
+            }
+            System.out.printf("  Sorted calendar: %,10d ns per check (%d free)%n",
+                    (System.nanoTime() - start) / checks, free);
+            free = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < scanChecks; i++) {
+                if (isFreeByScan(schedule, starts[i % starts.length], 1)) {
+                    free++;
+                }
+            }
+            System.out.printf("  HashMap scan:    %,10d ns per check (%d free)%n",
+                    (System.nanoTime() - start) / scanChecks, free);
+        }
+    }
+
+    /**
+     * The check over the old schedule, reading each booking's real duration.
+     */
+    private static boolean isFreeByScan(HashMap<LocalDateTime, ArrayList<Object>> schedule, LocalDateTime start,
+                                        int duration) {
+        LocalDateTime end = start.plusHours(duration);
+        for (Map.Entry<LocalDateTime, ArrayList<Object>> entry : schedule.entrySet()) {
+            LocalDateTime bookedEnd = entry.getKey().plusHours((Integer) entry.getValue().get(1));
+            if (entry.getKey().isBefore(end) && start.isBefore(bookedEnd)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,193 @@
+package main;
+
+import entities.Booking;
+import entities.Room;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Books random time slots in many rooms and checks every availability check, booking lookup and range query against a
+ * brute-force oracle that keeps the bookings in a flat list and scans all of them, the way the schedule was kept
+ * before it was sorted. Also checks that a room saved in the old format is read back without overlapping or empty
+ * bookings, and that a booking overlapping another is refused. Not part of the program; run it with "java main.RoomCalendarTest [rooms] [operations per room]".
+ * Exits with status 1 if any check fails.
+ */
+public class RoomCalendarTest {
+    private static final int DAYS = 7;
+    private static final int MAX_DURATION = 5;
+
+    private final List<String> violations = new ArrayList<>();
+    private final Random random = new Random(1);
+    private final LocalDate firstDay = LocalDate.now().plusDays(1);
+    private long checks = 0;
+
+    public static void main(String[] args) throws Exception {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        RoomCalendarTest test = new RoomCalendarTest();
+        for (int i = 0; i < rooms; i++) {
+            test.checkRoom(operations);
+        }
+        test.checkOldFormat();
+        for (String violation : test.violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.printf("Made %,d checks in %d rooms%n", test.checks, rooms);
+        System.out.println(test.violations.isEmpty() ? "All checks passed." :
+                test.violations.size() + " checks failed.");
+        System.exit(test.violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * A booking in the oracle.
+     */
+    private static class Slot {
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final UUID eventId;
+
+        Slot(LocalDateTime start, LocalDateTime end, UUID eventId) {
+            this.start = start;
+            this.end = end;
+            this.eventId = eventId;
+        }
+
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return start.isBefore(to) && from.isBefore(end);
+        }
+    }
+
+    private void checkRoom(int operations) {
+        int opening = random.nextInt(12);
+        int closing = opening + 1 + random.nextInt(23 - opening);
+        Room room = new Room("Room", 10, opening, closing);
+        List<Slot> oracle = new ArrayList<>();
+        for (int i = 0; i < operations; i++) {
+            LocalDateTime start = randomTime();
+            int duration = random.nextInt(MAX_DURATION + 1);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                boolean expected = isFree(oracle, start, duration, opening, closing);
+                boolean actual = room.checkRoomAvailability(start, duration);
+                expect(actual == expected, "availability at " + start + " for " + duration + "h was " + actual);
+                if (actual && expected) {
+                    UUID eventId = UUID.randomUUID();
+                    expect(room.bookRoom(start, eventId, duration), "the free slot at " + start + " was not booked");
+                    oracle.add(new Slot(start, start.plusHours(duration), eventId));
+                } else if (duration == 0 || overlapsAny(oracle, start, start.plusHours(duration))) {
+                    expect(!room.bookRoom(start, UUID.randomUUID(), duration), "an overlapping or empty booking at " +
+                            start + " for " + duration + "h was accepted");
+                } else if (!oracle.isEmpty() && random.nextBoolean()) {
+                    // Moving a booking onto a taken slot must leave it where it was.
+                    Slot moved = oracle.get(random.nextInt(oracle.size()));
+                    Slot other = oracle.get(random.nextInt(oracle.size()));
+                    if (moved != other && !room.bookRoom(other.start, moved.eventId, 1)) {
+                        Booking kept = room.getBooking(moved.eventId);
+                        expect(kept != null && kept.getStart().equals(moved.start), "a refused move lost a booking");
+                    } else if (moved != other) {
+                        violations.add("a booking was moved onto another at " + other.start);
+                    }
+                }
+            } else if (operation < 8 && !oracle.isEmpty()) {
+                Slot removed = oracle.remove(random.nextInt(oracle.size()));
+                expect(room.removeBooking(removed.eventId), "the booking at " + removed.start + " was not removed");
+                expect(room.getBooking(removed.eventId) == null, "a removed booking was still found");
+            } else {
+                LocalDateTime to = start.plusHours(1 + random.nextInt(48));
+                checkRange(room, oracle, start, to);
+            }
+        }
+        for (Slot slot : oracle) {
+            Booking booking = room.getBooking(slot.eventId);
+            expect(booking != null && booking.getStart().equals(slot.start) && booking.getEnd().equals(slot.end),
+                    "the booking of " + slot.eventId + " does not match");
+        }
+        expect(room.getBookedEventIds().size() == oracle.size(), "the room has " + room.getBookedEventIds().size() +
+                " bookings, expected " + oracle.size());
+    }
+
+    private void checkRange(Room room, List<Slot> oracle, LocalDateTime from, LocalDateTime to) {
+        List<UUID> expected = new ArrayList<>();
+        oracle.stream().filter(slot -> slot.overlaps(from, to)).sorted(Comparator.comparing(slot -> slot.start))
+                .forEach(slot -> expected.add(slot.eventId));
+        List<UUID> actual = new ArrayList<>();
+        for (Booking booking : room.getBookings(from, to)) {
+            actual.add(booking.getEventId());
+        }
+        expect(actual.equals(expected), "the bookings from " + from + " to " + to + " were " + actual.size() +
+                ", expected " + expected.size());
+    }
+
+    private static boolean overlapsAny(List<Slot> oracle, LocalDateTime start, LocalDateTime end) {
+        for (Slot slot : oracle) {
+            if (slot.overlaps(start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFree(List<Slot> oracle, LocalDateTime start, int duration, int opening, int closing) {
+        if (duration <= 0) {
+            return false;
+        }
+        LocalDateTime end = start.plusHours(duration);
+        if (start.isBefore(start.toLocalDate().atTime(opening, 0)) ||
+                end.isAfter(start.toLocalDate().atTime(closing, 0))) {
+            return false;
+        }
+        return !overlapsAny(oracle, start, end);
+    }
+
+    private LocalDateTime randomTime() {
+        return firstDay.plusDays(random.nextInt(DAYS)).atTime(random.nextInt(24), random.nextInt(4) * 15);
+    }
+
+    /**
+     * Save a room with a schedule in the old format, including an overlapping and an empty booking, and read it back.
+     */
+    private void checkOldFormat() throws Exception {
+        Room room = new Room("Old room", 10, 8, 20);
+        LocalDateTime nine = firstDay.atTime(9, 0);
+        UUID kept = UUID.randomUUID();
+        UUID overlapping = UUID.randomUUID();
+        UUID empty = UUID.randomUUID();
+        UUID following = UUID.randomUUID();
+        HashMap<LocalDateTime, ArrayList<Object>> schedule = new HashMap<>();
+        schedule.put(nine, new ArrayList<>(Arrays.asList(kept, 2)));
+        schedule.put(nine.plusHours(1), new ArrayList<>(Arrays.asList(overlapping, 2)));
+        schedule.put(nine.plusHours(5), new ArrayList<>(Arrays.asList(empty, 0)));
+        schedule.put(nine.plusHours(2), new ArrayList<>(Arrays.asList(following, 1)));
+        setField(room, "bookings", null);
+        setField(room, "schedule", schedule);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(room);
+        }
+        Room read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Room) in.readObject();
+        }
+        expect(new HashSet<>(read.getBookedEventIds()).equals(new HashSet<>(Arrays.asList(kept, following))),
+                "the old room was read with bookings " + read.getBookedEventIds());
+        expect(!read.checkRoomAvailability(nine.plusHours(1), 1), "the old room's bookings were not checked");
+    }
+
+    private static void setField(Room room, String name, Object value) throws ReflectiveOperationException {
+        Field field = Room.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(room, value);
+    }
+
+    private void expect(boolean holds, String violation) {
+        checks++;
+        if (!holds) {
+            violations.add(violation);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package main;
+
+import controllers.Conference;
+import gateways.SessionServer;
+
+import java.io.IOException;
+
+/**
+ * Runs the conference for clients connecting over sockets (see SessionServer) until the JVM is stopped, then saves.
+ * Run it with "java main.SessionApp [port]"; the port defaults to 9090. Connect with e.g. "nc localhost 9090".
+ */
+public class SessionApp {
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        Conference conference = new Conference();
+        SessionServer server = new SessionServer(conference, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            conference.save();
+        }));
+        server.start();
+        System.out.println("Accepting sessions on port " + server.getPort());
+    }
+}
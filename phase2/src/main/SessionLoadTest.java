@@ -0,0 +1,222 @@
+package main;
+
+import controllers.Conference;
+import gateways.SessionServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Connects many clients to a session server at once and measures how long it takes to answer their commands. Every
+ * client logs in as a demo attendee; once all of them are logged in, each sends its commands (viewing all events,
+ * the events available to it, and its own events), one after the other, and disconnects. The latency of a command is
+ * the time from sending it until the menu is shown again.
+ * The clients all run on one thread with non-blocking sockets, so that the test itself needs no thread per session.
+ * Not part of the program; run it with
+ * "java main.SessionLoadTest [sessions] [commands per session] [host port]".
+ * Without a host and port it starts a SessionServer in this JVM, which then needs two file descriptors per session.
+ */
+public class SessionLoadTest {
+    private static final String MENU = "Selection: ";
+    private static final String[] COMMANDS = {"2", "3", "4"};
+    private static final String[][] ATTENDEES = {{"attendee1@conference.com", "attendee1"},
+            {"attendee2@conference.com", "attendee2"}};
+    private static final int MAX_PENDING_CONNECTS = 256;
+
+    private final Selector selector = Selector.open();
+    private final InetSocketAddress address;
+    private final int commands;
+    private final long[] latencies;
+    private int recorded = 0;
+    private int loggedIn = 0;
+    private int finished = 0;
+    private int failed = 0;
+    private int failedToLogIn = 0;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+
+    private SessionLoadTest(InetSocketAddress address, int sessions, int commands) throws IOException {
+        this.address = address;
+        this.commands = commands;
+        this.latencies = new long[sessions * commands];
+    }
+
+    public static void main(String[] args) throws IOException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        SessionServer server = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            address = new InetSocketAddress(args[2], Integer.parseInt(args[3]));
+        } else {
+            server = new SessionServer(new Conference(), 0);
+            server.start();
+            address = new InetSocketAddress("localhost", server.getPort());
+        }
+        new SessionLoadTest(address, sessions, commands).run(sessions);
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private void run(int sessions) throws IOException {
+        List<Client> clients = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < sessions; i++) {
+            clients.add(new Client(ATTENDEES[i % ATTENDEES.length], random));
+        }
+        long start = System.nanoTime();
+        long commandsStart = 0;
+        int opened = 0;
+        int pendingConnects = 0;
+        while (finished + failed < sessions) {
+            while (opened < sessions && pendingConnects < MAX_PENDING_CONNECTS) {
+                Client client = clients.get(opened++);
+                client.channel = SocketChannel.open();
+                client.channel.configureBlocking(false);
+                client.channel.connect(address);
+                client.channel.register(selector, SelectionKey.OP_CONNECT, client);
+                pendingConnects++;
+            }
+            selector.select(1000);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        client.channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                        pendingConnects--;
+                    } else if (key.isReadable()) {
+                        read(client);
+                    }
+                } catch (IOException e) {
+                    if (!client.channel.isConnected()) {
+                        pendingConnects--;
+                    }
+                    if (client.step < 4) {
+                        failedToLogIn++;
+                    }
+                    failed++;
+                    key.cancel();
+                    client.channel.close();
+                }
+            }
+            if (commandsStart == 0 && loggedIn + failedToLogIn == sessions) {
+                commandsStart = System.nanoTime();
+                System.out.printf("%d sessions connected and logged in after %d ms%n", loggedIn,
+                        (commandsStart - start) / 1000000);
+                for (Client client : clients) {
+                    if (client.channel.isOpen()) {
+                        sendCommand(client);
+                    }
+                }
+            }
+        }
+        long elapsed = Math.max(1, System.nanoTime() - Math.max(commandsStart, start));
+        Arrays.sort(latencies, 0, recorded);
+        System.out.printf("%d commands in %d ms (%,d commands/s), %d sessions failed%n", recorded,
+                elapsed / 1000000, recorded * 1000000000L / elapsed, failed);
+        if (recorded > 0) {
+            System.out.printf("Command latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", percentile(0.50),
+                    percentile(0.99), latencies[recorded - 1] / 1e6);
+        }
+    }
+
+    private double percentile(double p) {
+        return latencies[Math.min(recorded - 1, (int) (recorded * p))] / 1e6;
+    }
+
+    /**
+     * Read what the server sent, and answer once it asks for the next input.
+     */
+    private void read(Client client) throws IOException {
+        readBuffer.clear();
+        int read = client.channel.read(readBuffer);
+        if (read < 0) {
+            throw new IOException("The server closed the session.");
+        }
+        client.tail.append(new String(readBuffer.array(), 0, read, StandardCharsets.ISO_8859_1));
+        if (client.tail.length() > 64) {
+            client.tail.delete(0, client.tail.length() - 64);
+        }
+        String tail = client.tail.toString();
+        switch (client.step) {
+            case 0:
+                if (tail.endsWith(MENU)) {
+                    send(client, "1", 1);
+                }
+                break;
+            case 1:
+                if (tail.endsWith("Email: ")) {
+                    send(client, client.credentials[0], 2);
+                }
+                break;
+            case 2:
+                if (tail.endsWith("Password: ")) {
+                    send(client, client.credentials[1], 3);
+                }
+                break;
+            case 3:
+                if (tail.endsWith(MENU)) {
+                    client.step = 4;
+                    loggedIn++;
+                }
+                break;
+            default:
+                if (client.sentAt != 0 && tail.endsWith(MENU)) {
+                    latencies[recorded++] = System.nanoTime() - client.sentAt;
+                    client.sentAt = 0;
+                    if (++client.done == commands) {
+                        finished++;
+                        client.channel.close();
+                    } else {
+                        sendCommand(client);
+                    }
+                }
+        }
+    }
+
+    private void sendCommand(Client client) throws IOException {
+        client.sentAt = System.nanoTime();
+        send(client, COMMANDS[client.random.nextInt(COMMANDS.length)], client.step);
+    }
+
+    private void send(Client client, String line, int nextStep) throws IOException {
+        client.tail.setLength(0);
+        client.step = nextStep;
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            client.channel.write(buffer);
+        }
+    }
+
+    /**
+     * One simulated client: where it is in logging in, and when its current command was sent.
+     */
+    private static class Client {
+        private final String[] credentials;
+        private final Random random;
+        private final StringBuilder tail = new StringBuilder();
+        private SocketChannel channel;
+        private int step = 0;
+        private int done = 0;
+        private long sentAt = 0;
+
+        Client(String[] credentials, Random random) {
+            this.credentials = credentials;
+            this.random = new Random(random.nextLong());
+        }
+    }
+}
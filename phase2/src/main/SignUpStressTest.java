@@ -0,0 +1,136 @@
+package main;
+
+import controllers.OrganizerController;
+import controllers.UserController;
+import enums.UserType;
+import use_cases.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Releases a burst of sign-ups to a few events on many threads at once, far more than the events have seats, and
+ * checks that no event is overbooked: each fills exactly to the smaller of its capacity and its room's, everyone else
+ * ends up on its waitlist, and every attendee has the event registered. Not part of the program; run it with
+ * "java main.SignUpStressTest [rounds] [sign-ups per round] [threads]". Exits with status 1 if any check fails.
+ */
+public class SignUpStressTest {
+    private static final int EVENTS = 10;
+
+    private final List<String> violations = new ArrayList<>();
+    private final Random random = new Random(1);
+    private final LocalDate firstDay = LocalDate.now().plusDays(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int signUps = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        SignUpStressTest test = new SignUpStressTest();
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            test.runRound(signUps / EVENTS, threads);
+        }
+        System.out.printf("%d rounds of %,d sign-ups to %d events on %d threads in %d ms%n", rounds,
+                signUps / EVENTS * EVENTS, EVENTS, threads, (System.nanoTime() - start) / 1000000);
+        for (String violation : test.violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.println(test.violations.isEmpty() ? "No event was overbooked." :
+                test.violations.size() + " checks failed.");
+        System.exit(test.violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Every user signs up to every event, in their own order. A user is only ever logged in on one thread, as with
+     * real logins, and all the threads start together.
+     */
+    private void runRound(int users, int threads) throws InterruptedException {
+        UserManager userManager = new UserManager(new ArrayList<>());
+        EventsManager eventsManager = new EventsManager(new HashMap<>());
+        RoomManager roomManager = new RoomManager(new HashMap<>());
+        NotificationDispatcher notificationDispatcher =
+                new NotificationDispatcher(userManager, new ConversationManager(new ArrayList<>()), 1, 16);
+        for (int i = 0; i < users; i++) {
+            userManager.createUser("Attendee" + i, "attendee" + i + "@stress", "attendee", UserType.ATTENDEE);
+        }
+        OrganizerController organizerController = new OrganizerController();
+        List<UUID> eventIds = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            // Half the events are limited by their own capacity and half by their room's.
+            int capacity = 20 + random.nextInt(100);
+            int roomCapacity = i % 2 == 0 ? capacity + 10 : capacity - 10;
+            UUID roomId = roomManager.addRoom("Room" + i, roomCapacity, 9, 21);
+            organizerController.createNewEvent(roomManager, eventsManager, notificationDispatcher, "Event" + i,
+                    firstDay.atTime(10, 0), roomId, new HashSet<>(), Math.min(capacity, roomCapacity), 1,
+                    new ArrayList<>());
+            UUID eventId = roomManager.getBookings(roomId, LocalDateTime.MIN, LocalDateTime.MAX).get(0).getEventId();
+            eventsManager.setCapacity(eventId, capacity);
+            eventIds.add(eventId);
+        }
+
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                UserManager session = userManager.newSession();
+                UserController userController = new UserController();
+                List<UUID> order = new ArrayList<>(eventIds);
+                Random shuffle = new Random(thread);
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int user = thread; user < users; user += threads) {
+                    session.login("attendee" + user + "@stress", "attendee");
+                    Collections.shuffle(order, shuffle);
+                    for (UUID eventId : order) {
+                        userController.signUpToEvent(session, eventsManager, roomManager, eventId);
+                    }
+                }
+            });
+        }
+        ready.await();
+        go.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        checkRound(userManager, eventsManager, roomManager, eventIds, users);
+    }
+
+    private void checkRound(UserManager userManager, EventsManager eventsManager, RoomManager roomManager,
+                            List<UUID> eventIds, int users) {
+        HashMap<UUID, Integer> registered = new HashMap<>();
+        for (int i = 0; i < users; i++) {
+            UserManager session = userManager.newSession();
+            session.login("attendee" + i + "@stress", "attendee");
+            for (UUID eventId : session.getEventList()) {
+                registered.merge(eventId, 1, Integer::sum);
+                if (!eventsManager.getAttendeeList(eventId).contains(session.getActiveUserId())) {
+                    violations.add("attendee" + i + " has " + eventId + " registered but is not attending");
+                }
+            }
+        }
+        for (UUID eventId : eventIds) {
+            int seats = Math.min(eventsManager.getCapacity(eventId),
+                    roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId)));
+            int attending = eventsManager.getAttendeeList(eventId).size();
+            int waiting = eventsManager.getWaitlist(eventId).size();
+            if (attending != seats) {
+                violations.add("event " + eventId + " has " + attending + " attendees for " + seats + " seats");
+            }
+            if (attending + waiting != users) {
+                violations.add("event " + eventId + " has " + attending + " attendees and " + waiting +
+                        " waiting, but " + users + " users signed up");
+            }
+            if (registered.getOrDefault(eventId, 0) != attending) {
+                violations.add("event " + eventId + " has " + attending + " attendees but " +
+                        registered.getOrDefault(eventId, 0) + " users have it registered");
+            }
+        }
+    }
+}
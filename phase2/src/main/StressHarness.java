@@ -0,0 +1,279 @@
+package main;
+
+import controllers.OrganizerController;
+import controllers.UserController;
+import entities.Booking;
+import entities.User;
+import enums.ConvoType;
+import enums.UserType;
+import use_cases.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many sessions against one set of managers at the same time, then checks that the managers still agree with
+ * each other. Also measures how reads scale with the number of threads. Not part of the program; run it with
+ * "java main.StressHarness [threads] [operations per thread]". Exits with status 1 if any check fails.
+ */
+public class StressHarness {
+    private static final int ATTENDEES = 400;
+    private static final int ROOMS = 20;
+    private static final int EVENTS = 200;
+    private static final int CONVERSATIONS = 50;
+    private static final int SPEAKERS = 5;
+    private static final int NEW_EMAILS = 50;
+    private static final int READ_OPERATIONS = 200000;
+
+    private final UserManager userManager = new UserManager(new ArrayList<>());
+    private final EventsManager eventsManager = new EventsManager(new HashMap<>());
+    private final RoomManager roomManager = new RoomManager(new HashMap<>());
+    private final ConversationManager conversationManager = new ConversationManager(new ArrayList<>());
+    private final EventCatalogue eventCatalogue = new EventCatalogue(eventsManager, roomManager);
+    private final NotificationDispatcher notificationDispatcher =
+            new NotificationDispatcher(userManager, conversationManager, 2, 1024);
+    private final List<UUID> roomIds = new ArrayList<>();
+    private final List<UUID> conversationIds = new ArrayList<>();
+    private final List<UUID> speakerIds = new ArrayList<>();
+    private final Map<UUID, AtomicInteger> messagesSent = new ConcurrentHashMap<>();
+    private final LocalDate firstDay = LocalDate.now().plusDays(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        StressHarness harness = new StressHarness();
+        harness.setUp();
+
+        long start = System.nanoTime();
+        harness.runMixed(threads, operations);
+        System.out.printf("Mixed load: %d threads x %d operations in %d ms%n", threads, operations,
+                (System.nanoTime() - start) / 1000000);
+
+        harness.notificationDispatcher.awaitIdle();
+        List<String> violations = harness.checkInvariants();
+        for (String violation : violations) {
+            System.out.println("FAILED: " + violation);
+        }
+        System.out.println(violations.isEmpty() ? "All invariants hold." : violations.size() + " invariants broken.");
+
+        for (int n = 1; n <= threads; n *= 2) {
+            System.out.printf("Read-heavy load, %2d threads: %,d operations/s%n", n, harness.runReads(n));
+        }
+        if (!violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private void setUp() {
+        userManager.createUser("Organizer", "organizer@stress", "organizer", UserType.ORGANIZER);
+        for (int i = 0; i < ATTENDEES; i++) {
+            userManager.createUser("Attendee" + i, "attendee" + i + "@stress", "attendee", UserType.ATTENDEE);
+        }
+        for (int i = 0; i < ROOMS; i++) {
+            roomIds.add(roomManager.addRoom("Room" + i, 5 + i % 10, 9, 21));
+        }
+        for (int i = 0; i < SPEAKERS; i++) {
+            userManager.createUser("Speaker" + i, "speaker" + i + "@stress", "speaker", UserType.SPEAKER);
+            speakerIds.add(userManager.getUserIdByIndex(userManager.findUserByEmail("speaker" + i + "@stress")));
+        }
+        Random random = new Random(1);
+        OrganizerController organizerController = new OrganizerController();
+        while (eventsManager.getAllEventIds().size() < EVENTS) {
+            UUID roomId = roomIds.get(random.nextInt(ROOMS));
+            organizerController.createNewEvent(roomManager, eventsManager, notificationDispatcher, "Event",
+                    randomStart(random), roomId, new HashSet<>(), 1 + random.nextInt(5), 1 + random.nextInt(2),
+                    new ArrayList<>());
+        }
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            List<UUID> participants = new ArrayList<>();
+            participants.add(userManager.getUserIdByIndex(1 + i));
+            participants.add(userManager.getUserIdByIndex(1 + (i + 1) % ATTENDEES));
+            UUID conversationId = conversationManager.createConversation(participants, ConvoType.DIRECT);
+            conversationIds.add(conversationId);
+            messagesSent.put(conversationId, new AtomicInteger());
+        }
+    }
+
+    private LocalDateTime randomStart(Random random) {
+        return firstDay.plusDays(random.nextInt(5)).atTime(9 + random.nextInt(10), 0);
+    }
+
+    /**
+     * Each thread runs a session that signs its own users up to and out of events, while organizer sessions change
+     * capacities, create events, add speakers and create accounts, and everyone sends and searches messages. A user is only ever logged in on one
+     * thread, as with real logins, but users are promoted off waitlists by other threads.
+     */
+    private void runMixed(int threads, int operations) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                Random random = new Random(thread);
+                UserManager session = userManager.newSession();
+                UserManager organizer = userManager.newSession();
+                organizer.login("organizer@stress", "organizer");
+                UserController userController = new UserController();
+                OrganizerController organizerController = new OrganizerController();
+                for (int i = 0; i < operations; i++) {
+                    List<UUID> eventIds = eventCatalogue.getSnapshot().getEventIds();
+                    UUID eventId = eventIds.get(random.nextInt(eventIds.size()));
+                    int attendee = thread + threads * random.nextInt(ATTENDEES / threads);
+                    session.login("attendee" + attendee + "@stress", "attendee");
+                    int choice = random.nextInt(100);
+                    if (choice < 40) {
+                        userController.signUpToEvent(session, eventsManager, roomManager, eventId);
+                    } else if (choice < 70) {
+                        userController.disEnrollToEvent(session, eventsManager, roomManager, notificationDispatcher,
+                                eventId);
+                    } else if (choice < 78) {
+                        organizerController.changeEventCapacity(eventsManager, organizer, roomManager,
+                                notificationDispatcher, eventId, 1 + random.nextInt(8));
+                    } else if (choice < 80) {
+                        organizerController.createNewEvent(roomManager, eventsManager,
+                                notificationDispatcher, "Event", randomStart(random), roomIds.get(random.nextInt(ROOMS)),
+                                new HashSet<>(), 1 + random.nextInt(5), 1 + random.nextInt(2), new ArrayList<>());
+                    } else if (choice < 84) {
+                        organizerController.addSpeaker(eventsManager, notificationDispatcher,
+                                speakerIds.get(random.nextInt(SPEAKERS)), eventId);
+                    } else if (choice < 86) {
+                        organizerController.createUser(userManager, "new" + random.nextInt(NEW_EMAILS) + "@stress",
+                                "new", "New", UserType.ATTENDEE.name());
+                    } else if (choice < 92) {
+                        UUID conversationId = conversationIds.get(random.nextInt(CONVERSATIONS));
+                        conversationManager.sendMessage("stress message " + i, session.getActiveUserId(),
+                                conversationId);
+                        messagesSent.get(conversationId).incrementAndGet();
+                    } else {
+                        eventsManager.getNoConflictEventIds(session.getEventList());
+                        conversationManager.searchMessages("stress", new HashMap<>(), 5);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+    }
+
+    private List<String> checkInvariants() {
+        List<String> violations = new ArrayList<>();
+        HashMap<UUID, Set<UUID>> attendeesByEvent = new HashMap<>();
+        for (UUID eventId : eventsManager.getAllEventIds()) {
+            Set<UUID> attendees = eventsManager.getAttendeeList(eventId);
+            attendeesByEvent.put(eventId, attendees);
+            int seats = Math.min(eventsManager.getCapacity(eventId),
+                    roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId)));
+            if (attendees.size() > seats) {
+                violations.add("event " + eventId + " has " + attendees.size() + " attendees for " + seats + " seats");
+            }
+            for (UUID attendee : attendees) {
+                if (eventsManager.getWaitlistPosition(eventId, attendee) != 0) {
+                    violations.add("user " + attendee + " is both attending and waiting for " + eventId);
+                }
+            }
+        }
+        for (User user : userManager.getAllUsers()) {
+            for (UUID eventId : eventsManager.getWaitlistedEventIds(user.getId())) {
+                int seats = Math.min(eventsManager.getCapacity(eventId),
+                        roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId)));
+                if (attendeesByEvent.get(eventId).size() < seats) {
+                    violations.add("user " + user.getId() + " is waiting for " + eventId + " which has a free seat");
+                }
+            }
+            UserManager session = userManager.newSession();
+            session.login(user.getEmail(), user.getPassword());
+            List<UUID> registered = session.getEventList();
+            if (new HashSet<>(registered).size() != registered.size()) {
+                violations.add("user " + user.getId() + " has an event registered twice");
+            }
+            for (UUID eventId : registered) {
+                if (!attendeesByEvent.containsKey(eventId) || !attendeesByEvent.get(eventId).contains(user.getId())) {
+                    violations.add("user " + user.getId() + " has event " + eventId + " registered but is not attending");
+                }
+            }
+        }
+        for (Map.Entry<UUID, Set<UUID>> event : attendeesByEvent.entrySet()) {
+            for (UUID attendee : event.getValue()) {
+                UserManager session = userManager.newSession();
+                User user = session.getUserByIndex(session.findUserIndexById(attendee));
+                session.login(user.getEmail(), user.getPassword());
+                if (!session.getEventList().contains(event.getKey())) {
+                    violations.add("user " + attendee + " attends " + event.getKey() + " but does not have it registered");
+                }
+            }
+        }
+        for (UUID roomId : roomIds) {
+            Booking previous = null;
+            for (Booking booking : roomManager.getBookings(roomId, LocalDateTime.MIN, LocalDateTime.MAX)) {
+                if (previous != null && previous.getEnd().isAfter(booking.getStart())) {
+                    violations.add("room " + roomId + " is double booked at " + booking.getStart());
+                }
+                previous = booking;
+            }
+        }
+        for (UUID speakerId : speakerIds) {
+            List<UUID> talks = eventsManager.getSpeakerEventIds(speakerId);
+            for (int i = 0; i < talks.size(); i++) {
+                LocalDateTime start = eventsManager.getEventDateAndTime(talks.get(i));
+                LocalDateTime end = start.plusHours(eventsManager.getDuration(talks.get(i)));
+                for (int j = i + 1; j < talks.size(); j++) {
+                    LocalDateTime otherStart = eventsManager.getEventDateAndTime(talks.get(j));
+                    if (otherStart.isBefore(end) &&
+                            start.isBefore(otherStart.plusHours(eventsManager.getDuration(talks.get(j))))) {
+                        violations.add("speaker " + speakerId + " speaks at two events at " + otherStart);
+                    }
+                }
+            }
+        }
+        Set<String> emails = new HashSet<>();
+        for (User user : userManager.getAllUsers()) {
+            if (!emails.add(user.getEmail())) {
+                violations.add("the email " + user.getEmail() + " is registered twice");
+            }
+        }
+        for (UUID conversationId : conversationIds) {
+            int expected = messagesSent.get(conversationId).get();
+            int actual = conversationManager.getMessageListSize(conversationId);
+            if (expected != actual) {
+                violations.add("conversation " + conversationId + " has " + actual + " messages, " + expected + " were sent");
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Run a fixed number of catalogue, schedule and message reads split across the given number of threads.
+     * @return the number of operations per second
+     */
+    private long runReads(int threads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicLong checksum = new AtomicLong();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                Random random = new Random(thread);
+                UserManager session = userManager.newSession();
+                session.login("attendee" + thread + "@stress", "attendee");
+                long sum = 0;
+                for (int i = 0; i < READ_OPERATIONS / threads; i++) {
+                    List<UUID> eventIds = eventCatalogue.getSnapshot().getEventIds();
+                    UUID eventId = eventIds.get(random.nextInt(eventIds.size()));
+                    sum += eventsManager.getNumAttendees(eventId);
+                    sum += eventsManager.getEventName(eventId).length();
+                    sum += roomManager.getRoomCapacity(eventsManager.getEventRoomId(eventId));
+                    sum += session.getEventList().size();
+                    sum += conversationManager.getMessagesPage(random.nextInt(CONVERSATIONS), 0, 10, true).size();
+                }
+                checksum.addAndGet(sum);
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        return checksum.get() == Long.MIN_VALUE ? 0 : READ_OPERATIONS * 1000000000L / elapsed;
+    }
+}
@@ -0,0 +1,156 @@
+package main;
+
+import controllers.CommandController;
+import controllers.Conference;
+import enums.SignUpStatus;
+import enums.UserOption;
+import use_cases.*;
+import value_holders.CommandRequest;
+import value_holders.CommandResult;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Measures how many changes per second the managers take when every change is submitted to a WriterLoop, against
+ * threads making the same changes themselves under the managers' locks. The changes are users signing up to and
+ * leaving events. Also measures sign-up commands through a CommandController in both modes, on the conference in the
+ * working directory (or the demo data). Not part of the program; run it with
+ * "java main.WriterLoopBenchmark [threads] [changes per thread]".
+ */
+public class WriterLoopBenchmark {
+    private static final int USERS = 2000;
+    private static final int EVENTS = 200;
+    private static final int WINDOW = 256;
+
+    private final EventsManager eventsManager = new EventsManager(new HashMap<>());
+    private final RoomManager roomManager = new RoomManager(new HashMap<>());
+    private final EventCatalogue eventCatalogue = new EventCatalogue(eventsManager, roomManager);
+    private final List<UUID> eventIds = new ArrayList<>();
+    private final List<UUID> userIds = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        WriterLoopBenchmark benchmark = new WriterLoopBenchmark();
+        benchmark.setUp();
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("Round %d%n", round + 1);
+            System.out.printf("  Locks, %d threads:       %,10d changes/s%n", threads,
+                    benchmark.runLocked(threads, changes));
+            WriterLoop writerLoop = new WriterLoop(65536, () -> benchmark.eventCatalogue.getSnapshot());
+            System.out.printf("  Writer loop, %d threads: %,10d changes/s%n", threads,
+                    benchmark.runWriterLoop(writerLoop, threads, changes));
+            writerLoop.stop();
+        }
+        Conference conference = new Conference();
+        // Every command comes from a handful of demo users, far faster than any person could send them.
+        conference.getRateLimiter().setEnabled(false);
+        conference.getAdmissionController().setEnabled(false);
+        System.out.printf("Sign-up commands, locks:       %,10d commands/s%n",
+                runCommands(new CommandController(conference), threads, changes / 10));
+        WriterLoop writerLoop = new WriterLoop(65536, () -> conference.getEventCatalogue().getSnapshot());
+        System.out.printf("Sign-up commands, writer loop: %,10d commands/s%n",
+                runCommands(new CommandController(conference, writerLoop), threads, changes / 10));
+        writerLoop.stop();
+    }
+
+    private void setUp() {
+        UUID roomId = roomManager.addRoom("Room", 100, 0, 23);
+        for (int i = 0; i < EVENTS; i++) {
+            eventIds.add(eventsManager.addEvent("Event" + i, LocalDateTime.now().plusDays(1 + i), roomId, 20, 1,
+                    new ArrayList<>()));
+        }
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+    }
+
+    /**
+     * The change made by each step: the user signs up to the event, or leaves it if already signed up.
+     */
+    private Supplier<Object> change(Random random) {
+        UUID eventId = eventIds.get(random.nextInt(EVENTS));
+        UUID userId = userIds.get(random.nextInt(USERS));
+        return () -> {
+            SignUpStatus status = eventsManager.signUpOrWait(eventId, userId, 100);
+            if (status == SignUpStatus.ALREADY_SIGNED_UP || status == SignUpStatus.ALREADY_WAITLISTED) {
+                return eventsManager.removeAttendeeAndPromote(eventId, userId, 100);
+            }
+            return status;
+        };
+    }
+
+    private long runLocked(int threads, int changes) throws InterruptedException {
+        return timed(threads, changes, thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < changes; i++) {
+                change(random).get();
+            }
+        });
+    }
+
+    private long runWriterLoop(WriterLoop writerLoop, int threads, int changes) throws InterruptedException {
+        return timed(threads, changes, thread -> {
+            Random random = new Random(thread);
+            ArrayDeque<CompletableFuture<Object>> outstanding = new ArrayDeque<>();
+            for (int i = 0; i < changes; i++) {
+                outstanding.add(writerLoop.submit(change(random)));
+                if (outstanding.size() >= WINDOW) {
+                    outstanding.poll().join();
+                }
+            }
+            outstanding.forEach(CompletableFuture::join);
+        });
+    }
+
+    private static long runCommands(CommandController commandController, int threads, int commands)
+            throws InterruptedException {
+        String[][] attendees = {{"attendee1@conference.com", "attendee1"}, {"attendee2@conference.com", "attendee2"}};
+        return timed(threads, commands, thread -> {
+            HashMap<String, String> credentials = new HashMap<>();
+            credentials.put("email", attendees[thread % 2][0]);
+            credentials.put("password", attendees[thread % 2][1]);
+            String token = commandController.handle(new CommandRequest(null, UserOption.LOG_IN, credentials))
+                    .getSessionToken();
+            List<UUID> events = commandController.handle(new CommandRequest(token, UserOption.VIEW_ALL_EVENTS,
+                    new HashMap<>())).getIds();
+            Random random = new Random(thread);
+            ArrayDeque<CompletableFuture<CommandResult>> outstanding = new ArrayDeque<>();
+            for (int i = 0; i < commands; i++) {
+                HashMap<String, String> parameters = new HashMap<>();
+                parameters.put("event", events.get(random.nextInt(events.size())).toString());
+                UserOption option = i % 2 == 0 ? UserOption.SIGN_UP_FOR_EVENT : UserOption.CANCEL_SPOT_FOR_EVENT;
+                outstanding.add(commandController.submit(new CommandRequest(token, option, parameters)));
+                if (outstanding.size() >= WINDOW) {
+                    outstanding.poll().join();
+                }
+            }
+            outstanding.forEach(CompletableFuture::join);
+        });
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    private static long timed(int threads, int perThread, Work work) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    work.run(thread);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        return (long) threads * perThread * 1000000000L / (System.nanoTime() - start);
+    }
+}
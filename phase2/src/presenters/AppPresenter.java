@@ -1,15 +1,40 @@
 package presenters;
 
+import java.io.PrintStream;
+
 /**
  * Displays information for the user to view.
  */
 public class AppPresenter {
+    private final PrintStream out;
+
+    /**
+     * Constructor for an AppPresenter that displays to the console.
+     */
+    public AppPresenter() {
+        this(System.out);
+    }
+
+    /**
+     * Constructor for an AppPresenter that displays to the given stream, such as a connected client's.
+     * @param out the stream to display to
+     */
+    public AppPresenter(PrintStream out) {
+        this.out = out;
+    }
 
     public void println(String str){
-        System.out.println(str);
+        out.println(str);
     }
 
     public void print(String str){
-        System.out.print(str);
+        out.print(str);
+    }
+
+    /**
+     * Sends everything displayed so far, before waiting for the user to answer it.
+     */
+    public void flush(){
+        out.flush();
     }
-}
\ No newline at end of file
+}
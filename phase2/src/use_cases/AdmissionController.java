@@ -0,0 +1,136 @@
+package use_cases;
+
+import enums.Priority;
+import enums.UserOption;
+import enums.UserType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns commands away while the conference is answering too slowly, least important first (see Priority), so that
+ * organizers can still run the conference when everyone else cannot be served. The latency of the commands performed
+ * is smoothed into an estimate: above the target, LOW commands are turned away; above twice the target, NORMAL ones
+ * are too. HIGH commands are always admitted. The estimate halves for every second without a command being recorded,
+ * so commands are admitted again once the load that was turned away has gone.
+ * Safe to use from many threads at once.
+ */
+public class AdmissionController {
+    private static final int SMOOTHING_SHIFT = 4;
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long targetNanos;
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private volatile long lastRecorded = System.nanoTime();
+    private final LongAdder[] accepted = new LongAdder[Priority.values().length];
+    private final LongAdder[] shed = new LongAdder[Priority.values().length];
+    private volatile boolean enabled = true;
+
+    /**
+     * Constructor for AdmissionController.
+     * @param targetMillis the latency above which LOW commands are turned away, in milliseconds
+     */
+    public AdmissionController(long targetMillis) {
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        for (int i = 0; i < accepted.length; i++) {
+            accepted[i] = new LongAdder();
+            shed[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Get how much a command matters: ending a session and anything an organizer does is HIGH, anything a guest does
+     * (browsing the catalogue) is LOW, and everything else is NORMAL. Logging in should be admitted once the credentials
+     * are checked, so that it takes the priority of the user logging in.
+     * @param type the type of the user performing the command, or null if nobody is logged in yet
+     * @param option the option being performed
+     * @return the priority of the command
+     */
+    public static Priority priorityOf(UserType type, UserOption option) {
+        if (option == UserOption.LOG_OUT || option == UserOption.EXIT || type == UserType.ORGANIZER) {
+            return Priority.HIGH;
+        }
+        if (type == UserType.GUEST || option == UserOption.EXPLORE_AS_A_GUEST) {
+            return Priority.LOW;
+        }
+        return Priority.NORMAL;
+    }
+
+    /**
+     * Turn the controller on or off. While it is off every command is admitted, though still counted.
+     * @param enabled whether commands may be turned away
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Decide whether to perform a command now.
+     * @param priority the priority of the command
+     * @return true if the command should be performed, false if it should be turned away
+     */
+    public boolean admit(Priority priority) {
+        long estimate = getLatencyEstimateNanos();
+        boolean admitted = !enabled || priority == Priority.HIGH ||
+                estimate <= (priority == Priority.LOW ? targetNanos : 2 * targetNanos);
+        (admitted ? accepted : shed)[priority.ordinal()].increment();
+        return admitted;
+    }
+
+    /**
+     * Record how long an admitted command took, from when it arrived until it was done.
+     * @param nanos the latency of the command, in nanoseconds
+     */
+    public void record(long nanos) {
+        long now = System.nanoTime();
+        long idle = now - lastRecorded;
+        lastRecorded = now;
+        latencyNanos.getAndUpdate(estimate -> {
+            long decayed = idle > DECAY_NANOS ? estimate >> Math.min(62, idle / DECAY_NANOS) : estimate;
+            return decayed + ((nanos - decayed) >> SMOOTHING_SHIFT);
+        });
+    }
+
+    /**
+     * @return The smoothed latency of recent commands, in nanoseconds
+     */
+    public long getLatencyEstimateNanos() {
+        long idle = System.nanoTime() - lastRecorded;
+        long estimate = latencyNanos.get();
+        return idle > DECAY_NANOS ? estimate >> Math.min(62, idle / DECAY_NANOS) : estimate;
+    }
+
+    /**
+     * @param priority a priority
+     * @return The number of commands of the priority that were admitted
+     */
+    public long getAcceptedCount(Priority priority) {
+        return accepted[priority.ordinal()].sum();
+    }
+
+    /**
+     * @param priority a priority
+     * @return The number of commands of the priority that were turned away
+     */
+    public long getShedCount(Priority priority) {
+        return shed[priority.ordinal()].sum();
+    }
+
+    /**
+     * @return The controller's figures for a status page: the latency estimate and target in milliseconds, and the
+     * number of commands admitted and turned away at each priority
+     */
+    public Map<String, Long> getStatus() {
+        LinkedHashMap<String, Long> status = new LinkedHashMap<>();
+        status.put("latencyMillis", TimeUnit.NANOSECONDS.toMillis(getLatencyEstimateNanos()));
+        status.put("targetMillis", TimeUnit.NANOSECONDS.toMillis(targetNanos));
+        for (Priority priority : Priority.values()) {
+            status.put(priority.name() + ".accepted", getAcceptedCount(priority));
+            status.put(priority.name() + ".shed", getShedCount(priority));
+        }
+        return status;
+    }
+}
@@ -0,0 +1,297 @@
+package use_cases;
+
+import entities.Booking;
+import entities.Room;
+import value_holders.EventPlacement;
+import value_holders.EventRequest;
+import value_holders.ScheduleResult;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Places a batch of events into rooms and times in one pass, instead of creating them one at a time. Each event needs
+ * a room with its features and capacity that is open and free for its whole duration, within the event's time window,
+ * while none of its speakers are busy.
+ * Events are placed greedily, hardest first, at the earliest time that works, in the smallest room that fits. Events
+ * that cannot be placed are then retried by moving one already placed event out of the way.
+ * Nothing is booked until the result is applied (see OrganizerController.scheduleEvents).
+ */
+public class BatchScheduler {
+    private static final int MAX_REPAIR_ATTEMPTS = 200;
+
+    private final RoomManager roomManager;
+    private final EventsManager eventsManager;
+
+    private HashMap<UUID, Timeline> roomTimelines;
+    private HashMap<UUID, Timeline> speakerTimelines;
+    private HashMap<EventRequest, List<UUID>> candidateRooms;
+    private HashMap<EventRequest, Slot> placed;
+
+    /**
+     * Constructor for BatchScheduler.
+     * @param roomManager the RoomManager holding the rooms and their current bookings
+     * @param eventsManager the EventsManager holding the events speakers are already speaking at
+     */
+    public BatchScheduler(RoomManager roomManager, EventsManager eventsManager) {
+        this.roomManager = roomManager;
+        this.eventsManager = eventsManager;
+    }
+
+    /**
+     * Choose a room and a starting time for each of the given events.
+     * @param requests the events to place
+     * @return the placements of the events that could be placed, in the order they were given, and the events that
+     * could not be placed
+     */
+    public ScheduleResult schedule(List<EventRequest> requests) {
+        roomTimelines = new HashMap<>();
+        speakerTimelines = new HashMap<>();
+        candidateRooms = new HashMap<>();
+        placed = new HashMap<>();
+        if (requests.isEmpty()) {
+            return new ScheduleResult(new ArrayList<>(), new ArrayList<>());
+        }
+        loadExistingBookings(requests);
+
+        for (EventRequest request : requests) {
+            candidateRooms.put(request, roomManager.getCandidateRoomIds(request.getFeatures(), request.getCapacity()));
+        }
+        ArrayList<EventRequest> order = new ArrayList<>(requests);
+        order.sort(Comparator.<EventRequest>comparingInt(r -> candidateRooms.get(r).size())
+                .thenComparing(r -> Duration.between(r.getEarliestStart(), r.getLatestEnd()))
+                .thenComparing(EventRequest::getDuration, Comparator.reverseOrder())
+                .thenComparing(r -> r.getSpeakers().size(), Comparator.reverseOrder()));
+
+        ArrayList<EventRequest> unplaced = new ArrayList<>();
+        for (EventRequest request : order) {
+            if (!place(request)) {
+                unplaced.add(request);
+            }
+        }
+        unplaced.removeIf(this::repair);
+
+        ArrayList<EventPlacement> placements = new ArrayList<>();
+        for (EventRequest request : requests) {
+            Slot slot = placed.get(request);
+            if (slot != null) {
+                placements.add(new EventPlacement(request, slot.roomId, slot.start));
+            }
+        }
+        unplaced.sort(Comparator.comparingInt(requests::indexOf));
+        return new ScheduleResult(placements, unplaced);
+    }
+
+    private void loadExistingBookings(List<EventRequest> requests) {
+        LocalDateTime from = requests.get(0).getEarliestStart();
+        LocalDateTime to = requests.get(0).getLatestEnd();
+        for (EventRequest request : requests) {
+            from = request.getEarliestStart().isBefore(from) ? request.getEarliestStart() : from;
+            to = request.getLatestEnd().isAfter(to) ? request.getLatestEnd() : to;
+        }
+        for (UUID roomId : roomManager.getAllRoomIds()) {
+            Timeline timeline = new Timeline();
+            for (Booking booking : roomManager.getBookings(roomId, from, to)) {
+                timeline.add(new Slot(null, roomId, booking.getStart(), booking.getEnd()));
+            }
+            roomTimelines.put(roomId, timeline);
+        }
+        for (EventRequest request : requests) {
+            for (UUID speakerId : request.getSpeakers()) {
+                if (speakerTimelines.containsKey(speakerId)) {
+                    continue;
+                }
+                Timeline timeline = new Timeline();
+                for (UUID eventId : eventsManager.getSpeakerEventIds(speakerId)) {
+                    LocalDateTime start = eventsManager.getEventDateAndTime(eventId);
+                    timeline.add(new Slot(null, eventsManager.getEventRoomId(eventId), start,
+                            start.plusHours(eventsManager.getDuration(eventId))));
+                }
+                speakerTimelines.put(speakerId, timeline);
+            }
+        }
+    }
+
+    /**
+     * Place a request at the earliest time any of its candidate rooms and all of its speakers are free, preferring
+     * smaller rooms when two are free at the same time.
+     */
+    private boolean place(EventRequest request) {
+        if (request.getDuration() <= 0 || request.getDuration() >= 24 || request.getCapacity() <= 0) {
+            return false;
+        }
+        Slot best = null;
+        LocalDate lastDay = request.getLatestEnd().toLocalDate();
+        for (LocalDate day = request.getEarliestStart().toLocalDate(); best == null && !day.isAfter(lastDay);
+             day = day.plusDays(1)) {
+            for (UUID roomId : candidateRooms.get(request)) {
+                Slot slot = earliestOnDay(request, roomId, day);
+                if (slot != null && (best == null || slot.start.isBefore(best.start))) {
+                    best = slot;
+                }
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        commit(best);
+        return true;
+    }
+
+    private Slot earliestOnDay(EventRequest request, UUID roomId, LocalDate day) {
+        Room room = roomManager.getRoom(roomId);
+        LocalDateTime from = max(day.atTime(room.getEarliestStartTime(), 0), request.getEarliestStart());
+        LocalDateTime to = min(day.atTime(room.getClosingTime(), 0), request.getLatestEnd());
+        int duration = request.getDuration();
+        if (from.plusHours(duration).isAfter(to)) {
+            return null;
+        }
+        LocalDateTime gapStart = from;
+        for (Slot booked : roomTimelines.get(roomId).overlapping(from, to)) {
+            LocalDateTime start = earliestForSpeakers(request, gapStart, booked.start);
+            if (start != null) {
+                return new Slot(request, roomId, start, start.plusHours(duration));
+            }
+            gapStart = max(gapStart, booked.end);
+        }
+        LocalDateTime start = earliestForSpeakers(request, gapStart, to);
+        return start == null ? null : new Slot(request, roomId, start, start.plusHours(duration));
+    }
+
+    /**
+     * Find the earliest time in the gap [from, to) at which every speaker of the request is free for its duration.
+     */
+    private LocalDateTime earliestForSpeakers(EventRequest request, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from;
+        boolean moved = true;
+        while (moved) {
+            if (start.plusHours(request.getDuration()).isAfter(to)) {
+                return null;
+            }
+            moved = false;
+            for (UUID speakerId : request.getSpeakers()) {
+                Timeline timeline = speakerTimelines.get(speakerId);
+                Slot busy = timeline == null ? null : timeline.firstOverlap(start, start.plusHours(request.getDuration()));
+                if (busy != null) {
+                    start = busy.end;
+                    moved = true;
+                }
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Try to place an unplaced request by taking one placed request that is in its way out, placing the unplaced
+     * request, and placing the removed one somewhere else. Undone if the removed request cannot be placed again.
+     */
+    private boolean repair(EventRequest request) {
+        LinkedHashSet<Slot> blockers = new LinkedHashSet<>();
+        for (UUID roomId : candidateRooms.get(request)) {
+            blockers.addAll(roomTimelines.get(roomId).overlapping(request.getEarliestStart(), request.getLatestEnd()));
+        }
+        for (UUID speakerId : request.getSpeakers()) {
+            Timeline timeline = speakerTimelines.get(speakerId);
+            if (timeline != null) {
+                blockers.addAll(timeline.overlapping(request.getEarliestStart(), request.getLatestEnd()));
+            }
+        }
+        int attempts = 0;
+        for (Slot blocker : blockers) {
+            if (blocker.request == null || !placed.containsKey(blocker.request)) {
+                continue;
+            }
+            if (++attempts > MAX_REPAIR_ATTEMPTS) {
+                break;
+            }
+            uncommit(blocker);
+            if (place(request)) {
+                if (place(blocker.request)) {
+                    return true;
+                }
+                uncommit(placed.get(request));
+            }
+            commit(blocker);
+        }
+        return false;
+    }
+
+    private void commit(Slot slot) {
+        roomTimelines.get(slot.roomId).add(slot);
+        for (UUID speakerId : slot.request.getSpeakers()) {
+            speakerTimelines.computeIfAbsent(speakerId, s -> new Timeline()).add(slot);
+        }
+        placed.put(slot.request, slot);
+    }
+
+    private void uncommit(Slot slot) {
+        roomTimelines.get(slot.roomId).remove(slot);
+        for (UUID speakerId : slot.request.getSpeakers()) {
+            speakerTimelines.get(speakerId).remove(slot);
+        }
+        placed.remove(slot.request);
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * A time a room or speaker is taken, either by an existing booking (request is null) or by a placed request.
+     */
+    private static class Slot {
+        private final EventRequest request;
+        private final UUID roomId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Slot(EventRequest request, UUID roomId, LocalDateTime start, LocalDateTime end) {
+            this.request = request;
+            this.roomId = roomId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The slots of one room or speaker, which never overlap each other, sorted by starting time.
+     */
+    private static class Timeline {
+        private final TreeMap<LocalDateTime, Slot> slots = new TreeMap<>();
+
+        void add(Slot slot) {
+            // Existing events of a speaker may start together; keeping the longer one is enough to block both.
+            slots.merge(slot.start, slot, (kept, added) -> added.end.isAfter(kept.end) ? added : kept);
+        }
+
+        void remove(Slot slot) {
+            slots.remove(slot.start, slot);
+        }
+
+        Slot firstOverlap(LocalDateTime from, LocalDateTime to) {
+            Map.Entry<LocalDateTime, Slot> before = slots.floorEntry(from);
+            if (before != null && before.getValue().end.isAfter(from)) {
+                return before.getValue();
+            }
+            Map.Entry<LocalDateTime, Slot> after = slots.higherEntry(from);
+            return after != null && after.getKey().isBefore(to) ? after.getValue() : null;
+        }
+
+        List<Slot> overlapping(LocalDateTime from, LocalDateTime to) {
+            ArrayList<Slot> overlapping = new ArrayList<>();
+            LocalDateTime first = slots.floorKey(from);
+            for (Slot slot : slots.subMap(first == null ? from : first, true, to, false).values()) {
+                if (slot.end.isAfter(from)) {
+                    overlapping.add(slot);
+                }
+            }
+            return overlapping;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package use_cases;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Frees the messages of conversations that nobody can see anymore. A message is freed once every participant of its
+ * conversation has deleted up to or past it; the remaining messages move down, and every participant's archive and
+ * delete indexes for the conversation are lowered to match. Each conversation is compacted while its participants are
+ * locked, so a participant deleting or archiving it at the same time sees it either before or after, never between.
+ * Can compact every so often on a background thread of its own (see start), so that sessions never wait for it.
+ */
+public class ConversationCompactor {
+
+    private final ConversationManager conversationManager;
+    private final UserManager userManager;
+
+    /**
+     * The constructor for ConversationCompactor
+     * @param conversationManager The ConversationManager whose conversations are compacted
+     * @param userManager The UserManager holding each participant's archive and delete indexes
+     */
+    public ConversationCompactor(ConversationManager conversationManager, UserManager userManager) {
+        this.conversationManager = conversationManager;
+        this.userManager = userManager;
+    }
+
+    /**
+     * Start compacting on a background thread every so often, until the JVM exits.
+     * @param periodMillis How long to wait between compactions, in milliseconds
+     */
+    public void start(long periodMillis) {
+        Thread compactor = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                compact();
+            }
+        }, "conversation-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Compacts, then runs an action before the next compaction can start, e.g. to save the search index and the
+     * conversations with the same messages dropped from both.
+     * @param afterwards The action to run
+     * @return The total number of messages removed
+     */
+    public synchronized int compact(Runnable afterwards) {
+        int removed = compact();
+        afterwards.run();
+        return removed;
+    }
+
+    /**
+     * Removes, from every conversation, the messages that all of its participants have deleted. Compactions started
+     * at the same time run one after the other, so that the same messages are not counted as dropped twice.
+     * @return The total number of messages removed
+     */
+    public synchronized int compact() {
+        HashMap<UUID, Integer> dropped = new HashMap<>();
+        for (int i = 0; conversationManager.isValidConversationIndex(i); i++) {
+            UUID conversationId = conversationManager.getIdFromIndex(i);
+            List<UUID> participants = conversationManager.getConversationParticipants(i);
+            int removed = userManager.writeUsers(participants, () -> {
+                int watermark = Integer.MAX_VALUE;
+                for (UUID participant : participants) {
+                    watermark = Math.min(watermark, userManager.getDeletedIndex(conversationId, participant));
+                }
+                if (watermark <= 0 || watermark == Integer.MAX_VALUE) {
+                    return 0;
+                }
+                int count = conversationManager.dropOldestMessagesUnindexed(conversationId, watermark);
+                if (count > 0) {
+                    userManager.rebaseConversationIndexes(conversationId, participants, count);
+                }
+                return count;
+            });
+            if (removed > 0) {
+                dropped.put(conversationId, removed);
+            }
+        }
+        conversationManager.dropFromSearchIndex(dropped.keySet());
+
+        int total = 0;
+        for (int count : dropped.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
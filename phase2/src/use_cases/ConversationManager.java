@@ -1,29 +1,77 @@
 package use_cases;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 import entities.Conversation;
-import entities.Message;
 import enums.ConvoType;
+import value_holders.ConversationSummary;
 import value_holders.MessageInfo;
+import value_holders.MessageSearchResult;
 
 /**
  * A Use Case class for managing conversations.
+ * Safe to use from many threads at once. The list of conversations is guarded by one read-write lock and the
+ * messages of each conversation by a lock striped by conversation id, so sending to different conversations does not
+ * wait on each other. A conversation's stripe is always taken before the list's lock, never while holding it. The
+ * search index and body store lock themselves.
  * @author Nathan Raymant
  */
 public class ConversationManager {
 
+    private static final int LOCK_STRIPES = 64;
+
     private ArrayList<Conversation> allConversations;
+    private MessageSearchIndex searchIndex;
+    private MessageBodyStore bodyStore = new MessageBodyStore();
+    private final ReadWriteGuard conversationsGuard = new ReadWriteGuard();
+    private final LockStripes conversationStripes = new LockStripes(LOCK_STRIPES);
+    private volatile MutationListener mutationListener;
 
 	/**
 	 * The constructor for ConversationManager
 	 * @param loadedConversation Conversations to be set from save data.
 	 */
 	public ConversationManager(List<Conversation> loadedConversation){
+        this(loadedConversation, new MessageSearchIndex());
+    }
+
+	/**
+	 * The constructor for ConversationManager with a saved search index. Messages the index is missing are indexed
+	 * here, so an index that is behind the conversations is caught up instead of rebuilt.
+	 * @param loadedConversation Conversations to be set from save data.
+	 * @param loadedIndex The search index to be set from save data.
+	 */
+	public ConversationManager(List<Conversation> loadedConversation, MessageSearchIndex loadedIndex){
         this.allConversations = new ArrayList<>(loadedConversation);
+        this.searchIndex = loadedIndex;
+        HashMap<UUID, Integer> firstKept = new HashMap<>();
+        for (Conversation c : allConversations) {
+            c.replaceSharedContents(bodyStore::acquire);
+            int dropped = (int) c.getDroppedMessageCount();
+            int indexed = searchIndex.getIndexedCount(c.getId());
+            if (indexed > sentCount(c)) { // The index is from different save data, start this one over.
+                searchIndex.removeConversation(c.getId());
+                indexed = 0;
+            }
+            for (int i = Math.max(indexed - dropped, 0); i < c.getMessageCount(); i++) {
+                searchIndex.addMessage(c.getId(), dropped + i, c.getContent(i));
+            }
+            if (dropped > 0) {
+                firstKept.put(c.getId(), dropped);
+            }
+        }
+        // The index may have been saved before some of the messages it holds were dropped.
+        if (!firstKept.isEmpty()) {
+            searchIndex.dropOldestMessages(firstKept);
+        }
     }
 
     /**
@@ -33,14 +81,41 @@ public class ConversationManager {
      * @return If no conversation with the participants exists, returns the UUID of a new conversation. Else, return the UUID of an existing conversation.
      */
     public UUID createConversation(List<UUID> participants, ConvoType type) {
-        Optional<UUID> potentialId = conversationExists(participants, type);
-        if (potentialId.isPresent()) {
-            return potentialId.get();
-        } else {
-            Conversation newConvo = new Conversation(participants, type);
-            allConversations.add(newConvo);
-            return newConvo.getId();
-        }
+        return createConversation(UUID.randomUUID(), participants, type);
+    }
+
+    /**
+     * Creates a new conversation with the given ID, or returns the ID of an existing conversation. Used when the ID
+     * has been chosen elsewhere, such as by a ConversationRouter deciding which partition owns the conversation.
+     * @param id The ID to give the conversation if it is new.
+     * @param participants A list of participants for the conversation.
+     * @param type The type of conversation, can be either 'DIRECT', 'EVENT', or 'ORGANIZER'.
+     * @return If no conversation with the participants exists, returns id. Else, return the UUID of an existing conversation.
+     */
+    public UUID createConversation(UUID id, List<UUID> participants, ConvoType type) {
+        return conversationsGuard.write(() -> {
+            Optional<UUID> potentialId = conversationExists(participants, type);
+            if (potentialId.isPresent()) {
+                return potentialId.get();
+            } else {
+                Conversation newConvo = new Conversation(id, participants, type);
+                allConversations.add(newConvo);
+                MutationListener listener = mutationListener;
+                if (listener != null) {
+                    listener.conversationCreated(id, new ArrayList<>(participants), type);
+                }
+                return newConvo.getId();
+            }
+        });
+    }
+
+    /**
+     * Set the listener told about every change to the conversations, e.g. to copy them to replicas. Messages are
+     * reported while their conversation's lock is held, so they are reported in the order they were added.
+     * @param mutationListener The listener, or null to stop telling one.
+     */
+    public void setMutationListener(MutationListener mutationListener) {
+        this.mutationListener = mutationListener;
     }
 
     /**
@@ -52,11 +127,25 @@ public class ConversationManager {
     public void sendMessage(String content, UUID sender, UUID conversation) {
         int convoIndex = findConversation(conversation);
         if(convoIndex != -1) {
-            Conversation c = getConversation(convoIndex);
-            c.addMessage(new Message(sender, content));
+            appendMessage(getConversation(convoIndex), sender, content);
         }
     }
 
+    /**
+     * Sends a message from the system, not from any user, to a single user. Notifications to the same user all go to
+     * one conversation, whose only participant is that user.
+     * @param recipient The ID of the user being notified.
+     * @param content The content of the notification.
+     * @return The UUID of the conversation the notification was added to.
+     */
+    public UUID sendNotification(UUID recipient, String content) {
+        List<UUID> participants = new ArrayList<>();
+        participants.add(recipient);
+        UUID conversationId = createConversation(participants, ConvoType.ORGANIZER);
+        sendMessage(content, null, conversationId);
+        return conversationId;
+    }
+
 	/**
 	 * A method for replying (adding a message) to an existing conversation. Similar to send message but takes an index
 	 * for its conversation parameter instead. Index must be valid.
@@ -65,7 +154,38 @@ public class ConversationManager {
 	 * @param index Index of the conversation being replied to
 	 */
 	public void replyToConversation(String content, UUID sender, int index) {
-        getConversation(index).addMessage(new Message(sender, content));
+        appendMessage(getConversation(index), sender, content);
+    }
+
+	/**
+	 * Adds a new message to a conversation and to the search index. Long bodies are stored once in the body store
+	 * and referenced by every conversation they are sent to.
+	 * @param c The conversation the message is being added to
+	 * @param sender Sender of the message
+	 * @param content Content of the message
+	 */
+	private void appendMessage(Conversation c, UUID sender, String content) {
+        lockFor(c).update(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            addMessage(c, sender, now, content);
+            MutationListener listener = mutationListener;
+            if (listener != null) {
+                listener.messageAdded(c.getId(), c.getDroppedMessageCount() + c.getMessageCount() - 1, sender, now,
+                        content);
+            }
+        });
+    }
+
+    /**
+     * Adds a message to a conversation and to the search index. Must hold its lock.
+     */
+    private void addMessage(Conversation c, UUID sender, LocalDateTime time, String content) {
+        if (MessageBodyStore.isShareable(content)) {
+            c.addSharedMessage(sender, time, bodyStore.acquire(content));
+        } else {
+            c.addMessage(sender, time, content);
+        }
+        searchIndex.addMessage(c.getId(), (int) sentCount(c) - 1, content);
     }
 
     /**
@@ -74,15 +194,18 @@ public class ConversationManager {
      * @return The index of the conversation. If no such conversation exists, returns -1.
      */
     public int findConversation(UUID id) {
-        for(Conversation c : allConversations) {
-            if(c.getId().equals(id)){
-                return allConversations.indexOf(c);
+        return conversationsGuard.read(() -> {
+            for (int i = 0; i < allConversations.size(); i++) {
+                if (allConversations.get(i).getId().equals(id)) {
+                    return i;
+                }
             }
-        }
-        return -1;
+            return -1;
+        });
     }
 
     public ConvoType getType(UUID id){
+        // The type of a conversation never changes, so no lock is needed past finding it.
         return getConversation(findConversation(id)).getType();
     }
 
@@ -92,15 +215,24 @@ public class ConversationManager {
      * @return A conversation object.
      */
     private Conversation getConversation(int index) {
-        return allConversations.get(index);
+        return conversationsGuard.read(() -> allConversations.get(index));
+    }
+
+    /**
+     * Gets the lock guarding a conversation's messages.
+     * @param c The conversation
+     * @return The stripe the conversation's id hashes to
+     */
+    private ReadWriteGuard lockFor(Conversation c) {
+        return conversationStripes.forId(c.getId());
     }
 
     /**
      * Get arraylist of all conversations data available up to the point of the method being called/
-     * @return Arraylist of all conversations.
+     * @return A copy of the arraylist of all conversations, which conversations created later are not added to.
      */
     public List<Conversation> getAllConversations() {
-        return allConversations;
+        return conversationsGuard.read(() -> new ArrayList<>(allConversations));
     }
 
 	/**
@@ -109,7 +241,7 @@ public class ConversationManager {
 	 * @return A list of this conversation's participants.
 	 */
 	public List<UUID> getConversationParticipants(int index){
-        return getConversation(index).getParticipants();
+        return new ArrayList<>(getConversation(index).getParticipants());
     }
 
 	/**
@@ -127,22 +259,24 @@ public class ConversationManager {
      * @return Boolean of whether the index is valid.
      */
     public boolean isValidConversationIndex(int index) {
-        if((index >= 0) && (index < allConversations.size())){
-            return true;
-        }
-        return false;
+        return conversationsGuard.read(() -> (index >= 0) && (index < allConversations.size()));
     }
 
     public void setEventNameForConvo(List<UUID> participantUUID, String eventName){
-        Optional<UUID> potentialId = conversationExists(participantUUID, ConvoType.EVENT);
+        Optional<UUID> potentialId = conversationsGuard.read(() -> conversationExists(participantUUID, ConvoType.EVENT));
         if (potentialId.isPresent()){
             Conversation conversation = getConversation(findConversation(potentialId.get()));
-            conversation.setEventName(eventName);
+            lockFor(conversation).update(() -> conversation.setEventName(eventName));
+            MutationListener listener = mutationListener;
+            if (listener != null) {
+                listener.conversationRenamed(conversation.getId(), eventName);
+            }
         }
     }
 
     public String getEventName (UUID id){
-        return getConversation(findConversation(id)).getEventName();
+        Conversation conversation = getConversation(findConversation(id));
+        return lockFor(conversation).read(conversation::getEventName);
     }
 
     /**
@@ -152,15 +286,332 @@ public class ConversationManager {
      * @return A list of MessageInfo objects
      */
     public List<MessageInfo> getMessagesInfo(int index) {
-        ArrayList<MessageInfo> output = new ArrayList<MessageInfo>();
-        List<Message> messages = getConversation(index).getMessageList();
-        for(Message m : messages) {
-            output.add(new MessageInfo(m.getSenderId(), m.getTime(), m.getContent()));
+        return getMessagesPage(index, 0, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * A method that returns a list of MessageInfo objects for a conversation given its ID.
+     * @param id The UUID of the conversation to retrieve message info from
+     * @return A list of MessageInfo objects, empty if no such conversation exists
+     */
+    public List<MessageInfo> getMessagesInfo(UUID id) {
+        int index = findConversation(id);
+        if (index == -1) {
+            return new ArrayList<MessageInfo>();
+        }
+        return getMessagesInfo(index);
+    }
+
+    /**
+     * Returns one page of a conversation's messages without copying the rest of its history. A forward page starts
+     * at offset and moves towards newer messages; a backward page ends just before offset and moves towards older
+     * messages. Either way, the page is ordered from oldest to newest.
+     * @param index Index of the conversation to retrieve message info from
+     * @param offset Position of the page's cursor in the conversation, where 0 is the oldest message
+     * @param limit Maximum number of messages in the page
+     * @param forward Whether the page moves towards newer (true) or older (false) messages
+     * @return A list of at most limit MessageInfo objects
+     */
+    public List<MessageInfo> getMessagesPage(int index, int offset, int limit, boolean forward) {
+        Conversation c = getConversation(index);
+        return lockFor(c).read(() -> {
+            int start;
+            int end;
+            if (forward) {
+                start = Math.max(offset, 0);
+                end = (int) Math.min((long) start + Math.max(limit, 0), c.getMessageCount());
+            } else {
+                end = Math.min(offset, c.getMessageCount());
+                start = Math.max(end - Math.max(limit, 0), 0);
+            }
+            ArrayList<MessageInfo> output = new ArrayList<MessageInfo>(Math.max(end - start, 0));
+            for (int i = start; i < end; i++) {
+                output.add(new MessageInfo(c.getSenderId(i), c.getTime(i), c.getContent(i)));
+            }
+            return output;
+        });
+    }
+
+    /**
+     * Searches the content of messages in the given conversations. Results are ranked so that messages containing
+     * more of the query's words, and rarer words, come first.
+     * @param query The words being searched for
+     * @param visibleFrom The ids of the conversations to search, mapped to the index of the first message that may be
+     *                    returned (e.g. the index up to which the user has deleted the conversation)
+     * @param limit The maximum number of results
+     * @return A list of at most limit results, best match first
+     */
+    public List<MessageSearchResult> searchMessages(String query, Map<UUID, Integer> visibleFrom, int limit) {
+        // The index knows messages by their position among every message sent to the conversation.
+        HashMap<UUID, Integer> visiblePositions = new HashMap<>();
+        for (Map.Entry<UUID, Integer> conversation : visibleFrom.entrySet()) {
+            Integer dropped = readConversation(conversation.getKey(), c -> (int) c.getDroppedMessageCount());
+            if (dropped != null) {
+                visiblePositions.put(conversation.getKey(), dropped + Math.max(conversation.getValue(), 0));
+            }
+        }
+        ArrayList<MessageSearchResult> output = new ArrayList<>();
+        for (MessageSearchIndex.Hit hit : searchIndex.search(query, visiblePositions, limit)) {
+            int index = findConversation(hit.getConversationId());
+            Conversation c = getConversation(index);
+            int from = visibleFrom.get(hit.getConversationId());
+            MessageInfo message = lockFor(c).read(() -> {
+                int offset = (int) (hit.getPosition() - c.getDroppedMessageCount());
+                return offset >= from && offset < c.getMessageCount() ?
+                        new MessageInfo(c.getSenderId(offset), c.getTime(offset), c.getContent(offset)) : null;
+            });
+            // Skip hits on messages removed since the search.
+            if (message != null) {
+                output.add(new MessageSearchResult(hit.getConversationId(), index, message, hit.getScore()));
+            }
         }
         return output;
     }
 
-    public Integer getMessageListSize(UUID id){ return getConversation(findConversation(id)).getMessageList().size(); }
+    /**
+     * Removes the oldest messages of the given conversations, e.g. messages every participant has deleted. The
+     * remaining messages' indices go down by the number removed.
+     * @param droppedCounts The ids of conversations, mapped to the number of their oldest messages to remove
+     * @return The ids of the conversations that had messages removed, mapped to the number removed
+     */
+    public Map<UUID, Integer> dropOldestMessages(Map<UUID, Integer> droppedCounts) {
+        HashMap<UUID, Integer> dropped = new HashMap<>();
+        for (Map.Entry<UUID, Integer> entry : droppedCounts.entrySet()) {
+            int count = dropOldestMessagesUnindexed(entry.getKey(), entry.getValue());
+            if (count > 0) {
+                dropped.put(entry.getKey(), count);
+            }
+        }
+        dropFromSearchIndex(dropped.keySet());
+        return dropped;
+    }
+
+    /**
+     * Removes the oldest messages of a conversation, but leaves them in the search index until dropFromSearchIndex is
+     * called, so that conversations compacted one at a time can share one pass over the index. Searches skip them
+     * meanwhile.
+     * @param id The UUID of the conversation
+     * @param requested The number of its oldest messages to remove
+     * @return The number of messages removed
+     */
+    public int dropOldestMessagesUnindexed(UUID id, int requested) {
+        int index = findConversation(id);
+        if (index == -1) {
+            return 0;
+        }
+        Conversation c = getConversation(index);
+        return lockFor(c).write(() -> {
+            int removed = dropOldestMessages(c, requested);
+            MutationListener listener = mutationListener;
+            if (removed > 0 && listener != null) {
+                listener.messagesDropped(c.getId(), c.getDroppedMessageCount());
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Removes from the search index the messages dropped with dropOldestMessagesUnindexed.
+     * @param ids The ids of the conversations that had messages dropped
+     */
+    public void dropFromSearchIndex(Collection<UUID> ids) {
+        HashMap<UUID, Integer> firstKept = new HashMap<>();
+        for (UUID id : ids) {
+            Integer dropped = readConversation(id, c -> (int) c.getDroppedMessageCount());
+            if (dropped != null) {
+                firstKept.put(id, dropped);
+            }
+        }
+        // One pass over the index for every conversation.
+        if (!firstKept.isEmpty()) {
+            searchIndex.dropOldestMessages(firstKept);
+        }
+    }
+
+    /**
+     * Removes the oldest messages of a conversation, releasing their shared bodies. Must hold its lock.
+     * @param c The conversation
+     * @param requested The number of its oldest messages to remove
+     * @return The number of messages removed
+     */
+    private int dropOldestMessages(Conversation c, int requested) {
+        int count = Math.min(requested, c.getMessageCount());
+        if (count <= 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            String shared = c.getSharedContent(i);
+            if (shared != null) {
+                bodyStore.release(shared);
+            }
+        }
+        c.dropOldestMessages(count);
+        return count;
+    }
+
+    /**
+     * Look at a conversation while no messages can be added to or dropped from it, e.g. to copy it.
+     * @param id The UUID of the conversation
+     * @param reader What to do with the conversation
+     * @param <T> The type of the result of reader
+     * @return The result of reader, or null if no such conversation exists
+     */
+    public <T> T readConversation(UUID id, Function<Conversation, T> reader) {
+        int index = findConversation(id);
+        if (index == -1) {
+            return null;
+        }
+        Conversation c = getConversation(index);
+        return lockFor(c).read(() -> reader.apply(c));
+    }
+
+    /**
+     * Add a conversation as it is, or replace the conversation with the same id, e.g. with a copy from the primary on
+     * a replica. A copy with fewer messages ever sent to it than the conversation already has is ignored.
+     * @param conversation The conversation
+     */
+    public void putConversation(Conversation conversation) {
+        conversation.replaceSharedContents(bodyStore::acquire);
+        // The conversation's stripe is taken before the list's lock, as everywhere else a stripe and a manager's lock
+        // are held together, so the copy replaces the conversation and is indexed with no message sent in between.
+        boolean ignored = lockFor(conversation).write(() -> {
+            Conversation replaced = conversationsGuard.write(() -> {
+                for (int i = 0; i < allConversations.size(); i++) {
+                    Conversation existing = allConversations.get(i);
+                    if (existing.getId().equals(conversation.getId())) {
+                        if (sentCount(existing) > sentCount(conversation)) {
+                            return conversation;
+                        }
+                        allConversations.set(i, conversation);
+                        return existing;
+                    }
+                }
+                allConversations.add(conversation);
+                return null;
+            });
+            if (replaced == conversation) {
+                return true;
+            }
+            if (replaced != null) {
+                dropOldestMessages(replaced, replaced.getMessageCount());
+            }
+            searchIndex.removeConversation(conversation.getId());
+            int dropped = (int) conversation.getDroppedMessageCount();
+            for (int i = 0; i < conversation.getMessageCount(); i++) {
+                searchIndex.addMessage(conversation.getId(), dropped + i, conversation.getContent(i));
+            }
+            return false;
+        });
+        if (ignored) {
+            conversation.replaceSharedContents(content -> {
+                bodyStore.release(content);
+                return content;
+            });
+        }
+    }
+
+    /**
+     * Add a message to a conversation at the given position, e.g. a message copied from the primary on a replica.
+     * Nothing is added unless exactly position messages have been sent to the conversation so far, so a message
+     * copied twice is only added once.
+     * @param id The UUID of the conversation
+     * @param position The number of messages sent to the conversation before this one, including dropped ones
+     * @param sender The sender, or null for a notification
+     * @param time When the message was sent
+     * @param content The content of the message
+     * @return Whether the message was added
+     */
+    public boolean putMessage(UUID id, long position, UUID sender, LocalDateTime time, String content) {
+        int index = findConversation(id);
+        if (index == -1) {
+            return false;
+        }
+        Conversation c = getConversation(index);
+        return lockFor(c).write(() -> {
+            if (sentCount(c) != position) {
+                return false;
+            }
+            addMessage(c, sender, time, content);
+            return true;
+        });
+    }
+
+    /**
+     * Drop the oldest messages of a conversation until the given number have been dropped from it in total, e.g. to
+     * follow the primary on a replica.
+     * @param id The UUID of the conversation
+     * @param droppedTotal The number of messages that should have been dropped from the conversation
+     */
+    public void dropMessagesUpTo(UUID id, long droppedTotal) {
+        Integer count = readConversation(id, c -> (int) Math.max(0, droppedTotal - c.getDroppedMessageCount()));
+        if (count != null && count > 0) {
+            HashMap<UUID, Integer> counts = new HashMap<>();
+            counts.put(id, count);
+            dropOldestMessages(counts);
+        }
+    }
+
+    /**
+     * Set the event name of a conversation given its id, e.g. to follow the primary on a replica.
+     * @param id The UUID of the conversation
+     * @param eventName The name of the event
+     */
+    public void setEventName(UUID id, String eventName) {
+        int index = findConversation(id);
+        if (index != -1) {
+            Conversation c = getConversation(index);
+            lockFor(c).update(() -> c.setEventName(eventName));
+        }
+    }
+
+    private static long sentCount(Conversation c) {
+        return c.getDroppedMessageCount() + c.getMessageCount();
+    }
+
+    /**
+     * @return Returns the store of message bodies shared between conversations.
+     */
+    public MessageBodyStore getBodyStore() {
+        return bodyStore;
+    }
+
+    /**
+     * @return Returns the search index over all conversations' messages, so that it can be saved.
+     */
+    public MessageSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Summarises every conversation the user takes part in, for listing the user's inbox.
+     * @param userId The ID of the user.
+     * @return A list of summaries, in the order the conversations were created.
+     */
+    public List<ConversationSummary> getConversationSummaries(UUID userId) {
+        List<Conversation> conversations = conversationsGuard.read(() -> {
+            ArrayList<Conversation> found = new ArrayList<>();
+            for (Conversation c : allConversations) {
+                if (c.getParticipants().contains(userId)) {
+                    found.add(c);
+                }
+            }
+            return found;
+        });
+        ArrayList<ConversationSummary> summaries = new ArrayList<>(conversations.size());
+        for (Conversation c : conversations) {
+            summaries.add(lockFor(c).read(() -> {
+                int count = c.getMessageCount();
+                return new ConversationSummary(c.getId(), c.getType(), new ArrayList<>(c.getParticipants()), count,
+                        count == 0 ? null : c.getTime(count - 1));
+            }));
+        }
+        return summaries;
+    }
+
+    public Integer getMessageListSize(UUID id){
+        Conversation c = getConversation(findConversation(id));
+        return lockFor(c).read(c::getMessageCount);
+    }
 
     /**
      * Private method for determining if a conversation between participants exists. Used in createConversation() and AppPresenter.sendMessageToEventAttendees and. sendMessageToAll.
@@ -0,0 +1,93 @@
+package use_cases;
+
+import value_holders.CatalogueSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the display rows of every event ready to be shown, in order of starting time. The rows are rebuilt only when
+ * the events or rooms have changed since they were last built (see EventsManager.getVersion and
+ * RoomManager.getVersion); otherwise every reader shares the same snapshot.
+ */
+public class EventCatalogue {
+    /** The row shown for an event that was cancelled after its id was looked up. */
+    public static final String CANCELLED_ROW = "(This event has been cancelled)";
+
+    private final EventsManager eventsManager;
+    private final RoomManager roomManager;
+    private volatile CatalogueSnapshot snapshot;
+
+    /**
+     * Constructor for EventCatalogue.
+     * @param eventsManager the EventsManager holding the events to display
+     * @param roomManager the RoomManager holding the rooms of the events
+     */
+    public EventCatalogue(EventsManager eventsManager, RoomManager roomManager) {
+        this.eventsManager = eventsManager;
+        this.roomManager = roomManager;
+    }
+
+    /**
+     * Get the current snapshot of the events, rebuilding it first if the events or rooms have changed.
+     * @return a CatalogueSnapshot of every event
+     */
+    public CatalogueSnapshot getSnapshot() {
+        CatalogueSnapshot current = snapshot;
+        if (current == null || current.getEventsVersion() != eventsManager.getVersion() ||
+                current.getRoomsVersion() != roomManager.getVersion()) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    /**
+     * Get the display rows of the given events: Event name | Date and Time of Event | Event Room | Event Type.
+     * @param eventIds A list of IDs of events to be displayed
+     * @return A List of Strings of event information, one for each of eventIds and in the same order, so that a row
+     * chosen from it maps back to its id by position. An event that no longer exists is shown as CANCELLED_ROW.
+     */
+    public List<String> getRows(List<UUID> eventIds) {
+        CatalogueSnapshot current = getSnapshot();
+        ArrayList<String> rows = new ArrayList<>(eventIds.size());
+        for (UUID eventId : eventIds) {
+            String row = current.getRow(eventId);
+            rows.add(row != null ? row : CANCELLED_ROW);
+        }
+        return rows;
+    }
+
+    private synchronized CatalogueSnapshot rebuild() {
+        long roomsVersion = roomManager.getVersion();
+        CatalogueSnapshot current = snapshot;
+        if (current != null && current.getEventsVersion() == eventsManager.getVersion() &&
+                current.getRoomsVersion() == roomsVersion) {
+            return current;
+        }
+        // The events are read together with their version, so the rows always match the version they are marked
+        // with. The room names are looked up afterwards, outside the events' lock, against a rooms version read
+        // before them, so a room changed meanwhile only makes the next reader rebuild again.
+        ArrayList<UUID> eventIds = new ArrayList<>();
+        ArrayList<String> schedules = new ArrayList<>();
+        ArrayList<String> types = new ArrayList<>();
+        ArrayList<UUID> roomIds = new ArrayList<>();
+        long eventsVersion = eventsManager.readAllEvents(() -> {
+            for (UUID i : eventsManager.getEventsBetween(LocalDateTime.MIN, LocalDateTime.MAX)) {
+                eventIds.add(i);
+                schedules.add(eventsManager.getEventName(i) + " | " + eventsManager.getEventSchedule(i));
+                roomIds.add(eventsManager.getEventRoomId(i));
+                types.add(eventsManager.getEventType(i));
+            }
+            return eventsManager.getVersion();
+        });
+        ArrayList<String> rows = new ArrayList<>(eventIds.size());
+        for (int i = 0; i < eventIds.size(); i++) {
+            rows.add(schedules.get(i) + " | " + roomManager.getRoomName(roomIds.get(i)) + " | " + types.get(i));
+        }
+        current = new CatalogueSnapshot(eventsVersion, roomsVersion, eventIds, rows);
+        snapshot = current;
+        return current;
+    }
+}
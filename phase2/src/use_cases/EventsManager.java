@@ -1,18 +1,35 @@
 package use_cases;
 
 import entities.Event;
+import enums.EntityKind;
 import enums.RoomFeatures;
+import enums.SignUpStatus;
 
 import java.util.*;
 import java.time.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * This class manages events.
+ * Safe to use from many threads at once. The events and the indexes of them by time and speaker are guarded by one
+ * read-write lock, so any number of threads can look up and list events together while adding or removing an event
+ * or changing its speakers waits for them. The attendees, waitlist and capacity of an event are guarded by the event
+ * itself, and its features by a lock striped by event id, so changes to different events do not wait on each other.
+ * An event's stripe is always taken before the events' lock, never while holding it.
  *
  * @author Nina
  */
 public class EventsManager{
     private HashMap<UUID, Event> events;
+    private TreeMap<LocalDateTime, Set<UUID>> eventsByTime = new TreeMap<>();
+    private HashMap<UUID, TreeMap<LocalDateTime, Set<UUID>>> speakerSchedules = new HashMap<>();
+    private final ReadWriteGuard catalogue = new ReadWriteGuard();
+    private final LockStripes eventStripes = new LockStripes(LOCK_STRIPES);
+    private static final int MAX_DURATION = 23;
+    private static final int LOCK_STRIPES = 64;
+    private volatile long version = 0;
+    private volatile MutationListener mutationListener;
 
     /**
      * Constructor for EventsManager.
@@ -20,6 +37,12 @@ public class EventsManager{
      */
     public EventsManager(HashMap<UUID, Event> loadedEvents){
         events = loadedEvents;
+        for (Event event : events.values()){
+            indexTime(event);
+            for (UUID speakerId : event.getSpeakers()){
+                indexSpeaker(event, speakerId);
+            }
+        }
     }
 
     /**
@@ -34,27 +57,112 @@ public class EventsManager{
      */
     public UUID addEvent(String name, LocalDateTime time, UUID roomId, int capacity, int duration, List<RoomFeatures> features){
         Event newEvent = new Event(name, time, roomId, capacity, duration, features);
-        events.put(newEvent.getEventId(), newEvent);
+        catalogue.update(() -> {
+            events.put(newEvent.getEventId(), newEvent);
+            indexTime(newEvent);
+            version++;
+        });
+        changed(newEvent.getEventId());
         return newEvent.getEventId();
     }
 
 
 
+    /**
+     * Get the version of the events, which goes up every time an event is added or removed or its speakers change.
+     * @return a number that is different whenever the events may display differently.
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * Set the listener told about every change to the events, e.g. to copy them to replicas.
+     * @param mutationListener the listener, or null to stop telling one
+     */
+    public void setMutationListener(MutationListener mutationListener){
+        this.mutationListener = mutationListener;
+    }
+
+    private void changed(UUID eventId){
+        MutationListener listener = mutationListener;
+        if (listener != null){
+            listener.entityChanged(EntityKind.EVENT, eventId);
+        }
+    }
+
+    /**
+     * Look at an event while nothing else can change it, e.g. to copy it.
+     * @param eventId UUID object that represents the event
+     * @param reader what to do with the event
+     * @param <T> the type of the result of reader
+     * @return the result of reader, or null if the event does not exist
+     */
+    public <T> T readEvent(UUID eventId, Function<Event, T> reader){
+        Event event = getEvent(eventId);
+        if (event == null){
+            return null;
+        }
+        return eventStripes.forId(eventId).read(() -> {
+            synchronized (event) {
+                return reader.apply(event);
+            }
+        });
+    }
+
+    /**
+     * Look at the events while none can be added or removed and no speakers can change, e.g. to list them together
+     * with the version they were listed at.
+     * @param reader what to do with the events, using this manager's other methods
+     * @param <T> the type of the result of reader
+     * @return the result of reader
+     */
+    public <T> T readAllEvents(Supplier<T> reader){
+        return catalogue.read(reader);
+    }
+
+    /**
+     * Add an event as it is, or replace the event with the same id, e.g. with a copy from the primary on a replica.
+     * @param event the event
+     */
+    public void putEvent(Event event){
+        catalogue.update(() -> {
+            Event replaced = events.put(event.getEventId(), event);
+            if (replaced != null){
+                unindex(replaced);
+            }
+            indexTime(event);
+            for (UUID speakerId : event.getSpeakers()){
+                indexSpeaker(event, speakerId);
+            }
+            version++;
+        });
+    }
+
     /**
      * Get and return an existing event by its ID.
      * @param eventId UUID object that represents the event
      * @return an event
      */
     private Event getEvent(UUID eventId){
-        return events.get(eventId);
+        return catalogue.read(() -> events.get(eventId));
+    }
+
+    /**
+     * Check whether an event exists.
+     * @param eventId UUID object that represents the event
+     * @return true if there is an event with this id, false if not
+     */
+    public boolean hasEvent(UUID eventId){
+        return getEvent(eventId) != null;
     }
 
     /**
      * Get and return all existing events.
-     * @return hashmap of event ids to events
+     * @return a copy of the hashmap of event ids to events, which later changes to the events do not affect
      */
     public HashMap<UUID, Event> getAllEvents(){
-        return events;
+        return catalogue.read(() -> new HashMap<>(events));
     }
 
     /**
@@ -64,6 +172,25 @@ public class EventsManager{
      */
     public void addAttendee(UUID eventId, UUID userId){
         getEvent(eventId).addAttendee(userId);
+        changed(eventId);
+    }
+
+    /**
+     * Adds an attendee to an event attendee list if the event is not full, checking and adding as one step. Safe to
+     * call from many threads at once for the same event.
+     * @param eventId UUID object that represents the event
+     * @param userId UUID object that represents the user.
+     * @param roomCapacity the capacity of the event's room; the event holds at most the smaller of this and its own
+     *                     capacity
+     * @return true iff the user was added, false if the event does not exist, is full, or the user was already in it.
+     */
+    public boolean reserveSeat(UUID eventId, UUID userId, int roomCapacity){
+        Event event = getEvent(eventId);
+        boolean reserved = event != null && event.reserveSeat(userId, roomCapacity);
+        if (reserved){
+            changed(eventId);
+        }
+        return reserved;
     }
 
     /**
@@ -73,6 +200,77 @@ public class EventsManager{
      */
     public void removeAttendee(UUID eventId, UUID userId){
         getEvent(eventId).removeAttendee(userId);
+        changed(eventId);
+    }
+
+    /**
+     * Signs a user up to an event, or puts them at the end of the event's waitlist if the event is full.
+     * @param eventId UUID object that represents the event
+     * @param userId UUID object that represents the user.
+     * @param roomCapacity the capacity of the event's room
+     * @return whether the user got a seat or was waitlisted, or null if the event does not exist.
+     */
+    public SignUpStatus signUpOrWait(UUID eventId, UUID userId, int roomCapacity){
+        Event event = getEvent(eventId);
+        if (event == null){
+            return null;
+        }
+        SignUpStatus status = event.signUpOrWait(userId, roomCapacity);
+        if (status == SignUpStatus.SIGNED_UP || status == SignUpStatus.WAITLISTED){
+            changed(eventId);
+        }
+        return status;
+    }
+
+    /**
+     * Removes a user from an event's attendee list or waitlist, giving a freed seat to the next user on the waitlist.
+     * @param eventId UUID object that represents the event
+     * @param userId UUID object that represents the user.
+     * @param roomCapacity the capacity of the event's room
+     * @return the ids of the users that got a seat from the waitlist.
+     */
+    public List<UUID> removeAttendeeAndPromote(UUID eventId, UUID userId, int roomCapacity){
+        List<UUID> promoted = getEvent(eventId).removeAttendeeAndPromote(userId, roomCapacity);
+        changed(eventId);
+        return promoted;
+    }
+
+    /**
+     * Get the position of a user on an event's waitlist.
+     * @param eventId UUID object that represents the event
+     * @param userId UUID object that represents the user.
+     * @return the position of the user, where 1 is the next to get a seat, or 0 if the user is not waitlisted.
+     */
+    public int getWaitlistPosition(UUID eventId, UUID userId){
+        return getEvent(eventId).getWaitlistPosition(userId);
+    }
+
+    /**
+     * Get the users waiting for a seat at an event.
+     * @param eventId UUID object that represents the event
+     * @return a List of the ids of the waitlisted users, where the first is the next to get a seat.
+     */
+    public List<UUID> getWaitlist(UUID eventId){
+        return getEvent(eventId).getWaitlist();
+    }
+
+    /**
+     * Get the events a user is waiting for a seat at.
+     * @param userId UUID object that represents the user.
+     * @return a List of the ids of the events the user is waitlisted for, in time order.
+     */
+    public List<UUID> getWaitlistedEventIds(UUID userId){
+        return catalogue.read(() -> {
+            List<UUID> waitlisted = new ArrayList<>();
+            for (Set<UUID> sameTime : eventsByTime.values()){
+                for (UUID eventId : sameTime){
+                    if (events.get(eventId).isUserWaitlisted(userId)){
+                        waitlisted.add(eventId);
+                    }
+                }
+            }
+            return waitlisted;
+        });
     }
 
     /**
@@ -91,14 +289,22 @@ public class EventsManager{
         return getEvent(eventID).getEventDateAndTime();
     }
 
+    /**
+     * Get the duration of the given event.
+     * @param eventID UUID object that represents the event
+     * @return an integer that represents the number of hours the given event lasts.
+     */
+    public int getDuration(UUID eventID) {
+        return getEvent(eventID).getDuration();
+    }
+
     /**
      * Get speaker of the given event.
      * @param eventId UUID object that represents the event
      * @return a Set of UUIDs object where each UUID represents a speaker of the event.
      */
     public List<UUID> getSpeakers(UUID eventId) {
-        HashSet<UUID> speakerSet = getEvent(eventId).getSpeakers();
-        return new ArrayList<>(speakerSet);
+        return catalogue.read(() -> new ArrayList<>(getEvent(eventId).getSpeakers()));
     }
 
     /**
@@ -107,7 +313,37 @@ public class EventsManager{
      * @param speakerId UUID object that represents the new speaker of the event
      */
     public void addSpeaker(UUID eventId, UUID speakerId){
-        getEvent(eventId).addSpeaker(speakerId);
+        catalogue.update(() -> {
+            getEvent(eventId).addSpeaker(speakerId);
+            indexSpeaker(getEvent(eventId), speakerId);
+            version++;
+        });
+        changed(eventId);
+    }
+
+    /**
+     * Add speaker to event unless they are speaking at it already or at another event overlapping it, checking and
+     * adding as one step, so that two organizers cannot both give the speaker events at the same time.
+     * @param eventId UUID object that represents the event
+     * @param speakerId UUID object that represents the new speaker of the event
+     * @return true if the speaker was added, false otherwise.
+     */
+    public boolean addSpeakerIfFree(UUID eventId, UUID speakerId){
+        boolean added = catalogue.write(() -> {
+            Event event = getEvent(eventId);
+            if (event.getSpeakers().contains(speakerId) ||
+                    speakerBusy(speakerId, event.getEventDateAndTime(), event.getDuration())){
+                return false;
+            }
+            event.addSpeaker(speakerId);
+            indexSpeaker(event, speakerId);
+            version++;
+            return true;
+        });
+        if (added){
+            changed(eventId);
+        }
+        return added;
     }
 
     /**
@@ -116,7 +352,14 @@ public class EventsManager{
      * @param speakersID Set of UUID object where each UUID object represents an unique speaker
      */
     public void addSpeaker(UUID eventId, HashSet<UUID> speakersID) {
-        getEvent(eventId).addSpeaker(speakersID);
+        catalogue.update(() -> {
+            getEvent(eventId).addSpeaker(speakersID);
+            for (UUID speakerId : speakersID){
+                indexSpeaker(getEvent(eventId), speakerId);
+            }
+            version++;
+        });
+        changed(eventId);
     }
 
     /**
@@ -125,7 +368,71 @@ public class EventsManager{
      * @param speakerId UUID object that represents the speaker to be removed from the speaker list of the event
      */
     public void removeSpeaker(UUID eventId, UUID speakerId){
-        getEvent(eventId).removeSpeaker(speakerId);
+        catalogue.update(() -> {
+            getEvent(eventId).removeSpeaker(speakerId);
+            unindexSpeaker(getEvent(eventId), speakerId);
+            version++;
+        });
+        changed(eventId);
+    }
+
+    /**
+     * Get the events the given speaker is speaking at, in order of starting time.
+     * @param speakerId UUID object that represents the speaker
+     * @return a list of UUID objects where each UUID represents an event the speaker is speaking at.
+     */
+    public List<UUID> getSpeakerEventIds(UUID speakerId){
+        return catalogue.read(() -> {
+            ArrayList<UUID> eventIds = new ArrayList<>();
+            TreeMap<LocalDateTime, Set<UUID>> schedule = speakerSchedules.get(speakerId);
+            if (schedule != null){
+                for (Set<UUID> sameStart : schedule.values()){
+                    eventIds.addAll(sameStart);
+                }
+            }
+            return eventIds;
+        });
+    }
+
+    /**
+     * Check whether the given speaker is speaking at an event that overlaps the given time. An event ending exactly
+     * when the given time starts does not overlap it. Must hold the catalogue lock.
+     */
+    private boolean speakerBusy(UUID speakerId, LocalDateTime time, int duration){
+        TreeMap<LocalDateTime, Set<UUID>> schedule = speakerSchedules.get(speakerId);
+        if (schedule == null){
+            return false;
+        }
+        // No event is longer than MAX_DURATION, so only events starting after this can still be running at time.
+        LocalDateTime earliest = time.minusHours(MAX_DURATION);
+        for (Set<UUID> sameStart : schedule.subMap(earliest, false, time.plusHours(duration), false).values()){
+            for (UUID eventId : sameStart){
+                Event event = getEvent(eventId);
+                if (event.getEventDateAndTime().plusHours(event.getDuration()).isAfter(time)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void indexSpeaker(Event event, UUID speakerId){
+        speakerSchedules.computeIfAbsent(speakerId, s -> new TreeMap<>())
+                .computeIfAbsent(event.getEventDateAndTime(), t -> new HashSet<>()).add(event.getEventId());
+    }
+
+    private void unindexSpeaker(Event event, UUID speakerId){
+        TreeMap<LocalDateTime, Set<UUID>> schedule = speakerSchedules.get(speakerId);
+        if (schedule == null){
+            return;
+        }
+        Set<UUID> sameStart = schedule.get(event.getEventDateAndTime());
+        if (sameStart != null && sameStart.remove(event.getEventId()) && sameStart.isEmpty()){
+            schedule.remove(event.getEventDateAndTime());
+            if (schedule.isEmpty()){
+                speakerSchedules.remove(speakerId);
+            }
+        }
     }
 
     /**
@@ -143,7 +450,7 @@ public class EventsManager{
      * @return the number of attendees
      */
     public Integer getNumAttendees(UUID eventId){
-        return getAttendeeList(eventId).size();
+        return getEvent(eventId).getNumAttendees();
     }
 
     /**
@@ -188,45 +495,102 @@ public class EventsManager{
      * UUID objects of all events.
      */
     public List<UUID> getAllEventIds(){
-        return new ArrayList<>(events.keySet());
+        return catalogue.read(() -> new ArrayList<>(events.keySet()));
     }
 
     /**
-     * Get a list of all events on a day
+     * Get a list of all events on a day, in order of starting time
      * @param date a LocalDate object that represents the day that user would like all events to be return
      * @return a list of UUID objects where each UUID represents an unique event.
      */
     public List<UUID> getEventsByDay(LocalDate date){
-        ArrayList<UUID> outputEvents = new ArrayList<>();
-        Collection<Event> events = this.events.values();
-        for (Event e: events){
-            if (e.getEventDateAndTime().toLocalDate().equals(date)){
-                outputEvents.add(e.getEventId());
+        return getEventsBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Get a list of all events starting within the given time, in order of starting time.
+     * @param from a LocalDateTime object that represents the earliest starting time to include
+     * @param to a LocalDateTime object that represents the end of the time, events starting at it are not included
+     * @return a list of UUID objects where each UUID represents an unique event.
+     */
+    public List<UUID> getEventsBetween(LocalDateTime from, LocalDateTime to){
+        return catalogue.read(() -> {
+            ArrayList<UUID> outputEvents = new ArrayList<>();
+            if (from.isBefore(to)){
+                for (Set<UUID> sameStart : eventsByTime.subMap(from, true, to, false).values()){
+                    outputEvents.addAll(sameStart);
+                }
             }
-        }
-        return outputEvents;
+            return outputEvents;
+        });
     }
 
     /**
-     * Get a list of events that have no date and time conflict with all events in a given list.
+     * Get the next events starting at or after the given time, in order of starting time.
+     * @param from a LocalDateTime object that represents the earliest starting time to include
+     * @param count the maximum number of events to return
+     * @return a list of at most count UUID objects where each UUID represents an unique event.
+     */
+    public List<UUID> getUpcomingEventIds(LocalDateTime from, int count){
+        return catalogue.read(() -> {
+            ArrayList<UUID> outputEvents = new ArrayList<>();
+            for (Set<UUID> sameStart : eventsByTime.tailMap(from, true).values()){
+                for (UUID eventId : sameStart){
+                    if (outputEvents.size() == count){
+                        return outputEvents;
+                    }
+                    outputEvents.add(eventId);
+                }
+            }
+            return outputEvents;
+        });
+    }
+
+    private void indexTime(Event event){
+        eventsByTime.computeIfAbsent(event.getEventDateAndTime(), t -> new LinkedHashSet<>()).add(event.getEventId());
+    }
+
+    /**
+     * Get a list of events that have no date and time conflict with all events in a given list. Two events conflict
+     * if they overlap in time; an event ending exactly when another starts does not conflict with it.
      * @param conflictingEventIds A List of UUID objects where each UUID represents an unique event.
      * @return A List of UUID objects where each UUID represents an unique event. The list consist of events
      * that have no date and time conflict with any event in conflictingEventIds.
      */
     public List<UUID> getNoConflictEventIds(List<UUID> conflictingEventIds){
-        ArrayList<LocalDateTime> conflictingTimes = new ArrayList<>();
+        // The times taken by the given events, with overlapping times merged so that they are disjoint.
+        TreeMap<LocalDateTime, LocalDateTime> busy = new TreeMap<>();
         for (UUID i : conflictingEventIds){
-            if (!conflictingTimes.contains(getEventDateAndTime(i))){
-                conflictingTimes.add(getEventDateAndTime(i));
+            Event event = getEvent(i);
+            if (event == null){
+                continue;
             }
-        }
-        ArrayList<UUID> noConflictEventIds = new ArrayList<>();
-        for (UUID i : events.keySet()){
-            if (!conflictingTimes.contains(getEventDateAndTime(i))){
-                noConflictEventIds.add(i);
+            LocalDateTime start = event.getEventDateAndTime();
+            LocalDateTime end = start.plusHours(event.getDuration());
+            Map.Entry<LocalDateTime, LocalDateTime> before = busy.floorEntry(start);
+            if (before != null && !before.getValue().isBefore(start)){
+                start = before.getKey();
+                end = before.getValue().isAfter(end) ? before.getValue() : end;
+            }
+            Map.Entry<LocalDateTime, LocalDateTime> next = busy.ceilingEntry(start);
+            while (next != null && !next.getKey().isAfter(end)){
+                end = next.getValue().isAfter(end) ? next.getValue() : end;
+                busy.remove(next.getKey());
+                next = busy.ceilingEntry(start);
             }
+            busy.put(start, end);
         }
-        return noConflictEventIds;
+        return catalogue.read(() -> {
+            ArrayList<UUID> noConflictEventIds = new ArrayList<>();
+            for (Event event : events.values()){
+                LocalDateTime start = event.getEventDateAndTime();
+                Map.Entry<LocalDateTime, LocalDateTime> overlapping = busy.lowerEntry(start.plusHours(event.getDuration()));
+                if (overlapping == null || !overlapping.getValue().isAfter(start)){
+                    noConflictEventIds.add(event.getEventId());
+                }
+            }
+            return noConflictEventIds;
+        });
     }
 
     /**
@@ -234,7 +598,25 @@ public class EventsManager{
      * @param eventId UUID object that represents the event
      */
     public void removeEvent(UUID eventId){
-        events.remove(eventId);
+        catalogue.update(() -> {
+            Event removed = events.remove(eventId);
+            if (removed != null){
+                unindex(removed);
+                version++;
+            }
+        });
+        changed(eventId);
+    }
+
+    private void unindex(Event event){
+        Set<UUID> sameStart = eventsByTime.get(event.getEventDateAndTime());
+        sameStart.remove(event.getEventId());
+        if (sameStart.isEmpty()){
+            eventsByTime.remove(event.getEventDateAndTime());
+        }
+        for (UUID speakerId : event.getSpeakers()){
+            unindexSpeaker(event, speakerId);
+        }
     }
 
     /**
@@ -252,6 +634,21 @@ public class EventsManager{
      */
     public void setCapacity(UUID eventID, int capacity) {
         this.getEvent(eventID).setCapacity(capacity);
+        changed(eventID);
+    }
+
+    /**
+     * Set maximum number of attendees allowed in the given event, giving any new seats to the users on its waitlist.
+     * Nothing is changed if more users than the new capacity are signed up.
+     * @param eventID UUID object that represents the event
+     * @param capacity Integer object that represents maximum number of attendees allowed in the given event.
+     * @param roomCapacity the capacity of the event's room
+     * @return the ids of the users that got a seat from the waitlist, or null if the capacity was not changed.
+     */
+    public List<UUID> setCapacityAndPromote(UUID eventID, int capacity, int roomCapacity) {
+        List<UUID> promoted = this.getEvent(eventID).setCapacityAndPromote(capacity, roomCapacity);
+        changed(eventID);
+        return promoted;
     }
 
     /**
@@ -260,7 +657,7 @@ public class EventsManager{
      * @return a String object that represents the event type.
      */
     public String getEventType(UUID eventID) {
-        return this.getEvent(eventID).getEventType();
+        return catalogue.read(() -> this.getEvent(eventID).getEventType());
     }
 
     /**
@@ -270,7 +667,7 @@ public class EventsManager{
      * @return true if event has the feature, false otherwise
      */
     public boolean hasFeature(UUID eventID, RoomFeatures feature){
-        return getEvent(eventID).hasFeature(feature);
+        return eventStripes.forId(eventID).read(() -> getEvent(eventID).hasFeature(feature));
     }
 
     /**
@@ -279,7 +676,8 @@ public class EventsManager{
      * @param feature the RoomFeature to add
      */
     public void addFeature(UUID eventID, RoomFeatures feature){
-        getEvent(eventID).addFeature(feature);
+        eventStripes.forId(eventID).update(() -> getEvent(eventID).addFeature(feature));
+        changed(eventID);
     }
 
     /**
@@ -288,6 +686,7 @@ public class EventsManager{
      * @param feature the RoomFeature to remove
      */
     public void removeFeature(UUID eventID, RoomFeatures feature){
-        getEvent(eventID).removeFeature(feature);
+        eventStripes.forId(eventID).update(() -> getEvent(eventID).removeFeature(feature));
+        changed(eventID);
     }
 }
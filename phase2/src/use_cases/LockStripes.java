@@ -0,0 +1,71 @@
+package use_cases;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of ReadWriteGuards shared by any number of entities. Each entity is guarded by the stripe its id
+ * hashes to, so work on different entities usually holds different locks and runs in parallel, without keeping a lock
+ * for every entity. Two entities may share a stripe, so an action holding one stripe must not wait on another; an
+ * action that needs several entities at once takes their stripes together with writeAll, which always takes them in
+ * the same order.
+ */
+public class LockStripes {
+    private final ReadWriteGuard[] stripes;
+
+    /**
+     * Constructor for LockStripes.
+     * @param count the number of stripes; more stripes mean fewer unrelated entities waiting on each other
+     */
+    public LockStripes(int count) {
+        stripes = new ReadWriteGuard[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReadWriteGuard();
+        }
+    }
+
+    /**
+     * Get the guard of an entity.
+     * @param id the id of the entity
+     * @return the guard of the stripe the id hashes to, always the same one for equal ids
+     */
+    public ReadWriteGuard forId(Object id) {
+        return stripes[indexFor(id)];
+    }
+
+    /**
+     * Run an action while holding the write locks of the stripes of several entities. The stripes are taken in the
+     * order of their position, so two actions taking overlapping stripes this way cannot wait on each other.
+     * @param ids the ids of the entities
+     * @param action the action to run while holding every stripe
+     * @param <T> the type of the result of action
+     * @return the result of action
+     */
+    public <T> T writeAll(Collection<?> ids, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Object id : ids) {
+            indexes.add(indexFor(id));
+        }
+        List<ReadWriteGuard> guards = new ArrayList<>();
+        for (int index : indexes) {
+            guards.add(stripes[index]);
+        }
+        return writeFrom(guards, 0, action);
+    }
+
+    private static <T> T writeFrom(List<ReadWriteGuard> guards, int next, Supplier<T> action) {
+        if (next == guards.size()) {
+            return action.get();
+        }
+        return guards.get(next).write(() -> writeFrom(guards, next + 1, action));
+    }
+
+    private int indexFor(Object id) {
+        int hash = id.hashCode();
+        // Spread the high bits down, since only the low bits pick the stripe.
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
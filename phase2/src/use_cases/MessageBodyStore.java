@@ -0,0 +1,77 @@
+package use_cases;
+
+import java.util.HashMap;
+
+/**
+ * A content-addressed store of message bodies that are sent into many conversations, such as announcements. Each
+ * distinct body is kept once, keyed by its content, and conversations hold a reference to that single copy. Bodies
+ * are reference counted so that a body is forgotten once no message uses it.
+ */
+public class MessageBodyStore {
+
+    /**
+     * Bodies shorter than this are stored with their message, since sharing them would cost more than it saves.
+     */
+    public static final int SHARED_BODY_MIN_LENGTH = 128;
+
+    private HashMap<String, SharedBody> bodies = new HashMap<>();
+
+    /**
+     * Returns the shared copy of content, adding it to the store if it is new, and counts one more reference to it.
+     * @param content The body of a message
+     * @return The single shared copy of a body equal to content
+     */
+    public synchronized String acquire(String content) {
+        SharedBody body = bodies.get(content);
+        if (body == null) {
+            body = new SharedBody(content);
+            bodies.put(content, body);
+        }
+        body.references++;
+        return body.content;
+    }
+
+    /**
+     * Counts one less reference to a body, removing it from the store once nothing refers to it.
+     * @param content The body of a message that is no longer kept
+     */
+    public synchronized void release(String content) {
+        SharedBody body = bodies.get(content);
+        if (body != null && --body.references == 0) {
+            bodies.remove(content);
+        }
+    }
+
+    /**
+     * @param content The body of a message
+     * @return The number of messages that refer to the shared copy of content
+     */
+    public synchronized int getReferenceCount(String content) {
+        SharedBody body = bodies.get(content);
+        return body == null ? 0 : body.references;
+    }
+
+    /**
+     * @return The number of distinct bodies in the store
+     */
+    public synchronized int getBodyCount() {
+        return bodies.size();
+    }
+
+    /**
+     * @param content The body of a message
+     * @return Whether the body is long enough to be stored in this store
+     */
+    public static boolean isShareable(String content) {
+        return content.length() >= SHARED_BODY_MIN_LENGTH;
+    }
+
+    private static class SharedBody {
+        private final String content;
+        private int references = 0;
+
+        SharedBody(String content) {
+            this.content = content;
+        }
+    }
+}
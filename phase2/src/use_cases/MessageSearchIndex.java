@@ -0,0 +1,229 @@
+package use_cases;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * An inverted index over the content of messages. Each message is identified by its conversation's id and its
+ * position: the number of messages sent to that conversation before it, including messages dropped since. Positions
+ * do not change when older messages are dropped, so the index can be kept up to date by appending messages as they
+ * are sent, and can be saved alongside the conversations instead of being rebuilt on every start.
+ */
+public class MessageSearchIndex implements Serializable {
+
+    private HashMap<String, HashMap<UUID, ArrayList<Integer>>> postings = new HashMap<>();
+    private HashMap<String, Integer> documentFrequency = new HashMap<>();
+    private HashMap<UUID, Integer> indexedCounts = new HashMap<>();
+    private int indexedMessages = 0;
+    private static final long serialVersionUID = -2093468127751245380L; // Changed so indexes saved by offset are rebuilt
+
+    /**
+     * Adds a message to the index. Messages of a conversation must be added in order of position.
+     * @param conversationId The id of the conversation the message belongs to
+     * @param position The position of the message in its conversation
+     * @param content The content of the message
+     */
+    public synchronized void addMessage(UUID conversationId, int position, String content) {
+        for (String term : new LinkedHashSet<>(tokenize(content))) {
+            postings.computeIfAbsent(term, t -> new HashMap<>())
+                    .computeIfAbsent(conversationId, c -> new ArrayList<>())
+                    .add(position);
+            documentFrequency.merge(term, 1, Integer::sum);
+        }
+        indexedCounts.put(conversationId, position + 1);
+        indexedMessages++;
+    }
+
+    /**
+     * @param conversationId The id of a conversation
+     * @return The position after the last indexed message of the conversation, or 0 if none has been indexed
+     */
+    public synchronized int getIndexedCount(UUID conversationId) {
+        return indexedCounts.getOrDefault(conversationId, 0);
+    }
+
+    /**
+     * Removes every message of a conversation from the index.
+     * @param conversationId The id of the conversation to remove
+     */
+    public synchronized void removeConversation(UUID conversationId) {
+        Iterator<Map.Entry<String, HashMap<UUID, ArrayList<Integer>>>> terms = postings.entrySet().iterator();
+        while (terms.hasNext()) {
+            Map.Entry<String, HashMap<UUID, ArrayList<Integer>>> entry = terms.next();
+            ArrayList<Integer> positions = entry.getValue().remove(conversationId);
+            if (positions != null) {
+                documentFrequency.merge(entry.getKey(), -positions.size(), Integer::sum);
+                indexedMessages -= positions.size();
+                if (entry.getValue().isEmpty()) {
+                    terms.remove();
+                    documentFrequency.remove(entry.getKey());
+                }
+            }
+        }
+        indexedCounts.remove(conversationId);
+    }
+
+    /**
+     * Removes the oldest messages of some conversations from the index. The remaining messages keep their positions,
+     * so messages indexed meanwhile are unaffected, and removing the same messages twice does nothing. Done in one
+     * pass over the index, so conversations should be handed in together.
+     * @param firstKept The ids of conversations, mapped to the position of the first message to keep
+     */
+    public synchronized void dropOldestMessages(Map<UUID, Integer> firstKept) {
+        Iterator<Map.Entry<String, HashMap<UUID, ArrayList<Integer>>>> terms = postings.entrySet().iterator();
+        while (terms.hasNext()) {
+            Map.Entry<String, HashMap<UUID, ArrayList<Integer>>> entry = terms.next();
+            Iterator<Map.Entry<UUID, ArrayList<Integer>>> conversations = entry.getValue().entrySet().iterator();
+            while (conversations.hasNext()) {
+                Map.Entry<UUID, ArrayList<Integer>> conversation = conversations.next();
+                Integer first = firstKept.get(conversation.getKey());
+                ArrayList<Integer> positions = conversation.getValue();
+                if (first == null || positions.get(0) >= first) {
+                    continue;
+                }
+                // Positions are appended in order, so the dropped ones are a prefix of the list.
+                int removed = Collections.binarySearch(positions, first);
+                if (removed < 0) {
+                    removed = -removed - 1;
+                }
+                documentFrequency.merge(entry.getKey(), -removed, Integer::sum);
+                indexedMessages -= removed;
+                if (removed == positions.size()) {
+                    conversations.remove();
+                } else {
+                    conversation.setValue(new ArrayList<>(positions.subList(removed, positions.size())));
+                }
+            }
+            if (entry.getValue().isEmpty()) {
+                terms.remove();
+                documentFrequency.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Finds the messages that contain at least one of the query's terms, limited to the given conversations. Messages
+     * are ranked by the summed rarity (inverse document frequency) of the terms they contain.
+     * @param query The words being searched for
+     * @param visibleFrom The conversations to search, mapped to the position of the first message that may be returned
+     * @param limit The maximum number of hits to return
+     * @return The best hits, highest score first
+     */
+    public synchronized List<Hit> search(String query, Map<UUID, Integer> visibleFrom, int limit) {
+        HashMap<UUID, HashMap<Integer, Double>> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            HashMap<UUID, ArrayList<Integer>> termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) indexedMessages / documentFrequency.get(term));
+            // Walk whichever side is smaller: the user's conversations or the conversations containing the term.
+            if (visibleFrom.size() < termPostings.size()) {
+                for (Map.Entry<UUID, Integer> conversation : visibleFrom.entrySet()) {
+                    addScores(scores, conversation.getKey(), termPostings.get(conversation.getKey()),
+                            conversation.getValue(), idf);
+                }
+            } else {
+                for (Map.Entry<UUID, ArrayList<Integer>> conversation : termPostings.entrySet()) {
+                    Integer from = visibleFrom.get(conversation.getKey());
+                    if (from != null) {
+                        addScores(scores, conversation.getKey(), conversation.getValue(), from, idf);
+                    }
+                }
+            }
+        }
+
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::getScore).thenComparingInt(Hit::getPosition);
+        PriorityQueue<Hit> best = new PriorityQueue<>(ranking);
+        for (Map.Entry<UUID, HashMap<Integer, Double>> conversation : scores.entrySet()) {
+            for (Map.Entry<Integer, Double> message : conversation.getValue().entrySet()) {
+                best.add(new Hit(conversation.getKey(), message.getKey(), message.getValue()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        ArrayList<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking.reversed());
+        return hits;
+    }
+
+    private void addScores(HashMap<UUID, HashMap<Integer, Double>> scores, UUID conversationId,
+                           ArrayList<Integer> positions, int from, double idf) {
+        if (positions == null) {
+            return;
+        }
+        // Positions are appended in order, so the visible ones are a suffix of the list.
+        int start = Collections.binarySearch(positions, from);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        HashMap<Integer, Double> conversationScores = scores.computeIfAbsent(conversationId, c -> new HashMap<>());
+        for (int i = start; i < positions.size(); i++) {
+            conversationScores.merge(positions.get(i), idf, Double::sum);
+        }
+    }
+
+    /**
+     * Splits text into lower case words made of letters and digits.
+     * @param text The text to split
+     * @return The words in text, in order
+     */
+    public static List<String> tokenize(String text) {
+        ArrayList<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Saves the index while holding its lock, so that messages indexed meanwhile wait instead of being half saved.
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    /**
+     * A single search result: a message identified by its conversation and position, with its score.
+     */
+    public static class Hit {
+        private final UUID conversationId;
+        private final int position;
+        private final double score;
+
+        Hit(UUID conversationId, int position, double score) {
+            this.conversationId = conversationId;
+            this.position = position;
+            this.score = score;
+        }
+
+        /**
+         * @return Returns the id of the conversation the message belongs to
+         */
+        public UUID getConversationId() {
+            return conversationId;
+        }
+
+        /**
+         * @return Returns the position of the message in its conversation
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return Returns the score of the message for the query
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package use_cases;
+
+import enums.ConvoType;
+import enums.EntityKind;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Told about every change the managers make, for example to copy them to replicas. Events, rooms and users are only
+ * named when they change, since the whole entity is small enough to look up again; conversations can hold many
+ * messages, so their changes are described one by one instead.
+ * Methods are called from whichever thread made the change, sometimes while it holds the managers' locks, so they
+ * must be quick and must not call back into the managers.
+ */
+public interface MutationListener {
+    /**
+     * An event, room or user was added, changed or removed.
+     * @param kind the kind of entity
+     * @param id the id of the entity
+     */
+    void entityChanged(EntityKind kind, UUID id);
+
+    /**
+     * A conversation was created.
+     * @param conversationId the id of the conversation
+     * @param participants the participants of the conversation
+     * @param type the type of the conversation
+     */
+    void conversationCreated(UUID conversationId, List<UUID> participants, ConvoType type);
+
+    /**
+     * A message was added to a conversation. Called in the order the messages were added.
+     * @param conversationId the id of the conversation
+     * @param position the number of messages sent to the conversation before this one, including dropped ones
+     * @param senderId the sender, or null for a notification
+     * @param time when the message was sent
+     * @param content the content of the message
+     */
+    void messageAdded(UUID conversationId, long position, UUID senderId, LocalDateTime time, String content);
+
+    /**
+     * The oldest messages of a conversation were dropped.
+     * @param conversationId the id of the conversation
+     * @param droppedTotal the number of messages dropped from the conversation so far
+     */
+    void messagesDropped(UUID conversationId, long droppedTotal);
+
+    /**
+     * The event name of a conversation was set.
+     * @param conversationId the id of the conversation
+     * @param eventName the new event name
+     */
+    void conversationRenamed(UUID conversationId, String eventName);
+}
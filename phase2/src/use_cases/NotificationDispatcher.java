@@ -0,0 +1,228 @@
+package use_cases;
+
+import enums.EventChange;
+import value_holders.EventChangeNotice;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells users about changes to events without making the organizer who changed them wait. Controllers publish an
+ * EventChangeNotice and return; worker threads take the notices waiting in a fixed size queue in batches, work out
+ * who has to hear about each one, and send every user one notification per batch listing everything that happened to
+ * the events they care about. Publishing blocks while the queue is full, so organizers cannot get further ahead of
+ * the workers than that.
+ * Notifications for different events may arrive in a different order than the events were changed in.
+ */
+public class NotificationDispatcher {
+    private static final int MAX_BATCH = 256;
+
+    private final UserManager userManager;
+    private final ConversationManager conversationManager;
+    private final ArrayBlockingQueue<EventChangeNotice> notices;
+    private final Object idle = new Object();
+    private int pending = 0;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Constructor for NotificationDispatcher. The workers start right away.
+     * @param userManager The UserManager to find the users to notify with.
+     * @param conversationManager The ConversationManager to send notifications with.
+     * @param workers The number of worker threads.
+     * @param capacity The number of notices that can wait for the workers.
+     */
+    public NotificationDispatcher(UserManager userManager, ConversationManager conversationManager, int workers,
+                                  int capacity) {
+        this.userManager = userManager;
+        this.conversationManager = conversationManager;
+        this.notices = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "notification-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queue a change to an event for the workers, waiting while the queue is full.
+     * @param notice The change to tell users about.
+     */
+    public void publish(EventChangeNotice notice) {
+        synchronized (idle) {
+            pending++;
+        }
+        try {
+            notices.put(notice);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished(1);
+        }
+    }
+
+    /**
+     * Wait until every notice published so far has been delivered, for example before saving the conversations.
+     * Returns early if the thread is interrupted, keeping it interrupted.
+     */
+    public void awaitIdle() {
+        synchronized (idle) {
+            while (pending > 0) {
+                try {
+                    idle.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of notices waiting for the workers
+     */
+    public int getBacklog() {
+        return notices.size();
+    }
+
+    /**
+     * @return The number of notifications sent so far
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * @return The number of notices that could not be delivered, for example because a user no longer exists
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void finished(int count) {
+        synchronized (idle) {
+            pending -= count;
+            if (pending == 0) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    private void work() {
+        ArrayList<EventChangeNotice> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(notices.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            notices.drainTo(batch, MAX_BATCH - 1);
+            try {
+                deliver(batch);
+            } finally {
+                finished(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Work out the notifications for a batch of notices and send them, one per user.
+     */
+    private void deliver(List<EventChangeNotice> batch) {
+        LinkedHashMap<UUID, List<String>> lines = new LinkedHashMap<>();
+        Fans fans = new Fans();
+        for (EventChangeNotice notice : batch) {
+            try {
+                collect(notice, fans, lines);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        }
+        for (Map.Entry<UUID, List<String>> recipient : lines.entrySet()) {
+            try {
+                sendTo(recipient.getKey(), String.join("\n\n", recipient.getValue()));
+                sent.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    private void collect(EventChangeNotice notice, Fans fans, Map<UUID, List<String>> lines) {
+        switch (notice.getChange()) {
+            case CREATED:
+            case SPEAKER_ADDED:
+                for (UUID speakerId : notice.getSpeakerIds()) {
+                    String speakerName = userManager.getUserName(userManager.findUserIndexById(speakerId));
+                    String news = notice.getChange() == EventChange.CREATED ?
+                            "There is a new event created with one of your favourite speakers, " + speakerName + ". \n" :
+                            "One of your favourite speakers, " + speakerName + ", will now speak at an event. \n";
+                    for (UUID vipId : fans.of(speakerId)) {
+                        add(lines, vipId, news + "The event details are as follows:\n" + notice.getEventString());
+                    }
+                }
+                break;
+            case CANCELLED:
+                for (UUID userId : notice.getUserIds()) {
+                    // A user who cannot be found is skipped, so the others are still told.
+                    try {
+                        userManager.removeEvent(userManager.getUserByIndex(userManager.findUserIndexById(userId)),
+                                notice.getEventId());
+                        add(lines, userId, "The event " + notice.getEventName() + " has been cancelled.");
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+                break;
+            case WAITLIST_PROMOTED:
+                for (UUID userId : notice.getUserIds()) {
+                    add(lines, userId, "A seat opened up for " + notice.getEventName() +
+                            " and you have been moved off the waitlist and signed up.");
+                }
+                break;
+            case CAPACITY_CHANGED:
+                for (UUID userId : notice.getUserIds()) {
+                    add(lines, userId, "The capacity of " + notice.getEventName() + " has been changed to " +
+                            notice.getCapacity() + ".");
+                }
+                break;
+        }
+    }
+
+    private void add(Map<UUID, List<String>> lines, UUID recipient, String line) {
+        lines.computeIfAbsent(recipient, r -> new ArrayList<>()).add(line);
+    }
+
+    private void sendTo(UUID userId, String content) {
+        UUID conversation = conversationManager.sendNotification(userId, content);
+        int userIndex = userManager.findUserIndexById(userId);
+        if (!userManager.userHasConversation(userId, conversation)) {
+            userManager.addConversation(conversation, userIndex);
+        }
+        userManager.markConversationAsUnread(conversation, userIndex);
+    }
+
+    /**
+     * The VIPs who favour each speaker, looked up at most once per speaker in a batch.
+     */
+    private class Fans {
+        private Set<UUID> vipIds;
+        private final HashMap<UUID, List<UUID>> bySpeaker = new HashMap<>();
+
+        List<UUID> of(UUID speakerId) {
+            if (vipIds == null) {
+                vipIds = userManager.getAllVipUsers();
+            }
+            return bySpeaker.computeIfAbsent(speakerId, s -> {
+                List<UUID> fans = new ArrayList<>();
+                for (UUID vipId : vipIds) {
+                    if (userManager.isFavouriteSpeaker(vipId, s)) {
+                        fans.add(vipId);
+                    }
+                }
+                return fans;
+            });
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package use_cases;
+
+import enums.UserOption;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how often each user may perform each option, so that one user repeating an option (e.g. sending messages in
+ * a loop) is slowed down without slowing anyone else. Every user has a token bucket per limited option: performing
+ * the option takes a token, and tokens come back at a steady rate up to a burst. A user's sessions all share the
+ * user's buckets. Options without a limit are not counted.
+ * Safe to use from many threads at once.
+ */
+public class RateLimiter {
+    private static final int SWEEP_EVERY = 4096;
+
+    private volatile Limit[] limits = new Limit[UserOption.values().length];
+    private final LongAdder[] limited = new LongAdder[UserOption.values().length];
+    private final ConcurrentHashMap<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger untilSweep = new AtomicInteger(SWEEP_EVERY);
+    private volatile boolean enabled = true;
+
+    /**
+     * Constructor for RateLimiter, with no options limited.
+     */
+    public RateLimiter() {
+        for (int i = 0; i < limited.length; i++) {
+            limited[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Limit how often each user may perform an option. Buckets already filling keep their tokens.
+     * @param option the option to limit
+     * @param perSecond the number of tokens given back each second
+     * @param burst the most tokens a bucket holds, i.e. how many times the option can be performed at once after a
+     *              pause
+     */
+    public synchronized void setLimit(UserOption option, double perSecond, int burst) {
+        Limit[] changed = limits.clone();
+        changed[option.ordinal()] = new Limit(perSecond, burst);
+        limits = changed;
+    }
+
+    /**
+     * Turn the limits on or off, e.g. off for a benchmark of many sessions logged in as the same few users.
+     * @param enabled whether options are limited
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Take a token for the user to perform the option, if one is left.
+     * @param userId the id of the user
+     * @param option the option the user wants to perform
+     * @return true if the user may perform the option now, false if the user has to wait
+     */
+    public boolean tryAcquire(UUID userId, UserOption option) {
+        Limit limit = limits[option.ordinal()];
+        if (!enabled || limit == null) {
+            return true;
+        }
+        if (untilSweep.decrementAndGet() <= 0) {
+            untilSweep.set(SWEEP_EVERY);
+            sweep();
+        }
+        long now = System.nanoTime();
+        Bucket bucket = buckets.computeIfAbsent(new BucketKey(userId, option), key -> new Bucket(limit.burst, now));
+        if (bucket.tryTake(limit, now)) {
+            return true;
+        }
+        limited[option.ordinal()].increment();
+        return false;
+    }
+
+    /**
+     * @param option an option
+     * @return The number of times users were refused the option because they had no tokens left
+     */
+    public long getLimitedCount(UserOption option) {
+        return limited[option.ordinal()].sum();
+    }
+
+    /**
+     * @return The limiter's figures for a status page: the number of buckets, and for each limited option the number
+     * of times it was refused
+     */
+    public Map<String, Long> getStatus() {
+        LinkedHashMap<String, Long> status = new LinkedHashMap<>();
+        status.put("buckets", (long) buckets.size());
+        for (UserOption option : UserOption.values()) {
+            if (limits[option.ordinal()] != null) {
+                status.put(option.name() + ".limited", getLimitedCount(option));
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Forget the buckets that have filled up again, since a new bucket starts full anyway. A user taking a token from
+     * a bucket as it is forgotten gets that token back.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<BucketKey, Bucket>> entries = buckets.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<BucketKey, Bucket> entry = entries.next();
+            Limit limit = limits[entry.getKey().option.ordinal()];
+            if (limit == null || entry.getValue().isFull(limit, now)) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * How often an option may be performed.
+     */
+    private static class Limit {
+        final double perNano;
+        final int burst;
+
+        Limit(double perSecond, int burst) {
+            this.perNano = perSecond / 1e9;
+            this.burst = burst;
+        }
+    }
+
+    private static class BucketKey {
+        final UUID userId;
+        final UserOption option;
+
+        BucketKey(UUID userId, UserOption option) {
+            this.userId = userId;
+            this.option = option;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return userId.equals(other.userId) && option == other.option;
+        }
+
+        @Override
+        public int hashCode() {
+            return userId.hashCode() * 31 + option.ordinal();
+        }
+    }
+
+    /**
+     * The tokens a user has left for an option, as of the last time they were counted.
+     */
+    private static class Bucket {
+        private double tokens;
+        private long counted;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.counted = now;
+        }
+
+        synchronized boolean tryTake(Limit limit, long now) {
+            refill(limit, now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(Limit limit, long now) {
+            refill(limit, now);
+            return tokens >= limit.burst;
+        }
+
+        private void refill(Limit limit, long now) {
+            tokens = Math.min(limit.burst, tokens + (now - counted) * limit.perNano);
+            counted = now;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package use_cases;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * A read-write lock that runs actions while holding it. Any number of readers may hold it at once, but a writer holds
+ * it alone, so state that is only changed under write and only looked at under read is never seen half changed.
+ * Reentrant: an action may call other guarded methods, and a writer may also read. A reader may not start writing.
+ */
+public class ReadWriteGuard {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Run an action that only looks at the guarded state.
+     * @param action the action to run while holding the read lock
+     * @param <T> the type of the result of action
+     * @return the result of action
+     */
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run an action that changes the guarded state and has a result.
+     * @param action the action to run while holding the write lock
+     * @param <T> the type of the result of action
+     * @return the result of action
+     */
+    public <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Run an action that changes the guarded state.
+     * @param action the action to run while holding the write lock
+     */
+    public void update(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
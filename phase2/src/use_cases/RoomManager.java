@@ -2,16 +2,29 @@ package use_cases;
 
 import java.util.*;
 import java.time.*;
+import java.util.function.Function;
+import entities.Booking;
 import entities.Room;
+import enums.EntityKind;
 import enums.RoomFeatures;
+import value_holders.RoomSlot;
 
 /**
  * This class manages rooms.
+ * Safe to use from many threads at once. The rooms, their features and the search index are guarded by one
+ * read-write lock, and the bookings of each room by a lock striped by room id, so booking different rooms does not
+ * wait on each other. A room's stripe is always taken before the rooms' lock, never while holding it.
  *
  * @author Nina
  */
 public class RoomManager {
     private HashMap<UUID, Room> rooms;
+    private RoomSearchIndex searchIndex = new RoomSearchIndex();
+    private final ReadWriteGuard catalogue = new ReadWriteGuard();
+    private final LockStripes roomStripes = new LockStripes(LOCK_STRIPES);
+    private static final int LOCK_STRIPES = 64;
+    private volatile long version = 0;
+    private volatile MutationListener mutationListener;
 
     /**
      * Constructor for RoomManager.
@@ -19,6 +32,9 @@ public class RoomManager {
      */
     public RoomManager(HashMap<UUID, Room> allRooms){
         rooms = allRooms;
+        for (Room room : rooms.values()) {
+            searchIndex.addRoom(room.getRoomID(), room.getCapacity(), room.getFeatureMask());
+        }
     }
 
     /**
@@ -34,10 +50,68 @@ public class RoomManager {
      */
     public UUID addRoom(String name, int capacity, int earliestStartTime, int closingTime){
         Room newRoom = new Room(name, capacity, earliestStartTime, closingTime);
-        rooms.put(newRoom.getRoomID(), newRoom);
+        catalogue.update(() -> {
+            rooms.put(newRoom.getRoomID(), newRoom);
+            searchIndex.addRoom(newRoom.getRoomID(), capacity, newRoom.getFeatureMask());
+            version++;
+        });
+        changed(newRoom.getRoomID());
         return newRoom.getRoomID();
     }
 
+    /**
+     * Get the version of the rooms, which goes up every time a room is added or its features change.
+     * @return a number that is different whenever the rooms may display differently.
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * Set the listener told about every change to the rooms and their bookings, e.g. to copy them to replicas.
+     * @param mutationListener the listener, or null to stop telling one
+     */
+    public void setMutationListener(MutationListener mutationListener){
+        this.mutationListener = mutationListener;
+    }
+
+    private void changed(UUID roomId){
+        MutationListener listener = mutationListener;
+        if (listener != null){
+            listener.entityChanged(EntityKind.ROOM, roomId);
+        }
+    }
+
+    /**
+     * Look at a room while neither its bookings nor its features can change, e.g. to copy it.
+     * @param roomId the room id
+     * @param reader what to do with the room
+     * @param <T> the type of the result of reader
+     * @return the result of reader, or null if the room does not exist
+     */
+    public <T> T readRoom(UUID roomId, Function<Room, T> reader){
+        return roomStripes.forId(roomId).read(() -> catalogue.read(() -> {
+            Room room = rooms.get(roomId);
+            return room == null ? null : reader.apply(room);
+        }));
+    }
+
+    /**
+     * Add a room as it is, or replace the room with the same id, e.g. with a copy from the primary on a replica.
+     * @param room the room
+     */
+    public void putRoom(Room room){
+        roomStripes.forId(room.getRoomID()).update(() -> catalogue.update(() -> {
+            if (rooms.put(room.getRoomID(), room) == null){
+                searchIndex.addRoom(room.getRoomID(), room.getCapacity(), room.getFeatureMask());
+            }
+            else {
+                searchIndex.setFeatureMask(room.getRoomID(), room.getFeatureMask());
+            }
+            version++;
+        }));
+    }
+
     /**
      * Get the room capacity.
      * @param roomId which room
@@ -48,20 +122,20 @@ public class RoomManager {
     }
 
     /**
-     * Get the specified room by room id.
+     * Get the specified room by room id. Its bookings should be read through this manager, which holds the room's lock.
      * @param roomId room id
      * @return the room
      */
     public Room getRoom(UUID roomId){
-        return rooms.get(roomId);
+        return catalogue.read(() -> rooms.get(roomId));
     }
 
     /**
      * Get and return all existing rooms
-     * @return hashmap of room ids to rooms
+     * @return a copy of the hashmap of room ids to rooms, which later changes to the rooms do not affect
      */
     public HashMap<UUID, Room> getAllRooms() {
-        return rooms;
+        return catalogue.read(() -> new HashMap<>(rooms));
     }
 
     /**
@@ -70,18 +144,55 @@ public class RoomManager {
      * @return The name of the room
      */
     public String getRoomName(UUID roomId){
-        return rooms.get(roomId).getRoomName();
+        return getRoom(roomId).getRoomName();
     }
 
     /**
-     * Book the room out at a specific time for a given duration.
+     * Book the room out at a specific time for a given duration, whether or not the room is open then, unless another
+     * booking overlaps it. Use bookRoomIfAvailable to also check the room's opening hours.
      * @param roomId the room id that was booked
      * @param time the time that was booked
      * @param eventId the event id that the room is booked for
      * @param duration an integer object that represents how long the room will be booked for for the event
+     * @return true if the room is now booked, false if the time overlaps another booking or has no duration.
+     */
+    public boolean bookRoom(UUID roomId, LocalDateTime time, UUID eventId, int duration){
+        boolean booked = roomStripes.forId(roomId).write(() -> getRoom(roomId).bookRoom(time, eventId, duration));
+        if (booked){
+            changed(roomId);
+        }
+        return booked;
+    }
+
+    /**
+     * Book the room out at a specific time for a given duration if it is available, checking and booking as one step,
+     * so that two events cannot both be booked into the same free time.
+     * @param roomId the room id to book
+     * @param time the time to book
+     * @param eventId the event id that the room is booked for
+     * @param duration an integer object that represents how long the room will be booked for for the event
+     * @return true if the room was available and is now booked, false otherwise.
+     */
+    public boolean bookRoomIfAvailable(UUID roomId, LocalDateTime time, UUID eventId, int duration){
+        boolean booked = roomStripes.forId(roomId).write(() -> {
+            Room room = getRoom(roomId);
+            return room.checkRoomAvailability(time, duration) && room.bookRoom(time, eventId, duration);
+        });
+        if (booked){
+            changed(roomId);
+        }
+        return booked;
+    }
+
+    /**
+     * Get the bookings of a room that overlap the given time.
+     * @param roomId the room id
+     * @param from the start of the time
+     * @param to the end of the time, not included
+     * @return A List of the bookings, ordered by starting time
      */
-    public void bookRoom(UUID roomId, LocalDateTime time, UUID eventId, int duration){
-        getRoom(roomId).bookRoom(time, eventId, duration);
+    public List<Booking> getBookings(UUID roomId, LocalDateTime from, LocalDateTime to){
+        return roomStripes.forId(roomId).read(() -> getRoom(roomId).getBookings(from, to));
     }
 
     /**
@@ -92,7 +203,69 @@ public class RoomManager {
      * @return true if the room is available from the given time throughout the given duration, false otherwise.
      */
     public boolean checkRoomAvailability(UUID roomId, LocalDateTime time, int duration){
-        return getRoom(roomId).checkRoomAvailability(time, duration);
+        return roomStripes.forId(roomId).read(() -> getRoom(roomId).checkRoomAvailability(time, duration));
+    }
+
+    /**
+     * Get the rooms that have all the given features and can hold the given capacity, whether or not they are free.
+     * @param requiredFeatures a list of RoomFeatures the room must have
+     * @param capacity the number of attendees the room must hold
+     * @return A List of room ids, ordered from the smallest sufficient capacity to the largest
+     */
+    public List<UUID> getCandidateRoomIds(List<RoomFeatures> requiredFeatures, int capacity){
+        return catalogue.read(() -> searchIndex.findCandidates(RoomFeatures.maskOf(requiredFeatures), capacity));
+    }
+
+    /**
+     * Get the rooms that have all the given features, can hold the given capacity and are available at the given time
+     * for the given duration.
+     * @param requiredFeatures a list of RoomFeatures the room must have
+     * @param capacity the number of attendees the room must hold
+     * @param time the time the room is needed from
+     * @param duration the number of hours the room is needed for
+     * @return A List of room ids, ordered from the smallest sufficient capacity to the largest
+     */
+    public List<UUID> getSuggestedRoomIds(List<RoomFeatures> requiredFeatures, int capacity, LocalDateTime time, int duration){
+        ArrayList<UUID> suggestedRooms = new ArrayList<>();
+        for (UUID roomId : getCandidateRoomIds(requiredFeatures, capacity)){
+            if (checkRoomAvailability(roomId, time, duration)){
+                suggestedRooms.add(roomId);
+            }
+        }
+        return suggestedRooms;
+    }
+
+    /**
+     * Find the earliest times, between the given days, that a room with all the given features and enough capacity is
+     * free for the given duration. Each room's bookings are walked in order, so only the start of each free gap is
+     * suggested rather than every hour of it.
+     * @param requiredFeatures a list of RoomFeatures the room must have
+     * @param capacity the number of attendees the room must hold
+     * @param duration the number of hours the room is needed for
+     * @param from the first day to look at
+     * @param to the last day to look at
+     * @param count the maximum number of slots to return
+     * @return A List of RoomSlots ordered by starting time, then from the smallest sufficient capacity to the largest
+     */
+    public List<RoomSlot> findEarliestSlots(List<RoomFeatures> requiredFeatures, int capacity, int duration,
+                                            LocalDate from, LocalDate to, int count){
+        ArrayList<RoomSlot> slots = new ArrayList<>();
+        List<UUID> candidates = getCandidateRoomIds(requiredFeatures, capacity);
+        for (LocalDate day = from; !day.isAfter(to) && slots.size() < count; day = day.plusDays(1)){
+            ArrayList<RoomSlot> daySlots = new ArrayList<>();
+            for (UUID roomId : candidates){
+                LocalDate freeDay = day;
+                List<LocalDateTime> freeStarts = roomStripes.forId(roomId).read(() ->
+                        getRoom(roomId).findFreeStarts(freeDay, duration));
+                for (LocalDateTime start : freeStarts){
+                    daySlots.add(new RoomSlot(roomId, start));
+                }
+            }
+            // The sort is stable, so rooms free at the same time stay in best fit order.
+            daySlots.sort(Comparator.comparing(RoomSlot::getStart));
+            slots.addAll(daySlots.subList(0, Math.min(daySlots.size(), count - slots.size())));
+        }
+        return slots;
     }
 
     /**
@@ -100,7 +273,7 @@ public class RoomManager {
      * @return A List of UUIDS of room ids.
      */
     public List<UUID> getAllRoomIds(){
-        return new ArrayList<>(rooms.keySet());
+        return catalogue.read(() -> new ArrayList<>(rooms.keySet()));
     }
 
     /**
@@ -117,11 +290,58 @@ public class RoomManager {
     }
 
     /**
-     * Remove the booking of a event at the given booking time.
-     * @param time an LocalDateTime object that represents the starting time of the booking event that would be removed.
+     * Remove the booking of an event from a room, freeing its time slot.
+     * @param roomId the id of the room the event is booked in
+     * @param eventId the id of the event whose booking would be removed
+     * @return true if the event had a booking in the room, false otherwise.
+     */
+    public boolean removeBooking(UUID roomId, UUID eventId) {
+        Room room = getRoom(roomId);
+        boolean removed = room != null && roomStripes.forId(roomId).write(() -> room.removeBooking(eventId));
+        if (removed){
+            changed(roomId);
+        }
+        return removed;
+    }
+
+    /**
+     * Make the bookings of every room match the given events: bookings of events that no longer exist, or that were
+     * moved to another room or time, are removed, and events without a booking in their room are booked if the room
+     * is free.
+     * @param eventsManager the EventsManager holding the events the bookings should match
+     * @return A List of ids of events that have no booking because their room does not exist or is not free
      */
-    public void removeBooking(LocalDateTime time) {
-        rooms.remove(time);
+    public List<UUID> reconcileBookings(EventsManager eventsManager){
+        HashSet<UUID> eventIds = new HashSet<>(eventsManager.getAllEventIds());
+        ArrayList<UUID> unbooked = new ArrayList<>();
+        for (Room room : getAllRooms().values()){
+            roomStripes.forId(room.getRoomID()).update(() -> removeStaleBookings(room, eventIds, eventsManager));
+            changed(room.getRoomID());
+        }
+        for (UUID eventId : eventIds){
+            UUID roomId = eventsManager.getEventRoomId(eventId);
+            Room room = getRoom(roomId);
+            if (room == null){
+                unbooked.add(eventId);
+            }
+            else if (!roomStripes.forId(roomId).read(() -> room.getBooking(eventId) != null) &&
+                    !bookRoomIfAvailable(roomId, eventsManager.getEventDateAndTime(eventId), eventId,
+                            eventsManager.getDuration(eventId))){
+                unbooked.add(eventId);
+            }
+        }
+        return unbooked;
+    }
+
+    private void removeStaleBookings(Room room, Set<UUID> eventIds, EventsManager eventsManager){
+        for (UUID eventId : room.getBookedEventIds()){
+            Booking booking = room.getBooking(eventId);
+            if (!eventIds.contains(eventId) || !room.getRoomID().equals(eventsManager.getEventRoomId(eventId)) ||
+                    !booking.getStart().equals(eventsManager.getEventDateAndTime(eventId)) ||
+                    !booking.getEnd().equals(booking.getStart().plusHours(eventsManager.getDuration(eventId)))){
+                room.removeBooking(eventId);
+            }
+        }
     }
 
 
@@ -131,7 +351,7 @@ public class RoomManager {
      * @return A string of feature names
      */
     public String getFeaturesDisplay(UUID roomId){
-        return getRoom(roomId).displayFeatures();
+        return catalogue.read(() -> getRoom(roomId).displayFeatures());
     }
 
     /**
@@ -141,7 +361,7 @@ public class RoomManager {
      * @return true if room has the feature, false otherwise.
      */
     public boolean hasFeature(UUID roomId, RoomFeatures roomFeature){
-        return getRoom(roomId).hasFeature(roomFeature);
+        return catalogue.read(() -> getRoom(roomId).hasFeature(roomFeature));
     }
 
     /**
@@ -151,7 +371,7 @@ public class RoomManager {
      * @return true if room has all given room features, false otherwise.
      */
     public boolean hasFeatures(UUID roomId, List<RoomFeatures> roomFeatures){
-        return getRoom(roomId).hasFeatures(roomFeatures);
+        return catalogue.read(() -> getRoom(roomId).hasFeatures(roomFeatures));
     }
 
     /**
@@ -160,7 +380,12 @@ public class RoomManager {
      * @param feature the RoomFeatures to add
      */
     public void addFeature(UUID roomId, RoomFeatures feature){
-        getRoom(roomId).addFeature(feature);
+        catalogue.update(() -> {
+            getRoom(roomId).addFeature(feature);
+            searchIndex.setFeatureMask(roomId, getRoom(roomId).getFeatureMask());
+            version++;
+        });
+        changed(roomId);
     }
 
     /**
@@ -169,7 +394,12 @@ public class RoomManager {
      * @param feature the RoomFeatures to remove
      */
     public void removeFeature(UUID roomId, RoomFeatures feature){
-        getRoom(roomId).removeFeature(feature);
+        catalogue.update(() -> {
+            getRoom(roomId).removeFeature(feature);
+            searchIndex.setFeatureMask(roomId, getRoom(roomId).getFeatureMask());
+            version++;
+        });
+        changed(roomId);
     }
 
 }
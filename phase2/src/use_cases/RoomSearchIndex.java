@@ -0,0 +1,53 @@
+package use_cases;
+
+import enums.RoomFeatures;
+
+import java.util.*;
+
+/**
+ * An index of rooms by capacity and features, used to find the rooms that could hold an event without looking at
+ * every room. Rooms are kept sorted by capacity, and each room's features are kept as a bitmask (see
+ * RoomFeatures.bit) so that checking whether a room has every required feature is a single AND.
+ */
+public class RoomSearchIndex {
+    private TreeMap<Integer, ArrayList<UUID>> roomsByCapacity = new TreeMap<>();
+    private HashMap<UUID, Long> featureMasks = new HashMap<>();
+
+    /**
+     * Add a room to the index.
+     * @param roomId the id of the room
+     * @param capacity the capacity of the room
+     * @param featureMask the feature mask of the room
+     */
+    public void addRoom(UUID roomId, int capacity, long featureMask) {
+        roomsByCapacity.computeIfAbsent(capacity, c -> new ArrayList<>()).add(roomId);
+        featureMasks.put(roomId, featureMask);
+    }
+
+    /**
+     * Update the features of a room in the index.
+     * @param roomId the id of a room in the index
+     * @param featureMask the new feature mask of the room
+     */
+    public void setFeatureMask(UUID roomId, long featureMask) {
+        featureMasks.replace(roomId, featureMask);
+    }
+
+    /**
+     * Find the rooms that have enough capacity and every required feature, best fit first.
+     * @param requiredFeatures the feature mask of the features that are needed
+     * @param capacity the number of attendees the room must hold
+     * @return A List of room ids, ordered from the smallest sufficient capacity to the largest
+     */
+    public List<UUID> findCandidates(long requiredFeatures, int capacity) {
+        ArrayList<UUID> candidates = new ArrayList<>();
+        for (ArrayList<UUID> sameCapacity : roomsByCapacity.tailMap(capacity, true).values()) {
+            for (UUID roomId : sameCapacity) {
+                if ((featureMasks.get(roomId) & requiredFeatures) == requiredFeatures) {
+                    candidates.add(roomId);
+                }
+            }
+        }
+        return candidates;
+    }
+}
@@ -1,17 +1,32 @@
 package use_cases;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 import entities.User;
 import entities.Vip;
+import enums.EntityKind;
 import enums.UserType;
 
 /**
  * A use case class to interact with User objects
+ * Safe to use from many threads at once, with one UserManager per session (see newSession) so that each session has
+ * its own active user. The list of users is guarded by one read-write lock and the lists and details of each user by
+ * a lock striped by user id, so sessions changing different users do not wait on each other. A user's stripe is always
+ * taken before the list's lock, never while holding it. Users are never removed, so an index into the list of users
+ * stays valid.
  * @author Sophie and Irene
  */
 public class UserManager {
-    private ArrayList<User> allUsers;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ArrayList<User> allUsers;
+    private final ReadWriteGuard usersGuard;
+    private final LockStripes userStripes;
+    private final AtomicReference<MutationListener> mutationListener;
     private User activeUser = null;
 
     /**
@@ -20,14 +35,103 @@ public class UserManager {
      */
     public UserManager(List<User> loadedUsers){
         this.allUsers = new ArrayList<>(loadedUsers);
+        this.usersGuard = new ReadWriteGuard();
+        this.userStripes = new LockStripes(LOCK_STRIPES);
+        this.mutationListener = new AtomicReference<>();
+    }
+
+    private UserManager(UserManager shared){
+        this.allUsers = shared.allUsers;
+        this.usersGuard = shared.usersGuard;
+        this.userStripes = shared.userStripes;
+        this.mutationListener = shared.mutationListener;
+    }
+
+    /**
+     * Starts a new session on the same users: the returned UserManager shares every user and lock with this one, but
+     * has its own active user, starting with nobody logged in.
+     * @return a UserManager for the new session
+     */
+    public UserManager newSession() {
+        return new UserManager(this);
+    }
+
+    private ReadWriteGuard lockFor(User user) {
+        return userStripes.forId(user.getId());
+    }
+
+    /**
+     * Change a user under its lock, then tell the mutation listener.
+     */
+    private void update(User user, Runnable change) {
+        lockFor(user).update(change);
+        changed(user);
+    }
+
+    /**
+     * Change a user under its lock, then tell the mutation listener.
+     */
+    private <T> T write(User user, Supplier<T> change) {
+        T result = lockFor(user).write(change);
+        changed(user);
+        return result;
+    }
+
+    private void changed(User user) {
+        MutationListener listener = mutationListener.get();
+        if (listener != null) {
+            listener.entityChanged(EntityKind.USER, user.getId());
+        }
+    }
+
+    /**
+     * Set the listener told about every change to the users, in this session and every other, e.g. to copy them to
+     * replicas.
+     * @param listener the listener, or null to stop telling one
+     */
+    public void setMutationListener(MutationListener listener) {
+        mutationListener.set(listener);
+    }
+
+    /**
+     * Look at a user while nothing else can change it, e.g. to copy it.
+     * @param id the UUID of the user
+     * @param reader what to do with the user
+     * @param <T> the type of the result of reader
+     * @return the result of reader, or null if the user is not found
+     */
+    public <T> T readUser(UUID id, Function<User, T> reader) {
+        int index = findUserIndexById(id);
+        if (index == -1) {
+            return null;
+        }
+        User user = getUserByIndex(index);
+        return lockFor(user).read(() -> reader.apply(user));
+    }
+
+    /**
+     * Add a user as it is, or replace the user with the same id, e.g. with a copy from the primary on a replica.
+     * Sessions already logged in as the user keep the user as it was.
+     * @param user the user
+     */
+    public void putUser(User user) {
+        usersGuard.update(() -> {
+            for (int i = 0; i < allUsers.size(); i++) {
+                if (allUsers.get(i).getId().equals(user.getId())) {
+                    allUsers.set(i, user);
+                    return;
+                }
+            }
+            allUsers.add(user);
+        });
     }
 
     /**
      * Gets the full list of all registered users in the system
-     * @return A List of users
+     * @return A copy of the List of users, which users created later are not added to
      */
     public List<User> getAllUsers() {
-        return allUsers;
+        return usersGuard.read(() -> new ArrayList<>(allUsers));
     }
 
     /**
@@ -36,12 +140,14 @@ public class UserManager {
      * @return -1 when the user does not exist; otherwise return the index in the allUser arraylist
      */
     public int findUserIndexById(UUID id) {
-        for (User u: allUsers){
-            if (u.getId().equals(id)){
-                return allUsers.indexOf(u);
+        return usersGuard.read(() -> {
+            for (int i = 0; i < allUsers.size(); i++) {
+                if (allUsers.get(i).getId().equals(id)) {
+                    return i;
+                }
             }
-        }
-        return -1;
+            return -1;
+        });
     }
 
     /**
@@ -50,12 +156,14 @@ public class UserManager {
      * @return -1 when the user does not exist; otherwise return the index in the allUser arraylist
      */
     public int findUserByEmail(String userEmail) {
-        for (User u: allUsers){
-            if (u.getEmail().equals(userEmail)){
-                return allUsers.indexOf(u);
+        return usersGuard.read(() -> {
+            for (int i = 0; i < allUsers.size(); i++) {
+                if (allUsers.get(i).getEmail().equals(userEmail)) {
+                    return i;
+                }
             }
-        }
-        return -1;
+            return -1;
+        });
     }
 
     /**
@@ -64,7 +172,7 @@ public class UserManager {
      * @return a User object
      */
     public User getUserByIndex(int index) {
-        return allUsers.get(index);
+        return usersGuard.read(() -> allUsers.get(index));
     }
 
     /**
@@ -75,14 +183,34 @@ public class UserManager {
      * @param type a code to differentiate user types.
      */
     public void createUser(String name, String email, String password, UserType type) {
-        if (type == UserType.VIP) {
-            Vip newVipUser = new Vip(name, email, password);
-            allUsers.add(newVipUser);
-        }
-        else {
-            User newUser = new User(name, email, password, type);
-            allUsers.add(newUser);
+        User newUser = type == UserType.VIP ? new Vip(name, email, password) : new User(name, email, password, type);
+        usersGuard.update(() -> allUsers.add(newUser));
+        changed(newUser);
+    }
+
+    /**
+     * Creates a user account unless the email is already registered, checking and creating as one step, so that two
+     * accounts cannot be created with the same email.
+     * @param name the full name of the user
+     * @param email a valid email which will also serves as the username when logging in
+     * @param password a combination of characters defined by user
+     * @param type a code to differentiate user types.
+     * @return true if the account was created, false if the email is already registered
+     */
+    public boolean createUserIfAbsent(String name, String email, String password, UserType type) {
+        User newUser = type == UserType.VIP ? new Vip(name, email, password) : new User(name, email, password, type);
+        boolean created = usersGuard.write(() -> {
+            for (User user : allUsers) {
+                if (user.getEmail().equals(email)) {
+                    return false;
+                }
+            }
+            return allUsers.add(newUser);
+        });
+        if (created) {
+            changed(newUser);
         }
+        return created;
     }
 
     /**
@@ -90,7 +218,7 @@ public class UserManager {
      * @param id the UUID of a user
      */
     public void addFriendById(UUID id) {
-        activeUser.addToFriendsList(id);
+        update(activeUser, () -> activeUser.addToFriendsList(id));
     }
 
     /**
@@ -98,15 +226,15 @@ public class UserManager {
      * @param id the UUID of a user
      */
     public void removeFriendById(UUID id){
-        activeUser.removeFromFriendsList(id);
+        update(activeUser, () -> activeUser.removeFromFriendsList(id));
     }
 
     /**
      * Get list of events that the current user has signed up to.
-     * @return a List of events ID, each representing an unique event, that the current user has signed up to.
+     * @return a copy of the List of events ID, each representing an unique event, that the current user has signed up to.
      */
     public List<UUID> getEventList() {
-        return activeUser.getEventsList();
+        return lockFor(activeUser).read(() -> new ArrayList<>(activeUser.getEventsList()));
     }
 
     /**
@@ -114,7 +242,25 @@ public class UserManager {
      * @param id the UUID of an event
      */
     public void registerEventById(UUID id){
-        activeUser.addToEventsList(id);
+        update(activeUser, () -> activeUser.addToEventsList(id));
+    }
+
+
+    /**
+     * Adds an event ID to a user other than the current user, e.g. when they get a seat from an event's waitlist, if
+     * they are still signed up to it. This is checked while holding the user's lock, so it cannot undo the user
+     * disenrolling from the event at the same time.
+     * @param userId the UUID of the user
+     * @param eventId the UUID of an event
+     * @param eventsManager the EventsManager holding the event
+     */
+    public void registerEventForUser(UUID userId, UUID eventId, EventsManager eventsManager){
+        User user = getUserByIndex(findUserIndexById(userId));
+        update(user, () -> {
+            if (eventsManager.isUserSignedUp(userId, eventId) && !user.getEventsList().contains(eventId)) {
+                user.addToEventsList(eventId);
+            }
+        });
     }
 
 
@@ -123,7 +269,7 @@ public class UserManager {
      * @param id the UUID of an event
      */
     public void cancelEventById(UUID id){
-        activeUser.removeFromEventsList(id);
+        update(activeUser, () -> activeUser.removeFromEventsList(id));
     }
 
 
@@ -132,9 +278,11 @@ public class UserManager {
      * @param id the UUID of a conversation
      */
     public void startConversationById(UUID id) {
-        activeUser.addToConversationsList(id);
-        archiveConversation(id, 0,getIndexOfActiveUser());
-        deleteConversation(id, 0,getIndexOfActiveUser());
+        update(activeUser, () -> {
+            activeUser.addToConversationsList(id);
+            archiveConversation(id, 0,getIndexOfActiveUser());
+            deleteConversation(id, 0,getIndexOfActiveUser());
+        });
     }
 
     /**
@@ -153,10 +301,11 @@ public class UserManager {
      */
     public void addConversation(UUID conversationId, int userIndex){
         User user = getUserByIndex(userIndex);
-        user.addToConversationsList(conversationId);
-        archiveConversation(conversationId, 0,userIndex);
-        deleteConversation(conversationId, 0,userIndex);
-
+        update(user, () -> {
+            user.addToConversationsList(conversationId);
+            archiveConversation(conversationId, 0,userIndex);
+            deleteConversation(conversationId, 0,userIndex);
+        });
 
     }
 
@@ -167,16 +316,19 @@ public class UserManager {
      */
     public void markConversationAsUnread(UUID conversationId, int userIndex){
         User user = getUserByIndex(userIndex);
-
-        if (!user.getUnreadConversationsList().contains(conversationId)) {user.addToConversationsList(conversationId);}
+        update(user, () -> {
+            if (!user.getUnreadConversationsList().contains(conversationId)) {user.addToConversationsList(conversationId);}
+        });
     }
     /**
      * Method added by Laxan to mark a message as read.
      * @param conversationId The UUID of the conversation being marked as unread
      */
     public void markConversationAsRead(UUID conversationId){
-        if (activeUser.getUnreadConversationsList().contains(conversationId))
-        {activeUser.removeFromConversationsList(conversationId);}
+        update(activeUser, () -> {
+            if (activeUser.getUnreadConversationsList().contains(conversationId))
+            {activeUser.removeFromConversationsList(conversationId);}
+        });
     }
 
     /**
@@ -187,8 +339,21 @@ public class UserManager {
      */
     public void archiveConversation(UUID conversationId, Integer archiveIndex, int userIndex){
         User user1 = getUserByIndex(userIndex);
-        user1.addToHashMap(user1.getArchivedConversationsList(), conversationId, archiveIndex);
+        update(user1, () -> user1.addToHashMap(user1.getArchivedConversationsList(), conversationId, archiveIndex));
+    }
+    /**
+     * Archive a conversation up to its current length, read while nothing else can change the user's indexes, so that
+     * a compaction running at the same time cannot leave the index pointing past the messages it meant.
+     * @param conversationId The UUID of the conversation being archived
+     * @param archiveIndex gives the number of messages in the conversation; called under the user's lock
+     * @param userIndex index of user
+     */
+    public void archiveConversation(UUID conversationId, IntSupplier archiveIndex, int userIndex){
+        User user1 = getUserByIndex(userIndex);
+        update(user1, () -> user1.addToHashMap(user1.getArchivedConversationsList(), conversationId,
+                archiveIndex.getAsInt()));
     }
+
     /**
      * Method added by Laxan to delete a message .
      * @param conversationId The UUID of the conversation being deleted
@@ -197,23 +362,92 @@ public class UserManager {
      */
     public void deleteConversation(UUID conversationId, Integer deleteIndex, int userIndex){
         User user1 = getUserByIndex(userIndex);
-        user1.addToHashMap(user1.getDeletedConversationsList(), conversationId, deleteIndex);
+        update(user1, () -> user1.addToHashMap(user1.getDeletedConversationsList(), conversationId, deleteIndex));
+    }
+
+    /**
+     * Delete a conversation up to its current length, read while nothing else can change the user's indexes, so that
+     * a compaction running at the same time cannot leave the index pointing past the messages it meant.
+     * @param conversationId The UUID of the conversation being deleted
+     * @param deleteIndex gives the number of messages in the conversation; called under the user's lock
+     * @param userIndex index of user
+     */
+    public void deleteConversation(UUID conversationId, IntSupplier deleteIndex, int userIndex){
+        User user1 = getUserByIndex(userIndex);
+        update(user1, () -> user1.addToHashMap(user1.getDeletedConversationsList(), conversationId,
+                deleteIndex.getAsInt()));
+    }
+
+    /**
+     * Run an action while no session can change the given users, e.g. to read and change the conversation indexes of
+     * every participant of a conversation together. The users' locks are taken before the action takes any lock of
+     * another manager, such as a conversation's.
+     * @param userIds The UUIDs of the users
+     * @param action The action to run
+     * @param <T> The type of the result of action
+     * @return The result of action
+     */
+    public <T> T writeUsers(Collection<UUID> userIds, Supplier<T> action) {
+        return userStripes.writeAll(userIds, action);
+    }
+
+    /**
+     * Gets the index up to which a user has deleted a conversation.
+     * @param conversationId The UUID of the conversation
+     * @param userId The UUID of the user
+     * @return The number of messages in the conversation deleted by the user, 0 if the user is not found or has not
+     * deleted any
+     */
+    public int getDeletedIndex(UUID conversationId, UUID userId){
+        int index = findUserIndexById(userId);
+        if (index == -1) {
+            return 0;
+        }
+        User user = getUserByIndex(index);
+        return lockFor(user).read(() -> user.getDeletedConversationsList().getOrDefault(conversationId, 0));
+    }
+
+    /**
+     * Lowers the archive and delete indexes of a conversation for the given users after the oldest messages of the
+     * conversation were removed, so they still point at the same messages.
+     * @param conversationId The UUID of the conversation that had messages removed
+     * @param userIds The UUIDs of the users who have the conversation
+     * @param removed The number of messages removed from the start of the conversation
+     */
+    public void rebaseConversationIndexes(UUID conversationId, List<UUID> userIds, int removed){
+        for (UUID userId : userIds) {
+            int index = findUserIndexById(userId);
+            if (index == -1) {
+                continue;
+            }
+            User user = getUserByIndex(index);
+            update(user, () -> {
+                Integer archived = user.getArchivedConversationsList().get(conversationId);
+                if (archived != null) {
+                    user.addToHashMap(user.getArchivedConversationsList(), conversationId, Math.max(archived - removed, 0));
+                }
+                Integer deleted = user.getDeletedConversationsList().get(conversationId);
+                if (deleted != null) {
+                    user.addToHashMap(user.getDeletedConversationsList(), conversationId, Math.max(deleted - removed, 0));
+                }
+            });
+        }
     }
 
     /**
      * Gets the user's list of conversation and the index at which it was Archived
-     * @return HashMap of archived conversation IDs and indexes at which they were archived
+     * @return a copy of the HashMap of archived conversation IDs and indexes at which they were archived
      */
     public HashMap<UUID, Integer> getArchivedConversationsList() {
-        return activeUser.getArchivedConversationsList();
+        return lockFor(activeUser).read(() -> new HashMap<>(activeUser.getArchivedConversationsList()));
     }
 
     /**
      * Gets the user's list of conversation and the index at which it was deleted
-     * @return HashMap of deleted conversation IDs and indexes at which they were deleted
+     * @return a copy of the HashMap of deleted conversation IDs and indexes at which they were deleted
      */
     public HashMap<UUID, Integer> getDeletedConversationsList() {
-        return activeUser.getDeletedConversationsList();
+        return lockFor(activeUser).read(() -> new HashMap<>(activeUser.getDeletedConversationsList()));
     }
 
     /**
@@ -221,7 +455,7 @@ public class UserManager {
      * @return presenter.print of unread conversation UUID's
      */
     public List<UUID> getUnreadConversationList() {
-        return activeUser.getUnreadConversationsList();
+        return lockFor(activeUser).read(() -> new ArrayList<>(activeUser.getUnreadConversationsList()));
     }
 
     /**
@@ -229,8 +463,7 @@ public class UserManager {
      * @return User index of active user
      */
     public int getIndexOfActiveUser(){
-        return allUsers.indexOf(activeUser);
-
+        return usersGuard.read(() -> allUsers.indexOf(activeUser));
     }
 
     /**
@@ -239,18 +472,26 @@ public class UserManager {
      * @return Returns whether the user has the conversation in its conversationList
      */
     public boolean hasConversation(UUID conversationId){
-        if(activeUser.getConversationList().contains(conversationId)){
-            return true;
-        }
-        return false;
+        return lockFor(activeUser).read(() -> activeUser.getConversationList().contains(conversationId));
+    }
+
+    /**
+     * Determine if a user other than the current user has a conversation in its list.
+     * @param userId The UUID of the user
+     * @param conversationId The conversation ID to be checked
+     * @return Returns whether the user has the conversation in its conversationList
+     */
+    public boolean userHasConversation(UUID userId, UUID conversationId){
+        User user = getUserByIndex(findUserIndexById(userId));
+        return lockFor(user).read(() -> user.getConversationList().contains(conversationId));
     }
 
     /**
      * Method added by Nathan to get the current user's conversation list.
-     * @return The current user's conversation list
+     * @return A copy of the current user's conversation list
      */
     public List<UUID> getConversations(){
-        return activeUser.getConversationList();
+        return lockFor(activeUser).read(() -> new ArrayList<>(activeUser.getConversationList()));
     }
 
 
@@ -260,15 +501,16 @@ public class UserManager {
      * @return the name of the user
      */
     public String getUserName(int index) {
-        return getUserByIndex(index).getName();
+        User user = getUserByIndex(index);
+        return lockFor(user).read(user::getName);
     }
 
     /**
      * Gets user's list of Ids of friends
-     * @return list of friend ID
+     * @return a copy of the list of friend ID
      */
     public List<UUID> getFriends(){
-        return activeUser.getFriendsList();
+        return lockFor(activeUser).read(() -> new ArrayList<>(activeUser.getFriendsList()));
     }
 
     /**
@@ -288,7 +530,7 @@ public class UserManager {
      */
     public boolean isFriend(int index){
         User f = getUserByIndex(index);
-        return(activeUser.getFriendsList().contains(f.getId()));
+        return lockFor(activeUser).read(() -> activeUser.getFriendsList().contains(f.getId()));
     }
 
 	/**
@@ -298,7 +540,7 @@ public class UserManager {
 	 */
 	public boolean userHasMeAsFriend(int index){
     	User f = getUserByIndex(index);
-    	return f.getFriendsList().contains(getActiveUserId());
+    	return lockFor(f).read(() -> f.getFriendsList().contains(getActiveUserId()));
     }
 
     /**
@@ -314,7 +556,7 @@ public class UserManager {
      * @return The active user's type.
      */
     public UserType getActiveUserType() {
-        return activeUser.getType();
+        return lockFor(activeUser).read(activeUser::getType);
     }
 
     /**
@@ -322,7 +564,10 @@ public class UserManager {
      * @param index the index that corresponds to a user
      * @param newType the new type the user will be set to
      */
-    public void setUserType(int index, UserType newType){ getUserByIndex(index).setType(newType);}
+    public void setUserType(int index, UserType newType){
+        User user = getUserByIndex(index);
+        update(user, () -> user.setType(newType));
+    }
 
     /**
      * Returns whether or not a user is currently logged in.
@@ -338,10 +583,7 @@ public class UserManager {
      * @return Whether index is valid for allUsers
      */
     public boolean isValidUserIndex(int index) {
-        if((index >= 0) && (index < allUsers.size())){
-            return true;
-        }
-        return false;
+        return usersGuard.read(() -> (index >= 0) && (index < allUsers.size()));
     }
 
     /**
@@ -361,12 +603,18 @@ public class UserManager {
     }
 
     public boolean checkCredential(String email, String password){
-        for (User user : allUsers) {
-            if (user.getEmail().equalsIgnoreCase(email) && user.getPassword().equals(password)) {
-                return true;
+        return findUserByCredentials(email, password) != null;
+    }
+
+    private User findUserByCredentials(String email, String password){
+        return usersGuard.read(() -> {
+            for (User user : allUsers) {
+                if (user.getEmail().equalsIgnoreCase(email) && user.getPassword().equals(password)) {
+                    return user;
+                }
             }
-        }
-        return false;
+            return null;
+        });
     }
 
     /**
@@ -376,13 +624,7 @@ public class UserManager {
      * @return a boolean for whether or not the login was successful; true if it was, false if not.
      */
     public boolean login(String email, String password) {
-        User foundUser = null;
-        for (User user : allUsers) {
-            if (user.getEmail().equalsIgnoreCase(email) && user.getPassword().equals(password)) {
-                foundUser = user;
-                break;
-            }
-        }
+        User foundUser = findUserByCredentials(email, password);
         if (foundUser != null) {
             activeUser = foundUser;
             return true;
@@ -398,8 +640,8 @@ public class UserManager {
      */
     public List<UUID> getAllUsersOfType(UserType type) {
         ArrayList<UUID> allThoseUsers = new ArrayList<>();
-        for (User i : this.allUsers) {
-            if (i.getType().equals(type)) {
+        for (User i : getAllUsers()) {
+            if (lockFor(i).read(i::getType).equals(type)) {
                 allThoseUsers.add(i.getId());
             }
         }
@@ -415,7 +657,8 @@ public class UserManager {
     public List<String> displayUsers(List<UUID> selectUsers){
         ArrayList<String> displayUsers = new ArrayList<>();
         for (UUID i : selectUsers){
-            displayUsers.add(getUserByIndex(findUserIndexById(i)).toString());
+            User user = getUserByIndex(findUserIndexById(i));
+            displayUsers.add(lockFor(user).read(user::toString));
         }
         return displayUsers;
     }
@@ -426,7 +669,7 @@ public class UserManager {
      * @param name String object that represents new name of the active user.
      */
     public void setName (User user, String name) {
-        user.setName(name);
+        update(user, () -> user.setName(name));
     }
 
     /**
@@ -435,7 +678,7 @@ public class UserManager {
      * @param eventID UUID object that represents the event that will be removed from the user's event list.
      */
     public void removeEvent(User user, UUID eventID) {
-        user.removeFromEventsList(eventID);
+        update(user, () -> user.removeFromEventsList(eventID));
     }
 
     /***
@@ -444,8 +687,8 @@ public class UserManager {
      */
     public HashSet<UUID> getAllVipUsers() {
         HashSet<UUID> allVipIds = new HashSet<>();
-        for (User user : allUsers) {
-            if (user.getType() == UserType.VIP) {
+        for (User user : getAllUsers()) {
+            if (lockFor(user).read(user::getType) == UserType.VIP) {
                 allVipIds.add(user.getId());
             }
         }
@@ -458,12 +701,14 @@ public class UserManager {
      * @return if the process was successful
      */
     public boolean interestedInEvent(UUID eventId) {
-        if (((Vip)activeUser).getInterestedEventsIds().contains(eventId)) {
-            return false;
-        } else {
-            ((Vip)activeUser).interestedInEventId(eventId);
-            return true;
-        }
+        return write(activeUser, () -> {
+            if (((Vip)activeUser).getInterestedEventsIds().contains(eventId)) {
+                return false;
+            } else {
+                ((Vip)activeUser).interestedInEventId(eventId);
+                return true;
+            }
+        });
     }
 
     /***
@@ -472,21 +717,23 @@ public class UserManager {
      * @return if the process was successful
      */
     public boolean uninterestedInEvent(UUID eventId) {
-        if (!((Vip)activeUser).getInterestedEventsIds().contains(eventId)) {
-            return false;
-        } else {
-            ((Vip)activeUser).getInterestedEventsIds().add(eventId);
-            ((Vip)activeUser).uninterestedInEventId(eventId);
-            return true;
-        }
+        return write(activeUser, () -> {
+            if (!((Vip)activeUser).getInterestedEventsIds().contains(eventId)) {
+                return false;
+            } else {
+                ((Vip)activeUser).getInterestedEventsIds().add(eventId);
+                ((Vip)activeUser).uninterestedInEventId(eventId);
+                return true;
+            }
+        });
     }
 
     /***
      * Get the set of all interested event of active vip user
-     * @return Hashset of UUID, which represents the interested events' ids
+     * @return a copy of the Hashset of UUID, which represents the interested events' ids
      */
     public HashSet<UUID> getInterestedEventsIds() {
-        return ((Vip)activeUser).getInterestedEventsIds();
+        return lockFor(activeUser).read(() -> new HashSet<>(((Vip)activeUser).getInterestedEventsIds()));
     }
 
     /***
@@ -495,12 +742,14 @@ public class UserManager {
      * @return if the process was successful
      */
     public boolean likeSpeakerById(UUID speakerId) {
-        if (((Vip)activeUser).getFavouriteSpeakersId().contains(speakerId)) {
-            return false;
-        } else {
-            ((Vip)activeUser).likeSpeakerById(speakerId);
-            return true;
-        }
+        return write(activeUser, () -> {
+            if (((Vip)activeUser).getFavouriteSpeakersId().contains(speakerId)) {
+                return false;
+            } else {
+                ((Vip)activeUser).likeSpeakerById(speakerId);
+                return true;
+            }
+        });
     }
 
     /***
@@ -509,12 +758,14 @@ public class UserManager {
      * @return if the process was successful
      */
     public boolean dislikeSpeakerById(UUID speakerId) {
-        if (!((Vip)activeUser).getFavouriteSpeakersId().contains(speakerId)) {
-            return false;
-        } else {
-            ((Vip)activeUser).dislikeSpeakerById(speakerId);
-            return true;
-        }
+        return write(activeUser, () -> {
+            if (!((Vip)activeUser).getFavouriteSpeakersId().contains(speakerId)) {
+                return false;
+            } else {
+                ((Vip)activeUser).dislikeSpeakerById(speakerId);
+                return true;
+            }
+        });
     }
 
     /***
@@ -522,7 +773,7 @@ public class UserManager {
      * @return List of UUID, which are the ids of the favourite speakers of active user.
      */
     public List<UUID> getFavouriteSpeakersId() {
-        return new ArrayList<>(((Vip)activeUser).getFavouriteSpeakersId());
+        return lockFor(activeUser).read(() -> new ArrayList<>(((Vip)activeUser).getFavouriteSpeakersId()));
     }
 
     /***
@@ -534,11 +785,7 @@ public class UserManager {
      */
     public boolean isFavouriteSpeaker(UUID vipId, UUID speakerId) {
         Vip vip = (Vip) getUserByIndex(findUserIndexById(vipId));
-        if (vip.getFavouriteSpeakersId().contains(speakerId)){
-            return true;
-        } else {
-            return false;
-        }
+        return lockFor(vip).read(() -> vip.getFavouriteSpeakersId().contains(speakerId));
     }
 
 }
\ No newline at end of file
@@ -5,9 +5,10 @@ import entities.UserRequest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
- * A Use Case class for managing UserRequests.
+ * A Use Case class for managing UserRequests. Shared by every session, so each method holds the manager's lock.
  * @author Laxan Premachandran
  */
 public class UserRequestManager {
@@ -27,7 +28,7 @@ public class UserRequestManager {
      * @param content String representation of request
      * @param eventID UUID of associated event
      */
-    public void addUserRequest( UUID senderId, String content, UUID eventID){
+    public synchronized void addUserRequest( UUID senderId, String content, UUID eventID){
         allUserRequests.add(new UserRequest( senderId, content, eventID));
     }
 
@@ -36,7 +37,7 @@ public class UserRequestManager {
      * @param isAddressed boolean
      * @return List of UserRequests with the given status
      */
-    public List<UserRequest> getUserRequestByStatus(boolean isAddressed){
+    public synchronized List<UserRequest> getUserRequestByStatus(boolean isAddressed){
         ArrayList<UserRequest> output = new ArrayList<>();
         for (UserRequest r: allUserRequests){
             if (r.getIsAddressed()== isAddressed){output.add(r);}
@@ -49,7 +50,7 @@ public class UserRequestManager {
      * @param id UUID of UserRequest
      * @return index of UserRequest in allUserRequests
      */
-    public int findRequestIndexById(UUID id) {
+    public synchronized int findRequestIndexById(UUID id) {
         for (UserRequest r: allUserRequests){
             if (r.getId().equals(id)){
                 return allUserRequests.indexOf(r);
@@ -62,15 +63,25 @@ public class UserRequestManager {
      * Marks a UserRequest as addressed
      * @param index index of userRequest in allUserRequests
      */
-    public void markUserRequestAsAddressed(int index){
+    public synchronized void markUserRequestAsAddressed(int index){
         allUserRequests.get(index).setIsAddressed(true);
     }
 
     /**
      * Gets the full list of all user requests
-     * @return a List of UserRequest
+     * @return a copy of the List of UserRequest
      */
-    public List<UserRequest> getAllUserRequests() {
-        return allUserRequests;
+    public synchronized List<UserRequest> getAllUserRequests() {
+        return new ArrayList<>(allUserRequests);
+    }
+
+    /**
+     * Look at every user request while none can be added or marked as addressed, e.g. to copy them.
+     * @param reader what to do with the user requests
+     * @param <T> the type of the result of reader
+     * @return the result of reader
+     */
+    public synchronized <T> T readAllUserRequests(Function<List<UserRequest>, T> reader) {
+        return reader.apply(allUserRequests);
     }
 }
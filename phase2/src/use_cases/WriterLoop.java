@@ -0,0 +1,171 @@
+package use_cases;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs every change to the managers on one writer thread, in the order they were submitted. Callers get a future
+ * back instead of waiting for locks, and any number of threads can read from published snapshots (such as
+ * EventCatalogue's) in the meantime.
+ * Changes wait in a fixed size ring buffer; submitting blocks while it is full, so callers cannot get further ahead
+ * of the writer than that. The writer takes the changes waiting in the buffer in batches, runs them, publishes once
+ * per batch, and only then completes their futures, so a caller sees its own change in the snapshots as soon as its
+ * future is done.
+ */
+public class WriterLoop {
+    private static final int MAX_BATCH = 1024;
+
+    private final ArrayBlockingQueue<Change<?>> changes;
+    private final Runnable publish;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for WriterLoop. The writer thread starts right away.
+     * @param capacity the number of changes that can wait for the writer
+     * @param publish run on the writer thread after each batch of changes, to publish the snapshots readers use
+     */
+    public WriterLoop(int capacity, Runnable publish) {
+        this.changes = new ArrayBlockingQueue<>(capacity);
+        this.publish = publish;
+        this.writer = new Thread(this::run, "writer-loop");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Submit a change to be run on the writer thread. A change submitted from the writer thread itself is run
+     * straight away, since the writer would otherwise wait for itself.
+     * @param change the change to run
+     * @param <T> the type of the result of change
+     * @return a future completed with the result of change, or exceptionally with what it threw, once the batch it
+     * ran in has been published
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> change) {
+        Change<T> submitted = new Change<>(change);
+        if (Thread.currentThread() == writer) {
+            submitted.run();
+            submitted.complete();
+            return submitted.result;
+        }
+        if (!running) {
+            submitted.result.completeExceptionally(stopped());
+            return submitted.result;
+        }
+        try {
+            changes.put(submitted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            submitted.result.completeExceptionally(e);
+            return submitted.result;
+        }
+        // If the writer stopped while this change was being put, nothing may be left to run it. Whoever takes it out
+        // of the buffer first completes it: the writer, stop, or this.
+        if (!running && changes.remove(submitted)) {
+            submitted.result.completeExceptionally(stopped());
+        }
+        return submitted.result;
+    }
+
+    /**
+     * @return The number of changes waiting for the writer
+     */
+    public int getBacklog() {
+        return changes.size();
+    }
+
+    /**
+     * Run the changes already submitted, then stop the writer thread. Changes submitted afterwards fail.
+     * @throws InterruptedException if interrupted while waiting for the writer to finish
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join();
+        failRemaining();
+    }
+
+    private void failRemaining() {
+        ArrayList<Change<?>> late = new ArrayList<>();
+        changes.drainTo(late);
+        for (Change<?> change : late) {
+            change.result.completeExceptionally(stopped());
+        }
+    }
+
+    private static IllegalStateException stopped() {
+        return new IllegalStateException("The writer loop has been stopped.");
+    }
+
+    private void run() {
+        try {
+            runBatches();
+        } finally {
+            failRemaining();
+        }
+    }
+
+    private void runBatches() {
+        ArrayList<Change<?>> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !changes.isEmpty()) {
+            try {
+                Change<?> first = changes.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            changes.drainTo(batch, MAX_BATCH - 1);
+            for (Change<?> change : batch) {
+                change.run();
+            }
+            try {
+                publish.run();
+            } catch (Throwable e) {
+                // The changes were made; readers rebuild the snapshots themselves if they were not published.
+            }
+            for (Change<?> change : batch) {
+                change.complete();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * A submitted change, and its outcome until its future is completed.
+     */
+    private static class Change<T> {
+        private final Supplier<T> change;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Throwable failure;
+
+        Change(Supplier<T> change) {
+            this.change = change;
+        }
+
+        /**
+         * Run the change, keeping anything it throws, even an Error, for its future rather than letting it end the
+         * writer and leave every later change waiting.
+         */
+        void run() {
+            try {
+                value = change.get();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package value_holders;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A class for storing the display rows of every event at one point in time, used by EventCatalogue to give the events
+ * list to MainController without looking each event up again. Never changes once created, so it can be read by any
+ * number of threads without locking.
+ */
+public class CatalogueSnapshot {
+	private final long eventsVersion;
+	private final long roomsVersion;
+	private final List<UUID> eventIds;
+	private final List<String> rows;
+	private final Map<UUID, String> rowsById;
+
+	/**
+	 * The constructor for a CatalogueSnapshot object
+	 * @param eventsVersion The version of the events the rows were made from
+	 * @param roomsVersion The version of the rooms the rows were made from
+	 * @param eventIds The ids of every event, in order of starting time
+	 * @param rows The display row of each event, in the same order as eventIds
+	 */
+	public CatalogueSnapshot(long eventsVersion, long roomsVersion, List<UUID> eventIds, List<String> rows) {
+		this.eventsVersion = eventsVersion;
+		this.roomsVersion = roomsVersion;
+		this.eventIds = Collections.unmodifiableList(eventIds);
+		this.rows = Collections.unmodifiableList(rows);
+		HashMap<UUID, String> rowsById = new HashMap<>();
+		for (int i = 0; i < eventIds.size(); i++) {
+			rowsById.put(eventIds.get(i), rows.get(i));
+		}
+		this.rowsById = rowsById;
+	}
+
+	/**
+	 * Getter for eventsVersion
+	 * @return Returns eventsVersion
+	 */
+	public long getEventsVersion() {
+		return eventsVersion;
+	}
+
+	/**
+	 * Getter for roomsVersion
+	 * @return Returns roomsVersion
+	 */
+	public long getRoomsVersion() {
+		return roomsVersion;
+	}
+
+	/**
+	 * Getter for eventIds
+	 * @return Returns eventIds, which cannot be modified
+	 */
+	public List<UUID> getEventIds() {
+		return eventIds;
+	}
+
+	/**
+	 * Getter for rows
+	 * @return Returns rows, which cannot be modified
+	 */
+	public List<String> getRows() {
+		return rows;
+	}
+
+	/**
+	 * @param eventId The id of an event
+	 * @return Returns the display row of the event, or null if the event is not in this snapshot
+	 */
+	public String getRow(UUID eventId) {
+		return rowsById.get(eventId);
+	}
+}
@@ -0,0 +1,54 @@
+package value_holders;
+
+import enums.UserOption;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class for storing one command for CommandController: the option to perform, the session it is performed in, and
+ * the answers that MainController would have asked the user for, by name.
+ */
+public class CommandRequest {
+	private final String sessionToken;
+	private final UserOption option;
+	private final Map<String, String> parameters;
+
+	/**
+	 * The constructor for a CommandRequest object
+	 * @param sessionToken The token given when the session logged in, or null for commands that start a session
+	 * @param option The option to perform
+	 * @param parameters The parameters of the option by name
+	 */
+	public CommandRequest(String sessionToken, UserOption option, Map<String, String> parameters) {
+		this.sessionToken = sessionToken;
+		this.option = option;
+		this.parameters = Collections.unmodifiableMap(new HashMap<>(parameters));
+	}
+
+	/**
+	 * Getter for sessionToken
+	 * @return Returns sessionToken
+	 */
+	public String getSessionToken() {
+		return sessionToken;
+	}
+
+	/**
+	 * Getter for option
+	 * @return Returns option
+	 */
+	public UserOption getOption() {
+		return option;
+	}
+
+	/**
+	 * Getter for a parameter
+	 * @param name The name of the parameter
+	 * @return Returns the value of the parameter, or null if it was not given
+	 */
+	public String getParameter(String name) {
+		return parameters.get(name);
+	}
+}
@@ -0,0 +1,87 @@
+package value_holders;
+
+import enums.CommandStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A class for storing the outcome of a CommandRequest, given back by CommandController. The message is the text
+ * MainController would have printed. Commands that list events or users also give their display rows, and the ids
+ * those rows stand for, so that the ids can be sent back in later commands.
+ */
+public class CommandResult {
+	private final CommandStatus status;
+	private final String message;
+	private final List<String> rows;
+	private final List<UUID> ids;
+	private final String sessionToken;
+
+	/**
+	 * The constructor for a CommandResult object
+	 * @param status Whether the command was performed
+	 * @param message The text describing the outcome
+	 * @param rows The display rows of the listed items, if any
+	 * @param ids The ids of the listed items, in the same order as rows
+	 * @param sessionToken The token of the session the command was performed in
+	 */
+	public CommandResult(CommandStatus status, String message, List<String> rows, List<UUID> ids, String sessionToken) {
+		this.status = status;
+		this.message = message;
+		this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+		this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+		this.sessionToken = sessionToken;
+	}
+
+	/**
+	 * The constructor for a CommandResult object that lists nothing
+	 * @param status Whether the command was performed
+	 * @param message The text describing the outcome
+	 * @param sessionToken The token of the session the command was performed in
+	 */
+	public CommandResult(CommandStatus status, String message, String sessionToken) {
+		this(status, message, new ArrayList<>(), new ArrayList<>(), sessionToken);
+	}
+
+	/**
+	 * Getter for status
+	 * @return Returns status
+	 */
+	public CommandStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * Getter for message
+	 * @return Returns message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Getter for rows
+	 * @return Returns rows
+	 */
+	public List<String> getRows() {
+		return rows;
+	}
+
+	/**
+	 * Getter for ids
+	 * @return Returns ids
+	 */
+	public List<UUID> getIds() {
+		return ids;
+	}
+
+	/**
+	 * Getter for sessionToken
+	 * @return Returns sessionToken
+	 */
+	public String getSessionToken() {
+		return sessionToken;
+	}
+}
@@ -0,0 +1,77 @@
+package value_holders;
+
+import enums.ConvoType;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A class for storing what a user's inbox shows about one conversation, without its messages: who takes part, how
+ * many messages it has, and when the last one was sent.
+ */
+public class ConversationSummary {
+	private final UUID id;
+	private final ConvoType type;
+	private final List<UUID> participants;
+	private final int messageCount;
+	private final LocalDateTime lastMessageTime;
+
+	/**
+	 * The constructor for a ConversationSummary object
+	 * @param id The conversation's id
+	 * @param type The conversation's type
+	 * @param participants The conversation's participants
+	 * @param messageCount The number of messages in the conversation
+	 * @param lastMessageTime When the last message was sent, or null if there are no messages
+	 */
+	public ConversationSummary(UUID id, ConvoType type, List<UUID> participants, int messageCount,
+							   LocalDateTime lastMessageTime) {
+		this.id = id;
+		this.type = type;
+		this.participants = Collections.unmodifiableList(participants);
+		this.messageCount = messageCount;
+		this.lastMessageTime = lastMessageTime;
+	}
+
+	/**
+	 * Getter for id
+	 * @return Returns id
+	 */
+	public UUID getId() {
+		return id;
+	}
+
+	/**
+	 * Getter for type
+	 * @return Returns type
+	 */
+	public ConvoType getType() {
+		return type;
+	}
+
+	/**
+	 * Getter for participants
+	 * @return Returns participants
+	 */
+	public List<UUID> getParticipants() {
+		return participants;
+	}
+
+	/**
+	 * Getter for messageCount
+	 * @return Returns messageCount
+	 */
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * Getter for lastMessageTime
+	 * @return Returns lastMessageTime, or null if there are no messages
+	 */
+	public LocalDateTime getLastMessageTime() {
+		return lastMessageTime;
+	}
+}
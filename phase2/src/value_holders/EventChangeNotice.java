@@ -0,0 +1,99 @@
+package value_holders;
+
+import enums.EventChange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A class for storing a change to an event for NotificationDispatcher: what changed, the event as it was when it
+ * changed, the speakers whose fans should hear about it, and the users it happened to. The event may no longer exist
+ * by the time the notice is delivered, so everything the notifications say about it is kept here.
+ */
+public class EventChangeNotice {
+	private final EventChange change;
+	private final UUID eventId;
+	private final String eventName;
+	private final String eventString;
+	private final int capacity;
+	private final List<UUID> speakerIds;
+	private final List<UUID> userIds;
+
+	/**
+	 * The constructor for an EventChangeNotice object
+	 * @param change What happened to the event
+	 * @param eventId The id of the event
+	 * @param eventName The name of the event
+	 * @param eventString The details of the event, as shown to users
+	 * @param capacity The capacity of the event
+	 * @param speakerIds The speakers whose fans are told about the change
+	 * @param userIds The users the change happened to, such as the attendees of a cancelled event
+	 */
+	public EventChangeNotice(EventChange change, UUID eventId, String eventName, String eventString,
+							 int capacity, List<UUID> speakerIds, List<UUID> userIds) {
+		this.change = change;
+		this.eventId = eventId;
+		this.eventName = eventName;
+		this.eventString = eventString;
+		this.capacity = capacity;
+		this.speakerIds = Collections.unmodifiableList(speakerIds);
+		this.userIds = Collections.unmodifiableList(userIds);
+	}
+
+	/**
+	 * Getter for change
+	 * @return Returns change
+	 */
+	public EventChange getChange() {
+		return change;
+	}
+
+	/**
+	 * Getter for eventId
+	 * @return Returns eventId
+	 */
+	public UUID getEventId() {
+		return eventId;
+	}
+
+	/**
+	 * Getter for eventName
+	 * @return Returns eventName
+	 */
+	public String getEventName() {
+		return eventName;
+	}
+
+	/**
+	 * Getter for eventString
+	 * @return Returns eventString
+	 */
+	public String getEventString() {
+		return eventString;
+	}
+
+	/**
+	 * Getter for capacity
+	 * @return Returns capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Getter for speakerIds
+	 * @return Returns speakerIds
+	 */
+	public List<UUID> getSpeakerIds() {
+		return speakerIds;
+	}
+
+	/**
+	 * Getter for userIds
+	 * @return Returns userIds
+	 */
+	public List<UUID> getUserIds() {
+		return userIds;
+	}
+}
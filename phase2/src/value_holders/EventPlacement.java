@@ -0,0 +1,50 @@
+package value_holders;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A class for storing the room and time chosen for an EventRequest, given back by BatchScheduler during
+ * scheduleEvents().
+ */
+public class EventPlacement {
+	private EventRequest request;
+	private UUID roomId;
+	private LocalDateTime start;
+
+	/**
+	 * The constructor for an EventPlacement object
+	 * @param request The event that was placed
+	 * @param roomId The id of the room chosen for the event
+	 * @param start The time chosen for the event to start
+	 */
+	public EventPlacement(EventRequest request, UUID roomId, LocalDateTime start) {
+		this.request = request;
+		this.roomId = roomId;
+		this.start = start;
+	}
+
+	/**
+	 * Getter for request
+	 * @return Returns request
+	 */
+	public EventRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * Getter for roomId
+	 * @return Returns roomId
+	 */
+	public UUID getRoomId() {
+		return roomId;
+	}
+
+	/**
+	 * Getter for start
+	 * @return Returns start
+	 */
+	public LocalDateTime getStart() {
+		return start;
+	}
+}
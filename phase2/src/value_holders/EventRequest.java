@@ -0,0 +1,99 @@
+package value_holders;
+
+import enums.RoomFeatures;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A class for storing an event that still needs a room and a time, used to give BatchScheduler the events to place
+ * during scheduleEvents().
+ */
+public class EventRequest {
+	private String name;
+	private Set<UUID> speakers;
+	private int capacity;
+	private int duration;
+	private List<RoomFeatures> features;
+	private LocalDateTime earliestStart;
+	private LocalDateTime latestEnd;
+
+	/**
+	 * The constructor for an EventRequest object
+	 * @param name The name of the event
+	 * @param speakers The speakers of the event, who must all be free while it runs
+	 * @param capacity The maximum number of attendees of the event
+	 * @param duration The number of hours the event lasts
+	 * @param features The features the event's room must have
+	 * @param earliestStart The earliest time the event may start
+	 * @param latestEnd The latest time the event may end
+	 */
+	public EventRequest(String name, Set<UUID> speakers, int capacity, int duration, List<RoomFeatures> features,
+						LocalDateTime earliestStart, LocalDateTime latestEnd) {
+		this.name = name;
+		this.speakers = speakers;
+		this.capacity = capacity;
+		this.duration = duration;
+		this.features = features;
+		this.earliestStart = earliestStart;
+		this.latestEnd = latestEnd;
+	}
+
+	/**
+	 * Getter for name
+	 * @return Returns name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for speakers
+	 * @return Returns speakers
+	 */
+	public Set<UUID> getSpeakers() {
+		return speakers;
+	}
+
+	/**
+	 * Getter for capacity
+	 * @return Returns capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Getter for duration
+	 * @return Returns duration
+	 */
+	public int getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Getter for features
+	 * @return Returns features
+	 */
+	public List<RoomFeatures> getFeatures() {
+		return features;
+	}
+
+	/**
+	 * Getter for earliestStart
+	 * @return Returns earliestStart
+	 */
+	public LocalDateTime getEarliestStart() {
+		return earliestStart;
+	}
+
+	/**
+	 * Getter for latestEnd
+	 * @return Returns latestEnd
+	 */
+	public LocalDateTime getLatestEnd() {
+		return latestEnd;
+	}
+}
@@ -0,0 +1,60 @@
+package value_holders;
+
+import java.util.UUID;
+
+/**
+ * A class for storing a message found by a search, used to give printable information to UserController during
+ * searchMessages().
+ */
+public class MessageSearchResult {
+	private UUID conversationId;
+	private int conversationIndex;
+	private MessageInfo message;
+	private double score;
+
+	/**
+	 * The constructor for a MessageSearchResult object
+	 * @param conversationId The id of the conversation the message belongs to
+	 * @param conversationIndex The index of the conversation the message belongs to
+	 * @param message The message's information
+	 * @param score How well the message matched the search, higher is better
+	 */
+	public MessageSearchResult(UUID conversationId, int conversationIndex, MessageInfo message, double score) {
+		this.conversationId = conversationId;
+		this.conversationIndex = conversationIndex;
+		this.message = message;
+		this.score = score;
+	}
+
+	/**
+	 * Getter for conversationId
+	 * @return Returns conversationId
+	 */
+	public UUID getConversationId() {
+		return conversationId;
+	}
+
+	/**
+	 * Getter for conversationIndex
+	 * @return Returns conversationIndex
+	 */
+	public int getConversationIndex() {
+		return conversationIndex;
+	}
+
+	/**
+	 * Getter for message
+	 * @return Returns message
+	 */
+	public MessageInfo getMessage() {
+		return message;
+	}
+
+	/**
+	 * Getter for score
+	 * @return Returns score
+	 */
+	public double getScore() {
+		return score;
+	}
+}
@@ -0,0 +1,39 @@
+package value_holders;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A class for storing a room and a time it is free from, used to suggest times to organizers during
+ * createEventHelper().
+ */
+public class RoomSlot {
+	private UUID roomId;
+	private LocalDateTime start;
+
+	/**
+	 * The constructor for a RoomSlot object
+	 * @param roomId The id of the free room
+	 * @param start The time the room is free from
+	 */
+	public RoomSlot(UUID roomId, LocalDateTime start) {
+		this.roomId = roomId;
+		this.start = start;
+	}
+
+	/**
+	 * Getter for roomId
+	 * @return Returns roomId
+	 */
+	public UUID getRoomId() {
+		return roomId;
+	}
+
+	/**
+	 * Getter for start
+	 * @return Returns start
+	 */
+	public LocalDateTime getStart() {
+		return start;
+	}
+}
@@ -0,0 +1,38 @@
+package value_holders;
+
+import java.util.List;
+
+/**
+ * A class for storing the outcome of placing a batch of EventRequests, given back by BatchScheduler during
+ * scheduleEvents().
+ */
+public class ScheduleResult {
+	private List<EventPlacement> placements;
+	private List<EventRequest> unplaced;
+
+	/**
+	 * The constructor for a ScheduleResult object
+	 * @param placements The room and time chosen for each event that could be placed
+	 * @param unplaced The events that could not be given a room and time
+	 */
+	public ScheduleResult(List<EventPlacement> placements, List<EventRequest> unplaced) {
+		this.placements = placements;
+		this.unplaced = unplaced;
+	}
+
+	/**
+	 * Getter for placements
+	 * @return Returns placements
+	 */
+	public List<EventPlacement> getPlacements() {
+		return placements;
+	}
+
+	/**
+	 * Getter for unplaced
+	 * @return Returns unplaced
+	 */
+	public List<EventRequest> getUnplaced() {
+		return unplaced;
+	}
+}